@@ -49,9 +49,23 @@ public final class AsyncFSOutputHelper {
       boolean createParent, short replication, long blockSize, EventLoopGroup eventLoopGroup,
       Class<? extends Channel> channelClass)
       throws IOException, CommonFSUtils.StreamLacksCapabilityException {
+    return createOutput(fs, f, overwrite, createParent, replication, blockSize, eventLoopGroup,
+      channelClass, null);
+  }
+
+  /**
+   * Same as above, but for {@link DistributedFileSystem} the pipeline does not include the
+   * datanodes which the given {@link ExcludeDatanodeManager} found slow, if possible.
+   * @param excludeDatanodeManager the slow datanodes to exclude, can be null
+   */
+  public static AsyncFSOutput createOutput(FileSystem fs, Path f, boolean overwrite,
+      boolean createParent, short replication, long blockSize, EventLoopGroup eventLoopGroup,
+      Class<? extends Channel> channelClass, ExcludeDatanodeManager excludeDatanodeManager)
+      throws IOException, CommonFSUtils.StreamLacksCapabilityException {
     if (fs instanceof DistributedFileSystem) {
       return FanOutOneBlockAsyncDFSOutputHelper.createOutput((DistributedFileSystem) fs, f,
-        overwrite, createParent, replication, blockSize, eventLoopGroup, channelClass);
+        overwrite, createParent, replication, blockSize, eventLoopGroup, channelClass,
+        excludeDatanodeManager);
     }
     final FSDataOutputStream out;
     int bufferSize = fs.getConf().getInt(CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY,
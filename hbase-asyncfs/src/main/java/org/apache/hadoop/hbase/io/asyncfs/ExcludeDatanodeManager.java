@@ -0,0 +1,149 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.asyncfs;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the datanodes which were slow to ack the packets of a
+ * {@link FanOutOneBlockAsyncDFSOutput}, so the next output, created when the WAL rolls, asks the
+ * namenode for a pipeline without them.
+ * <p/>
+ * A datanode is slow once {@link #SLOW_ACK_COUNT_KEY} of its acks within
+ * {@link #SLOW_ACK_WINDOW_MS_KEY} took more than {@link #SLOW_ACK_TIME_MS_KEY}. It is then excluded
+ * for {@link #EXCLUDE_TTL_MS_KEY}. At most {@link #MAX_EXCLUDED_KEY} datanodes are excluded at the
+ * same time, and if the namenode can not place the block without them the output is created
+ * without excluding any, see {@link FanOutOneBlockAsyncDFSOutputHelper}.
+ */
+@InterfaceAudience.Private
+public class ExcludeDatanodeManager implements FanOutOneBlockAsyncDFSOutput.AckListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExcludeDatanodeManager.class);
+
+  public static final String SLOW_ACK_TIME_MS_KEY =
+    "hbase.regionserver.async.wal.datanode.slow.ack.time.ms";
+
+  public static final long DEFAULT_SLOW_ACK_TIME_MS = 6000;
+
+  public static final String SLOW_ACK_COUNT_KEY =
+    "hbase.regionserver.async.wal.datanode.slow.ack.count";
+
+  public static final int DEFAULT_SLOW_ACK_COUNT = 3;
+
+  public static final String SLOW_ACK_WINDOW_MS_KEY =
+    "hbase.regionserver.async.wal.datanode.slow.ack.window.ms";
+
+  public static final long DEFAULT_SLOW_ACK_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+
+  public static final String EXCLUDE_TTL_MS_KEY =
+    "hbase.regionserver.async.wal.exclude.datanode.ttl.ms";
+
+  public static final long DEFAULT_EXCLUDE_TTL_MS = TimeUnit.HOURS.toMillis(6);
+
+  public static final String MAX_EXCLUDED_KEY =
+    "hbase.regionserver.async.wal.max.exclude.datanode.count";
+
+  public static final int DEFAULT_MAX_EXCLUDED = 3;
+
+  private final long slowAckTimeNs;
+
+  private final int slowAckCount;
+
+  private final long slowAckWindowMs;
+
+  private final long excludeTtlMs;
+
+  private final int maxExcluded;
+
+  // the times of the recent slow acks of each datanode, updated from the event loops
+  private final ConcurrentMap<DatanodeInfo, Deque<Long>> slowAcks = new ConcurrentHashMap<>();
+
+  // the time each datanode was excluded at, guarded by this
+  private final Map<DatanodeInfo, Long> excluded = new HashMap<>();
+
+  public ExcludeDatanodeManager(Configuration conf) {
+    this.slowAckTimeNs = TimeUnit.MILLISECONDS
+      .toNanos(conf.getLong(SLOW_ACK_TIME_MS_KEY, DEFAULT_SLOW_ACK_TIME_MS));
+    this.slowAckCount = conf.getInt(SLOW_ACK_COUNT_KEY, DEFAULT_SLOW_ACK_COUNT);
+    this.slowAckWindowMs = conf.getLong(SLOW_ACK_WINDOW_MS_KEY, DEFAULT_SLOW_ACK_WINDOW_MS);
+    this.excludeTtlMs = conf.getLong(EXCLUDE_TTL_MS_KEY, DEFAULT_EXCLUDE_TTL_MS);
+    this.maxExcluded = conf.getInt(MAX_EXCLUDED_KEY, DEFAULT_MAX_EXCLUDED);
+  }
+
+  @Override
+  public void onAck(DatanodeInfo datanode, long timeInNanos) {
+    if (timeInNanos <= slowAckTimeNs || maxExcluded <= 0) {
+      return;
+    }
+    long now = EnvironmentEdgeManager.currentTime();
+    Deque<Long> acks = slowAcks.computeIfAbsent(datanode, k -> new ConcurrentLinkedDeque<>());
+    acks.addLast(now);
+    for (Long first; (first = acks.peekFirst()) != null && now - first > slowAckWindowMs;) {
+      acks.pollFirst();
+    }
+    if (acks.size() >= slowAckCount) {
+      acks.clear();
+      exclude(datanode, now);
+    }
+  }
+
+  private synchronized void exclude(DatanodeInfo datanode, long now) {
+    removeExpired(now);
+    if (excluded.containsKey(datanode)) {
+      return;
+    }
+    if (excluded.size() >= maxExcluded) {
+      LOG.debug("Not excluding slow datanode {}, already excluding {} datanodes", datanode,
+        excluded.size());
+      return;
+    }
+    excluded.put(datanode, now);
+    LOG.warn("Excluding datanode {} from the next pipelines for {} ms, {} of its acks took more "
+        + "than {} ms within {} ms", datanode, excludeTtlMs, slowAckCount,
+      TimeUnit.NANOSECONDS.toMillis(slowAckTimeNs), slowAckWindowMs);
+  }
+
+  private void removeExpired(long now) {
+    for (Iterator<Long> iter = excluded.values().iterator(); iter.hasNext();) {
+      if (now - iter.next() >= excludeTtlMs) {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the datanodes to exclude when creating a new output
+   */
+  public synchronized DatanodeInfo[] getExcludeDatanodes() {
+    removeExpired(EnvironmentEdgeManager.currentTime());
+    return excluded.keySet().toArray(new DatanodeInfo[0]);
+  }
+}
@@ -31,8 +31,10 @@ import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -122,12 +124,30 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
 
   private final List<Channel> datanodeList;
 
+  private final Map<ChannelId, DatanodeInfo> channelToDatanode;
+
+  private volatile AckListener ackListener;
+
   private final DataChecksum summer;
 
   private final int maxDataLen;
 
   private final ByteBufAllocator alloc;
 
+  /**
+   * Notified of the ack of every packet by every datanode.
+   */
+  @FunctionalInterface
+  public interface AckListener {
+
+    /**
+     * Called from the event loop of the datanode connection, must not block.
+     * @param datanode the datanode which acked the packet
+     * @param timeInNanos time from sending the packet to receiving its ack
+     */
+    void onAck(DatanodeInfo datanode, long timeInNanos);
+  }
+
   private static final class Callback {
 
     private final CompletableFuture<Long> future;
@@ -137,6 +157,8 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
     // should be backed by a thread safe collection
     private final Set<ChannelId> unfinishedReplicas;
 
+    private final long sendTimeNs = System.nanoTime();
+
     public Callback(CompletableFuture<Long> future, long ackedLength,
         Collection<Channel> replicas) {
       this.future = future;
@@ -183,6 +205,10 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
       // if the current unfinished replicas does not contain us then it means that we have already
       // acked this one, let's iterate to find the one we have not acked yet.
       if (c.unfinishedReplicas.remove(channel.id())) {
+        AckListener listener = ackListener;
+        if (listener != null) {
+          listener.onAck(channelToDatanode.get(channel.id()), System.nanoTime() - c.sendTimeNs);
+        }
         if (c.unfinishedReplicas.isEmpty()) {
           // we need to remove first before complete the future. It is possible that after we
           // complete the future the upper layer will call close immediately before we remove the
@@ -337,6 +363,10 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
     this.locations = locatedBlock.getLocations();
     this.encryptor = encryptor;
     this.datanodeList = datanodeList;
+    this.channelToDatanode = new HashMap<>();
+    for (int i = 0; i < datanodeList.size(); i++) {
+      channelToDatanode.put(datanodeList.get(i).id(), locations[i]);
+    }
     this.summer = summer;
     this.maxDataLen = MAX_DATA_LEN - (MAX_DATA_LEN % summer.getBytesPerChecksum());
     this.alloc = alloc;
@@ -378,6 +408,13 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
     return locations;
   }
 
+  /**
+   * Set the listener to notify of the datanode acks.
+   */
+  public void setAckListener(AckListener ackListener) {
+    this.ackListener = ackListener;
+  }
+
   private void flushBuffer(CompletableFuture<Long> future, ByteBuf dataBuf,
       long nextPacketOffsetInBlock, boolean syncBlock) {
     int dataLen = dataBuf.readableBytes();
@@ -403,8 +440,6 @@ public class FanOutOneBlockAsyncDFSOutput implements AsyncFSOutput {
       waitingAckQueue.removeFirst();
       return;
     }
-    // TODO: we should perhaps measure time taken per DN here;
-    //       we could collect statistics per DN, and/or exclude bad nodes in createOutput.
     datanodeList.forEach(ch -> {
       ch.write(headerBuf.retainedDuplicate());
       ch.write(checksumBuf.retainedDuplicate());
@@ -511,14 +511,17 @@ public final class FanOutOneBlockAsyncDFSOutputHelper {
 
   private static FanOutOneBlockAsyncDFSOutput createOutput(DistributedFileSystem dfs, String src,
       boolean overwrite, boolean createParent, short replication, long blockSize,
-      EventLoopGroup eventLoopGroup, Class<? extends Channel> channelClass) throws IOException {
+      EventLoopGroup eventLoopGroup, Class<? extends Channel> channelClass,
+      ExcludeDatanodeManager excludeDatanodeManager) throws IOException {
     Configuration conf = dfs.getConf();
     DFSClient client = dfs.getClient();
     String clientName = client.getClientName();
     ClientProtocol namenode = client.getNamenode();
     int createMaxRetries = conf.getInt(ASYNC_DFS_OUTPUT_CREATE_MAX_RETRIES,
       DEFAULT_ASYNC_DFS_OUTPUT_CREATE_MAX_RETRIES);
-    DatanodeInfo[] excludesNodes = EMPTY_DN_ARRAY;
+    DatanodeInfo[] excludesNodes = excludeDatanodeManager != null
+      ? excludeDatanodeManager.getExcludeDatanodes() : EMPTY_DN_ARRAY;
+    boolean excludingSlowNodes = excludesNodes.length > 0;
     for (int retry = 0;; retry++) {
       HdfsFileStatus stat;
       try {
@@ -541,6 +544,13 @@ public final class FanOutOneBlockAsyncDFSOutputHelper {
         DataChecksum summer = createChecksum(client);
         locatedBlock = namenode.addBlock(src, client.getClientName(), null, excludesNodes,
           stat.getFileId(), null, null);
+        if (excludingSlowNodes && locatedBlock.getLocations().length < replication) {
+          // we'd rather write to a slow datanode than to fewer datanodes
+          excludesNodes = EMPTY_DN_ARRAY;
+          excludingSlowNodes = false;
+          throw new IOException("Only " + locatedBlock.getLocations().length
+            + " datanodes left for " + src + " without the slow ones");
+        }
         List<Channel> datanodeList = new ArrayList<>();
         futureList = connectToDataNodes(conf, client, clientName, locatedBlock, 0L, 0L,
           PIPELINE_SETUP_CREATE, summer, eventLoopGroup, channelClass);
@@ -561,7 +571,15 @@ public final class FanOutOneBlockAsyncDFSOutputHelper {
         return output;
       } catch (RemoteException e) {
         LOG.warn("create fan-out dfs output {} failed, retry = {}", src, retry, e);
-        if (shouldRetryCreate(e)) {
+        if (locatedBlock == null && excludingSlowNodes) {
+          // the namenode may not have enough datanodes left without the slow ones, we'd rather
+          // write to a slow datanode than fail the roll.
+          LOG.warn("Retry creating {} without excluding the slow datanodes", src);
+          excludesNodes = EMPTY_DN_ARRAY;
+          excludingSlowNodes = false;
+          // overwrite the file we have just created.
+          overwrite = true;
+        } else if (shouldRetryCreate(e)) {
           if (retry >= createMaxRetries) {
             throw e.unwrapRemoteException();
           }
@@ -608,13 +626,27 @@ public final class FanOutOneBlockAsyncDFSOutputHelper {
   public static FanOutOneBlockAsyncDFSOutput createOutput(DistributedFileSystem dfs, Path f,
       boolean overwrite, boolean createParent, short replication, long blockSize,
       EventLoopGroup eventLoopGroup, Class<? extends Channel> channelClass) throws IOException {
+    return createOutput(dfs, f, overwrite, createParent, replication, blockSize, eventLoopGroup,
+      channelClass, null);
+  }
+
+  /**
+   * Create a {@link FanOutOneBlockAsyncDFSOutput} whose pipeline does not include the datanodes
+   * which the given {@link ExcludeDatanodeManager} found slow, if the namenode can do without
+   * them. The method maybe blocked so do not call it inside an {@link EventLoop}.
+   * @param excludeDatanodeManager the slow datanodes to exclude, can be null
+   */
+  public static FanOutOneBlockAsyncDFSOutput createOutput(DistributedFileSystem dfs, Path f,
+      boolean overwrite, boolean createParent, short replication, long blockSize,
+      EventLoopGroup eventLoopGroup, Class<? extends Channel> channelClass,
+      ExcludeDatanodeManager excludeDatanodeManager) throws IOException {
     return new FileSystemLinkResolver<FanOutOneBlockAsyncDFSOutput>() {
 
       @Override
       public FanOutOneBlockAsyncDFSOutput doCall(Path p)
           throws IOException, UnresolvedLinkException {
         return createOutput(dfs, p.toUri().getPath(), overwrite, createParent, replication,
-          blockSize, eventLoopGroup, channelClass);
+          blockSize, eventLoopGroup, channelClass, excludeDatanodeManager);
       }
 
       @Override
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.asyncfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.testclassification.MiscTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ MiscTests.class, SmallTests.class })
+public class TestExcludeDatanodeManager {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestExcludeDatanodeManager.class);
+
+  private static final long SLOW_NS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private static final long FAST_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final AtomicLong now = new AtomicLong(1000);
+
+  private ExcludeDatanodeManager excludeDatanodeManager;
+
+  @Before
+  public void setUp() {
+    EnvironmentEdgeManager.injectEdge(now::get);
+    Configuration conf = new Configuration(false);
+    conf.setLong(ExcludeDatanodeManager.SLOW_ACK_TIME_MS_KEY, 50);
+    conf.setInt(ExcludeDatanodeManager.SLOW_ACK_COUNT_KEY, 2);
+    conf.setLong(ExcludeDatanodeManager.SLOW_ACK_WINDOW_MS_KEY, 1000);
+    conf.setLong(ExcludeDatanodeManager.EXCLUDE_TTL_MS_KEY, 10000);
+    conf.setInt(ExcludeDatanodeManager.MAX_EXCLUDED_KEY, 2);
+    excludeDatanodeManager = new ExcludeDatanodeManager(conf);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  @Test
+  public void testExcludeSlowDatanode() {
+    DatanodeInfo slow = mock(DatanodeInfo.class);
+    DatanodeInfo fast = mock(DatanodeInfo.class);
+    for (int i = 0; i < 10; i++) {
+      excludeDatanodeManager.onAck(fast, FAST_NS);
+    }
+    excludeDatanodeManager.onAck(slow, SLOW_NS);
+    assertEquals(0, excludeDatanodeManager.getExcludeDatanodes().length);
+    excludeDatanodeManager.onAck(slow, SLOW_NS);
+    assertArrayEquals(new DatanodeInfo[] { slow }, excludeDatanodeManager.getExcludeDatanodes());
+    // no longer excluded once the ttl expires
+    now.addAndGet(10000);
+    assertEquals(0, excludeDatanodeManager.getExcludeDatanodes().length);
+  }
+
+  @Test
+  public void testSlowAcksOutOfWindow() {
+    DatanodeInfo datanode = mock(DatanodeInfo.class);
+    excludeDatanodeManager.onAck(datanode, SLOW_NS);
+    now.addAndGet(1001);
+    excludeDatanodeManager.onAck(datanode, SLOW_NS);
+    assertEquals(0, excludeDatanodeManager.getExcludeDatanodes().length);
+    now.addAndGet(1);
+    excludeDatanodeManager.onAck(datanode, SLOW_NS);
+    assertEquals(1, excludeDatanodeManager.getExcludeDatanodes().length);
+  }
+
+  @Test
+  public void testMaxExcluded() {
+    for (int i = 0; i < 3; i++) {
+      DatanodeInfo datanode = mock(DatanodeInfo.class);
+      excludeDatanodeManager.onAck(datanode, SLOW_NS);
+      excludeDatanodeManager.onAck(datanode, SLOW_NS);
+    }
+    assertEquals(2, excludeDatanodeManager.getExcludeDatanodes().length);
+  }
+}
@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 import java.io.FileNotFoundException;
@@ -30,11 +31,17 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -43,6 +50,7 @@ import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.MiscTests;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.MiniDFSCluster.DataNodeProperties;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
 import org.apache.hadoop.ipc.RemoteException;
 import org.junit.AfterClass;
@@ -166,6 +174,70 @@ public class TestFanOutOneBlockAsyncDFSOutput extends AsyncFSTestBase {
     assertArrayEquals(b, actual);
   }
 
+  @Test
+  public void testAckListener() throws Exception {
+    Path f = new Path("/" + name.getMethodName());
+    EventLoop eventLoop = EVENT_LOOP_GROUP.next();
+    FanOutOneBlockAsyncDFSOutput out = FanOutOneBlockAsyncDFSOutputHelper.createOutput(FS, f,
+      true, false, (short) 3, FS.getDefaultBlockSize(), eventLoop, CHANNEL_CLASS);
+    Set<String> datanodes = ConcurrentHashMap.newKeySet();
+    AtomicInteger acks = new AtomicInteger();
+    out.setAckListener((datanode, timeInNanos) -> {
+      datanodes.add(datanode.getXferAddr());
+      acks.incrementAndGet();
+    });
+    byte[] b = new byte[10];
+    ThreadLocalRandom.current().nextBytes(b);
+    out.write(b, 0, b.length);
+    assertEquals(b.length, out.flush(false).get().longValue());
+    // the other datanodes may still be reporting their acks when the flush completes
+    UTIL.waitFor(READ_TIMEOUT_MS, () -> acks.get() == 3);
+    assertEquals(Arrays.stream(out.getPipeline()).map(DatanodeInfo::getXferAddr)
+      .collect(Collectors.toSet()), datanodes);
+    out.close();
+  }
+
+  private static ExcludeDatanodeManager excludeSlowDatanode(DatanodeInfo datanode) {
+    ExcludeDatanodeManager excludeDatanodeManager =
+      new ExcludeDatanodeManager(UTIL.getConfiguration());
+    for (int i = 0; i < ExcludeDatanodeManager.DEFAULT_SLOW_ACK_COUNT; i++) {
+      excludeDatanodeManager.onAck(datanode,
+        TimeUnit.MILLISECONDS.toNanos(ExcludeDatanodeManager.DEFAULT_SLOW_ACK_TIME_MS + 1));
+    }
+    assertArrayEquals(new DatanodeInfo[] { datanode },
+      excludeDatanodeManager.getExcludeDatanodes());
+    return excludeDatanodeManager;
+  }
+
+  @Test
+  public void testExcludeSlowDatanode() throws Exception {
+    Path f = new Path("/" + name.getMethodName());
+    EventLoop eventLoop = EVENT_LOOP_GROUP.next();
+    DatanodeInfo slow = FS.getDataNodeStats()[0];
+    ExcludeDatanodeManager excludeDatanodeManager = excludeSlowDatanode(slow);
+    // there are still enough datanodes without the slow one
+    FanOutOneBlockAsyncDFSOutput out = FanOutOneBlockAsyncDFSOutputHelper.createOutput(FS, f, true,
+      false, (short) 2, FS.getDefaultBlockSize(), eventLoop, CHANNEL_CLASS,
+      excludeDatanodeManager);
+    assertEquals(2, out.getPipeline().length);
+    assertFalse(Arrays.asList(out.getPipeline()).contains(slow));
+    writeAndVerify(FS, f, out);
+  }
+
+  @Test
+  public void testNotEnoughDatanodesWithoutSlowOne() throws Exception {
+    Path f = new Path("/" + name.getMethodName());
+    EventLoop eventLoop = EVENT_LOOP_GROUP.next();
+    ExcludeDatanodeManager excludeDatanodeManager =
+      excludeSlowDatanode(FS.getDataNodeStats()[0]);
+    // we need all the datanodes, so the slow one is not excluded
+    FanOutOneBlockAsyncDFSOutput out = FanOutOneBlockAsyncDFSOutputHelper.createOutput(FS, f, true,
+      false, (short) 3, FS.getDefaultBlockSize(), eventLoop, CHANNEL_CLASS,
+      excludeDatanodeManager);
+    assertEquals(3, out.getPipeline().length);
+    writeAndVerify(FS, f, out);
+  }
+
   @Test
   public void testHeartbeat() throws IOException, InterruptedException, ExecutionException {
     Path f = new Path("/" + name.getMethodName());
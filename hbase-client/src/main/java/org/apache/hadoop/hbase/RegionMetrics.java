@@ -188,4 +188,11 @@ public interface RegionMetrics {
    * @return the compaction state of this region
    */
   CompactionState getCompactionState();
+
+  /**
+   * @return for a secondary region replica, the time between the write of the last edit it
+   *   replayed on the primary and the report of the metrics, in milliseconds. 0 for a primary
+   *   region
+   */
+  long getReplicaStaleness();
 }
@@ -62,6 +62,7 @@ public final class RegionMetricsBuilder {
         .setBlocksTotalWeight(regionLoadPB.getBlocksTotalWeight())
         .setCompactionState(ProtobufUtil.createCompactionStateForRegionLoad(
           regionLoadPB.getCompactionState()))
+        .setReplicaStaleness(regionLoadPB.getReplicaStaleness())
         .setFilteredReadRequestCount(regionLoadPB.getFilteredReadRequestsCount())
         .setStoreFileUncompressedDataIndexSize(new Size(regionLoadPB.getTotalStaticIndexSizeKB(),
           Size.Unit.KILOBYTE))
@@ -130,6 +131,7 @@ public final class RegionMetricsBuilder {
         .addAllStoreCompleteSequenceId(toStoreSequenceId(regionMetrics.getStoreSequenceId()))
         .setStoreUncompressedSizeMB(
           (int) regionMetrics.getUncompressedStoreFileSize().get(Size.Unit.MEGABYTE))
+        .setReplicaStaleness(regionMetrics.getReplicaStaleness())
         .build();
   }
 
@@ -164,6 +166,7 @@ public final class RegionMetricsBuilder {
   private long blocksLocalWithSsdWeight;
   private long blocksTotalWeight;
   private CompactionState compactionState;
+  private long replicaStaleness;
   private RegionMetricsBuilder(byte[] name) {
     this.name = name;
   }
@@ -272,6 +275,10 @@ public final class RegionMetricsBuilder {
     this.compactionState = compactionState;
     return this;
   }
+  public RegionMetricsBuilder setReplicaStaleness(long value) {
+    this.replicaStaleness = value;
+    return this;
+  }
 
   public RegionMetrics build() {
     return new RegionMetricsImpl(name,
@@ -300,7 +307,8 @@ public final class RegionMetricsBuilder {
         blocksLocalWeight,
         blocksLocalWithSsdWeight,
         blocksTotalWeight,
-        compactionState);
+        compactionState,
+        replicaStaleness);
   }
 
   private static class RegionMetricsImpl implements RegionMetrics {
@@ -331,6 +339,7 @@ public final class RegionMetricsBuilder {
     private final long blocksLocalWithSsdWeight;
     private final long blocksTotalWeight;
     private final CompactionState compactionState;
+    private final long replicaStaleness;
     RegionMetricsImpl(byte[] name,
         int storeCount,
         int storeFileCount,
@@ -357,7 +366,8 @@ public final class RegionMetricsBuilder {
         long blocksLocalWeight,
         long blocksLocalWithSsdWeight,
         long blocksTotalWeight,
-        CompactionState compactionState) {
+        CompactionState compactionState,
+        long replicaStaleness) {
       this.name = Preconditions.checkNotNull(name);
       this.storeCount = storeCount;
       this.storeFileCount = storeFileCount;
@@ -385,6 +395,7 @@ public final class RegionMetricsBuilder {
       this.blocksLocalWithSsdWeight = blocksLocalWithSsdWeight;
       this.blocksTotalWeight = blocksTotalWeight;
       this.compactionState = compactionState;
+      this.replicaStaleness = replicaStaleness;
     }
 
     @Override
@@ -522,6 +533,11 @@ public final class RegionMetricsBuilder {
       return compactionState;
     }
 
+    @Override
+    public long getReplicaStaleness() {
+      return replicaStaleness;
+    }
+
     @Override
     public String toString() {
       StringBuilder sb = Strings.appendKeyValue(new StringBuilder(), "storeCount",
@@ -583,6 +599,8 @@ public final class RegionMetricsBuilder {
         blocksTotalWeight);
       Strings.appendKeyValue(sb, "compactionState",
         compactionState);
+      Strings.appendKeyValue(sb, "replicaStaleness",
+        replicaStaleness);
       return sb.toString();
     }
   }
@@ -19,6 +19,8 @@
 
 package org.apache.hadoop.hbase.client;
 
+import java.util.Collections;
+import java.util.Map;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -55,6 +57,9 @@ final public class OnlineLogRecord extends LogEntry {
         if (slowLogPayload.getMultiServiceCalls() == 0) {
           jsonObj.remove("multiServiceCalls");
         }
+        if (slowLogPayload.getPhaseTimes().isEmpty()) {
+          jsonObj.remove("phaseTimes");
+        }
         return jsonObj;
       }).create();
 
@@ -74,6 +79,7 @@ final public class OnlineLogRecord extends LogEntry {
   private final int multiGetsCount;
   private final int multiMutationsCount;
   private final int multiServiceCalls;
+  private final Map<String, Long> phaseTimes;
 
   public long getStartTime() {
     return startTime;
@@ -131,11 +137,20 @@ final public class OnlineLogRecord extends LogEntry {
     return multiServiceCalls;
   }
 
+  /**
+   * @return the time, in microseconds, the call spent in the phases of its processing, like
+   *   waiting for row locks, by phase name. Empty unless the server times the phases of the calls
+   */
+  public Map<String, Long> getPhaseTimes() {
+    return phaseTimes;
+  }
+
   private OnlineLogRecord(final long startTime, final int processingTime, final int queueTime,
       final long responseSize, final String clientAddress, final String serverClass,
       final String methodName, final String callDetails, final String param,
       final String regionName, final String userName, final int multiGetsCount,
-      final int multiMutationsCount, final int multiServiceCalls) {
+      final int multiMutationsCount, final int multiServiceCalls,
+      final Map<String, Long> phaseTimes) {
     this.startTime = startTime;
     this.processingTime = processingTime;
     this.queueTime = queueTime;
@@ -150,6 +165,7 @@ final public class OnlineLogRecord extends LogEntry {
     this.multiGetsCount = multiGetsCount;
     this.multiMutationsCount = multiMutationsCount;
     this.multiServiceCalls = multiServiceCalls;
+    this.phaseTimes = phaseTimes;
   }
 
   public static class OnlineLogRecordBuilder {
@@ -167,6 +183,7 @@ final public class OnlineLogRecord extends LogEntry {
     private int multiGetsCount;
     private int multiMutationsCount;
     private int multiServiceCalls;
+    private Map<String, Long> phaseTimes = Collections.emptyMap();
 
     public OnlineLogRecordBuilder setStartTime(long startTime) {
       this.startTime = startTime;
@@ -238,10 +255,15 @@ final public class OnlineLogRecord extends LogEntry {
       return this;
     }
 
+    public OnlineLogRecordBuilder setPhaseTimes(Map<String, Long> phaseTimes) {
+      this.phaseTimes = Collections.unmodifiableMap(phaseTimes);
+      return this;
+    }
+
     public OnlineLogRecord build() {
       return new OnlineLogRecord(startTime, processingTime, queueTime, responseSize,
         clientAddress, serverClass, methodName, callDetails, param, regionName,
-        userName, multiGetsCount, multiMutationsCount, multiServiceCalls);
+        userName, multiGetsCount, multiMutationsCount, multiServiceCalls, phaseTimes);
     }
   }
 
@@ -272,6 +294,7 @@ final public class OnlineLogRecord extends LogEntry {
       .append(param, that.param)
       .append(regionName, that.regionName)
       .append(userName, that.userName)
+      .append(phaseTimes, that.phaseTimes)
       .isEquals();
   }
 
@@ -292,6 +315,7 @@ final public class OnlineLogRecord extends LogEntry {
       .append(multiGetsCount)
       .append(multiMutationsCount)
       .append(multiServiceCalls)
+      .append(phaseTimes)
       .toHashCode();
   }
 
@@ -317,6 +341,7 @@ final public class OnlineLogRecord extends LogEntry {
       .append("multiGetsCount", multiGetsCount)
       .append("multiMutationsCount", multiMutationsCount)
       .append("multiServiceCalls", multiServiceCalls)
+      .append("phaseTimes", phaseTimes)
       .toString();
   }
 
@@ -31,6 +31,8 @@ import java.nio.ByteBuffer;
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.io.ByteBuffAllocator;
@@ -38,6 +40,8 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.codec.KeyValueCodec;
+import org.apache.hadoop.hbase.codec.KeyValueCodecWithTags;
 import org.apache.hadoop.hbase.io.ByteBuffInputStream;
 import org.apache.hadoop.hbase.io.ByteBufferInputStream;
 import org.apache.hadoop.hbase.io.ByteBufferListOutputStream;
@@ -202,6 +206,33 @@ class CellBlockBuilder {
     }
   }
 
+  private void encodeCellsReferencingBuffers(ByteBufferListOutputStream bbos,
+      CellScanner cellScanner, Codec codec, boolean withTags, int minCellSize) throws IOException {
+    try {
+      Codec.Encoder encoder = codec.getEncoder(bbos);
+      while (cellScanner.advance()) {
+        Cell cell = cellScanner.current();
+        if (cell instanceof ByteBufferKeyValue) {
+          ByteBufferKeyValue kv = (ByteBufferKeyValue) cell;
+          int length = kv.getSerializedSize(withTags);
+          if (length >= minCellSize) {
+            // What the KeyValue encoders write, the length followed by the serialized KeyValue,
+            // which is the start of the buffer backing the cell.
+            bbos.writeInt(length);
+            bbos.writeReference(kv.getBuffer(), kv.getOffset(), length);
+            continue;
+          }
+        }
+        encoder.write(cell);
+      }
+      encoder.flush();
+    } catch (BufferOverflowException | IndexOutOfBoundsException e) {
+      throw new DoNotRetryIOException(e);
+    } finally {
+      bbos.close();
+    }
+  }
+
   /**
    * Puts CellScanner Cells into a cell block using passed in <code>codec</code> and/or
    * <code>compressor</code>.
@@ -218,6 +249,23 @@ class CellBlockBuilder {
    */
   public ByteBufferListOutputStream buildCellBlockStream(Codec codec, CompressionCodec compressor,
       CellScanner cellScanner, ByteBuffAllocator allocator) throws IOException {
+    return buildCellBlockStream(codec, compressor, cellScanner, allocator, -1);
+  }
+
+  /**
+   * Like {@link #buildCellBlockStream(Codec, CompressionCodec, CellScanner, ByteBuffAllocator)},
+   * but the cells of at least <code>zeroCopyMinCellSize</code> bytes which are backed by a buffer
+   * holding their KeyValue serialization, like the cells of the blocks in the BucketCache, are not
+   * copied into the cell block. The returned stream references their buffers instead, see
+   * {@link ByteBufferListOutputStream#hasReferences()}, so the caller must keep the cells valid
+   * until it is done with the stream. Only applies when there is no <code>compressor</code> and
+   * the <code>codec</code> writes the KeyValue serialization as is.
+   * @param zeroCopyMinCellSize the minimum size of a cell to reference, or a negative value to
+   *          copy all of them
+   */
+  public ByteBufferListOutputStream buildCellBlockStream(Codec codec, CompressionCodec compressor,
+      CellScanner cellScanner, ByteBuffAllocator allocator, int zeroCopyMinCellSize)
+      throws IOException {
     if (cellScanner == null) {
       return null;
     }
@@ -225,7 +273,14 @@ class CellBlockBuilder {
       throw new CellScannerButNoCodecException();
     }
     ByteBufferListOutputStream bbos = new ByteBufferListOutputStream(allocator);
-    encodeCellsTo(bbos, cellScanner, codec, compressor);
+    if (zeroCopyMinCellSize >= 0 && compressor == null
+        && (codec.getClass() == KeyValueCodec.class
+          || codec.getClass() == KeyValueCodecWithTags.class)) {
+      encodeCellsReferencingBuffers(bbos, cellScanner, codec,
+        codec.getClass() == KeyValueCodecWithTags.class, zeroCopyMinCellSize);
+    } else {
+      encodeCellsTo(bbos, cellScanner, codec, compressor);
+    }
     if (bbos.size() == 0) {
       bbos.releaseResources();
       return null;
@@ -0,0 +1,409 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.zlib.BuiltInZlibDeflater;
+import org.apache.hadoop.io.compress.zlib.BuiltInZlibInflater;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Compression codec for the cell blocks of the rpcs. Like any other cell block compressor it is
+ * chosen by the client, with <code>hbase.client.rpc.compressor</code>, and announced to the server
+ * in the connection header, so each connection negotiates whether its cell blocks are compressed.
+ * <p/>
+ * Every cell block is a self describing frame: either stored as is, or deflated. Blocks smaller
+ * than {@link #MIN_SIZE_KEY} are stored, and so are blocks which do not shrink below
+ * {@link #MAX_RATIO_KEY} of their size, giving up as soon as the deflated output reaches that size.
+ * Once several blocks in a row turned out to be incompressible, only every few blocks are tried
+ * until one compresses again. The deflaters and inflaters are pooled by the {@code CodecPool}, so
+ * a block does not pay for setting up the zlib state.
+ * <p/>
+ * Small cell blocks, e.g. of puts of similar rows, compress much better with a preset dictionary
+ * of typical content, see {@link #DICTIONARY_KEY}. The client and the server must then be
+ * configured with the same dictionary; the deflated frames carry its checksum, so a block
+ * compressed with a dictionary the receiver does not have fails with a clear error.
+ */
+@InterfaceAudience.LimitedPrivate(HBaseInterfaceAudience.CONFIG)
+public class CellBlockDeflateCodec implements CompressionCodec, Configurable {
+
+  /** The deflate level, from 1, fastest, to 9, smallest. Default 1. */
+  public static final String LEVEL_KEY = "hbase.ipc.cellblock.deflate.level";
+  public static final int DEFAULT_LEVEL = Deflater.BEST_SPEED;
+
+  /** Cell blocks smaller than this many bytes are not compressed. Default 1024. */
+  public static final String MIN_SIZE_KEY = "hbase.ipc.cellblock.deflate.min.size";
+  public static final int DEFAULT_MIN_SIZE = 1024;
+
+  /**
+   * Cell blocks which do not deflate to at most this share of their size are sent as is.
+   * Default 0.9.
+   */
+  public static final String MAX_RATIO_KEY = "hbase.ipc.cellblock.deflate.max.ratio";
+  public static final float DEFAULT_MAX_RATIO = 0.9f;
+
+  /** Path of a local file holding the preset dictionary. Default none. */
+  public static final String DICTIONARY_KEY = "hbase.ipc.cellblock.deflate.dictionary";
+
+  /**
+   * The largest inflated size of a cell block, read from the size limit of the rpc requests of the
+   * server, <code>hbase.ipc.max.request.size</code>. Default 256MB.
+   */
+  static final String MAX_REQUEST_SIZE_KEY = "hbase.ipc.max.request.size";
+  static final int DEFAULT_MAX_REQUEST_SIZE = 256 * 1024 * 1024;
+
+  // the best ratio deflate can achieve, a block which claims to inflate any larger is corrupt
+  static final int MAX_INFLATE_RATIO = 1032;
+
+  static final byte STORED = 0;
+  static final byte DEFLATED = 1;
+
+  // After this many incompressible blocks in a row, only every PROBE_INTERVAL-th block is tried
+  static final int MAX_INCOMPRESSIBLE_BLOCKS = 8;
+  static final int PROBE_INTERVAL = 16;
+
+  private Configuration conf;
+  private int level = DEFAULT_LEVEL;
+  private int minSize = DEFAULT_MIN_SIZE;
+  private float maxRatio = DEFAULT_MAX_RATIO;
+  private int maxInflatedSize = DEFAULT_MAX_REQUEST_SIZE;
+  private byte[] dictionary;
+  // the adler32 checksum of the dictionary, which zlib puts in the header of the stream
+  private int dictionaryId;
+
+  // racy, it is only a hint whether to try to compress the next block
+  private final AtomicInteger incompressibleBlocks = new AtomicInteger();
+
+  /**
+   * The deflaters of this codec, a type of their own so they are pooled apart from the ones of
+   * hadoop's zlib codecs, which may use other settings.
+   */
+  static final class BlockDeflater extends BuiltInZlibDeflater {
+  }
+
+  /**
+   * The inflaters of this codec.
+   */
+  static final class BlockInflater extends BuiltInZlibInflater {
+  }
+
+  @Override
+  public void setConf(Configuration conf) {
+    // called for every cell block, only read the config once
+    if (conf == this.conf) {
+      return;
+    }
+    this.level = conf.getInt(LEVEL_KEY, DEFAULT_LEVEL);
+    this.minSize = conf.getInt(MIN_SIZE_KEY, DEFAULT_MIN_SIZE);
+    this.maxRatio = conf.getFloat(MAX_RATIO_KEY, DEFAULT_MAX_RATIO);
+    this.maxInflatedSize = conf.getInt(MAX_REQUEST_SIZE_KEY, DEFAULT_MAX_REQUEST_SIZE);
+    String dictionaryPath = conf.get(DICTIONARY_KEY);
+    if (StringUtils.isNotEmpty(dictionaryPath)) {
+      try {
+        this.dictionary = Files.readAllBytes(Paths.get(dictionaryPath));
+      } catch (IOException e) {
+        throw new IllegalArgumentException(
+          "Can not read the cell block dictionary " + dictionaryPath, e);
+      }
+      Adler32 adler = new Adler32();
+      adler.update(dictionary);
+      this.dictionaryId = (int) adler.getValue();
+    } else {
+      this.dictionary = null;
+    }
+    this.conf = conf;
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
+  @Override
+  public CompressionOutputStream createOutputStream(OutputStream out) throws IOException {
+    return createOutputStream(out, null);
+  }
+
+  @Override
+  public CompressionOutputStream createOutputStream(OutputStream out, Compressor compressor)
+      throws IOException {
+    return new BlockOutputStream(out,
+      compressor instanceof Deflater ? (Deflater) compressor : null);
+  }
+
+  @Override
+  public Class<? extends Compressor> getCompressorType() {
+    return BlockDeflater.class;
+  }
+
+  @Override
+  public Compressor createCompressor() {
+    return new BlockDeflater();
+  }
+
+  @Override
+  public CompressionInputStream createInputStream(InputStream in) throws IOException {
+    return createInputStream(in, null);
+  }
+
+  @Override
+  public CompressionInputStream createInputStream(InputStream in, Decompressor decompressor)
+      throws IOException {
+    return new BlockInputStream(in,
+      decompressor instanceof Inflater ? (Inflater) decompressor : null);
+  }
+
+  @Override
+  public Class<? extends Decompressor> getDecompressorType() {
+    return BlockInflater.class;
+  }
+
+  @Override
+  public Decompressor createDecompressor() {
+    return new BlockInflater();
+  }
+
+  @Override
+  public String getDefaultExtension() {
+    return ".cbdeflate";
+  }
+
+  private boolean shouldCompress(int length) {
+    if (length < minSize) {
+      return false;
+    }
+    if (incompressibleBlocks.get() < MAX_INCOMPRESSIBLE_BLOCKS) {
+      return true;
+    }
+    // the payload has not been compressible lately, only probe it every few blocks
+    return incompressibleBlocks.incrementAndGet() % PROBE_INTERVAL == 0;
+  }
+
+  /**
+   * @return the length of the deflated block in the given buffer, or -1 if it did not fit
+   */
+  private int deflate(Deflater deflater, byte[] block, int length, byte[] buf) {
+    deflater.reset();
+    deflater.setLevel(level);
+    deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+    if (dictionary != null) {
+      deflater.setDictionary(dictionary);
+    }
+    deflater.setInput(block, 0, length);
+    deflater.finish();
+    int deflated = 0;
+    while (!deflater.finished()) {
+      if (deflated == buf.length) {
+        return -1;
+      }
+      deflated += deflater.deflate(buf, deflated, buf.length - deflated);
+    }
+    return deflated;
+  }
+
+  private void inflate(Inflater inflater, byte[] deflated, int deflatedLength, byte[] block)
+      throws IOException {
+    inflater.reset();
+    inflater.setInput(deflated, 0, deflatedLength);
+    int inflated = 0;
+    try {
+      while (inflated < block.length) {
+        int n = inflater.inflate(block, inflated, block.length - inflated);
+        if (n > 0) {
+          inflated += n;
+        } else if (inflater.needsDictionary()) {
+          if (dictionary == null || inflater.getAdler() != dictionaryId) {
+            throw new IOException("The cell block was compressed with a dictionary with id "
+                + Integer.toUnsignedString(inflater.getAdler())
+                + " which does not match the one configured in " + DICTIONARY_KEY + ", id "
+                + (dictionary != null ? Integer.toUnsignedString(dictionaryId) : "none"));
+          }
+          inflater.setDictionary(dictionary);
+        } else if (inflater.finished() || inflater.needsInput()) {
+          throw new IOException("Truncated cell block, inflated " + inflated + " bytes of "
+              + block.length);
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt cell block", e);
+    }
+  }
+
+  /**
+   * Buffers the whole cell block and writes it as one frame when finished.
+   */
+  private final class BlockOutputStream extends CompressionOutputStream {
+
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final Deflater deflater;
+    private final boolean ownDeflater;
+    private boolean finished;
+
+    BlockOutputStream(OutputStream out, Deflater deflater) {
+      super(out);
+      this.ownDeflater = deflater == null;
+      this.deflater = ownDeflater ? new Deflater(level) : deflater;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      block.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      block.write(b, off, len);
+    }
+
+    @Override
+    public void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      int length = block.size();
+      if (shouldCompress(length)) {
+        byte[] buf = new byte[(int) (length * maxRatio)];
+        int deflated = deflate(deflater, block.getBuffer(), length, buf);
+        if (deflated >= 0) {
+          incompressibleBlocks.set(0);
+          out.write(DEFLATED);
+          out.write(Bytes.toBytes(length));
+          out.write(buf, 0, deflated);
+          return;
+        }
+        incompressibleBlocks.incrementAndGet();
+      }
+      out.write(STORED);
+      out.write(block.getBuffer(), 0, length);
+    }
+
+    @Override
+    public void resetState() throws IOException {
+      block.reset();
+      finished = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (ownDeflater) {
+          deflater.end();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads a frame, a stored block is read straight from the underlying stream.
+   */
+  private final class BlockInputStream extends CompressionInputStream {
+
+    private final Inflater inflater;
+    private final boolean ownInflater;
+    private InputStream block;
+
+    BlockInputStream(InputStream in, Inflater inflater) throws IOException {
+      super(in);
+      this.ownInflater = inflater == null;
+      this.inflater = ownInflater ? new Inflater() : inflater;
+    }
+
+    private InputStream getBlock() throws IOException {
+      if (block != null) {
+        return block;
+      }
+      int type = in.read();
+      if (type == STORED) {
+        block = in;
+      } else if (type == DEFLATED) {
+        // the length comes off the wire, check it before allocating the block
+        int length = new DataInputStream(in).readInt();
+        if (length < 0 || length > maxInflatedSize) {
+          throw new IOException("Invalid inflated cell block length " + length + ", the limit is "
+              + maxInflatedSize + ", see " + MAX_REQUEST_SIZE_KEY);
+        }
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream(Math.min(length, 64 * 1024));
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) > 0;) {
+          deflated.write(buf, 0, n);
+        }
+        if (length > (long) deflated.size() * MAX_INFLATE_RATIO) {
+          throw new IOException("Invalid inflated cell block length " + length + " for "
+              + deflated.size() + " deflated bytes");
+        }
+        byte[] inflated = new byte[length];
+        inflate(inflater, deflated.getBuffer(), deflated.size(), inflated);
+        block = new ByteArrayInputStream(inflated);
+      } else {
+        throw new IOException("Unknown cell block frame type " + type);
+      }
+      return block;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return getBlock().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return getBlock().read(b, off, len);
+    }
+
+    @Override
+    public void resetState() throws IOException {
+      block = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (ownInflater) {
+          inflater.end();
+        }
+      }
+    }
+  }
+}
@@ -31,6 +31,7 @@ import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -3511,6 +3512,10 @@ public final class ProtobufUtil {
    */
   private static LogEntry getSlowLogRecord(
       final TooSlowLog.SlowLogPayload slowLogPayload) {
+    Map<String, Long> phaseTimes = new LinkedHashMap<>();
+    for (HBaseProtos.NameInt64Pair phaseTime : slowLogPayload.getPhaseTimesList()) {
+      phaseTimes.put(phaseTime.getName(), phaseTime.getValue());
+    }
     OnlineLogRecord onlineLogRecord = new OnlineLogRecord.OnlineLogRecordBuilder()
       .setCallDetails(slowLogPayload.getCallDetails())
       .setClientAddress(slowLogPayload.getClientAddress())
@@ -3526,6 +3531,7 @@ public final class ProtobufUtil {
       .setServerClass(slowLogPayload.getServerClass())
       .setStartTime(slowLogPayload.getStartTime())
       .setUserName(slowLogPayload.getUserName())
+      .setPhaseTimes(phaseTimes)
       .build();
     return onlineLogRecord;
   }
@@ -18,11 +18,17 @@
 package org.apache.hadoop.hbase.ipc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ArrayBackedTag;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.CellUtil;
@@ -32,7 +38,11 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.codec.Codec;
 import org.apache.hadoop.hbase.codec.KeyValueCodec;
+import org.apache.hadoop.hbase.codec.KeyValueCodecWithTags;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.io.ByteBufferListOutputStream;
 import org.apache.hadoop.hbase.io.SizedCellScanner;
+import org.apache.hadoop.hbase.nio.MultiByteBuff;
 import org.apache.hadoop.hbase.nio.SingleByteBuff;
 import org.apache.hadoop.hbase.testclassification.ClientTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -70,6 +80,70 @@ public class TestCellBlockBuilder {
     doBuildCellBlockUndoCellBlock(this.builder, new KeyValueCodec(), new GzipCodec());
   }
 
+  @Test
+  public void testBuildCellBlockStreamReferencingCells() throws IOException {
+    doBuildCellBlockStreamReferencingCells(new KeyValueCodec());
+    doBuildCellBlockStreamReferencingCells(new KeyValueCodecWithTags());
+  }
+
+  private void doBuildCellBlockStreamReferencingCells(Codec codec) throws IOException {
+    // Cells on a direct buffer, like the cells of the blocks in the BucketCache, every other one
+    // big enough to be referenced.
+    Cell[] cells = new Cell[10];
+    for (int i = 0; i < cells.length; i++) {
+      byte[] row = Bytes.toBytes(i);
+      KeyValue kv = new KeyValue(row, Bytes.toBytes("f"), row, 0L, new byte[i % 2 == 0 ? 8 : 8192],
+          new ArrayBackedTag[] { new ArrayBackedTag((byte) 1, row) });
+      ByteBuffer buf = ByteBuffer.allocateDirect(kv.getLength() + 10);
+      buf.position(5);
+      buf.put(kv.getBuffer(), kv.getOffset(), kv.getLength());
+      cells[i] = new ByteBufferKeyValue(buf, 5, kv.getLength());
+    }
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(ByteBuffAllocator.MAX_BUFFER_COUNT_KEY, 10);
+    conf.setInt(ByteBuffAllocator.BUFFER_SIZE_KEY, 1024);
+    ByteBuffAllocator alloc = ByteBuffAllocator.create(conf, true);
+    ByteBufferListOutputStream copied = builder.buildCellBlockStream(codec, null,
+      CellUtil.createCellScanner(cells), alloc);
+    ByteBufferListOutputStream referencing = builder.buildCellBlockStream(codec, null,
+      CellUtil.createCellScanner(cells), alloc, 4096);
+    assertFalse(copied.hasReferences());
+    assertTrue(referencing.hasReferences());
+    assertEquals(copied.size(), referencing.size());
+    List<ByteBuffer> copiedBufs = copied.getByteBuffers();
+    List<ByteBuffer> referencingBufs = referencing.getByteBuffers();
+    // a buffer per big cell, and one for the small cell and the length before each of them
+    assertEquals(10, referencingBufs.size());
+    assertTrue(copiedBufs.size() > referencingBufs.size());
+    assertTrue(Bytes.equals(toBytes(copiedBufs), toBytes(referencingBufs)));
+    CellScanner cellScanner = builder.createCellScannerReusingBuffers(codec, null,
+      new MultiByteBuff(referencingBufs.toArray(new ByteBuffer[0])));
+    int i = 0;
+    while (cellScanner.advance()) {
+      assertTrue(CellUtil.equals(cells[i], cellScanner.current()));
+      assertTrue(CellUtil.matchingValue(cells[i], cellScanner.current()));
+      assertEquals(codec instanceof KeyValueCodecWithTags ? 1 : 0,
+        PrivateCellUtil.getTags(cellScanner.current()).size());
+      i++;
+    }
+    assertEquals(cells.length, i);
+    copied.releaseResources();
+    referencing.releaseResources();
+    assertEquals(10, alloc.getFreeBufferCount());
+  }
+
+  private static byte[] toBytes(List<ByteBuffer> bufs) {
+    int size = 0;
+    for (ByteBuffer buf : bufs) {
+      size += buf.remaining();
+    }
+    ByteBuffer bytes = ByteBuffer.allocate(size);
+    for (ByteBuffer buf : bufs) {
+      bytes.put(buf.duplicate());
+    }
+    return bytes.array();
+  }
+
   static void doBuildCellBlockUndoCellBlock(final CellBlockBuilder builder, final Codec codec,
       final CompressionCodec compressor) throws IOException {
     doBuildCellBlockUndoCellBlock(builder, codec, compressor, 10, 1, false);
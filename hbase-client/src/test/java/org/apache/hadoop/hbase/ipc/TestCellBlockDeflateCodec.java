@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseCommonTestingUtility;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.codec.KeyValueCodec;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ ClientTests.class, SmallTests.class })
+public class TestCellBlockDeflateCodec {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestCellBlockDeflateCodec.class);
+
+  private static final HBaseCommonTestingUtility UTIL = new HBaseCommonTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("family");
+
+  private static final byte[] QUALIFIER = Bytes.toBytes("qualifier");
+
+  private final Codec codec = new KeyValueCodec();
+
+  @AfterClass
+  public static void tearDown() {
+    UTIL.cleanupTestDir();
+  }
+
+  private static List<Cell> createCells(int count, byte[] value) {
+    List<Cell> cells = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      cells.add(new KeyValue(Bytes.toBytes(String.format("row-%05d", i)), FAMILY, QUALIFIER,
+        value));
+    }
+    return cells;
+  }
+
+  private static ByteBuffer encode(Configuration conf, List<Cell> cells) throws IOException {
+    return new CellBlockBuilder(conf).buildCellBlock(new KeyValueCodec(),
+      new CellBlockDeflateCodec(), CellUtil.createCellScanner(cells));
+  }
+
+  private List<Cell> decode(Configuration conf, ByteBuffer cellBlock) throws IOException {
+    CellScanner scanner = new CellBlockBuilder(conf).createCellScanner(codec,
+      new CellBlockDeflateCodec(), Bytes.getBytes(cellBlock.duplicate()));
+    List<Cell> cells = new ArrayList<>();
+    while (scanner.advance()) {
+      cells.add(scanner.current());
+    }
+    return cells;
+  }
+
+  private static int rawSize(List<Cell> cells) {
+    int size = 0;
+    for (Cell cell : cells) {
+      size += Bytes.SIZEOF_INT + ((KeyValue) cell).getSerializedSize();
+    }
+    return size;
+  }
+
+  private void assertRoundTrip(Configuration conf, List<Cell> cells, ByteBuffer cellBlock)
+      throws IOException {
+    List<Cell> decoded = decode(conf, cellBlock);
+    assertEquals(cells.size(), decoded.size());
+    for (int i = 0; i < cells.size(); i++) {
+      assertTrue(CellUtil.equals(cells.get(i), decoded.get(i)));
+      assertTrue(CellUtil.matchingValue(cells.get(i), decoded.get(i)));
+    }
+  }
+
+  @Test
+  public void testCompressible() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    List<Cell> cells = createCells(100, new byte[100]);
+    ByteBuffer cellBlock = encode(conf, cells);
+    assertEquals(CellBlockDeflateCodec.DEFLATED, cellBlock.get(0));
+    assertTrue(cellBlock.remaining() < rawSize(cells) / 2);
+    assertRoundTrip(conf, cells, cellBlock);
+  }
+
+  @Test
+  public void testSmallBlockStored() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    List<Cell> cells = createCells(1, new byte[100]);
+    ByteBuffer cellBlock = encode(conf, cells);
+    assertEquals(CellBlockDeflateCodec.STORED, cellBlock.get(0));
+    assertEquals(1 + rawSize(cells), cellBlock.remaining());
+    assertRoundTrip(conf, cells, cellBlock);
+  }
+
+  @Test
+  public void testIncompressibleStored() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    List<Cell> cells = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      byte[] value = new byte[4096];
+      ThreadLocalRandom.current().nextBytes(value);
+      cells.addAll(createCells(1, value));
+    }
+    ByteBuffer cellBlock = encode(conf, cells);
+    assertEquals(CellBlockDeflateCodec.STORED, cellBlock.get(0));
+    assertEquals(1 + rawSize(cells), cellBlock.remaining());
+    assertRoundTrip(conf, cells, cellBlock);
+  }
+
+  @Test
+  public void testInvalidLength() throws IOException {
+    Configuration conf = HBaseConfiguration.create();
+    List<Cell> cells = createCells(100, new byte[100]);
+    ByteBuffer cellBlock = encode(conf, cells);
+    assertEquals(CellBlockDeflateCodec.DEFLATED, cellBlock.get(0));
+    // the inflated length follows the frame type
+    for (int length : new int[] { -1, Integer.MAX_VALUE, cellBlock.remaining()
+      * CellBlockDeflateCodec.MAX_INFLATE_RATIO }) {
+      ByteBuffer corrupt = cellBlock.duplicate();
+      corrupt.putInt(1, length);
+      try {
+        decode(conf, corrupt);
+        fail("Decoded a cell block with an inflated length of " + length);
+      } catch (IOException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("Invalid inflated cell block length"));
+      }
+    }
+  }
+
+  @Test
+  public void testDictionary() throws IOException {
+    byte[] value = Bytes.toBytes("a typical value of a typical put of the application");
+    List<Cell> cells = createCells(2, value);
+    // a dictionary made of cells like the ones sent
+    Path dictionary =
+      Files.createDirectories(Paths.get(UTIL.getDataTestDir().toString())).resolve("dictionary");
+    Files.write(dictionary, Bytes.getBytes(new CellBlockBuilder(HBaseConfiguration.create())
+      .buildCellBlock(codec, null, CellUtil.createCellScanner(createCells(4, value)))));
+
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(CellBlockDeflateCodec.MIN_SIZE_KEY, 0);
+    ByteBuffer withoutDictionary = encode(conf, cells);
+    assertEquals(CellBlockDeflateCodec.DEFLATED, withoutDictionary.get(0));
+
+    Configuration dictionaryConf = new Configuration(conf);
+    dictionaryConf.set(CellBlockDeflateCodec.DICTIONARY_KEY, dictionary.toString());
+    ByteBuffer withDictionary = encode(dictionaryConf, cells);
+    assertEquals(CellBlockDeflateCodec.DEFLATED, withDictionary.get(0));
+    assertTrue(withDictionary.remaining() < withoutDictionary.remaining());
+    assertRoundTrip(dictionaryConf, cells, withDictionary);
+
+    // the receiver must have the same dictionary
+    try {
+      decode(conf, withDictionary);
+      fail("Decoded a cell block compressed with an unknown dictionary");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(CellBlockDeflateCodec.DICTIONARY_KEY));
+    }
+  }
+}
@@ -35,6 +35,9 @@ import org.slf4j.LoggerFactory;
  * needed, from the passed pool. When pool is not giving a ByteBuffer it will create one on heap.
  * Make sure to call {@link #releaseResources()} method once the Stream usage is over and
  * data is transferred to the wanted destination.
+ * <p/>
+ * Bytes already in a ByteBuffer which stays valid until the stream is released can be referenced
+ * by the stream instead of copied into it, see {@link #writeReference(ByteBuffer, int, int)}.
  * Not thread safe!
  */
 @InterfaceAudience.Private
@@ -50,6 +53,12 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
 
   private boolean lastBufFlipped = false;// Indicate whether the curBuf/lastBuf is flipped already
 
+  // Once a buffer is referenced, the BBs to return are the slices of the BBs we wrote to and the
+  // referenced ones, in the order they were written. Null as long as nothing is referenced.
+  private List<ByteBuffer> segments = null;
+  // Where the bytes of curBuf not yet added to the segments start
+  private int segmentStart = 0;
+
   public ByteBufferListOutputStream(ByteBuffAllocator allocator) {
     this.allocator = allocator;
     allocateNewBuffer();
@@ -57,16 +66,70 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
 
   private void allocateNewBuffer() {
     if (this.curBuf != null) {
+      if (this.segments != null) {
+        addSegment();
+      }
       this.curBuf.flip();// On the current buf set limit = pos and pos = 0.
     }
     // Get an initial ByteBuffer from the allocator.
     SingleByteBuff sbb = allocator.allocateOneBuffer();
     this.curBuf = sbb.nioByteBuffers()[0];
     this.allBufs.add(sbb);
+    this.segmentStart = 0;
+  }
+
+  private void addSegment() {
+    if (this.curBuf.position() > this.segmentStart) {
+      // Sliced up to the capacity of curBuf, so the spare capacity of the last BB can still be
+      // used by the caller, as for the BBs returned when nothing is referenced.
+      ByteBuffer segment = this.curBuf.duplicate();
+      segment.limit(segment.capacity());
+      segment.position(this.segmentStart);
+      segment = segment.slice();
+      segment.limit(this.curBuf.position() - this.segmentStart);
+      this.segments.add(segment);
+      this.segmentStart = this.curBuf.position();
+    }
+  }
+
+  /**
+   * Adds the <code>len</code> bytes of the passed buffer starting at <code>off</code> to the
+   * stream without copying them. The stream keeps a reference to the buffer, so its content must
+   * not change until the stream is released. The stream does not take ownership of the buffer,
+   * releasing the stream releases the buffers from the allocator only.
+   */
+  public void writeReference(ByteBuffer b, int off, int len) {
+    if (this.segments == null) {
+      this.segments = new ArrayList<>(this.allBufs.size() + 2);
+      // All but the current BB are flipped already
+      for (int i = 0; i < this.allBufs.size() - 1; i++) {
+        this.segments.add(this.allBufs.get(i).nioByteBuffers()[0]);
+      }
+    }
+    addSegment();
+    ByteBuffer ref = b.duplicate();
+    ref.limit(off + len);
+    ref.position(off);
+    // A slice has no spare capacity, nobody writes to the referenced buffer
+    this.segments.add(ref.slice());
+  }
+
+  /**
+   * @return whether any buffer has been referenced instead of copied
+   */
+  public boolean hasReferences() {
+    return this.segments != null;
   }
 
   @Override
   public int size() {
+    if (this.segments != null) {
+      int s = 0;
+      for (ByteBuffer segment : this.segments) {
+        s += segment.remaining();
+      }
+      return this.lastBufFlipped ? s : s + this.curBuf.position() - this.segmentStart;
+    }
     int s = 0;
     for (int i = 0; i < this.allBufs.size() - 1; i++) {
       s += this.allBufs.get(i).remaining();
@@ -116,6 +179,7 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
     }
     this.allBufs = null;
     this.curBuf = null;
+    this.segments = null;
   }
 
   @Override
@@ -129,6 +193,14 @@ public class ByteBufferListOutputStream extends ByteBufferOutputStream {
    * @return list of bytebuffers
    */
   public List<ByteBuffer> getByteBuffers() {
+    if (this.segments != null) {
+      if (!this.lastBufFlipped) {
+        this.lastBufFlipped = true;
+        addSegment();
+        curBuf.flip();
+      }
+      return new ArrayList<>(this.segments);
+    }
     if (!this.lastBufFlipped) {
       this.lastBufFlipped = true;
       // All the other BBs are already flipped while moving to the new BB.
@@ -18,6 +18,7 @@
 package org.apache.hadoop.hbase.io;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.nio.ByteBuffer;
@@ -82,4 +83,39 @@ public class TestByteBufferListOutputStream {
     bbos.releaseResources();
     assertEquals(3, alloc.getFreeBufferCount());
   }
+
+  @Test
+  public void testWriteReference() throws Exception {
+    ByteBuffAllocator alloc = new ByteBuffAllocator(true, 3, 10, 10 / 6);
+    ByteBufferListOutputStream bbos = new ByteBufferListOutputStream(alloc);
+    bbos.writeInt(100);
+    bbos.writeInt(101);
+    bbos.writeInt(102);// Does not fit the 1st BB
+    assertFalse(bbos.hasReferences());
+    ByteBuffer ref = ByteBuffer.wrap(Bytes.toBytes("xxrow123xx"));
+    bbos.writeReference(ref, 2, 6);
+    assertTrue(bbos.hasReferences());
+    bbos.writeInt(103);// Still fits the 2nd BB, after the reference
+    bbos.writeReference(ref, 0, 2);
+    assertEquals(24, bbos.size());
+    List<ByteBuffer> allBufs = bbos.getByteBuffers();
+    assertEquals(24, bbos.size());
+    assertEquals(5, allBufs.size());
+    assertEquals(2, bbos.allBufs.size());
+    assertEquals(100, allBufs.get(0).getInt());
+    assertEquals(101, allBufs.get(0).getInt());
+    assertEquals(0, allBufs.get(0).remaining());
+    assertEquals(102, allBufs.get(1).getInt());
+    assertEquals(0, allBufs.get(1).remaining());
+    // The reference is not copied
+    assertTrue(allBufs.get(2).array() == ref.array());
+    assertEquals(0, allBufs.get(2).capacity() - allBufs.get(2).limit());
+    assertTrue(ByteBufferUtils.equals(allBufs.get(2), 0, 6, Bytes.toBytes("row123"), 0, 6));
+    assertEquals(103, allBufs.get(3).getInt());
+    assertEquals(0, allBufs.get(3).remaining());
+    assertEquals(2, allBufs.get(4).remaining());
+    bbos.releaseResources();
+    // Only two BBs were taken from the pool
+    assertEquals(2, alloc.getFreeBufferCount());
+  }
 }
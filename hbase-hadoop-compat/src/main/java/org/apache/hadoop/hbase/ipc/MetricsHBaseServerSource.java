@@ -45,6 +45,8 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String RECEIVED_BYTES_DESC = "Number of bytes received.";
   String REQUEST_SIZE_NAME = "requestSize";
   String REQUEST_SIZE_DESC = "Request size in bytes.";
+  String REQUEST_ALLOCATED_BYTES_NAME = "requestAllocatedBytes";
+  String REQUEST_ALLOCATED_BYTES_DESC = "Heap bytes allocated to read and parse a request.";
   String RESPONSE_SIZE_NAME = "responseSize";
   String RESPONSE_SIZE_DESC = "Response size in bytes.";
   String QUEUE_CALL_TIME_NAME = "queueCallTime";
@@ -97,10 +99,45 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
   String NUM_LIFO_MODE_SWITCHES_NAME = "numLifoModeSwitches";
   String NUM_LIFO_MODE_SWITCHES_DESC = "Total number of calls in general queue which " +
     "were served from the tail of the queue";
+  String NUM_CALLS_STOLEN_NAME = "numCallsStolen";
+  String NUM_CALLS_STOLEN_DESC = "Total number of calls which were taken from the call queue of "
+    + "other handlers by idle handlers";
+  String CALL_QUEUE_WAIT_TIME_PREFIX = "callQueueWaitTime_";
+  String CALL_QUEUE_WAIT_TIME_DESC = "Time the calls waited in the call queue.";
+  String TENANT_PREFIX = "tenant_";
+  String TENANT_QUEUE_CALL_TIME_SUFFIX = "_queueCallTime";
+  String TENANT_QUEUE_CALL_TIME_DESC = "Queue call time of the calls of the tenant.";
+  String TENANT_CALLS_DROPPED_SUFFIX = "_numCallsDropped";
+  String TENANT_CALLS_DROPPED_DESC = "Number of calls of the tenant which were dropped "
+    + "because the client deadline had passed while they were queued";
+  /** The tenant the calls of the tenants past {@link #MAX_TENANTS} are recorded under */
+  String OTHER_TENANT = "_other";
+  /** How many tenants get metrics of their own, to bound the number of metrics */
+  int MAX_TENANTS = 100;
+  String CALL_QUEUE_LIMIT_PREFIX = "callQueueLimit_";
+  String CALL_QUEUE_LIMIT_SUFFIX = "_limit";
+  String CALL_QUEUE_LIMIT_DESC = "Adaptive limit of the number of calls in flight in the call "
+    + "queue group.";
+  String CALL_QUEUE_LIMIT_IN_FLIGHT_SUFFIX = "_inFlight";
+  String CALL_QUEUE_LIMIT_IN_FLIGHT_DESC = "Number of calls queued or running in the call queue "
+    + "group as of the last update of its adaptive limit.";
+  String CALL_QUEUE_LIMIT_REJECTED_SUFFIX = "_numCallsRejected";
+  String CALL_QUEUE_LIMIT_REJECTED_DESC = "Number of calls rejected as the adaptive limit of the "
+    + "call queue group was reached.";
+  String CALL_PHASE_TIME_PREFIX = "callPhaseTime_";
+  String CALL_PHASE_TIME_DESC = "Time, in microseconds, the calls which entered the phase spent in "
+    + "it.";
   // Direct Memory Usage metrics
   String NETTY_DM_USAGE_NAME = "nettyDirectMemoryUsage";
 
   String NETTY_DM_USAGE_DESC = "Current Netty direct memory usage.";
+  String EVENT_LOOP_PREFIX = "eventLoop_";
+  String EVENT_LOOP_UTILIZATION_SUFFIX = "_utilization";
+  String EVENT_LOOP_UTILIZATION_DESC = "Percentage of the time the netty event loop thread was "
+    + "running on a cpu since the previous snapshot.";
+  String EVENT_LOOP_PENDING_TASKS_SUFFIX = "_pendingTasks";
+  String EVENT_LOOP_PENDING_TASKS_DESC = "Number of tasks waiting to be run by the netty event "
+    + "loop.";
 
 
   void authorizationSuccess();
@@ -121,8 +158,54 @@ public interface MetricsHBaseServerSource extends ExceptionTrackingSource {
 
   void receivedRequest(long count);
 
+  /**
+   * Records the heap bytes the rpc server allocated to read and parse a request.
+   */
+  void allocatedForRequest(long bytes);
+
   void dequeuedCall(int qTime);
 
+  /**
+   * Records the time a call waited in the given call queue of the scheduler.
+   * @param queueName the name of the call queue
+   * @param waitTime the time the call waited, in milliseconds
+   * @param stolen whether the call was taken by a handler of another queue
+   */
+  void dequeuedCall(String queueName, long waitTime, boolean stolen);
+
+  /**
+   * Records the time a call of the given tenant, a user or a namespace, waited in the call queue.
+   * Only the first {@link #MAX_TENANTS} tenants seen get metrics of their own, the calls of the
+   * others are recorded under {@link #OTHER_TENANT}.
+   */
+  void tenantDequeuedCall(String tenant, long queueTime);
+
+  /**
+   * Records a call of the given tenant which was dropped from the call queue as expired.
+   */
+  void tenantCallDropped(String tenant);
+
+  /**
+   * Records an update of the adaptive limit of the given call queue group.
+   * @param group the name of the call queue group
+   * @param limit the new limit of the number of calls in flight
+   * @param inFlight the number of calls queued or running in the group
+   */
+  void callQueueLimitUpdated(String group, int limit, int inFlight);
+
+  /**
+   * Records a call rejected as the adaptive limit of the given call queue group was reached.
+   */
+  void callQueueLimitRejected(String group);
+
+  /**
+   * Records the time a call spent in the given phase of its processing, like waiting for a row
+   * lock.
+   * @param phase the name of the phase
+   * @param timeMicros the time spent in the phase, in microseconds
+   */
+  void callPhase(String phase, long timeMicros);
+
   void processedCall(int processingTime);
 
   void queuedAndProcessedCall(int totalTime);
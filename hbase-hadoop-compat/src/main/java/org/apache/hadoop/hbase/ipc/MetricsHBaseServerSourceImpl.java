@@ -19,6 +19,9 @@
 
 package org.apache.hadoop.hbase.ipc;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.hadoop.hbase.metrics.ExceptionTrackingSourceImpl;
 import org.apache.hadoop.hbase.metrics.Interns;
 import org.apache.hadoop.metrics2.MetricHistogram;
@@ -38,13 +41,30 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
   private final MutableFastCounter authenticationFallbacks;
   private final MutableFastCounter sentBytes;
   private final MutableFastCounter receivedBytes;
+  private final MutableFastCounter callsStolen;
 
 
   private MetricHistogram queueCallTime;
   private MetricHistogram processCallTime;
   private MetricHistogram totalCallTime;
   private MetricHistogram requestSize;
+  private MetricHistogram requestAllocatedBytes;
   private MetricHistogram responseSize;
+  private final ConcurrentMap<String, MetricHistogram> callQueueWaitTimes =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, TenantMetrics> tenants = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, MetricHistogram> callPhaseTimes =
+      new ConcurrentHashMap<>();
+
+  private static final class TenantMetrics {
+    private final MetricHistogram queueCallTime;
+    private final MutableFastCounter callsDropped;
+
+    TenantMetrics(MetricHistogram queueCallTime, MutableFastCounter callsDropped) {
+      this.queueCallTime = queueCallTime;
+      this.callsDropped = callsDropped;
+    }
+  }
 
   public MetricsHBaseServerSourceImpl(String metricsName,
                                       String metricsDescription,
@@ -68,6 +88,8 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
         SENT_BYTES_DESC, 0L);
     this.receivedBytes = this.getMetricsRegistry().newCounter(RECEIVED_BYTES_NAME,
         RECEIVED_BYTES_DESC, 0L);
+    this.callsStolen = this.getMetricsRegistry().newCounter(NUM_CALLS_STOLEN_NAME,
+        NUM_CALLS_STOLEN_DESC, 0L);
     this.queueCallTime = this.getMetricsRegistry().newTimeHistogram(QUEUE_CALL_TIME_NAME,
         QUEUE_CALL_TIME_DESC);
     this.processCallTime = this.getMetricsRegistry().newTimeHistogram(PROCESS_CALL_TIME_NAME,
@@ -76,6 +98,8 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
         TOTAL_CALL_TIME_DESC);
     this.requestSize = this.getMetricsRegistry().newSizeHistogram(REQUEST_SIZE_NAME,
         REQUEST_SIZE_DESC);
+    this.requestAllocatedBytes = this.getMetricsRegistry().newSizeHistogram(
+        REQUEST_ALLOCATED_BYTES_NAME, REQUEST_ALLOCATED_BYTES_DESC);
     this.responseSize = this.getMetricsRegistry().newSizeHistogram(RESPONSE_SIZE_NAME,
               RESPONSE_SIZE_DESC);
   }
@@ -125,11 +149,72 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
     this.requestSize.add(count);
   }
 
+  @Override
+  public void allocatedForRequest(long bytes) {
+    this.requestAllocatedBytes.add(bytes);
+  }
+
   @Override
   public void dequeuedCall(int qTime) {
     queueCallTime.add(qTime);
   }
 
+  @Override
+  public void dequeuedCall(String queueName, long waitTime, boolean stolen) {
+    callQueueWaitTimes.computeIfAbsent(queueName, name -> getMetricsRegistry()
+        .newTimeHistogram(CALL_QUEUE_WAIT_TIME_PREFIX + name, CALL_QUEUE_WAIT_TIME_DESC))
+        .add(waitTime);
+    if (stolen) {
+      callsStolen.incr();
+    }
+  }
+
+  @Override
+  public void tenantDequeuedCall(String tenant, long queueTime) {
+    getTenantMetrics(tenant).queueCallTime.add(queueTime);
+  }
+
+  @Override
+  public void tenantCallDropped(String tenant) {
+    getTenantMetrics(tenant).callsDropped.incr();
+  }
+
+  private TenantMetrics getTenantMetrics(String tenant) {
+    TenantMetrics metrics = tenants.get(tenant);
+    if (metrics != null) {
+      return metrics;
+    }
+    // racy, a few more tenants than the max may get metrics of their own
+    if (tenants.size() >= MAX_TENANTS) {
+      tenant = OTHER_TENANT;
+    }
+    return tenants.computeIfAbsent(tenant, t -> new TenantMetrics(
+      getMetricsRegistry().newTimeHistogram(TENANT_PREFIX + t + TENANT_QUEUE_CALL_TIME_SUFFIX,
+        TENANT_QUEUE_CALL_TIME_DESC),
+      getMetricsRegistry().newCounter(TENANT_PREFIX + t + TENANT_CALLS_DROPPED_SUFFIX,
+        TENANT_CALLS_DROPPED_DESC, 0L)));
+  }
+
+  @Override
+  public void callQueueLimitUpdated(String group, int limit, int inFlight) {
+    getMetricsRegistry().getGauge(CALL_QUEUE_LIMIT_PREFIX + group + CALL_QUEUE_LIMIT_SUFFIX, 0L)
+        .set(limit);
+    getMetricsRegistry().getGauge(
+      CALL_QUEUE_LIMIT_PREFIX + group + CALL_QUEUE_LIMIT_IN_FLIGHT_SUFFIX, 0L).set(inFlight);
+  }
+
+  @Override
+  public void callQueueLimitRejected(String group) {
+    getMetricsRegistry().getCounter(
+      CALL_QUEUE_LIMIT_PREFIX + group + CALL_QUEUE_LIMIT_REJECTED_SUFFIX, 0L).incr();
+  }
+
+  @Override
+  public void callPhase(String phase, long timeMicros) {
+    callPhaseTimes.computeIfAbsent(phase, p -> getMetricsRegistry()
+        .newHistogram(CALL_PHASE_TIME_PREFIX + p, CALL_PHASE_TIME_DESC)).add(timeMicros);
+  }
+
   @Override
   public void processedCall(int processingTime) {
     processCallTime.add(processingTime);
@@ -184,6 +269,14 @@ public class MetricsHBaseServerSourceImpl extends ExceptionTrackingSourceImpl
             wrapper.getActiveScanRpcHandlerCount())
           .addGauge(Interns.info(NETTY_DM_USAGE_NAME, NETTY_DM_USAGE_DESC),
             wrapper.getNettyDmUsage());
+      for (Map.Entry<String, Integer> e : wrapper.getEventLoopUtilization().entrySet()) {
+        mrb.addGauge(Interns.info(EVENT_LOOP_PREFIX + e.getKey() + EVENT_LOOP_UTILIZATION_SUFFIX,
+          EVENT_LOOP_UTILIZATION_DESC), e.getValue());
+      }
+      for (Map.Entry<String, Integer> e : wrapper.getEventLoopPendingTasks().entrySet()) {
+        mrb.addGauge(Interns.info(EVENT_LOOP_PREFIX + e.getKey() + EVENT_LOOP_PENDING_TASKS_SUFFIX,
+          EVENT_LOOP_PENDING_TASKS_DESC), e.getValue());
+      }
     }
 
     metricsRegistry.snapshot(mrb, all);
@@ -19,6 +19,7 @@
 
 package org.apache.hadoop.hbase.ipc;
 
+import java.util.Map;
 import org.apache.yetus.audience.InterfaceAudience;
 
 @InterfaceAudience.Private
@@ -62,4 +63,16 @@ public interface MetricsHBaseServerWrapper {
   int getActiveScanRpcHandlerCount();
 
   long getNettyDmUsage();
+
+  /**
+   * @return the utilization in percent of each netty event loop since the previous call, by
+   *   event loop thread name
+   */
+  Map<String, Integer> getEventLoopUtilization();
+
+  /**
+   * @return the number of tasks waiting to be run by each netty event loop, by event loop thread
+   *   name
+   */
+  Map<String, Integer> getEventLoopPendingTasks();
 }
@@ -191,6 +191,18 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
    */
   void updateFlushOutputSize(long bytes);
 
+  /**
+   * Update the in-memory compaction time histogram
+   * @param t time it took, in milliseconds
+   */
+  void updateInMemoryCompactionTime(long t);
+
+  /**
+   * Update the histogram of the in-memory compactions split into partitions compacted in parallel
+   * @param t time it took, in milliseconds
+   */
+  void updateParallelInMemoryCompactionTime(long t);
+
   /**
    * Update the compaction time histogram, both major and minor
    * @param isMajor whether compaction is a major compaction
@@ -522,6 +534,13 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String FLUSHED_MEMSTORE_BYTES = "flushedMemstoreBytes";
   String FLUSHED_MEMSTORE_BYTES_DESC = "Total number of bytes of cells in memstore from flush";
 
+  String IN_MEMORY_COMPACTION_TIME = "inMemoryCompactionTime";
+  String IN_MEMORY_COMPACTION_TIME_DESC =
+      "Histogram for the time in millis for in-memory compaction (merge or compact) of a memstore";
+  String PARALLEL_IN_MEMORY_COMPACTION_TIME = "parallelInMemoryCompactionTime";
+  String PARALLEL_IN_MEMORY_COMPACTION_TIME_DESC = "Histogram for the time in millis for in-memory "
+      + "compaction of a memstore split into partitions compacted in parallel";
+
   String COMPACTION_TIME = "compactionTime";
   String COMPACTION_TIME_DESC
     = "Histogram for the time in millis for compaction, both major and minor";
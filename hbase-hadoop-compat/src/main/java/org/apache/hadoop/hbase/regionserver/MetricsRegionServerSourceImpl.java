@@ -68,6 +68,10 @@ public class MetricsRegionServerSourceImpl
   private final MutableFastCounter flushedMemstoreBytes;
   private final MutableFastCounter flushedOutputBytes;
 
+  // in-memory compaction related metrics
+  private final MetricHistogram inMemoryCompactionTimeHisto;
+  private final MetricHistogram parallelInMemoryCompactionTimeHisto;
+
   // compaction related metrics
   private final MetricHistogram compactionTimeHisto;
   private final MetricHistogram compactionInputFileCountHisto;
@@ -138,6 +142,11 @@ public class MetricsRegionServerSourceImpl
     flushedMemstoreBytes = getMetricsRegistry().newCounter(FLUSHED_MEMSTORE_BYTES,
       FLUSHED_MEMSTORE_BYTES_DESC, 0L);
 
+    inMemoryCompactionTimeHisto = getMetricsRegistry()
+        .newTimeHistogram(IN_MEMORY_COMPACTION_TIME, IN_MEMORY_COMPACTION_TIME_DESC);
+    parallelInMemoryCompactionTimeHisto = getMetricsRegistry().newTimeHistogram(
+      PARALLEL_IN_MEMORY_COMPACTION_TIME, PARALLEL_IN_MEMORY_COMPACTION_TIME_DESC);
+
     compactionTimeHisto = getMetricsRegistry()
         .newTimeHistogram(COMPACTION_TIME, COMPACTION_TIME_DESC);
     compactionInputFileCountHisto = getMetricsRegistry()
@@ -278,6 +287,16 @@ public class MetricsRegionServerSourceImpl
     flushedOutputBytes.incr(bytes);
   }
 
+  @Override
+  public void updateInMemoryCompactionTime(long t) {
+    inMemoryCompactionTimeHisto.add(t);
+  }
+
+  @Override
+  public void updateParallelInMemoryCompactionTime(long t) {
+    parallelInMemoryCompactionTimeHisto.add(t);
+  }
+
   @Override
   public void updateCompactionTime(boolean isMajor, long t) {
     compactionTimeHisto.add(t);
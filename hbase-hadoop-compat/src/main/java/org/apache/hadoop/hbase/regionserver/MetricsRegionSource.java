@@ -57,6 +57,12 @@ public interface MetricsRegionSource extends Comparable<MetricsRegionSource> {
   String ROW_READS_ONLY_ON_MEMSTORE_DESC = "Row reads happening completely out of memstore";
   String MIXED_ROW_READS = "mixedRowReadsCount";
   String MIXED_ROW_READS_ON_STORE_DESC = "Row reads happening out of files and memstore on store";
+  String ROW_LOCK_WAIT_COUNT = "rowLockWaitCount";
+  String ROW_LOCK_WAIT_TIME = "rowLockWaitTimeMicros";
+  String ROW_CACHE_HIT_COUNT = "rowCacheHitCount";
+  String ROW_CACHE_MISS_COUNT = "rowCacheMissCount";
+  String ROW_CACHE_HIT_RATIO = "rowCacheHitRatio";
+  String ROW_CACHE_HIT_RATIO_DESC = "Ratio of cacheable gets served out of the row cache";
 
   /**
    * Close the region's metrics as this region is closing.
@@ -94,6 +100,18 @@ public interface MetricsRegionSource extends Comparable<MetricsRegionSource> {
    */
   void updateAppend();
 
+  /**
+   * Update the count and total time of row lock acquisitions that had to wait.
+   * @param micros time waited for the row lock.
+   */
+  void updateRowLockWait(long micros);
+
+  /**
+   * Update the row cache hit or miss count.
+   * @param hit whether a cacheable get was served out of the row cache
+   */
+  void updateRowCache(boolean hit);
+
   /**
    * Get the aggregate source to which this reports.
    */
@@ -57,6 +57,10 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
   private final String regionIncrementKey;
   private final String regionAppendKey;
   private final String regionScanKey;
+  private final String regionRowLockWaitCountKey;
+  private final String regionRowLockWaitTimeKey;
+  private final String regionRowCacheHitKey;
+  private final String regionRowCacheMissKey;
 
   /*
    * Implementation note: Do not put histograms per region. With hundreds of regions in a server
@@ -68,6 +72,10 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
   private final MutableFastCounter regionAppend;
   private final MutableFastCounter regionGet;
   private final MutableFastCounter regionScan;
+  private final MutableFastCounter regionRowLockWaitCount;
+  private final MutableFastCounter regionRowLockWaitTime;
+  private final MutableFastCounter regionRowCacheHit;
+  private final MutableFastCounter regionRowCacheMiss;
 
   private final int hashCode;
 
@@ -107,6 +115,18 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
 
     regionScanKey = regionNamePrefix + MetricsRegionServerSource.SCAN_KEY + suffix;
     regionScan = registry.getCounter(regionScanKey, 0L);
+
+    regionRowLockWaitCountKey = regionNamePrefix + MetricsRegionSource.ROW_LOCK_WAIT_COUNT;
+    regionRowLockWaitCount = registry.getCounter(regionRowLockWaitCountKey, 0L);
+
+    regionRowLockWaitTimeKey = regionNamePrefix + MetricsRegionSource.ROW_LOCK_WAIT_TIME;
+    regionRowLockWaitTime = registry.getCounter(regionRowLockWaitTimeKey, 0L);
+
+    regionRowCacheHitKey = regionNamePrefix + MetricsRegionSource.ROW_CACHE_HIT_COUNT;
+    regionRowCacheHit = registry.getCounter(regionRowCacheHitKey, 0L);
+
+    regionRowCacheMissKey = regionNamePrefix + MetricsRegionSource.ROW_CACHE_MISS_COUNT;
+    regionRowCacheMiss = registry.getCounter(regionRowCacheMissKey, 0L);
   }
 
   @Override
@@ -135,6 +155,10 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
       registry.removeMetric(regionAppendKey);
       registry.removeMetric(regionGetKey);
       registry.removeMetric(regionScanKey);
+      registry.removeMetric(regionRowLockWaitCountKey);
+      registry.removeMetric(regionRowLockWaitTimeKey);
+      registry.removeMetric(regionRowCacheHitKey);
+      registry.removeMetric(regionRowCacheMissKey);
 
       regionWrapper = null;
     }
@@ -170,6 +194,21 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
     regionAppend.incr();
   }
 
+  @Override
+  public void updateRowLockWait(long micros) {
+    regionRowLockWaitCount.incr();
+    regionRowLockWaitTime.incr(micros);
+  }
+
+  @Override
+  public void updateRowCache(boolean hit) {
+    if (hit) {
+      regionRowCacheHit.incr();
+    } else {
+      regionRowCacheMiss.incr();
+    }
+  }
+
   @Override
   public MetricsRegionAggregateSource getAggregateSource() {
     return agg;
@@ -308,6 +347,14 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
               regionNamePrefix + MetricsRegionSource.MAX_FLUSH_QUEUE_SIZE,
               MetricsRegionSource.MAX_FLUSH_QUEUE_DESC),
           this.regionWrapper.getMaxFlushQueueSize());
+      long rowCacheHits = regionRowCacheHit.value();
+      long rowCacheLookups = rowCacheHits + regionRowCacheMiss.value();
+      if (rowCacheLookups > 0) {
+        mrb.addGauge(Interns.info(
+                regionNamePrefix + MetricsRegionSource.ROW_CACHE_HIT_RATIO,
+                MetricsRegionSource.ROW_CACHE_HIT_RATIO_DESC),
+            (double) rowCacheHits / rowCacheLookups);
+      }
       addCounter(mrb, this.regionWrapper.getMemstoreOnlyRowReadsCount(),
         MetricsRegionSource.ROW_READS_ONLY_ON_MEMSTORE,
         MetricsRegionSource.ROW_READS_ONLY_ON_MEMSTORE_DESC);
@@ -76,6 +76,17 @@ public interface MetricsWALSource extends BaseSource {
       "How many times a roll was requested due to file size roll threshold.";
   String WRITTEN_BYTES = "writtenBytes";
   String WRITTEN_BYTES_DESC = "Size (in bytes) of the data written to the WAL.";
+  String GROUP_COMMIT_TIME = "groupCommitTime";
+  String GROUP_COMMIT_TIME_DESC = "Time (in microseconds) from the first sync request of a group "
+      + "commit until the sync of the group completed.";
+  String GROUP_COMMIT_SYNCS = "groupCommitSyncs";
+  String GROUP_COMMIT_SYNCS_DESC = "Number of sync requests released by one sync of the WAL.";
+  String GROUP_COMMIT_BYTES = "groupCommitBytes";
+  String GROUP_COMMIT_BYTES_DESC =
+    "Size (in bytes) of the data made durable by one sync of the WAL.";
+  String DATANODE_ACK_TIME = "datanodeAckTime";
+  String DATANODE_ACK_TIME_DESC =
+      "Time (in microseconds) a datanode of the WAL pipeline took to ack a write.";
 
   /**
    * Add the append size.
@@ -115,4 +126,38 @@ public interface MetricsWALSource extends BaseSource {
   void incrementSizeLogRoll();
 
   void incrementWrittenBytes(long val);
+
+  /**
+   * Add the latency and the size of a group commit, i.e. of the sync requests released by one sync
+   * of the WAL.
+   */
+  void updateGroupCommit(long timeInMicros, int syncs, long bytes);
+
+  /**
+   * Increment the count and add the size of the appends to the WAL of a wal group, see
+   * {@code RegionGroupingProvider}.
+   */
+  void incrementGroupAppend(String group, long size);
+
+  /**
+   * Add the time it took to sync the WAL of a wal group.
+   */
+  void incrementGroupSyncTime(String group, long time);
+
+  /**
+   * Add the time a datanode of the WAL pipeline took to ack a write. Ignored unless the datanode
+   * was added, see {@link #addDatanode(String)}.
+   */
+  void updateDatanodeAckTime(String datanode, long timeInMicros);
+
+  /**
+   * Start tracking the ack times of a datanode which joined the pipeline of a WAL.
+   */
+  void addDatanode(String datanode);
+
+  /**
+   * Stop tracking the ack times of a datanode which left the pipeline of a WAL, unless it is still
+   * in the pipeline of another one.
+   */
+  void removeDatanode(String datanode);
 }
@@ -46,9 +46,28 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
   private final MutableFastCounter slowSyncRollRequested;
   private final MutableFastCounter sizeRollRequested;
   private final MutableFastCounter writtenBytes;
+  private final MetricHistogram groupCommitTimeHisto;
+  private final MetricHistogram groupCommitSyncsHisto;
+  private final MetricHistogram groupCommitBytesHisto;
   // Per table metrics.
   private final ConcurrentMap<TableName, MutableFastCounter> perTableAppendCount;
   private final ConcurrentMap<TableName, MutableFastCounter> perTableAppendSize;
+  // Per wal group metrics.
+  private final ConcurrentMap<String, MutableFastCounter> perGroupAppendCount;
+  private final ConcurrentMap<String, MutableFastCounter> perGroupAppendSize;
+  private final ConcurrentMap<String, MutableFastCounter> perGroupSyncTime;
+  // Per datanode metrics, of the datanodes in the pipeline of a WAL.
+  private final ConcurrentMap<String, DatanodeMetrics> perDatanodeAckTime;
+
+  private static final class DatanodeMetrics {
+    private final MetricHistogram ackTime;
+    // number of WAL pipelines the datanode is in
+    private int pipelines;
+
+    DatanodeMetrics(MetricHistogram ackTime) {
+      this.ackTime = ackTime;
+    }
+  }
 
   public MetricsWALSourceImpl() {
     this(METRICS_NAME, METRICS_DESCRIPTION, METRICS_CONTEXT, METRICS_JMX_CONTEXT);
@@ -78,8 +97,18 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
     sizeRollRequested = this.getMetricsRegistry()
         .newCounter(SIZE_ROLL_REQUESTED, SIZE_ROLL_REQUESTED_DESC, 0L);
     writtenBytes = this.getMetricsRegistry().newCounter(WRITTEN_BYTES, WRITTEN_BYTES_DESC, 0L);
+    groupCommitTimeHisto =
+        this.getMetricsRegistry().newHistogram(GROUP_COMMIT_TIME, GROUP_COMMIT_TIME_DESC);
+    groupCommitSyncsHisto =
+        this.getMetricsRegistry().newHistogram(GROUP_COMMIT_SYNCS, GROUP_COMMIT_SYNCS_DESC);
+    groupCommitBytesHisto =
+        this.getMetricsRegistry().newSizeHistogram(GROUP_COMMIT_BYTES, GROUP_COMMIT_BYTES_DESC);
     perTableAppendCount = new ConcurrentHashMap<>();
     perTableAppendSize = new ConcurrentHashMap<>();
+    perGroupAppendCount = new ConcurrentHashMap<>();
+    perGroupAppendSize = new ConcurrentHashMap<>();
+    perGroupSyncTime = new ConcurrentHashMap<>();
+    perDatanodeAckTime = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -159,4 +188,69 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
   public void incrementWrittenBytes(long val) {
     writtenBytes.incr(val);
   }
+
+  @Override
+  public void updateGroupCommit(long timeInMicros, int syncs, long bytes) {
+    groupCommitTimeHisto.add(timeInMicros);
+    groupCommitSyncsHisto.add(syncs);
+    groupCommitBytesHisto.add(bytes);
+  }
+
+  @Override
+  public void incrementGroupAppend(String group, long size) {
+    getGroupCounter(perGroupAppendCount, group, APPEND_COUNT, APPEND_COUNT_DESC).incr();
+    getGroupCounter(perGroupAppendSize, group, APPEND_SIZE, APPEND_SIZE_DESC).incr(size);
+  }
+
+  @Override
+  public void incrementGroupSyncTime(String group, long time) {
+    getGroupCounter(perGroupSyncTime, group, SYNC_TIME, SYNC_TIME_DESC).incr(time);
+  }
+
+  @Override
+  public void updateDatanodeAckTime(String datanode, long timeInMicros) {
+    DatanodeMetrics metrics = perDatanodeAckTime.get(datanode);
+    if (metrics != null) {
+      metrics.ackTime.add(timeInMicros);
+    }
+  }
+
+  @Override
+  public void addDatanode(String datanode) {
+    perDatanodeAckTime.compute(datanode, (k, metrics) -> {
+      if (metrics == null) {
+        metrics = new DatanodeMetrics(getMetricsRegistry()
+          .newHistogram(getDatanodeAckTimeKey(datanode), DATANODE_ACK_TIME_DESC));
+      }
+      metrics.pipelines++;
+      return metrics;
+    });
+  }
+
+  @Override
+  public void removeDatanode(String datanode) {
+    perDatanodeAckTime.computeIfPresent(datanode, (k, metrics) -> {
+      if (--metrics.pipelines > 0) {
+        return metrics;
+      }
+      getMetricsRegistry().removeMetric(getDatanodeAckTimeKey(datanode));
+      return null;
+    });
+  }
+
+  private static String getDatanodeAckTimeKey(String datanode) {
+    return String.format("datanode:%s:%s", datanode, DATANODE_ACK_TIME);
+  }
+
+  private MutableFastCounter getGroupCounter(ConcurrentMap<String, MutableFastCounter> counters,
+      String group, String name, String desc) {
+    MutableFastCounter counter = counters.get(group);
+    if (counter == null) {
+      // can not clash with the per table metrics, table names have one ':' at most
+      String metricsKey = String.format("walgroup:%s:%s", group, name);
+      counters.putIfAbsent(group, getMetricsRegistry().newCounter(metricsKey, desc, 0L));
+      counter = counters.get(group);
+    }
+    return counter;
+  }
 }
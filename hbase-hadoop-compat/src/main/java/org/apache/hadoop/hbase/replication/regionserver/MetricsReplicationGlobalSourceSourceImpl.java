@@ -33,6 +33,7 @@ public class MetricsReplicationGlobalSourceSourceImpl
   private final MutableHistogram ageOfLastShippedOpHist;
   private final MutableGaugeLong sizeOfLogQueueGauge;
   private final MutableFastCounter logReadInEditsCounter;
+  private final MutableFastCounter logReadFromTailBufferCounter;
   private final MutableFastCounter walEditsFilteredCounter;
   private final MutableFastCounter shippedBatchesCounter;
   private final MutableFastCounter shippedOpsCounter;
@@ -49,6 +50,9 @@ public class MetricsReplicationGlobalSourceSourceImpl
   private final MutableFastCounter completedRecoveryQueue;
   private final MutableFastCounter failedRecoveryQueue;
   private final MutableGaugeLong walReaderBufferUsageBytes;
+  private final MutableHistogram readLagHist;
+  private final MutableHistogram shipLagHist;
+  private final MutableHistogram applyLagHist;
 
   public MetricsReplicationGlobalSourceSourceImpl(MetricsReplicationSourceImpl rms) {
     this.rms = rms;
@@ -67,6 +71,9 @@ public class MetricsReplicationGlobalSourceSourceImpl
 
     logReadInEditsCounter = rms.getMetricsRegistry().getCounter(SOURCE_LOG_READ_IN_EDITS, 0L);
 
+    logReadFromTailBufferCounter =
+        rms.getMetricsRegistry().getCounter(SOURCE_LOG_READ_FROM_TAIL_BUFFER, 0L);
+
     walEditsFilteredCounter = rms.getMetricsRegistry().getCounter(SOURCE_LOG_EDITS_FILTERED, 0L);
 
     shippedHFilesCounter = rms.getMetricsRegistry().getCounter(SOURCE_SHIPPED_HFILES, 0L);
@@ -89,6 +96,10 @@ public class MetricsReplicationGlobalSourceSourceImpl
 
     walReaderBufferUsageBytes = rms.getMetricsRegistry()
         .getGauge(SOURCE_WAL_READER_EDITS_BUFFER, 0L);
+
+    readLagHist = rms.getMetricsRegistry().getHistogram(SOURCE_READ_LAG);
+    shipLagHist = rms.getMetricsRegistry().getHistogram(SOURCE_SHIP_LAG);
+    applyLagHist = rms.getMetricsRegistry().getHistogram(SOURCE_APPLY_LAG);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -107,6 +118,10 @@ public class MetricsReplicationGlobalSourceSourceImpl
     logReadInEditsCounter.incr(size);
   }
 
+  @Override public void incrLogReadFromTailBuffer(long size) {
+    logReadFromTailBufferCounter.incr(size);
+  }
+
   @Override public void incrLogEditsFiltered(long size) {
     walEditsFilteredCounter.incr(size);
   }
@@ -256,6 +271,13 @@ public class MetricsReplicationGlobalSourceSourceImpl
     return this.walEditsFilteredCounter.value();
   }
 
+  @Override
+  public void updateLagBreakdown(long readLag, long shipLag, long applyLag) {
+    readLagHist.add(readLag);
+    shipLagHist.add(shipLag);
+    applyLagHist.add(applyLag);
+  }
+
   @Override
   public void setWALReaderEditsBufferBytes(long usage) {
     this.walReaderBufferUsageBytes.set(usage);
@@ -26,6 +26,8 @@ public interface MetricsReplicationSinkSource {
   public static final String SINK_APPLIED_BATCHES = "sink.appliedBatches";
   public static final String SINK_APPLIED_OPS = "sink.appliedOps";
   public static final String SINK_APPLIED_HFILES = "sink.appliedHFiles";
+  public static final String SINK_APPLIED_LOCAL_OPS = "sink.appliedLocalOps";
+  public static final String SINK_APPLY_LATENCY = "sink.applyLatency";
 
   void setLastAppliedOpAge(long age);
   void incrAppliedBatches(long batches);
@@ -33,4 +35,12 @@ public interface MetricsReplicationSinkSource {
   long getLastAppliedOpAge();
   void incrAppliedHFiles(long hfileSize);
   long getSinkAppliedOps();
+  void incrAppliedLocalOps(long ops);
+
+  /**
+   * Records the time it took to apply a batch of edits shipped by a source cluster.
+   * @param sourceClusterId id of the source cluster, may be null for old sources
+   * @param latency time to apply the batch in milliseconds
+   */
+  void updateApplyLatency(String sourceClusterId, long latency);
 }
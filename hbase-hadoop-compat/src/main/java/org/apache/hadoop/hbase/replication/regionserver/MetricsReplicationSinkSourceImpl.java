@@ -18,6 +18,8 @@
 
 package org.apache.hadoop.hbase.replication.regionserver;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.hadoop.metrics2.lib.MutableFastCounter;
 import org.apache.hadoop.metrics2.lib.MutableHistogram;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -29,12 +31,21 @@ public class MetricsReplicationSinkSourceImpl implements MetricsReplicationSinkS
   private final MutableFastCounter batchesCounter;
   private final MutableFastCounter opsCounter;
   private final MutableFastCounter hfilesCounter;
+  private final MutableFastCounter localOpsCounter;
+  private final MutableHistogram applyLatencyHist;
+  private final MetricsReplicationSourceImpl rms;
+  // apply latency per source cluster
+  private final ConcurrentMap<String, MutableHistogram> peerApplyLatencyHists =
+      new ConcurrentHashMap<>();
 
   public MetricsReplicationSinkSourceImpl(MetricsReplicationSourceImpl rms) {
+    this.rms = rms;
     ageHist = rms.getMetricsRegistry().getHistogram(SINK_AGE_OF_LAST_APPLIED_OP);
     batchesCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_BATCHES, 0L);
     opsCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_OPS, 0L);
     hfilesCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_HFILES, 0L);
+    localOpsCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_LOCAL_OPS, 0L);
+    applyLatencyHist = rms.getMetricsRegistry().getHistogram(SINK_APPLY_LATENCY);
   }
 
   @Override public void setLastAppliedOpAge(long age) {
@@ -62,4 +73,23 @@ public class MetricsReplicationSinkSourceImpl implements MetricsReplicationSinkS
   @Override public long getSinkAppliedOps() {
     return opsCounter.value();
   }
+
+  @Override
+  public void incrAppliedLocalOps(long ops) {
+    localOpsCounter.incr(ops);
+  }
+
+  @Override
+  public void updateApplyLatency(String sourceClusterId, long latency) {
+    applyLatencyHist.add(latency);
+    if (sourceClusterId == null || sourceClusterId.isEmpty()) {
+      return;
+    }
+    MutableHistogram hist = peerApplyLatencyHists.get(sourceClusterId);
+    if (hist == null) {
+      hist = peerApplyLatencyHists.computeIfAbsent(sourceClusterId,
+        k -> rms.getMetricsRegistry().getHistogram("sink." + k + ".applyLatency"));
+    }
+    hist.add(latency);
+  }
 }
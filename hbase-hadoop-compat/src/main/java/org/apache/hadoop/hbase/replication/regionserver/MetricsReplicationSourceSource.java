@@ -33,6 +33,8 @@ public interface MetricsReplicationSourceSource extends BaseSource {
 
   public static final String SOURCE_LOG_READ_IN_BYTES = "source.logReadInBytes";
   public static final String SOURCE_LOG_READ_IN_EDITS = "source.logEditsRead";
+  public static final String SOURCE_LOG_READ_FROM_TAIL_BUFFER =
+      "source.logEditsReadFromTailBuffer";
 
   public static final String SOURCE_LOG_EDITS_FILTERED = "source.logEditsFiltered";
 
@@ -50,6 +52,13 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   public static final String SOURCE_COMPLETED_RECOVERY_QUEUES = "source.completedRecoverQueues";
   public static final String SOURCE_FAILED_RECOVERY_QUEUES = "source.failedRecoverQueues";
 
+  // Breakdown of the replication lag of a batch, in milliseconds: from the write of its last edit
+  // to the end of its read, from then to the start of its successful shipment, and the time the
+  // peer took to apply it.
+  public static final String SOURCE_READ_LAG = "source.readLag";
+  public static final String SOURCE_SHIP_LAG = "source.shipLag";
+  public static final String SOURCE_APPLY_LAG = "source.applyLag";
+
   void setLastShippedAge(long age);
   void incrSizeOfLogQueue(int size);
   void decrSizeOfLogQueue(int size);
@@ -59,6 +68,7 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   void incrShippedBytes(long size);
   void incrLogReadInBytes(long size);
   void incrLogReadInEdits(long size);
+  void incrLogReadFromTailBuffer(long size);
   void clear();
   long getLastShippedAge();
   int getSizeOfLogQueue();
@@ -76,4 +86,5 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   long getWALEditsRead();
   long getShippedOps();
   long getEditsFiltered();
+  void updateLagBreakdown(long readLag, long shipLag, long applyLag);
 }
@@ -30,6 +30,7 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final String sizeOfLogQueueKey;
   private final String ageOfLastShippedOpKey;
   private final String logReadInEditsKey;
+  private final String logReadFromTailBufferKey;
   private final String logEditsFilteredKey;
   private final String shippedBatchesKey;
   private final String shippedOpsKey;
@@ -43,6 +44,7 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final MutableHistogram ageOfLastShippedOpHist;
   private final MutableGaugeLong sizeOfLogQueueGauge;
   private final MutableFastCounter logReadInEditsCounter;
+  private final MutableFastCounter logReadFromTailBufferCounter;
   private final MutableFastCounter walEditsFilteredCounter;
   private final MutableFastCounter shippedBatchesCounter;
   private final MutableFastCounter shippedOpsCounter;
@@ -58,6 +60,9 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final String repeatedBytesKey;
   private final String completedLogsKey;
   private final String completedRecoveryKey;
+  private final String readLagKey;
+  private final String shipLagKey;
+  private final String applyLagKey;
   private final MutableFastCounter unknownFileLengthForClosedWAL;
   private final MutableFastCounter uncleanlyClosedWAL;
   private final MutableFastCounter uncleanlyClosedSkippedBytes;
@@ -65,6 +70,9 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final MutableFastCounter repeatedFileBytes;
   private final MutableFastCounter completedWAL;
   private final MutableFastCounter completedRecoveryQueue;
+  private final MutableHistogram readLagHist;
+  private final MutableHistogram shipLagHist;
+  private final MutableHistogram applyLagHist;
 
   public MetricsReplicationSourceSourceImpl(MetricsReplicationSourceImpl rms, String id) {
     this.rms = rms;
@@ -92,6 +100,10 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     logReadInEditsKey = this.keyPrefix + "logEditsRead";
     logReadInEditsCounter = rms.getMetricsRegistry().getCounter(logReadInEditsKey, 0L);
 
+    logReadFromTailBufferKey = this.keyPrefix + "logEditsReadFromTailBuffer";
+    logReadFromTailBufferCounter =
+        rms.getMetricsRegistry().getCounter(logReadFromTailBufferKey, 0L);
+
     logEditsFilteredKey = this.keyPrefix + "logEditsFiltered";
     walEditsFilteredCounter = rms.getMetricsRegistry().getCounter(logEditsFilteredKey, 0L);
 
@@ -121,6 +133,15 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
 
     completedRecoveryKey = this.keyPrefix + "completedRecoverQueues";
     completedRecoveryQueue = rms.getMetricsRegistry().getCounter(completedRecoveryKey, 0L);
+
+    readLagKey = this.keyPrefix + "readLag";
+    readLagHist = rms.getMetricsRegistry().getHistogram(readLagKey);
+
+    shipLagKey = this.keyPrefix + "shipLag";
+    shipLagHist = rms.getMetricsRegistry().getHistogram(shipLagKey);
+
+    applyLagKey = this.keyPrefix + "applyLag";
+    applyLagHist = rms.getMetricsRegistry().getHistogram(applyLagKey);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -139,6 +160,10 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     logReadInEditsCounter.incr(size);
   }
 
+  @Override public void incrLogReadFromTailBuffer(long size) {
+    logReadFromTailBufferCounter.incr(size);
+  }
+
   @Override public void incrLogEditsFiltered(long size) {
     walEditsFilteredCounter.incr(size);
   }
@@ -170,6 +195,7 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
 
     rms.removeMetric(logReadInBytesKey);
     rms.removeMetric(logReadInEditsKey);
+    rms.removeMetric(logReadFromTailBufferKey);
 
     rms.removeMetric(logEditsFilteredKey);
 
@@ -183,6 +209,9 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     rms.removeMetric(repeatedBytesKey);
     rms.removeMetric(completedLogsKey);
     rms.removeMetric(completedRecoveryKey);
+    rms.removeMetric(readLagKey);
+    rms.removeMetric(shipLagKey);
+    rms.removeMetric(applyLagKey);
   }
 
   @Override
@@ -314,4 +343,11 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   @Override public long getEditsFiltered() {
     return this.walEditsFilteredCounter.value();
   }
+
+  @Override
+  public void updateLagBreakdown(long readLag, long shipLag, long applyLag) {
+    readLagHist.add(readLag);
+    shipLagHist.add(shipLag);
+    applyLagHist.add(applyLag);
+  }
 }
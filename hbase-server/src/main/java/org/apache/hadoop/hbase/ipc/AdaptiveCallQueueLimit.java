@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Limits the number of calls in flight, queued or running, of a group of call queues, e.g. the
+ * read queues of a {@link RWQueueRpcExecutor}, to what its handlers can serve without the latency
+ * going up. The static <code>hbase.ipc.server.max.callqueue.length</code> either rejects calls
+ * during a short burst or lets the queues fill with calls which will time out before they are run
+ * under overload; this limit adapts to the latency the calls actually see.
+ * <p/>
+ * It follows the gradient algorithm of concurrency limiting. The latency from admission to
+ * completion of the calls is averaged over a short window and compared with its long term
+ * average. While the short term latency stays within {@link #TOLERANCE_CONF_KEY} times the long
+ * term one, the limit grows by about its square root per window; once it exceeds it, the limit
+ * shrinks in proportion, down to half per window. The limit does not go below the number of
+ * handlers, where no call waits, nor above the handlers plus the static length of the queues.
+ * <p/>
+ * A call over the limit is not queued, so the client gets a
+ * {@link org.apache.hadoop.hbase.CallQueueTooBigException} and backs off or tries another
+ * replica, instead of waiting for a response which comes too late.
+ */
+@InterfaceAudience.Private
+public class AdaptiveCallQueueLimit {
+
+  /** How long, in msec, the latency is averaged over before the limit is updated */
+  public static final String WINDOW_CONF_KEY = "hbase.ipc.server.callqueue.adaptive.limit.window";
+  public static final int WINDOW_DEFAULT = 100;
+
+  /** How much the short term latency may exceed the long term one before the limit shrinks */
+  public static final String TOLERANCE_CONF_KEY =
+      "hbase.ipc.server.callqueue.adaptive.limit.tolerance";
+  public static final double TOLERANCE_DEFAULT = 2.0;
+
+  /** How much of the newly computed limit goes into the limit at every update, in (0, 1] */
+  public static final String SMOOTHING_CONF_KEY =
+      "hbase.ipc.server.callqueue.adaptive.limit.smoothing";
+  public static final double SMOOTHING_DEFAULT = 0.2;
+
+  // a window with fewer calls says little about the latency, wait for more
+  static final int MIN_WINDOW_SAMPLES = 10;
+  // the long term latency is averaged over this many windows, after a plain average of the first
+  static final int LONG_WINDOWS = 600;
+  static final int WARMUP_WINDOWS = 10;
+
+  private final String name;
+  private final int minLimit;
+  private final int queueCount;
+  private final long windowNanos;
+  private final double tolerance;
+  private final double smoothing;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final LongAdder latencySum = new LongAdder();
+  private final LongAdder latencyCount = new LongAdder();
+  private final AtomicLong windowStart;
+  private final LongAdder rejected = new LongAdder();
+
+  private volatile int limit;
+  // guarded by this
+  private int maxLimit;
+  private double estimatedLimit;
+  private double longLatency;
+  private long windows;
+
+  private volatile MetricsHBaseServer metrics;
+
+  /**
+   * @param name the name of the queue group, for the metrics
+   * @param handlerCount the number of handlers of the group
+   * @param queueCount the number of call queues of the group
+   * @param queueLength the static limit of the length of each queue
+   */
+  public AdaptiveCallQueueLimit(String name, int handlerCount, int queueCount, int queueLength,
+      Configuration conf) {
+    this(name, handlerCount, queueCount, queueLength, conf, System.nanoTime());
+  }
+
+  AdaptiveCallQueueLimit(String name, int handlerCount, int queueCount, int queueLength,
+      Configuration conf, long nowNanos) {
+    this.name = name;
+    this.minLimit = Math.max(1, handlerCount);
+    this.queueCount = queueCount;
+    this.windowNanos =
+        TimeUnit.MILLISECONDS.toNanos(Math.max(1, conf.getInt(WINDOW_CONF_KEY, WINDOW_DEFAULT)));
+    this.tolerance = Math.max(1.0, conf.getDouble(TOLERANCE_CONF_KEY, TOLERANCE_DEFAULT));
+    this.smoothing =
+        Math.min(1.0, Math.max(0.01, conf.getDouble(SMOOTHING_CONF_KEY, SMOOTHING_DEFAULT)));
+    this.windowStart = new AtomicLong(nowNanos);
+    setQueueLength(queueLength);
+    // start without limiting anything, it only goes down once the latency does go up
+    this.estimatedLimit = maxLimit;
+    this.limit = maxLimit;
+  }
+
+  /**
+   * Updates the upper bound of the limit to the static length of the queues of the group.
+   */
+  public synchronized void setQueueLength(int queueLength) {
+    this.maxLimit = minLimit + Math.max(0, queueCount * queueLength);
+    if (estimatedLimit > maxLimit) {
+      estimatedLimit = maxLimit;
+      limit = maxLimit;
+    }
+  }
+
+  public void setMetrics(MetricsHBaseServer metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return whether a call may be admitted, in which case it has to be released once completed
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) {
+        rejected.increment();
+        MetricsHBaseServer metrics = this.metrics;
+        if (metrics != null) {
+          metrics.callQueueLimitRejected(name);
+        }
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Admits a call regardless of the limit, e.g. as an idle handler takes it right away.
+   */
+  public void acquire() {
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Releases a call which was admitted but not queued.
+   */
+  public void release() {
+    inFlight.decrementAndGet();
+  }
+
+  /**
+   * Releases a call which completed, or was dropped, the given time after its admission.
+   */
+  public void release(long latencyNanos) {
+    release(latencyNanos, System.nanoTime());
+  }
+
+  void release(long latencyNanos, long nowNanos) {
+    inFlight.decrementAndGet();
+    latencySum.add(latencyNanos);
+    latencyCount.increment();
+    long start = windowStart.get();
+    if (nowNanos - start >= windowNanos && latencyCount.sum() >= MIN_WINDOW_SAMPLES
+        && windowStart.compareAndSet(start, nowNanos)) {
+      // a few samples racing with the reset end up in the next window, that is fine
+      long count = latencyCount.sumThenReset();
+      long sum = latencySum.sumThenReset();
+      update((double) sum / Math.max(1, count));
+    }
+  }
+
+  private void update(double shortLatency) {
+    int newLimit;
+    synchronized (this) {
+      if (windows < WARMUP_WINDOWS) {
+        longLatency = (longLatency * windows + shortLatency) / (windows + 1);
+        windows++;
+      } else if (shortLatency <= tolerance * longLatency || estimatedLimit <= minLimit) {
+        // do not let a sustained overload become the norm. At the lower bound no call waits, the
+        // latency is that of serving the calls, e.g. as they got more expensive
+        longLatency += (shortLatency - longLatency) * 2 / (LONG_WINDOWS + 1);
+        windows++;
+      }
+      // the latency dropped well below its long term average, e.g. as an overload ended, let the
+      // average follow it faster than it would by itself
+      if (longLatency > 2 * shortLatency) {
+        longLatency *= 0.95;
+      }
+      // the calls did not make use of the limit, their latency says nothing about it
+      if (inFlight.get() >= estimatedLimit / 2) {
+        double gradient =
+            Math.max(0.5, Math.min(1.0, tolerance * longLatency / Math.max(1.0, shortLatency)));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = estimatedLimit * (1 - smoothing) + target * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+        limit = (int) estimatedLimit;
+      }
+      newLimit = limit;
+    }
+    MetricsHBaseServer metrics = this.metrics;
+    if (metrics != null) {
+      metrics.callQueueLimitUpdated(name, newLimit, inFlight.get());
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the number of calls which are always admitted
+   */
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public long getNumRejected() {
+    return rejected.sum();
+  }
+}
@@ -204,15 +204,39 @@ public class AdaptiveLifoCoDelCallQueue implements BlockingQueue<CallRunner> {
     return queue.toString();
   }
 
-  // This class does NOT provide generic purpose BlockingQueue implementation,
-  // so to prevent misuse all other methods throw UnsupportedOperationException.
-
+  /**
+   * Like {@link #poll()} but waits up to the given time for a call if the queue is empty. Used by
+   * the handlers which steal from other queues when theirs is empty.
+   */
   @Override
   public CallRunner poll(long timeout, TimeUnit unit) throws InterruptedException {
-    throw new UnsupportedOperationException("This class doesn't support anything,"
-      + " but take() and offer() methods");
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      CallRunner cr = poll();
+      if (cr != null) {
+        return cr;
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      // the queue was empty, so first or last does not matter for the call we wait on
+      cr = queue.pollFirst(remaining, TimeUnit.NANOSECONDS);
+      if (cr == null) {
+        return null;
+      }
+      if (needToDrop(cr)) {
+        numGeneralCallsDropped.increment();
+        cr.drop();
+      } else {
+        return cr;
+      }
+    }
   }
 
+  // This class does NOT provide generic purpose BlockingQueue implementation,
+  // so to prevent misuse all other methods throw UnsupportedOperationException.
+
 
   @Override
   public CallRunner peek() {
@@ -17,8 +17,6 @@
  */
 package org.apache.hadoop.hbase.ipc;
 
-import java.util.concurrent.BlockingQueue;
-
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Abortable;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
@@ -53,12 +51,6 @@ public class BalancedQueueRpcExecutor extends RpcExecutor {
 
   @Override
   public boolean dispatch(final CallRunner callTask) throws InterruptedException {
-    int queueIndex = balancer.getNextQueue();
-    BlockingQueue<CallRunner> queue = queues.get(queueIndex);
-    // that means we can overflow by at most <num reader> size (5), that's ok
-    if (queue.size() >= currentQueueLimit) {
-      return false;
-    }
-    return queue.offer(callTask);
+    return offer(balancer.getNextQueue(), callTask);
   }
 }
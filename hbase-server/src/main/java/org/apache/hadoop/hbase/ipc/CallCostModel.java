@@ -0,0 +1,208 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.NamespaceDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.Message;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.GetRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MultiRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.MutateRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.RegionAction;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.ScanRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
+
+/**
+ * Tells the {@link WeightedFairCallQueue} which tenant, a user or a namespace, a call belongs to,
+ * how much share of the handlers the tenant is entitled to and how expensive the call is. The cost
+ * of a call is the number of units of work it carries, derived from the request size, the
+ * caching of a scan or the number of actions of a multi, times the processing time per unit the
+ * calls of the same method took recently. Shared by all the queues of an executor.
+ */
+@InterfaceAudience.Private
+public class CallCostModel {
+  private static final Logger LOG = LoggerFactory.getLogger(CallCostModel.class);
+
+  /** What the calls are grouped by, either 'user', the default, or 'namespace' */
+  public static final String TENANT_CONF_KEY = "hbase.ipc.server.callqueue.fair.tenant";
+  public static final String TENANT_USER = "user";
+  public static final String TENANT_NAMESPACE = "namespace";
+
+  /**
+   * Weights of the tenants, as a comma separated list of tenant:weight, e.g. "etl:0.5,web:4". A
+   * tenant gets a share of the handlers proportional to its weight, the default weight is 1.
+   */
+  public static final String WEIGHTS_CONF_KEY = "hbase.ipc.server.callqueue.fair.weights";
+
+  static final String UNKNOWN_TENANT = "unknown";
+  static final double DEFAULT_WEIGHT = 1.0;
+
+  // A unit of work per this many request bytes, scanned rows and multi actions
+  static final int REQUEST_SIZE_PER_UNIT = 4096;
+  static final int SCAN_ROWS_PER_UNIT = 100;
+  // The caching of a scan is often left at Integer.MAX_VALUE and bounded by the result size
+  static final int MAX_SCAN_ROWS = 10000;
+  // Weight of the latest call in the moving average of the processing time per unit
+  static final double LATENCY_ALPHA = 0.1;
+  static final double INITIAL_LATENCY_PER_UNIT = 1.0;
+
+  private final boolean byNamespace;
+  private volatile Map<String, Double> weights;
+  private final ConcurrentMap<String, double[]> latencyPerUnit = new ConcurrentHashMap<>();
+  private volatile MetricsHBaseServer metrics;
+
+  public CallCostModel(Configuration conf) {
+    this.byNamespace = TENANT_NAMESPACE.equals(conf.get(TENANT_CONF_KEY, TENANT_USER));
+    this.weights = parseWeights(conf);
+  }
+
+  private static Map<String, Double> parseWeights(Configuration conf) {
+    Map<String, Double> weights = new HashMap<>();
+    for (String entry : conf.getTrimmedStrings(WEIGHTS_CONF_KEY)) {
+      int idx = entry.lastIndexOf(':');
+      try {
+        double weight = Double.parseDouble(entry.substring(idx + 1));
+        if (idx <= 0 || weight <= 0) {
+          throw new NumberFormatException();
+        }
+        weights.put(entry.substring(0, idx), weight);
+      } catch (NumberFormatException e) {
+        LOG.warn("Ignoring illegal tenant weight '{}' in {}", entry, WEIGHTS_CONF_KEY);
+      }
+    }
+    return Collections.unmodifiableMap(weights);
+  }
+
+  public void onConfigurationChange(Configuration conf) {
+    this.weights = parseWeights(conf);
+  }
+
+  void setMetrics(MetricsHBaseServer metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return the tenant of the call. When grouping by namespace, the calls which do not name a
+   *   region, like the next calls of a scan, fall back to the user.
+   */
+  public String getTenant(RpcCall call) {
+    if (byNamespace) {
+      String namespace = getNamespace(call.getParam());
+      if (namespace != null) {
+        return namespace;
+      }
+    }
+    return call.getRequestUser().map(User::getShortName).orElse(UNKNOWN_TENANT);
+  }
+
+  private static String getNamespace(Message param) {
+    RegionSpecifier region = null;
+    if (param instanceof GetRequest) {
+      region = ((GetRequest) param).getRegion();
+    } else if (param instanceof MutateRequest) {
+      region = ((MutateRequest) param).getRegion();
+    } else if (param instanceof ScanRequest && ((ScanRequest) param).hasRegion()) {
+      region = ((ScanRequest) param).getRegion();
+    } else if (param instanceof MultiRequest && ((MultiRequest) param).getRegionActionCount() > 0) {
+      region = ((MultiRequest) param).getRegionAction(0).getRegion();
+    }
+    if (region == null || region.getType() != RegionSpecifierType.REGION_NAME) {
+      return null;
+    }
+    // the region name starts with the table name, followed by a delimiter
+    byte[] regionName = region.getValue().toByteArray();
+    for (int i = 0; i < regionName.length; i++) {
+      if (regionName[i] == TableName.NAMESPACE_DELIM) {
+        return Bytes.toString(regionName, 0, i);
+      } else if (regionName[i] == HConstants.DELIMITER) {
+        break;
+      }
+    }
+    return NamespaceDescriptor.DEFAULT_NAMESPACE_NAME_STR;
+  }
+
+  public double getWeight(String tenant) {
+    return weights.getOrDefault(tenant, DEFAULT_WEIGHT);
+  }
+
+  /**
+   * @return the estimated cost of the call, i.e. its expected processing time in msec
+   */
+  public double getCost(RpcCall call) {
+    return getUnits(call) * getLatencyPerUnit(call)[0];
+  }
+
+  private static double getUnits(RpcCall call) {
+    double units = 1 + (double) call.getSize() / REQUEST_SIZE_PER_UNIT;
+    Message param = call.getParam();
+    if (param instanceof ScanRequest) {
+      ScanRequest request = (ScanRequest) param;
+      if (request.hasNumberOfRows()) {
+        units += (double) Math.min(request.getNumberOfRows(), MAX_SCAN_ROWS) / SCAN_ROWS_PER_UNIT;
+      }
+    } else if (param instanceof MultiRequest) {
+      for (RegionAction action : ((MultiRequest) param).getRegionActionList()) {
+        units += action.getActionCount();
+      }
+    }
+    return units;
+  }
+
+  private double[] getLatencyPerUnit(RpcCall call) {
+    String method = call.getMethod() != null ? call.getMethod().getName() : UNKNOWN_TENANT;
+    return latencyPerUnit.computeIfAbsent(method, m -> new double[] { INITIAL_LATENCY_PER_UNIT });
+  }
+
+  /**
+   * Feeds the processing time of a call back into the estimate for its method.
+   */
+  void completed(RpcCall call, long processingTime) {
+    double[] latency = getLatencyPerUnit(call);
+    // racy, but losing an update of a moving average does not matter
+    latency[0] += LATENCY_ALPHA * (processingTime / getUnits(call) - latency[0]);
+  }
+
+  void dequeued(String tenant, long queueTime) {
+    MetricsHBaseServer metrics = this.metrics;
+    if (metrics != null) {
+      metrics.tenantDequeuedCall(tenant, queueTime);
+    }
+  }
+
+  void dropped(String tenant) {
+    MetricsHBaseServer metrics = this.metrics;
+    if (metrics != null) {
+      metrics.tenantCallDropped(tenant);
+    }
+  }
+}
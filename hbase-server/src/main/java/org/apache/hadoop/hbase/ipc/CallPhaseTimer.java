@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Accumulates the time a call spends in the phases of its processing which are usually behind a
+ * slow call, e.g. waiting for a row lock or reading blocks from the file system on a block cache
+ * miss. The processing time of {@link MetricsHBaseServer} says a get was slow, the breakdown says
+ * where the time went.
+ * <p/>
+ * A timer is created for a call when {@link RpcServer#CALL_PHASE_TIMER_KEY} is set and is
+ * reached through {@link #current()} from the code being timed. It is not thread safe: only the
+ * handler running the call times its phases, work the call hands off to other threads is not
+ * accounted for. The phases do not nest, so their times add up to at most the processing time.
+ */
+@InterfaceAudience.Private
+public class CallPhaseTimer {
+
+  /**
+   * The timed phases of a call.
+   */
+  public enum Phase {
+    /** Waiting for the row locks of a mutation or a checkAndMutate */
+    ROW_LOCK("rowLock"),
+    /** Reading HFile blocks which were not in the block cache */
+    BLOCK_READ("blockRead"),
+    /** Evaluating the filter of a get or a scan */
+    FILTER("filter"),
+    /** Waiting for the WAL sync of a mutation */
+    WAL_SYNC("walSync");
+
+    private final String name;
+
+    Phase(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  private final long[] nanos = new long[PHASES.length];
+  private final int[] counts = new int[PHASES.length];
+
+  /**
+   * @return the timer of the call the current thread is running, or null if there is none or the
+   *   call is not timed
+   */
+  public static CallPhaseTimer current() {
+    RpcCall call = RpcServer.CurCall.get();
+    return call != null ? call.getPhaseTimer() : null;
+  }
+
+  /**
+   * @return the start time of a phase, to pass to {@link #stop(Phase, long)}
+   */
+  public long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Ends a phase which started at the given time.
+   */
+  public void stop(Phase phase, long startNanos) {
+    add(phase, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Adds the given time, in nanoseconds, to a phase.
+   */
+  public void add(Phase phase, long elapsedNanos) {
+    nanos[phase.ordinal()] += elapsedNanos;
+    counts[phase.ordinal()]++;
+  }
+
+  /**
+   * @return the time spent in the given phase, in nanoseconds
+   */
+  public long getTime(Phase phase) {
+    return nanos[phase.ordinal()];
+  }
+
+  /**
+   * @return how many times the call entered the given phase
+   */
+  public int getCount(Phase phase) {
+    return counts[phase.ordinal()];
+  }
+
+  /**
+   * @return the phases the call entered
+   */
+  public Phase[] getPhases() {
+    int n = 0;
+    for (int count : counts) {
+      if (count > 0) {
+        n++;
+      }
+    }
+    Phase[] phases = new Phase[n];
+    n = 0;
+    for (Phase phase : PHASES) {
+      if (counts[phase.ordinal()] > 0) {
+        phases[n++] = phase;
+      }
+    }
+    return phases;
+  }
+
+  /**
+   * @return the time spent in the phases the call entered, in microseconds, e.g.
+   *   <code>rowLock=1520us(1), walSync=830us(1)</code>
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Phase phase : getPhases()) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(phase.getName()).append('=')
+          .append(TimeUnit.NANOSECONDS.toMicros(getTime(phase))).append("us(")
+          .append(getCount(phase)).append(')');
+    }
+    return sb.toString();
+  }
+}
@@ -51,6 +51,9 @@ public class CallRunner {
   private RpcServerInterface rpcServer;
   private MonitoredRPCHandler status;
   private volatile boolean sucessful;
+  // the adaptive limit which admitted this call, if any, and when
+  private AdaptiveCallQueueLimit callQueueLimit;
+  private long admitTime;
 
   /**
    * On construction, adds the size of this call to the running count of outstanding call sizes.
@@ -84,6 +87,22 @@ public class CallRunner {
     this.status = status;
   }
 
+  /**
+   * Sets the adaptive limit which admitted this call, to be released once the call has run or
+   * was dropped.
+   */
+  void setCallQueueLimit(AdaptiveCallQueueLimit callQueueLimit) {
+    this.callQueueLimit = callQueueLimit;
+    this.admitTime = callQueueLimit != null ? System.nanoTime() : 0;
+  }
+
+  private void releaseCallQueueLimit() {
+    if (callQueueLimit != null) {
+      callQueueLimit.release(System.nanoTime() - admitTime);
+      callQueueLimit = null;
+    }
+  }
+
   /**
    * Cleanup after ourselves... let go of references.
    */
@@ -191,6 +210,7 @@ public class CallRunner {
       if (!sucessful) {
         this.rpcServer.addCallSize(call.getSize() * -1);
       }
+      releaseCallQueueLimit();
       cleanup();
     }
   }
@@ -225,6 +245,7 @@ public class CallRunner {
       if (!sucessful) {
         this.rpcServer.addCallSize(call.getSize() * -1);
       }
+      releaseCallQueueLimit();
       cleanup();
     }
   }
@@ -70,7 +70,12 @@ public class FastPathBalancedQueueRpcExecutor extends BalancedQueueRpcExecutor {
       return false;
     }
     FastPathHandler handler = popReadyHandler();
-    return handler != null? handler.loadCallRunner(callTask): super.dispatch(callTask);
+    if (handler == null) {
+      return super.dispatch(callTask);
+    }
+    // the call does not wait, no need to check the adaptive limit
+    admit(0, callTask);
+    return handler.loadCallRunner(callTask);
   }
 
   /**
@@ -99,8 +104,8 @@ public class FastPathBalancedQueueRpcExecutor extends BalancedQueueRpcExecutor {
 
     @Override
     protected CallRunner getCallRunner() throws InterruptedException {
-      // Get a callrunner if one in the Q.
-      CallRunner cr = this.q.poll();
+      // Get a callrunner if one in the Q, or in another Q of our group if we may steal.
+      CallRunner cr = pollOrSteal();
       if (cr == null) {
         // Else, if a fastPathHandlerStack present and no callrunner in Q, register ourselves for
         // the fastpath handoff done via fastPathHandlerStack.
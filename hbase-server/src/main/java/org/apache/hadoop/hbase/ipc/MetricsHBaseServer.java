@@ -74,10 +74,38 @@ public class MetricsHBaseServer {
 
   void receivedRequest(long count) { source.receivedRequest(count); }
 
+  void allocatedForRequest(long bytes) {
+    source.allocatedForRequest(bytes);
+  }
+
   void dequeuedCall(int qTime) {
     source.dequeuedCall(qTime);
   }
 
+  void dequeuedCall(String queueName, long waitTime, boolean stolen) {
+    source.dequeuedCall(queueName, waitTime, stolen);
+  }
+
+  void tenantDequeuedCall(String tenant, long queueTime) {
+    source.tenantDequeuedCall(tenant, queueTime);
+  }
+
+  void tenantCallDropped(String tenant) {
+    source.tenantCallDropped(tenant);
+  }
+
+  void callQueueLimitUpdated(String group, int limit, int inFlight) {
+    source.callQueueLimitUpdated(group, limit, inFlight);
+  }
+
+  void callQueueLimitRejected(String group) {
+    source.callQueueLimitRejected(group);
+  }
+
+  void callPhase(String phase, long timeMicros) {
+    source.callPhase(phase, timeMicros);
+  }
+
   void processedCall(int processingTime) {
     source.processedCall(processingTime);
   }
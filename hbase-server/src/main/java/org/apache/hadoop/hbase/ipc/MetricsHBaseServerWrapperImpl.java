@@ -19,7 +19,10 @@
 
 package org.apache.hadoop.hbase.ipc;
 
+import java.util.Collections;
+import java.util.Map;
 import org.apache.hadoop.hbase.util.DirectMemoryUtils;
+import org.apache.hadoop.hbase.util.NettyEventLoopGroupConfig;
 import org.apache.yetus.audience.InterfaceAudience;
 
 @InterfaceAudience.Private
@@ -195,4 +198,23 @@ public class MetricsHBaseServerWrapperImpl implements MetricsHBaseServerWrapper
 
     return DirectMemoryUtils.getNettyDirectMemoryUsage();
   }
+
+  private NettyEventLoopGroupConfig getEventLoopGroupConfig() {
+    if (!isServerStarted() || !(server instanceof NettyRpcServer)) {
+      return null;
+    }
+    return ((NettyRpcServer) server).getEventLoopGroupConfig();
+  }
+
+  @Override
+  public Map<String, Integer> getEventLoopUtilization() {
+    NettyEventLoopGroupConfig config = getEventLoopGroupConfig();
+    return config != null ? config.sampleUtilization() : Collections.emptyMap();
+  }
+
+  @Override
+  public Map<String, Integer> getEventLoopPendingTasks() {
+    NettyEventLoopGroupConfig config = getEventLoopGroupConfig();
+    return config != null ? config.getPendingTasks() : Collections.emptyMap();
+  }
 }
@@ -18,11 +18,14 @@
 package org.apache.hadoop.hbase.ipc;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.client.VersionInfoUtil;
 import org.apache.hadoop.hbase.exceptions.RequestTooBigException;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
+import org.apache.hadoop.hbase.nio.ByteBuff;
 import org.apache.yetus.audience.InterfaceAudience;
 
 import org.apache.hbase.thirdparty.io.netty.buffer.ByteBuf;
@@ -44,12 +47,35 @@ public class NettyRpcFrameDecoder extends ByteToMessageDecoder {
 
   private static int FRAME_LENGTH_FIELD_LENGTH = 4;
 
+  /**
+   * A request frame read into buffers of the {@link ByteBuffAllocator}. The {@link ByteBuff} is
+   * wrapped as netty would otherwise treat it as one of its own reference counted messages.
+   */
+  static final class PooledFrame {
+    final ByteBuff buf;
+
+    PooledFrame(ByteBuff buf) {
+      this.buf = buf;
+    }
+  }
+
   private final int maxFrameLength;
+  private final boolean pooled;
   private boolean requestTooBig;
   private String requestTooBigMessage;
 
   public NettyRpcFrameDecoder(int maxFrameLength) {
+    this(maxFrameLength, false);
+  }
+
+  /**
+   * @param pooled whether the requests are copied into buffers of the {@link ByteBuffAllocator}
+   *          instead of passed on as slices of the netty buffer, see
+   *          {@link NettyRpcServer#HBASE_NETTY_RPCSERVER_POOLED_REQUEST_KEY}
+   */
+  public NettyRpcFrameDecoder(int maxFrameLength, boolean pooled) {
     this.maxFrameLength = maxFrameLength;
+    this.pooled = pooled;
   }
 
   private NettyServerRpcConnection connection;
@@ -102,7 +128,28 @@ public class NettyRpcFrameDecoder extends ByteToMessageDecoder {
     in.skipBytes(FRAME_LENGTH_FIELD_LENGTH);
 
     // extract frame
-    out.add(in.readRetainedSlice(frameLengthInt));
+    if (pooled && connection.connectionHeaderRead) {
+      out.add(readPooledFrame(in, frameLengthInt));
+    } else {
+      out.add(in.readRetainedSlice(frameLengthInt));
+    }
+  }
+
+  private PooledFrame readPooledFrame(ByteBuf in, int frameLength) {
+    ByteBuff frame = connection.rpcServer.bbAllocator.allocate(frameLength);
+    int remaining = frameLength;
+    for (ByteBuffer buf : frame.nioByteBuffers()) {
+      if (remaining == 0) {
+        break;
+      }
+      // do not move the buffers of the ByteBuff, it keeps track of the positions itself
+      ByteBuffer dst = buf.duplicate();
+      dst.position(0);
+      dst.limit(Math.min(remaining, dst.capacity()));
+      remaining -= dst.remaining();
+      in.readBytes(dst);
+    }
+    return new PooledFrame(frame);
   }
 
   private void handleTooBigRequest(ByteBuf in) throws IOException {
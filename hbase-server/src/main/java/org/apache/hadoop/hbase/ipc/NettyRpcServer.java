@@ -70,12 +70,31 @@ public class NettyRpcServer extends RpcServer {
     "hbase.netty.eventloop.rpcserver.thread.count";
   private static final int EVENTLOOP_THREADCOUNT_DEFAULT = 0;
 
+  /**
+   * Whether the requests are copied out of the netty buffers into buffers of the
+   * {@link org.apache.hadoop.hbase.io.ByteBuffAllocator}, like the SimpleRpcServer reads them,
+   * and given back to it once the call is done. Otherwise the calls hold on to slices of the netty
+   * buffers, which keeps netty from reusing them and makes it copy the bytes read so far on the
+   * next read. Default is false.
+   */
+  public static final String HBASE_NETTY_RPCSERVER_POOLED_REQUEST_KEY =
+    "hbase.netty.rpcserver.request.pooled";
+
+  /**
+   * Whether to report the heap bytes allocated to read and parse each request, measured per event
+   * loop thread, which costs a call to the ThreadMXBean per request. Default is false.
+   */
+  public static final String HBASE_NETTY_RPCSERVER_ALLOCATION_METRICS_KEY =
+    "hbase.netty.rpcserver.request.allocation.metrics";
+
   private final InetSocketAddress bindAddress;
 
   private final CountDownLatch closed = new CountDownLatch(1);
   private final Channel serverChannel;
   private final ChannelGroup allChannels =
     new DefaultChannelGroup(GlobalEventExecutor.INSTANCE, true);
+  // null if the server does not share the event loops of the region server
+  private final NettyEventLoopGroupConfig eventLoopGroupConfig;
 
   public NettyRpcServer(Server server, String name, List<BlockingServiceAndInterface> services,
       InetSocketAddress bindAddress, Configuration conf, RpcScheduler scheduler,
@@ -85,10 +104,11 @@ public class NettyRpcServer extends RpcServer {
     EventLoopGroup eventLoopGroup;
     Class<? extends ServerChannel> channelClass;
     if (server instanceof HRegionServer) {
-      NettyEventLoopGroupConfig config = ((HRegionServer) server).getEventLoopGroupConfig();
-      eventLoopGroup = config.group();
-      channelClass = config.serverChannelClass();
+      eventLoopGroupConfig = ((HRegionServer) server).getEventLoopGroupConfig();
+      eventLoopGroup = eventLoopGroupConfig.group();
+      channelClass = eventLoopGroupConfig.serverChannelClass();
     } else {
+      eventLoopGroupConfig = null;
       int threadCount = server == null? EVENTLOOP_THREADCOUNT_DEFAULT:
         server.getConfiguration().getInt(HBASE_NETTY_EVENTLOOP_RPCSERVER_THREADCOUNT_KEY,
           EVENTLOOP_THREADCOUNT_DEFAULT);
@@ -96,6 +116,10 @@ public class NettyRpcServer extends RpcServer {
         new DefaultThreadFactory("NettyRpcServer", true, Thread.MAX_PRIORITY));
       channelClass = NioServerSocketChannel.class;
     }
+    boolean pooledRequests = conf.getBoolean(HBASE_NETTY_RPCSERVER_POOLED_REQUEST_KEY, false)
+        && bbAllocator.isReservoirEnabled();
+    boolean allocationMetrics =
+        conf.getBoolean(HBASE_NETTY_RPCSERVER_ALLOCATION_METRICS_KEY, false);
     ServerBootstrap bootstrap = new ServerBootstrap().group(eventLoopGroup).channel(channelClass)
         .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
         .childOption(ChannelOption.SO_KEEPALIVE, tcpKeepAlive)
@@ -109,11 +133,16 @@ public class NettyRpcServer extends RpcServer {
             preambleDecoder.setSingleDecode(true);
             pipeline.addLast("preambleDecoder", preambleDecoder);
             pipeline.addLast("preambleHandler", createNettyRpcServerPreambleHandler());
-            pipeline.addLast("frameDecoder", new NettyRpcFrameDecoder(maxRequestSize));
-            pipeline.addLast("decoder", new NettyRpcServerRequestDecoder(allChannels, metrics));
+            pipeline.addLast("frameDecoder",
+              new NettyRpcFrameDecoder(maxRequestSize, pooledRequests));
+            pipeline.addLast("decoder",
+              new NettyRpcServerRequestDecoder(allChannels, metrics, allocationMetrics));
             pipeline.addLast("encoder", new NettyRpcServerResponseEncoder(metrics));
           }
         });
+    if (eventLoopGroupConfig != null) {
+      eventLoopGroupConfig.applyChildOptions(bootstrap);
+    }
     try {
       serverChannel = bootstrap.bind(this.bindAddress).sync().channel();
       LOG.info("Bind to {}", serverChannel.localAddress());
@@ -124,6 +153,14 @@ public class NettyRpcServer extends RpcServer {
     this.scheduler.init(new RpcSchedulerContext(this));
   }
 
+  /**
+   * @return the event loop group config of the region server, or null if the event loops are
+   *   not shared with it
+   */
+  NettyEventLoopGroupConfig getEventLoopGroupConfig() {
+    return eventLoopGroupConfig;
+  }
+
   @VisibleForTesting
   protected NettyRpcServerPreambleHandler createNettyRpcServerPreambleHandler() {
     return new NettyRpcServerPreambleHandler(NettyRpcServer.this);
@@ -17,6 +17,11 @@
  */
 package org.apache.hadoop.hbase.ipc;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.apache.hadoop.hbase.ipc.NettyRpcFrameDecoder.PooledFrame;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+
 import org.apache.hbase.thirdparty.io.netty.buffer.ByteBuf;
 import org.apache.hbase.thirdparty.io.netty.channel.ChannelHandlerContext;
 import org.apache.hbase.thirdparty.io.netty.channel.ChannelInboundHandlerAdapter;
@@ -35,9 +40,36 @@ class NettyRpcServerRequestDecoder extends ChannelInboundHandlerAdapter {
 
   private final MetricsHBaseServer metrics;
 
+  // null if we do not measure the allocations per request
+  private final com.sun.management.ThreadMXBean threadMXBean;
+
   public NettyRpcServerRequestDecoder(ChannelGroup allChannels, MetricsHBaseServer metrics) {
+    this(allChannels, metrics, false);
+  }
+
+  /**
+   * @param allocationMetrics whether to report the heap bytes allocated to process each request,
+   *          see {@link NettyRpcServer#HBASE_NETTY_RPCSERVER_ALLOCATION_METRICS_KEY}
+   */
+  public NettyRpcServerRequestDecoder(ChannelGroup allChannels, MetricsHBaseServer metrics,
+      boolean allocationMetrics) {
     this.allChannels = allChannels;
     this.metrics = metrics;
+    this.threadMXBean = allocationMetrics ? getAllocationMXBean() : null;
+  }
+
+  private static com.sun.management.ThreadMXBean getAllocationMXBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+      if (allocationBean.isThreadAllocatedMemorySupported()
+          && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean;
+      }
+    }
+    NettyRpcServer.LOG.warn("The JVM does not measure the memory allocated by threads, not "
+        + "reporting the allocations per request");
+    return null;
   }
 
   private NettyServerRpcConnection connection;
@@ -56,10 +88,26 @@ class NettyRpcServerRequestDecoder extends ChannelInboundHandlerAdapter {
 
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
-    ByteBuf input = (ByteBuf) msg;
-    // 4 bytes length field
-    metrics.receivedBytes(input.readableBytes() + 4);
-    connection.process(input);
+    long threadId = 0;
+    long allocatedBytes = 0;
+    if (threadMXBean != null) {
+      threadId = Thread.currentThread().getId();
+      allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+    }
+    if (msg instanceof PooledFrame) {
+      ByteBuff input = ((PooledFrame) msg).buf;
+      // 4 bytes length field
+      metrics.receivedBytes(input.limit() + 4);
+      connection.processPooledFrame(input);
+    } else {
+      ByteBuf input = (ByteBuf) msg;
+      // 4 bytes length field
+      metrics.receivedBytes(input.readableBytes() + 4);
+      connection.process(input);
+    }
+    if (threadMXBean != null) {
+      metrics.allocatedForRequest(threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBytes);
+    }
   }
 
   @Override
@@ -25,7 +25,10 @@ import org.apache.hbase.thirdparty.io.netty.channel.ChannelPromise;
 import org.apache.yetus.audience.InterfaceAudience;
 
 /**
- * Encoder for {@link RpcResponse}.
+ * Encoder for {@link RpcResponse}. The buffers of the response are wrapped into a composite buffer
+ * without copying them, they may even be the buffers of the cells, see
+ * {@link RpcServer#CELL_BLOCK_ZERO_COPY_KEY}, so {@link RpcResponse#done()} is only called once the
+ * write has completed.
  * @since 2.0.0
  */
 @InterfaceAudience.Private
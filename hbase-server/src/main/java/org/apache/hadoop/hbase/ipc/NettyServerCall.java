@@ -45,6 +45,15 @@ class NettyServerCall extends ServerCall<NettyServerRpcConnection> {
         timeout, bbAllocator, cellBlockBuilder, reqCleanup);
   }
 
+  /**
+   * The {@link NettyRpcServerResponseEncoder} calls {@link #done()} once the response is written,
+   * so the cell block may reference the cells, unless it has to be wrapped by SASL.
+   */
+  @Override
+  protected int getCellBlockZeroCopyMinCellSize() {
+    return connection.useWrap ? -1 : connection.rpcServer.cellBlockZeroCopyMinCellSize;
+  }
+
   /**
    * If we have a response, and delay is not set, then respond immediately. Otherwise, do not
    * respond to client. This is called by the RPC code in the context of the Handler thread.
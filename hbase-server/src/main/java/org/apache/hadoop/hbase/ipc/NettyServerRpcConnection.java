@@ -26,6 +26,7 @@ import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
 import org.apache.hadoop.hbase.CellScanner;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.ipc.RpcServer.CallCleanup;
 import org.apache.hadoop.hbase.nio.ByteBuff;
@@ -69,6 +70,16 @@ class NettyServerRpcConnection extends ServerRpcConnection {
     }
   }
 
+  /**
+   * Processes a request frame which was read into buffers of the {@link ByteBuffAllocator}, see
+   * {@link NettyRpcServer#HBASE_NETTY_RPCSERVER_POOLED_REQUEST_KEY}. The buffers are given back
+   * once the call is done, until then the request and the cells of its cell block reference them.
+   */
+  void processPooledFrame(ByteBuff buf) throws IOException, InterruptedException {
+    this.callCleanup = buf::release;
+    process(buf);
+  }
+
   void process(ByteBuffer buf) throws IOException, InterruptedException {
     process(new SingleByteBuff(buf));
   }
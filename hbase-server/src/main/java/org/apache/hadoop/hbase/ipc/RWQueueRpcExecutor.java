@@ -19,7 +19,6 @@
 
 package org.apache.hadoop.hbase.ipc;
 
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -117,6 +116,12 @@ public class RWQueueRpcExecutor extends RpcExecutor {
 
   @Override
   protected void startHandlers(final int port) {
+    startCallQueueLimit(".write", writeHandlersCount, 0, numWriteQueues);
+    startCallQueueLimit(".read", readHandlersCount, numWriteQueues, numReadQueues);
+    if (numScanQueues > 0) {
+      startCallQueueLimit(".scan", scanHandlersCount, numWriteQueues + numReadQueues,
+        numScanQueues);
+    }
     startHandlers(".write", writeHandlersCount, queues, 0, numWriteQueues, port,
       activeWriteHandlerCount);
     startHandlers(".read", readHandlersCount, queues, numWriteQueues, numReadQueues, port,
@@ -138,12 +143,7 @@ public class RWQueueRpcExecutor extends RpcExecutor {
     } else {
       queueIndex = numWriteQueues + readBalancer.getNextQueue();
     }
-
-    BlockingQueue<CallRunner> queue = queues.get(queueIndex);
-    if (queue.size() >= currentQueueLimit) {
-      return false;
-    }
-    return queue.offer(callTask);
+    return offer(queueIndex, callTask);
   }
 
   @Override
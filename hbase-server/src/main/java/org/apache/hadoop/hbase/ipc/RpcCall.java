@@ -132,4 +132,17 @@ public interface RpcCall extends RpcCallContext {
    * @return A short string format of this call without possibly lengthy params
    */
   String toShortString();
+
+  /**
+   * @return the timer of the phases of this call, or null if they are not timed
+   */
+  default CallPhaseTimer getPhaseTimer() {
+    return null;
+  }
+
+  /**
+   * Sets the timer of the phases of this call. Ignored by calls which do not support it.
+   */
+  default void setPhaseTimer(CallPhaseTimer phaseTimer) {
+  }
 }
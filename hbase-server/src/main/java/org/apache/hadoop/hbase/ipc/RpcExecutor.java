@@ -19,12 +19,14 @@
 package org.apache.hadoop.hbase.ipc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.Map;
@@ -39,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
 import org.apache.hadoop.hbase.util.BoundedPriorityBlockingQueue;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.ReflectionUtils;
 import org.apache.hadoop.util.StringUtils;
 
@@ -62,10 +65,12 @@ public abstract class RpcExecutor {
   /**
    * The default, 'fifo', has the least friction but is dumb. If set to 'deadline', uses a priority
    * queue and deprioritizes long-running scans. Sorting by priority comes at a cost, reduced
-   * throughput.
+   * throughput. If set to 'fair', shares the handlers between users or namespaces according to
+   * the estimated cost of their calls, see {@link WeightedFairCallQueue}.
    */
   public static final String CALL_QUEUE_TYPE_CODEL_CONF_VALUE = "codel";
   public static final String CALL_QUEUE_TYPE_DEADLINE_CONF_VALUE = "deadline";
+  public static final String CALL_QUEUE_TYPE_FAIR_CONF_VALUE = "fair";
   public static final String CALL_QUEUE_TYPE_FIFO_CONF_VALUE = "fifo";
   public static final String CALL_QUEUE_TYPE_CONF_KEY = "hbase.ipc.server.callqueue.type";
   public static final String CALL_QUEUE_TYPE_CONF_DEFAULT = CALL_QUEUE_TYPE_FIFO_CONF_VALUE;
@@ -79,15 +84,44 @@ public abstract class RpcExecutor {
   public static final int CALL_QUEUE_CODEL_DEFAULT_INTERVAL = 100;
   public static final double CALL_QUEUE_CODEL_DEFAULT_LIFO_THRESHOLD = 0.8;
 
+  /**
+   * If enabled, a handler which finds its call queue empty takes the oldest call of one of the
+   * other queues of its group, i.e. of the same executor or of the read, write or scan queues of
+   * {@link RWQueueRpcExecutor}, so a slow call does not park the calls behind it while other
+   * handlers are idle.
+   */
+  public static final String CALL_QUEUE_WORK_STEALING_CONF_KEY =
+      "hbase.ipc.server.callqueue.work.stealing";
+  public static final boolean CALL_QUEUE_WORK_STEALING_DEFAULT = false;
+  /** How long, in msec, an idle handler waits on its own queue before it tries to steal again */
+  public static final String CALL_QUEUE_STEAL_INTERVAL_CONF_KEY =
+      "hbase.ipc.server.callqueue.steal.interval";
+  public static final int CALL_QUEUE_STEAL_INTERVAL_DEFAULT = 10;
+
+  /**
+   * If enabled, the number of calls in flight of each group of call queues, i.e. of an executor or
+   * of the read, write or scan queues of {@link RWQueueRpcExecutor}, is limited adaptively to what
+   * its handlers serve without the latency going up, see {@link AdaptiveCallQueueLimit}. Calls
+   * over the limit are rejected as if the queue were full. {@link SimpleRpcScheduler} applies it to
+   * the executor of the user calls only.
+   */
+  public static final String CALL_QUEUE_ADAPTIVE_LIMIT_CONF_KEY =
+      "hbase.ipc.server.callqueue.adaptive.limit";
+  public static final boolean CALL_QUEUE_ADAPTIVE_LIMIT_DEFAULT = false;
+
   private LongAdder numGeneralCallsDropped = new LongAdder();
   private LongAdder numLifoModeSwitches = new LongAdder();
+  private LongAdder numCallsStolen = new LongAdder();
 
   protected final int numCallQueues;
   protected final List<BlockingQueue<CallRunner>> queues;
+  private final List<String> queueNames;
   private final Class<? extends BlockingQueue> queueClass;
   private final Object[] queueInitArgs;
 
   private final PriorityFunction priority;
+  // only set for the fair call queues, shared by all of them
+  private final CallCostModel costModel;
 
   protected volatile int currentQueueLimit;
 
@@ -99,8 +133,17 @@ public abstract class RpcExecutor {
   private String name;
   private boolean running;
 
+  private final boolean workStealing;
+  private final long stealInterval;
+
+  private boolean adaptiveLimit;
+  // the adaptive limits by queue index, the queues of a group share theirs. Set up as the
+  // handlers are started, null if not enabled.
+  private AdaptiveCallQueueLimit[] callQueueLimits;
+
   private Configuration conf = null;
   private Abortable abortable = null;
+  private volatile MetricsHBaseServer metrics = null;
 
   public RpcExecutor(final String name, final int handlerCount, final int maxQueueLength,
       final PriorityFunction priority, final Configuration conf, final Abortable abortable) {
@@ -132,12 +175,20 @@ public abstract class RpcExecutor {
     }
     this.numCallQueues = computeNumCallQueues(handlerCount, callQueuesHandlersFactor);
     this.queues = new ArrayList<>(this.numCallQueues);
+    this.queueNames = new ArrayList<>(this.numCallQueues);
 
     this.handlerCount = Math.max(handlerCount, this.numCallQueues);
     this.handlers = new ArrayList<>(this.handlerCount);
 
     this.priority = priority;
-
+    this.workStealing =
+        conf.getBoolean(CALL_QUEUE_WORK_STEALING_CONF_KEY, CALL_QUEUE_WORK_STEALING_DEFAULT);
+    this.stealInterval =
+        conf.getInt(CALL_QUEUE_STEAL_INTERVAL_CONF_KEY, CALL_QUEUE_STEAL_INTERVAL_DEFAULT);
+    this.adaptiveLimit =
+        conf.getBoolean(CALL_QUEUE_ADAPTIVE_LIMIT_CONF_KEY, CALL_QUEUE_ADAPTIVE_LIMIT_DEFAULT);
+
+    this.costModel = isFairQueueType(callQueueType) ? new CallCostModel(conf) : null;
     if (isDeadlineQueueType(callQueueType)) {
       this.name += ".Deadline";
       this.queueInitArgs = new Object[] { maxQueueLength,
@@ -153,6 +204,10 @@ public abstract class RpcExecutor {
       queueInitArgs = new Object[] { maxQueueLength, codelTargetDelay, codelInterval,
           codelLifoThreshold, numGeneralCallsDropped, numLifoModeSwitches };
       queueClass = AdaptiveLifoCoDelCallQueue.class;
+    } else if (costModel != null) {
+      this.name += ".Fair";
+      queueInitArgs = new Object[] { maxQueueLength, costModel };
+      queueClass = WeightedFairCallQueue.class;
     } else {
       this.name += ".Fifo";
       queueInitArgs = new Object[] { maxQueueLength };
@@ -160,8 +215,9 @@ public abstract class RpcExecutor {
     }
 
     LOG.info("Instantiated {} with queueClass={}; " +
-        "numCallQueues={}, maxQueueLength={}, handlerCount={}",
-        this.name, this.queueClass, this.numCallQueues, maxQueueLength, this.handlerCount);
+        "numCallQueues={}, maxQueueLength={}, handlerCount={}, workStealing={}, adaptiveLimit={}",
+        this.name, this.queueClass, this.numCallQueues, maxQueueLength, this.handlerCount,
+        this.workStealing, this.adaptiveLimit);
   }
 
   protected int computeNumCallQueues(final int handlerCount, final float callQueuesHandlersFactor) {
@@ -218,12 +274,109 @@ public abstract class RpcExecutor {
       queueInitArgs[0] = Math.max((int) queueInitArgs[0], DEFAULT_CALL_QUEUE_SIZE_HARD_LIMIT);
     }
     for (int i = 0; i < numQueues; ++i) {
+      queueNames.add(name + ".queue" + queues.size());
       queues.add(ReflectionUtils.newInstance(queueClass, queueInitArgs));
     }
   }
 
+  /**
+   * Sets the metrics the wait time of the calls in the queues are reported to.
+   */
+  public void setMetrics(MetricsHBaseServer metrics) {
+    this.metrics = metrics;
+    if (costModel != null) {
+      costModel.setMetrics(metrics);
+    }
+    AdaptiveCallQueueLimit[] limits = callQueueLimits;
+    if (limits != null) {
+      for (AdaptiveCallQueueLimit limit : limits) {
+        if (limit != null) {
+          limit.setMetrics(metrics);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the adaptive limit of the group of the queue at the given index, or null if none
+   */
+  protected AdaptiveCallQueueLimit getCallQueueLimit(int queueIndex) {
+    AdaptiveCallQueueLimit[] limits = callQueueLimits;
+    return limits != null ? limits[queueIndex] : null;
+  }
+
+  /**
+   * Offers the call to the queue at the given index, unless the queue is full or the adaptive
+   * limit of its group, if any, is reached.
+   */
+  protected boolean offer(int queueIndex, CallRunner callTask) {
+    BlockingQueue<CallRunner> queue = queues.get(queueIndex);
+    // that means we can overflow by at most <num reader> size (5), that's ok
+    if (queue.size() >= currentQueueLimit) {
+      return false;
+    }
+    AdaptiveCallQueueLimit limit = getCallQueueLimit(queueIndex);
+    if (limit == null) {
+      return queue.offer(callTask);
+    }
+    if (!limit.tryAcquire()) {
+      return false;
+    }
+    callTask.setCallQueueLimit(limit);
+    if (!queue.offer(callTask)) {
+      callTask.setCallQueueLimit(null);
+      limit.release();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Admits the call to the group of the queue at the given index regardless of its adaptive
+   * limit, e.g. as an idle handler runs it right away.
+   */
+  protected void admit(int queueIndex, CallRunner callTask) {
+    AdaptiveCallQueueLimit limit = getCallQueueLimit(queueIndex);
+    if (limit != null) {
+      limit.acquire();
+      callTask.setCallQueueLimit(limit);
+    }
+  }
+
+  /**
+   * Reports the wait time of a call taken from the queue at the given index.
+   * @return the passed call
+   */
+  private CallRunner dequeued(int queueIndex, CallRunner cr, boolean stolen) {
+    if (cr == null) {
+      return null;
+    }
+    if (stolen) {
+      numCallsStolen.increment();
+    }
+    MetricsHBaseServer metrics = this.metrics;
+    RpcCall call = cr.getRpcCall();
+    if (metrics != null && queueIndex >= 0 && call != null) {
+      metrics.dequeuedCall(queueNames.get(queueIndex),
+        EnvironmentEdgeManager.currentTime() - call.getReceiveTime(), stolen);
+    }
+    return cr;
+  }
+
+  /**
+   * Turns the adaptive limit off, for the executors of the calls which must not be rejected while
+   * the user calls overload the server, like the priority and replication ones. Has to be called
+   * before the executor is started.
+   */
+  void disableAdaptiveLimit() {
+    adaptiveLimit = false;
+  }
+
   public void start(final int port) {
     running = true;
+    if (adaptiveLimit) {
+      callQueueLimits = new AdaptiveCallQueueLimit[queues.size()];
+    }
     startHandlers(port);
   }
 
@@ -244,9 +397,32 @@ public abstract class RpcExecutor {
 
   protected void startHandlers(final int port) {
     List<BlockingQueue<CallRunner>> callQueues = getQueues();
+    startCallQueueLimit(null, getMaxConcurrency(), 0, callQueues.size());
     startHandlers(null, handlerCount, callQueues, 0, callQueues.size(), port, activeHandlerCount);
   }
 
+  /**
+   * @return the maximum number of calls which run at the same time
+   */
+  public int getMaxConcurrency() {
+    return handlerCount;
+  }
+
+  /**
+   * Sets up the adaptive limit of a group of queues, if enabled.
+   * @param maxConcurrency the number of calls of the group which run at the same time, the limit
+   *          never goes below it
+   */
+  protected void startCallQueueLimit(final String nameSuffix, final int maxConcurrency,
+      final int qindex, final int qsize) {
+    if (callQueueLimits != null) {
+      AdaptiveCallQueueLimit limit = new AdaptiveCallQueueLimit(
+        name + Strings.nullToEmpty(nameSuffix), maxConcurrency, qsize, currentQueueLimit, conf);
+      limit.setMetrics(metrics);
+      Arrays.fill(callQueueLimits, qindex, qindex + qsize, limit);
+    }
+  }
+
   /**
    * Override if providing alternate Handler implementation.
    */
@@ -271,6 +447,8 @@ public abstract class RpcExecutor {
           + ",port=" + port;
       Handler handler = getHandler(name, handlerFailureThreshhold, callQueues.get(index),
         activeHandlerCount);
+      handler.setQueueGroup(callQueues, index, workStealing ? qindex : index,
+        workStealing ? qsize : 1);
       handler.start();
       handlers.add(handler);
     }
@@ -292,6 +470,13 @@ public abstract class RpcExecutor {
     // metrics (shared with other handlers)
     final AtomicInteger activeHandlerCount;
 
+    // The queues of the group of this handler, which are [groupStart, groupStart + groupSize) of
+    // callQueues, and the index of our own queue. Only steal if the group has other queues.
+    private List<BlockingQueue<CallRunner>> callQueues;
+    private int queueIndex = -1;
+    private int groupStart;
+    private int groupSize = 1;
+
     Handler(final String name, final double handlerFailureThreshhold,
         final BlockingQueue<CallRunner> q, final AtomicInteger activeHandlerCount) {
       super(name);
@@ -301,12 +486,62 @@ public abstract class RpcExecutor {
       this.activeHandlerCount = activeHandlerCount;
     }
 
+    void setQueueGroup(List<BlockingQueue<CallRunner>> callQueues, int queueIndex, int groupStart,
+        int groupSize) {
+      this.callQueues = callQueues;
+      this.queueIndex = queueIndex;
+      this.groupStart = groupStart;
+      this.groupSize = groupSize;
+    }
+
     /**
      * @return A {@link CallRunner}
      * @throws InterruptedException
      */
     protected CallRunner getCallRunner() throws InterruptedException {
-      return this.q.take();
+      if (groupSize <= 1) {
+        return dequeued(queueIndex, this.q.take(), false);
+      }
+      CallRunner cr = pollOrSteal();
+      while (cr == null) {
+        cr = dequeued(queueIndex, this.q.poll(stealInterval, TimeUnit.MILLISECONDS), false);
+        if (cr == null) {
+          cr = steal();
+        }
+      }
+      return cr;
+    }
+
+    /**
+     * @return A {@link CallRunner} of our own queue or, if it is empty and work stealing is
+     *   enabled, of another queue of our group. Null if there is none.
+     */
+    protected CallRunner pollOrSteal() {
+      CallRunner cr = dequeued(queueIndex, this.q.poll(), false);
+      return cr != null ? cr : steal();
+    }
+
+    private CallRunner steal() {
+      if (groupSize <= 1) {
+        return null;
+      }
+      // start at a random queue so the idle handlers do not all go after the same one
+      int offset = ThreadLocalRandom.current().nextInt(groupSize);
+      for (int i = 0; i < groupSize; i++) {
+        int index = groupStart + (offset + i) % groupSize;
+        if (index == queueIndex) {
+          continue;
+        }
+        BlockingQueue<CallRunner> victim = callQueues.get(index);
+        // take the oldest call, it is the one which hurts the tail latency the most
+        if (victim.size() > 0) {
+          CallRunner cr = victim.poll();
+          if (cr != null) {
+            return dequeued(index, cr, true);
+          }
+        }
+      }
+      return null;
     }
 
     @Override
@@ -330,9 +565,22 @@ public abstract class RpcExecutor {
       }
     }
 
-    private void run(CallRunner cr) {
-      MonitoredRPCHandler status = RpcServer.getStatus();
+    /**
+     * Runs the given call. Subclasses may override to hand the call off to another thread, which
+     * then should call {@link #run(CallRunner, MonitoredRPCHandler)}.
+     */
+    protected void run(CallRunner cr) {
+      run(cr, RpcServer.getStatus());
+    }
+
+    /**
+     * Runs the given call, reporting progress on the passed status.
+     */
+    protected final void run(CallRunner cr, MonitoredRPCHandler status) {
       cr.setStatus(status);
+      // the call is released by the run, but its request stays around
+      RpcCall call = costModel != null ? cr.getRpcCall() : null;
+      long startTime = call != null ? EnvironmentEdgeManager.currentTime() : 0;
       try {
         this.activeHandlerCount.incrementAndGet();
         cr.run();
@@ -358,6 +606,9 @@ public abstract class RpcExecutor {
         }
       } finally {
         this.activeHandlerCount.decrementAndGet();
+        if (call != null) {
+          costModel.completed(call, EnvironmentEdgeManager.currentTime() - startTime);
+        }
       }
     }
   }
@@ -441,6 +692,10 @@ public abstract class RpcExecutor {
     return callQueueType.equals(CALL_QUEUE_TYPE_CODEL_CONF_VALUE);
   }
 
+  public static boolean isFairQueueType(final String callQueueType) {
+    return callQueueType.equals(CALL_QUEUE_TYPE_FAIR_CONF_VALUE);
+  }
+
   public static boolean isFifoQueueType(final String callQueueType) {
     return callQueueType.equals(CALL_QUEUE_TYPE_FIFO_CONF_VALUE);
   }
@@ -453,6 +708,10 @@ public abstract class RpcExecutor {
     return numLifoModeSwitches.longValue();
   }
 
+  public long getNumCallsStolen() {
+    return numCallsStolen.longValue();
+  }
+
   public int getActiveHandlerCount() {
     return activeHandlerCount.get();
   }
@@ -508,6 +767,14 @@ public abstract class RpcExecutor {
       }
     }
     currentQueueLimit = conf.getInt(configKey, currentQueueLimit);
+    AdaptiveCallQueueLimit[] limits = callQueueLimits;
+    if (limits != null) {
+      for (AdaptiveCallQueueLimit limit : limits) {
+        if (limit != null) {
+          limit.setQueueLength(currentQueueLimit);
+        }
+      }
+    }
   }
 
   public void onConfigurationChange(Configuration conf) {
@@ -518,6 +785,9 @@ public abstract class RpcExecutor {
     double codelLifoThreshold = conf.getDouble(CALL_QUEUE_CODEL_LIFO_THRESHOLD,
       CALL_QUEUE_CODEL_DEFAULT_LIFO_THRESHOLD);
 
+    if (costModel != null) {
+      costModel.onConfigurationChange(conf);
+    }
     for (BlockingQueue<CallRunner> queue : queues) {
       if (queue instanceof AdaptiveLifoCoDelCallQueue) {
         ((AdaptiveLifoCoDelCallQueue) queue).updateTunables(codelTargetDelay, codelInterval,
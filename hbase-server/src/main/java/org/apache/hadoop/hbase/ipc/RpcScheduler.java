@@ -41,6 +41,13 @@ public abstract class RpcScheduler {
   /** Exposes runtime information of a {@code RpcServer} that a {@code RpcScheduler} may need. */
   public static abstract class Context {
     public abstract InetSocketAddress getListenerAddress();
+
+    /**
+     * @return the metrics of the {@code RpcServer}, or null if there are none
+     */
+    public MetricsHBaseServer getMetrics() {
+      return null;
+    }
   }
 
   /**
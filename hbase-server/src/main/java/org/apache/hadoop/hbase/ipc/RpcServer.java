@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.lang3.StringUtils;
@@ -115,6 +116,31 @@ public abstract class RpcServer implements RpcServerInterface,
 
   protected final CellBlockBuilder cellBlockBuilder;
 
+  /**
+   * Whether the cell blocks of the responses reference the cells of at least
+   * {@link #CELL_BLOCK_ZERO_COPY_MIN_CELL_SIZE_KEY} bytes which are backed by a buffer, like the
+   * cells of the blocks in an off heap BucketCache, instead of copying them. The blocks are then
+   * only released once the response has been written. Only the {@link NettyRpcServer} supports
+   * it, and only for connections without compression of the cell blocks or SASL wrapping.
+   */
+  public static final String CELL_BLOCK_ZERO_COPY_KEY = "hbase.ipc.server.cellblock.zerocopy";
+  public static final String CELL_BLOCK_ZERO_COPY_MIN_CELL_SIZE_KEY =
+      "hbase.ipc.server.cellblock.zerocopy.min.cell.size";
+  // below this, copying is cheaper than adding the cell as a component to the response
+  public static final int DEFAULT_CELL_BLOCK_ZERO_COPY_MIN_CELL_SIZE = 4096;
+
+  // -1 if the cells are always copied into the cell blocks
+  protected final int cellBlockZeroCopyMinCellSize;
+
+  /**
+   * Whether to time the phases of the calls, like waiting for row locks, reading blocks on a block
+   * cache miss, evaluating filters and waiting for the WAL sync, see {@link CallPhaseTimer}. The
+   * times go to per phase histograms and to the responseTooSlow log and the slow log entries.
+   */
+  public static final String CALL_PHASE_TIMER_KEY = "hbase.ipc.server.call.phase.timer.enabled";
+
+  protected final boolean callPhaseTimerEnabled;
+
   protected static final String AUTH_FAILED_FOR = "Auth failed for ";
   protected static final String AUTH_SUCCESSFUL_FOR = "Auth successful for ";
   protected static final Logger AUDITLOG = LoggerFactory.getLogger("SecurityLogger."
@@ -293,6 +319,11 @@ public abstract class RpcServer implements RpcServerInterface,
     this.tcpKeepAlive = conf.getBoolean("hbase.ipc.server.tcpkeepalive", true);
 
     this.cellBlockBuilder = new CellBlockBuilder(conf);
+    this.cellBlockZeroCopyMinCellSize = conf.getBoolean(CELL_BLOCK_ZERO_COPY_KEY, false)
+        ? conf.getInt(CELL_BLOCK_ZERO_COPY_MIN_CELL_SIZE_KEY,
+          DEFAULT_CELL_BLOCK_ZERO_COPY_MIN_CELL_SIZE)
+        : -1;
+    this.callPhaseTimerEnabled = conf.getBoolean(CALL_PHASE_TIMER_KEY, false);
 
     this.authorize = conf.getBoolean(HADOOP_SECURITY_AUTHORIZATION, false);
     this.userProvider = UserProvider.instantiate(conf);
@@ -394,6 +425,11 @@ public abstract class RpcServer implements RpcServerInterface,
       //get an instance of the method arg type
       HBaseRpcController controller = new HBaseRpcControllerImpl(call.getCellScanner());
       controller.setCallTimeout(call.getTimeout());
+      CallPhaseTimer phaseTimer = null;
+      if (callPhaseTimerEnabled) {
+        phaseTimer = new CallPhaseTimer();
+        call.setPhaseTimer(phaseTimer);
+      }
       Message result = call.getService().callBlockingMethod(md, controller, param);
       long receiveTime = call.getReceiveTime();
       long startTime = call.getStartTime();
@@ -421,6 +457,12 @@ public abstract class RpcServer implements RpcServerInterface,
       metrics.totalCall(totalTime);
       metrics.receivedRequest(requestSize);
       metrics.sentResponse(responseSize);
+      if (phaseTimer != null) {
+        for (CallPhaseTimer.Phase phase : phaseTimer.getPhases()) {
+          metrics.callPhase(phase.getName(),
+            TimeUnit.NANOSECONDS.toMicros(phaseTimer.getTime(phase)));
+        }
+      }
       // log any RPC responses that are slower than the configured warn
       // response time or larger than configured warning size
       boolean tooSlow = (processingTime > warnResponseTime && warnResponseTime > -1);
@@ -433,7 +475,7 @@ public abstract class RpcServer implements RpcServerInterface,
           md.getName(), md.getName() + "(" + param.getClass().getName() + ")",
           tooLarge, tooSlow,
           status.getClient(), startTime, processingTime, qTime,
-          responseSize, userName);
+          responseSize, userName, phaseTimer);
         if (this.namedQueueRecorder != null && this.isOnlineLogProviderEnabled) {
           // send logs to ring buffer owned by slowLogRecorder
           final String className =
@@ -481,10 +523,11 @@ public abstract class RpcServer implements RpcServerInterface,
    *   prior to being initiated, in ms.
    * @param responseSize The size in bytes of the response buffer.
    * @param userName UserName of the current RPC Call
+   * @param phaseTimer The times of the phases of the call, null if they were not timed
    */
   void logResponse(Message param, String methodName, String call, boolean tooLarge,
       boolean tooSlow, String clientAddress, long startTime, int processingTime, int qTime,
-      long responseSize, String userName) {
+      long responseSize, String userName, CallPhaseTimer phaseTimer) {
     final String className = server == null ? StringUtils.EMPTY :
       server.getClass().getSimpleName();
     // base information that is reported regardless of type of call
@@ -497,6 +540,9 @@ public abstract class RpcServer implements RpcServerInterface,
     responseInfo.put("class", className);
     responseInfo.put("method", methodName);
     responseInfo.put("call", call);
+    if (phaseTimer != null) {
+      responseInfo.put("phasetimes", phaseTimer.toString());
+    }
     // The params could be really big, make sure they don't kill us at WARN
     String stringifiedParam = ProtobufUtil.getShortTextFormat(param);
     if (stringifiedParam.length() > 150) {
@@ -84,12 +84,15 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
   protected final User user;
   protected final InetAddress remoteAddress;
   protected RpcCallback rpcCallback;
+  // whether the callback runs once the response is written, see setResponse
+  private boolean rpcCallbackDeferred = false;
 
   private long responseCellSize = 0;
   private long responseBlockSize = 0;
   // cumulative size of serialized exceptions
   private long exceptionSize = 0;
   private final boolean retryImmediatelySupported;
+  private CallPhaseTimer phaseTimer;
 
   // This is a dirty hack to address HBASE-22539. The lowest bit is for normal rpc cleanup, and the
   // second bit is for WAL reference. We can only call release if both of them are zero. The reason
@@ -142,11 +145,25 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
       this.cellBlockStream.releaseResources();
       this.cellBlockStream = null;
     }
+    if (this.rpcCallbackDeferred) {
+      this.rpcCallbackDeferred = false;
+      runRpcCallback();
+    }
     // If the call was run successfuly, we might have already returned the BB
     // back to pool. No worries..Then inputCellBlock will be null
     cleanup();
   }
 
+  /**
+   * @return the minimum size of the cells the cell block of the response references instead of
+   *   copying them, or -1 to copy all cells. Referencing the cells requires {@link #done()} to be
+   *   called once the response has been written, as the blocks the cells are on are only released
+   *   then.
+   */
+  protected int getCellBlockZeroCopyMinCellSize() {
+    return -1;
+  }
+
   private void release(int mask) {
     for (;;) {
       int ref = reference.get();
@@ -236,7 +253,8 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
       int cellBlockSize = 0;
       if (bbAllocator.isReservoirEnabled()) {
         this.cellBlockStream = this.cellBlockBuilder.buildCellBlockStream(this.connection.codec,
-          this.connection.compressionCodec, cells, bbAllocator);
+          this.connection.compressionCodec, cells, bbAllocator,
+          getCellBlockZeroCopyMinCellSize());
         if (this.cellBlockStream != null) {
           cellBlock = this.cellBlockStream.getByteBuffers();
           cellBlockSize = this.cellBlockStream.size();
@@ -283,17 +301,27 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
     }
     this.response = bc;
     // Once a response message is created and set to this.response, this Call can be treated as
-    // done. The Responder thread will do the n/w write of this message back to client.
+    // done. The Responder thread will do the n/w write of this message back to client. Unless the
+    // cell block references the cells, then the callback, which releases the blocks they are on,
+    // has to wait until the response has been written.
     if (this.rpcCallback != null) {
-      try {
-        this.rpcCallback.run();
-      } catch (Exception e) {
-        // Don't allow any exception here to kill this handler thread.
-        RpcServer.LOG.warn("Exception while running the Rpc Callback.", e);
+      if (bc != null && this.cellBlockStream != null && this.cellBlockStream.hasReferences()) {
+        this.rpcCallbackDeferred = true;
+      } else {
+        runRpcCallback();
       }
     }
   }
 
+  private void runRpcCallback() {
+    try {
+      this.rpcCallback.run();
+    } catch (Exception e) {
+      // Don't allow any exception here to kill this handler thread.
+      RpcServer.LOG.warn("Exception while running the Rpc Callback.", e);
+    }
+  }
+
   static void setExceptionResponse(Throwable t, String errorMsg,
       ResponseHeader.Builder headerBuilder) {
     ExceptionResponse.Builder exceptionBuilder = ExceptionResponse.newBuilder();
@@ -528,6 +556,16 @@ public abstract class ServerCall<T extends ServerRpcConnection> implements RpcCa
     this.startTime = t;
   }
 
+  @Override
+  public CallPhaseTimer getPhaseTimer() {
+    return phaseTimer;
+  }
+
+  @Override
+  public void setPhaseTimer(CallPhaseTimer phaseTimer) {
+    this.phaseTimer = phaseTimer;
+  }
+
   @Override
   public int getTimeout() {
     return timeout;
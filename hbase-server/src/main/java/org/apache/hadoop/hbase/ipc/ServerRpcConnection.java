@@ -594,7 +594,14 @@ abstract class ServerRpcConnection implements Closeable {
     // do its default 4k allocation for CodedInputStream. We force it to use
     // backing array.
     CodedInputStream cis;
-    if (buf.hasArray()) {
+    if (buf instanceof SingleByteBuff) {
+      // Decode the buffer in place, also when it is a direct one, the ByteStrings of the request
+      // alias the buffer instead of being copied.
+      ByteBuffer nioBuf = buf.nioByteBuffers()[0].duplicate();
+      nioBuf.position(0);
+      nioBuf.limit(buf.limit());
+      cis = UnsafeByteOperations.unsafeWrap(nioBuf).newCodedInput();
+    } else if (buf.hasArray()) {
       cis = UnsafeByteOperations.unsafeWrap(buf.array(), 0, buf.limit()).newCodedInput();
     } else {
       cis = UnsafeByteOperations
@@ -25,6 +25,8 @@ import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.yetus.audience.InterfaceStability;
 import org.apache.hadoop.hbase.conf.ConfigurationObserver;
 import org.apache.hadoop.hbase.master.MasterAnnotationReadingPriorityFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The default scheduler. Configurable. Maintains isolated handler pools for general ('default'),
@@ -36,6 +38,8 @@ import org.apache.hadoop.hbase.master.MasterAnnotationReadingPriorityFunction;
 @InterfaceAudience.LimitedPrivate({HBaseInterfaceAudience.COPROC, HBaseInterfaceAudience.PHOENIX})
 @InterfaceStability.Evolving
 public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObserver {
+  private static final Logger LOG = LoggerFactory.getLogger(SimpleRpcScheduler.class);
+
   private int port;
   private final PriorityFunction priority;
   private final RpcExecutor callExecutor;
@@ -85,11 +89,20 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
     String callQueueType = conf.get(RpcExecutor.CALL_QUEUE_TYPE_CONF_KEY,
       RpcExecutor.CALL_QUEUE_TYPE_CONF_DEFAULT);
     float callqReadShare = conf.getFloat(RWQueueRpcExecutor.CALL_QUEUE_READ_SHARE_CONF_KEY, 0);
+    boolean virtualHandlers = VirtualThreadRpcExecutor.isVirtualHandlerType(conf);
 
     if (callqReadShare > 0) {
+      if (virtualHandlers) {
+        LOG.warn("{} is ignored for the general calls as {} is set, they run on platform handlers",
+          VirtualThreadRpcExecutor.HANDLER_TYPE_CONF_KEY,
+          RWQueueRpcExecutor.CALL_QUEUE_READ_SHARE_CONF_KEY);
+      }
       // at least 1 read handler and 1 write handler
       callExecutor = new RWQueueRpcExecutor("default.RWQ", Math.max(2, handlerCount),
         maxQueueLength, priority, conf, server);
+    } else if (virtualHandlers) {
+      callExecutor = new VirtualThreadRpcExecutor("default.VTBQ", handlerCount, maxQueueLength,
+          priority, conf, server);
     } else {
       if (RpcExecutor.isFifoQueueType(callQueueType) || RpcExecutor.isCodelQueueType(callQueueType)) {
         callExecutor = new FastPathBalancedQueueRpcExecutor("default.FPBQ", handlerCount,
@@ -110,23 +123,41 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
               maxPriorityQueueLength, priority, conf, server);
     } else {
       // Create 2 queues to help priorityExecutor be more scalable.
-      this.priorityExecutor = priorityHandlerCount > 0 ?
-          new FastPathBalancedQueueRpcExecutor("priority.FPBQ", priorityHandlerCount,
-              RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, maxPriorityQueueLength, priority, conf,
-              abortable) :
-          null;
+      if (priorityHandlerCount <= 0) {
+        this.priorityExecutor = null;
+      } else if (virtualHandlers) {
+        this.priorityExecutor = new VirtualThreadRpcExecutor("priority.VTBQ",
+            priorityHandlerCount, RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE,
+            maxPriorityQueueLength, priority, conf, abortable);
+      } else {
+        this.priorityExecutor = new FastPathBalancedQueueRpcExecutor("priority.FPBQ",
+            priorityHandlerCount, RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE,
+            maxPriorityQueueLength, priority, conf, abortable);
+      }
+    }
+    if (replicationHandlerCount <= 0) {
+      this.replicationExecutor = null;
+    } else if (virtualHandlers) {
+      this.replicationExecutor = new VirtualThreadRpcExecutor("replication.VTBQ",
+          replicationHandlerCount, RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE,
+          maxReplicationQueueLength, priority, conf, abortable);
+    } else {
+      this.replicationExecutor = new FastPathBalancedQueueRpcExecutor("replication.FPBQ",
+          replicationHandlerCount, RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE,
+          maxReplicationQueueLength, priority, conf, abortable);
     }
-    this.replicationExecutor =
-        replicationHandlerCount > 0
-            ? new FastPathBalancedQueueRpcExecutor("replication.FPBQ", replicationHandlerCount,
-                RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, maxReplicationQueueLength, priority,
-                conf, abortable)
-            : null;
     this.metaTransitionExecutor = metaTransitionHandler > 0 ?
         new FastPathBalancedQueueRpcExecutor("metaPriority.FPBQ", metaTransitionHandler,
             RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, maxPriorityQueueLength, priority, conf,
             abortable) :
         null;
+    // only the user calls are limited adaptively, the others have to get through under overload
+    for (RpcExecutor executor : new RpcExecutor[] { priorityExecutor, replicationExecutor,
+      metaTransitionExecutor }) {
+      if (executor != null) {
+        executor.disableAdaptiveLimit();
+      }
+    }
   }
 
   public SimpleRpcScheduler(Configuration conf, int handlerCount, int priorityHandlerCount,
@@ -154,7 +185,7 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
 
     String callQueueType = conf.get(RpcExecutor.CALL_QUEUE_TYPE_CONF_KEY,
       RpcExecutor.CALL_QUEUE_TYPE_CONF_DEFAULT);
-    if (RpcExecutor.isCodelQueueType(callQueueType)) {
+    if (RpcExecutor.isCodelQueueType(callQueueType) || RpcExecutor.isFairQueueType(callQueueType)) {
       callExecutor.onConfigurationChange(conf);
     }
   }
@@ -162,6 +193,17 @@ public class SimpleRpcScheduler extends RpcScheduler implements ConfigurationObs
   @Override
   public void init(Context context) {
     this.port = context.getListenerAddress().getPort();
+    MetricsHBaseServer metrics = context.getMetrics();
+    callExecutor.setMetrics(metrics);
+    if (priorityExecutor != null) {
+      priorityExecutor.setMetrics(metrics);
+    }
+    if (replicationExecutor != null) {
+      replicationExecutor.setMetrics(metrics);
+    }
+    if (metaTransitionExecutor != null) {
+      metaTransitionExecutor.setMetrics(metrics);
+    }
   }
 
   @Override
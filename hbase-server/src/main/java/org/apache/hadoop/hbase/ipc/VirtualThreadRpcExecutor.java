@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.lang.reflect.Method;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Abortable;
+import org.apache.hadoop.hbase.monitoring.MonitoredRPCHandler;
+import org.apache.hadoop.hbase.monitoring.TaskMonitor;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Balanced queue executor which runs every call on a thread of its own instead of on a fixed set
+ * of handler threads. A single dispatcher thread per call queue takes the calls from the queue and
+ * starts a virtual thread for each of them, so a call blocked on a pread, a row lock or a WAL sync
+ * does not hold on to a platform thread. The number of calls running at the same time is bounded
+ * by a semaphore shared by all the queues of this executor, i.e. per queue type, and sized from the
+ * handler count times {@link #CONCURRENCY_FACTOR_CONF_KEY}.
+ * <p/>
+ * Virtual threads are only available when running on Java 21 or later. On older runtimes the calls
+ * run on a cached pool of platform threads, still bounded by the semaphore.
+ * <p/>
+ * Note that on runtimes before Java 24 a virtual thread blocked inside a synchronized block or
+ * method pins its carrier thread. {@code SyncFuture.get}, which the calls wait on for the WAL sync,
+ * is synchronized and waits on the monitor, so every call waiting for a WAL sync holds a carrier
+ * thread until then, which limits how many of them can wait at the same time to the number of
+ * carrier threads.
+ */
+@InterfaceAudience.Private
+public class VirtualThreadRpcExecutor extends BalancedQueueRpcExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadRpcExecutor.class);
+
+  /**
+   * Which kind of threads the rpc calls run on, either 'platform', the default, for the fixed
+   * handler threads, or 'virtual' for this executor. The general calls keep running on platform
+   * handlers when their queues are split, see
+   * {@link RWQueueRpcExecutor#CALL_QUEUE_READ_SHARE_CONF_KEY}.
+   */
+  public static final String HANDLER_TYPE_CONF_KEY = "hbase.ipc.server.handler.type";
+  public static final String HANDLER_TYPE_PLATFORM_CONF_VALUE = "platform";
+  public static final String HANDLER_TYPE_VIRTUAL_CONF_VALUE = "virtual";
+  public static final String HANDLER_TYPE_CONF_DEFAULT = HANDLER_TYPE_PLATFORM_CONF_VALUE;
+
+  /**
+   * How many calls may run at the same time, as a multiple of the handler count. Virtual threads
+   * are cheap, so this can be raised well above 1 instead of configuring hundreds of handlers.
+   */
+  public static final String CONCURRENCY_FACTOR_CONF_KEY =
+      "hbase.ipc.server.handler.virtual.concurrency.factor";
+  public static final float DEFAULT_CONCURRENCY_FACTOR = 1.0f;
+
+  private static final long PLATFORM_THREAD_KEEP_ALIVE_SECONDS = 60;
+
+  private final int maxConcurrency;
+  private final Semaphore permits;
+  private final Executor callExecutor;
+  // only set when we fall back to platform threads, virtual threads are not pooled
+  private final ThreadPoolExecutor platformThreadPool;
+  // The status is kept in a thread local by the handlers, as every call gets a new thread here we
+  // recycle them instead, so at most maxConcurrency of them get registered with the TaskMonitor.
+  private final Deque<MonitoredRPCHandler> idleStatuses = new ConcurrentLinkedDeque<>();
+
+  public VirtualThreadRpcExecutor(final String name, final int handlerCount,
+      final int maxQueueLength, final PriorityFunction priority, final Configuration conf,
+      final Abortable abortable) {
+    this(name, handlerCount, conf.get(CALL_QUEUE_TYPE_CONF_KEY, CALL_QUEUE_TYPE_CONF_DEFAULT),
+        maxQueueLength, priority, conf, abortable);
+  }
+
+  public VirtualThreadRpcExecutor(final String name, final int handlerCount,
+      final String callQueueType, final int maxQueueLength, final PriorityFunction priority,
+      final Configuration conf, final Abortable abortable) {
+    super(name, handlerCount, callQueueType, maxQueueLength, priority, conf, abortable);
+    float factor = conf.getFloat(CONCURRENCY_FACTOR_CONF_KEY, DEFAULT_CONCURRENCY_FACTOR);
+    this.maxConcurrency = Math.max(1, Math.round(handlerCount * factor));
+    this.permits = new Semaphore(maxConcurrency);
+    String threadPrefix = "RpcServer." + getName() + ".call-";
+    ThreadFactory virtualThreadFactory = newVirtualThreadFactory(threadPrefix);
+    if (virtualThreadFactory != null) {
+      this.platformThreadPool = null;
+      this.callExecutor = r -> virtualThreadFactory.newThread(r).start();
+    } else {
+      LOG.warn("Virtual threads are not supported by this runtime, {} runs calls on platform "
+          + "threads", getName());
+      this.platformThreadPool = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+          PLATFORM_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+          new ThreadFactoryBuilder().setNameFormat(threadPrefix + "%d").setDaemon(true).build());
+      this.callExecutor = platformThreadPool;
+    }
+    LOG.info("{} runs at most {} calls concurrently on {} threads", getName(), maxConcurrency,
+      virtualThreadFactory != null ? "virtual" : "platform");
+  }
+
+  /**
+   * @return whether the rpc calls should run on virtual threads according to the configuration
+   */
+  public static boolean isVirtualHandlerType(final Configuration conf) {
+    return HANDLER_TYPE_VIRTUAL_CONF_VALUE.equals(
+      conf.get(HANDLER_TYPE_CONF_KEY, HANDLER_TYPE_CONF_DEFAULT));
+  }
+
+  /**
+   * Creates a factory of virtual threads, looked up by reflection as we still compile for Java 8.
+   * @return the factory, or null if the runtime does not support virtual threads
+   */
+  static ThreadFactory newVirtualThreadFactory(String namePrefix) {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = ofVirtual.invoke(null);
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder,
+        namePrefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Older runtime, or virtual threads are a preview feature which is not enabled
+      LOG.debug("Virtual threads are not available", e);
+      return null;
+    }
+  }
+
+  @Override
+  protected void startHandlers(final String nameSuffix, final int numHandlers,
+      final List<BlockingQueue<CallRunner>> callQueues, final int qindex, final int qsize,
+      final int port, final AtomicInteger activeHandlerCount) {
+    // A single dispatcher per queue, the calls themselves run on threads of their own.
+    super.startHandlers(nameSuffix, qsize, callQueues, qindex, qsize, port, activeHandlerCount);
+  }
+
+  @Override
+  protected Handler getHandler(final String name, final double handlerFailureThreshhold,
+      final BlockingQueue<CallRunner> q, final AtomicInteger activeHandlerCount) {
+    return new DispatchHandler(name, handlerFailureThreshhold, q, activeHandlerCount);
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (platformThreadPool != null) {
+      platformThreadPool.shutdown();
+    }
+  }
+
+  @Override
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  private MonitoredRPCHandler pollStatus() {
+    MonitoredRPCHandler status = idleStatuses.poll();
+    if (status == null) {
+      status = TaskMonitor.get().createRPCStatus("RpcServer." + getName() + ".call");
+      status.pause("Waiting for a call");
+    }
+    return status;
+  }
+
+  /**
+   * Takes the calls from its queue and, once a permit is available, runs each of them on a new
+   * thread, which gives back the permit when the call is done.
+   */
+  private class DispatchHandler extends Handler {
+
+    DispatchHandler(final String name, final double handlerFailureThreshhold,
+        final BlockingQueue<CallRunner> q, final AtomicInteger activeHandlerCount) {
+      super(name, handlerFailureThreshhold, q, activeHandlerCount);
+    }
+
+    @Override
+    protected CallRunner getCallRunner() throws InterruptedException {
+      // Take the call first, an idle dispatcher waiting on an empty queue must not hold a permit
+      // the busy queues could use.
+      CallRunner cr = super.getCallRunner();
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        // we are stopping
+        cr.drop();
+        throw e;
+      }
+      return cr;
+    }
+
+    @Override
+    protected void run(CallRunner cr) {
+      try {
+        callExecutor.execute(() -> {
+          MonitoredRPCHandler status = pollStatus();
+          try {
+            run(cr, status);
+          } finally {
+            idleStatuses.push(status);
+            permits.release();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // we are stopping
+        permits.release();
+        LOG.debug("{} rejected call, executor is stopped", getName(), e);
+        cr.drop();
+      }
+    }
+  }
+}
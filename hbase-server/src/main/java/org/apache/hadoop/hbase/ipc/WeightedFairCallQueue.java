@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * Call queue which shares the handlers fairly between tenants, i.e. users or namespaces, so one
+ * tenant issuing big multi gets or scans can not starve the others. It implements start-time fair
+ * queuing: a call is tagged with a virtual start time, the later of the current virtual time and
+ * the virtual finish time of the previous call of its tenant, and finishes its estimated cost
+ * divided by the weight of its tenant later. Calls are taken in order of their start tags, and
+ * the virtual time advances to the start tag of the call taken. See {@link CallCostModel} for the
+ * tenants, weights and costs.
+ * <p/>
+ * Calls whose client deadline has passed while they were queued are dropped instead of returned.
+ * <p/>
+ * Like {@link AdaptiveLifoCoDelCallQueue}, this class only supports what {@link RpcExecutor}
+ * needs of a {@link BlockingQueue}.
+ */
+@InterfaceAudience.Private
+public class WeightedFairCallQueue extends AbstractQueue<CallRunner>
+    implements BlockingQueue<CallRunner> {
+
+  // purge the finish tags of idle tenants once we have this many more tenants than calls
+  private static final int PURGE_THRESHOLD = 1000;
+
+  private final int capacity;
+  private final CallCostModel costModel;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  // guarded by lock
+  private final PriorityQueue<Entry> entries = new PriorityQueue<>();
+  private final Map<String, Double> finishTags = new HashMap<>();
+  private double virtualTime;
+  private long seqId;
+
+  private static final class Entry implements Comparable<Entry> {
+    final CallRunner callRunner;
+    final String tenant;
+    final double startTag;
+    final long seqId;
+
+    Entry(CallRunner callRunner, String tenant, double startTag, long seqId) {
+      this.callRunner = callRunner;
+      this.tenant = tenant;
+      this.startTag = startTag;
+      this.seqId = seqId;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int cmp = Double.compare(startTag, other.startTag);
+      return cmp != 0 ? cmp : Long.compare(seqId, other.seqId);
+    }
+  }
+
+  public WeightedFairCallQueue(int capacity, CallCostModel costModel) {
+    this.capacity = capacity;
+    this.costModel = costModel;
+  }
+
+  @Override
+  public boolean offer(CallRunner callRunner) {
+    RpcCall call = callRunner.getRpcCall();
+    String tenant = costModel.getTenant(call);
+    double duration = costModel.getCost(call) / costModel.getWeight(tenant);
+    lock.lock();
+    try {
+      if (entries.size() >= capacity) {
+        return false;
+      }
+      double startTag = Math.max(virtualTime, finishTags.getOrDefault(tenant, 0.0));
+      finishTags.put(tenant, startTag + duration);
+      entries.add(new Entry(callRunner, tenant, startTag, seqId++));
+      if (finishTags.size() > entries.size() + PURGE_THRESHOLD) {
+        // a tenant whose last call finished before the virtual time starts at it anyway
+        finishTags.values().removeIf(finishTag -> finishTag <= virtualTime);
+      }
+      notEmpty.signal();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // call with lock held
+  private Entry dequeue() {
+    Entry entry = entries.poll();
+    if (entry != null) {
+      virtualTime = Math.max(virtualTime, entry.startTag);
+      if (!entries.isEmpty()) {
+        notEmpty.signal();
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * @return the call of the entry, or null if it has expired and was dropped
+   */
+  private CallRunner checkExpired(Entry entry) {
+    RpcCall call = entry.callRunner.getRpcCall();
+    long now = EnvironmentEdgeManager.currentTime();
+    if (now > call.getDeadline()) {
+      costModel.dropped(entry.tenant);
+      entry.callRunner.drop();
+      return null;
+    }
+    costModel.dequeued(entry.tenant, now - call.getReceiveTime());
+    return entry.callRunner;
+  }
+
+  @Override
+  public CallRunner take() throws InterruptedException {
+    while (true) {
+      Entry entry;
+      lock.lockInterruptibly();
+      try {
+        while (entries.isEmpty()) {
+          notEmpty.await();
+        }
+        entry = dequeue();
+      } finally {
+        lock.unlock();
+      }
+      CallRunner cr = checkExpired(entry);
+      if (cr != null) {
+        return cr;
+      }
+    }
+  }
+
+  @Override
+  public CallRunner poll(long timeout, TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    while (true) {
+      Entry entry;
+      lock.lockInterruptibly();
+      try {
+        while (entries.isEmpty()) {
+          if (nanos <= 0) {
+            return null;
+          }
+          nanos = notEmpty.awaitNanos(nanos);
+        }
+        entry = dequeue();
+      } finally {
+        lock.unlock();
+      }
+      CallRunner cr = checkExpired(entry);
+      if (cr != null) {
+        return cr;
+      }
+    }
+  }
+
+  @Override
+  public CallRunner poll() {
+    while (true) {
+      Entry entry;
+      lock.lock();
+      try {
+        entry = dequeue();
+      } finally {
+        lock.unlock();
+      }
+      if (entry == null) {
+        return null;
+      }
+      CallRunner cr = checkExpired(entry);
+      if (cr != null) {
+        return cr;
+      }
+    }
+  }
+
+  @Override
+  public CallRunner peek() {
+    lock.lock();
+    try {
+      Entry entry = entries.peek();
+      return entry != null ? entry.callRunner : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return entries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Math.max(0, capacity - size());
+  }
+
+  /**
+   * @return an iterator over a snapshot of the queued calls, in no particular order
+   */
+  @Override
+  public Iterator<CallRunner> iterator() {
+    List<CallRunner> snapshot;
+    lock.lock();
+    try {
+      snapshot = new ArrayList<>(entries.size());
+      for (Entry entry : entries) {
+        snapshot.add(entry.callRunner);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return snapshot.iterator();
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super CallRunner> c, int maxElements) {
+    int drained = 0;
+    CallRunner cr;
+    while (drained < maxElements && (cr = poll()) != null) {
+      c.add(cr);
+      drained++;
+    }
+    return drained;
+  }
+
+  // The executors never block on a full queue, so these are not supported.
+
+  @Override
+  public void put(CallRunner callRunner) throws InterruptedException {
+    throw new UnsupportedOperationException("This class doesn't support blocking insertion");
+  }
+
+  @Override
+  public boolean offer(CallRunner callRunner, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    throw new UnsupportedOperationException("This class doesn't support blocking insertion");
+  }
+}
@@ -16,8 +16,6 @@
  * limitations under the License.
  */
 package org.apache.hadoop.hbase.master;
-import static org.apache.hadoop.hbase.HConstants.DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER;
-import static org.apache.hadoop.hbase.HConstants.HBASE_SPLIT_WAL_MAX_SPLITTER;
 import static org.apache.hadoop.hbase.master.MasterWalManager.META_FILTER;
 import static org.apache.hadoop.hbase.master.MasterWalManager.NON_META_FILTER;
 import java.io.IOException;
@@ -43,6 +41,7 @@ import org.apache.hadoop.hbase.procedure2.ProcedureSuspendedException;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
 import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
 import org.apache.hadoop.hbase.wal.WALSplitUtil;
+import org.apache.hadoop.hbase.wal.WALSplitter;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,7 +51,8 @@ import org.apache.hbase.thirdparty.com.google.common.collect.Lists;
 /**
  * Create {@link SplitWALProcedure} for each WAL which need to split. Manage the workers for each
  * {@link SplitWALProcedure}.
- * Total number of workers is (number of online servers) * (HBASE_SPLIT_WAL_MAX_SPLITTER).
+ * Total number of workers is (number of online servers) *
+ * ({@link WALSplitter#getSplitWALConcurrency}).
  * Helps assign and release workers for split tasks.
  * Provide helper method to delete split WAL file and directory.
  *
@@ -85,7 +85,7 @@ public class SplitWALManager {
     this.master = master;
     this.conf = master.getConfiguration();
     this.splitWorkerAssigner = new SplitWorkerAssigner(this.master,
-        conf.getInt(HBASE_SPLIT_WAL_MAX_SPLITTER, DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER));
+        WALSplitter.getSplitWALConcurrency(conf));
     this.rootDir = master.getMasterFileSystem().getWALRootDir();
     // TODO: This should be the WAL FS, not the Master FS?
     this.fs = master.getMasterFileSystem().getFileSystem();
@@ -20,6 +20,7 @@
 package org.apache.hadoop.hbase.namequeues;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.ipc.RpcCall;
 import org.apache.hbase.thirdparty.com.google.protobuf.Message;
 import org.apache.yetus.audience.InterfaceAudience;
@@ -39,6 +40,7 @@ public class RpcLogDetails extends NamedQueuePayload {
   private final String className;
   private final boolean isSlowLog;
   private final boolean isLargeLog;
+  private final CallPhaseTimer phaseTimer;
 
   public RpcLogDetails(RpcCall rpcCall, Message param, String clientAddress, long responseSize,
       String className, boolean isSlowLog, boolean isLargeLog) {
@@ -50,6 +52,7 @@ public class RpcLogDetails extends NamedQueuePayload {
     this.className = className;
     this.isSlowLog = isSlowLog;
     this.isLargeLog = isLargeLog;
+    this.phaseTimer = rpcCall.getPhaseTimer();
   }
 
   public RpcCall getRpcCall() {
@@ -80,6 +83,13 @@ public class RpcLogDetails extends NamedQueuePayload {
     return param;
   }
 
+  /**
+   * @return the times of the phases of the call, null if they were not timed
+   */
+  public CallPhaseTimer getPhaseTimer() {
+    return phaseTimer;
+  }
+
   @Override
   public String toString() {
     return new ToStringBuilder(this)
@@ -90,6 +100,7 @@ public class RpcLogDetails extends NamedQueuePayload {
       .append("className", className)
       .append("isSlowLog", isSlowLog)
       .append("isLargeLog", isLargeLog)
+      .append("phaseTimer", phaseTimer)
       .toString();
   }
 }
@@ -23,12 +23,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.SlowLogParams;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.ipc.RpcCall;
 import org.apache.hadoop.hbase.namequeues.LogHandlerUtils;
 import org.apache.hadoop.hbase.namequeues.NamedQueuePayload;
@@ -49,6 +51,7 @@ import org.apache.hbase.thirdparty.com.google.protobuf.Message;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.TooSlowLog;
 
 /**
@@ -154,7 +157,7 @@ public class SlowLogQueueService implements NamedQueueService {
     final String userName = rpcCall.getRequestUserName().orElse(StringUtils.EMPTY);
     final String methodDescriptorName =
       methodDescriptor != null ? methodDescriptor.getName() : StringUtils.EMPTY;
-    TooSlowLog.SlowLogPayload slowLogPayload = TooSlowLog.SlowLogPayload.newBuilder()
+    TooSlowLog.SlowLogPayload.Builder payloadBuilder = TooSlowLog.SlowLogPayload.newBuilder()
       .setCallDetails(methodDescriptorName + "(" + param.getClass().getName() + ")")
       .setClientAddress(clientAddress)
       .setMethodName(methodDescriptorName)
@@ -169,8 +172,16 @@ public class SlowLogQueueService implements NamedQueueService {
       .setServerClass(className)
       .setStartTime(startTime)
       .setType(type)
-      .setUserName(userName)
-      .build();
+      .setUserName(userName);
+    CallPhaseTimer phaseTimer = rpcLogDetails.getPhaseTimer();
+    if (phaseTimer != null) {
+      for (CallPhaseTimer.Phase phase : phaseTimer.getPhases()) {
+        payloadBuilder.addPhaseTimes(HBaseProtos.NameInt64Pair.newBuilder()
+          .setName(phase.getName())
+          .setValue(TimeUnit.NANOSECONDS.toMicros(phaseTimer.getTime(phase))));
+      }
+    }
+    TooSlowLog.SlowLogPayload slowLogPayload = payloadBuilder.build();
     slowLogQueue.add(slowLogPayload);
     if (isSlowLogTableEnabled) {
       if (!slowLogPayload.getRegionName().startsWith("hbase:slowlog")) {
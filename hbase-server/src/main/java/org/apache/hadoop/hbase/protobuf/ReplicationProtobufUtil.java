@@ -91,30 +91,7 @@ public class ReplicationProtobufUtil {
     ReplicateWALEntryRequest.Builder builder = ReplicateWALEntryRequest.newBuilder();
 
     for (Entry entry: entries) {
-      entryBuilder.clear();
-      WALProtos.WALKey.Builder keyBuilder;
-      try {
-        keyBuilder = entry.getKey().getBuilder(WALCellCodec.getNoneCompressor());
-      } catch (IOException e) {
-        throw new AssertionError(
-          "There should not throw exception since NoneCompressor do not throw any exceptions", e);
-      }
-      if(encodedRegionName != null){
-        keyBuilder.setEncodedRegionName(
-            UnsafeByteOperations.unsafeWrap(encodedRegionName));
-      }
-      entryBuilder.setKey(keyBuilder.build());
-      WALEdit edit = entry.getEdit();
-      List<Cell> cells = edit.getCells();
-      // Add up the size.  It is used later serializing out the kvs.
-      for (Cell cell: cells) {
-        size += PrivateCellUtil.estimatedSerializedSizeOf(cell);
-      }
-      // Collect up the cells
-      allCells.add(cells);
-      // Write out how many cells associated with this entry.
-      entryBuilder.setAssociatedCellCount(cells.size());
-      builder.addEntry(entryBuilder.build());
+      size += addEntry(builder, entryBuilder, entry, encodedRegionName, allCells);
     }
 
     if (replicationClusterId != null) {
@@ -131,6 +108,61 @@ public class ReplicationProtobufUtil {
       getCellScanner(allCells, size));
   }
 
+  /**
+   * Create a new ReplicateWALEntryRequest replaying WAL entries to several regions of a server
+   * @param regionEntries the encoded name of each region, and the WAL entries to replay to it
+   * @return a pair of ReplicateWALEntryRequest and a CellScanner over all the WALEdit values found.
+   */
+  public static Pair<ReplicateWALEntryRequest, CellScanner> buildReplayRequest(
+      List<Pair<byte[], List<Entry>>> regionEntries) {
+    List<List<? extends Cell>> allCells = new ArrayList<>();
+    int size = 0;
+    WALEntry.Builder entryBuilder = WALEntry.newBuilder();
+    ReplicateWALEntryRequest.Builder builder = ReplicateWALEntryRequest.newBuilder();
+    for (Pair<byte[], List<Entry>> pair : regionEntries) {
+      for (Entry entry : pair.getSecond()) {
+        size += addEntry(builder, entryBuilder, entry, pair.getFirst(), allCells);
+      }
+    }
+    return new Pair<>(builder.build(), getCellScanner(allCells, size));
+  }
+
+  /**
+   * Add a WAL entry to a request, and its cells to the cells of the request
+   * @param encodedRegionName alternative region name to use if not null
+   * @return the estimated serialized size of the cells of the entry
+   */
+  private static int addEntry(ReplicateWALEntryRequest.Builder builder,
+      WALEntry.Builder entryBuilder, Entry entry, byte[] encodedRegionName,
+      List<List<? extends Cell>> allCells) {
+    entryBuilder.clear();
+    WALProtos.WALKey.Builder keyBuilder;
+    try {
+      keyBuilder = entry.getKey().getBuilder(WALCellCodec.getNoneCompressor());
+    } catch (IOException e) {
+      throw new AssertionError(
+        "There should not throw exception since NoneCompressor do not throw any exceptions", e);
+    }
+    if(encodedRegionName != null){
+      keyBuilder.setEncodedRegionName(
+          UnsafeByteOperations.unsafeWrap(encodedRegionName));
+    }
+    entryBuilder.setKey(keyBuilder.build());
+    WALEdit edit = entry.getEdit();
+    List<Cell> cells = edit.getCells();
+    int size = 0;
+    // Add up the size.  It is used later serializing out the kvs.
+    for (Cell cell: cells) {
+      size += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+    }
+    // Collect up the cells
+    allCells.add(cells);
+    // Write out how many cells associated with this entry.
+    entryBuilder.setAssociatedCellCount(cells.size());
+    builder.addEntry(entryBuilder.build());
+    return size;
+  }
+
   /**
    * @param cells
    * @return <code>cells</code> packaged as a CellScanner
@@ -20,6 +20,10 @@ package org.apache.hadoop.hbase.regionserver;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.apache.hadoop.hbase.ByteBufferKeyValue;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparator;
@@ -65,6 +69,30 @@ public class CellChunkImmutableSegment extends ImmutableSegment {
     initializeCellSet(numOfCells, iterator, action);
   }
 
+  /**------------------------------------------------------------------------
+   * C-tor to be used when new CellChunkImmutableSegment is built as a result of a parallel
+   * compaction/merge of a list of older ImmutableSegments.
+   * Each of the given iterators returns the Cells that "survived" the compaction within one
+   * partition of the key space, the partitions are given in key order and do not overlap.
+   * The partitions are scanned and their index entries are written concurrently in the given pool.
+   */
+  protected CellChunkImmutableSegment(CellComparator comparator,
+      List<MemStoreSegmentsIterator> partitions, MemStoreLAB memStoreLAB, int numOfCells,
+      MemStoreCompactionStrategy.Action action, ForkJoinPool pool) {
+    super(null, comparator, memStoreLAB); // initialize the CellSet with NULL
+    long indexOverhead = DEEP_OVERHEAD_CCM;
+    // memStoreLAB cannot be null in this class
+    boolean onHeap = getMemStoreLAB().isOnHeap();
+    // initiate the heapSize with the size of the segment metadata
+    if (onHeap) {
+      incMemStoreSize(0, indexOverhead, 0, 0);
+    } else {
+      incMemStoreSize(0, 0, indexOverhead, 0);
+    }
+    // build the new CellSet based on CellChunkMap and update the CellSet of the new Segment
+    initializeCellSetInParallel(numOfCells, partitions, action, pool);
+  }
+
   /**------------------------------------------------------------------------
    * C-tor to be used when new CellChunkImmutableSegment is built as a result of flattening
    * of CSLMImmutableSegment
@@ -193,6 +221,135 @@ public class CellChunkImmutableSegment extends ImmutableSegment {
     this.setCellSet(null, new CellSet(ccm, numUniqueKeys));  // update the CellSet of this Segment
   }
 
+  /*------------------------------------------------------------------------*/
+  // Create CellSet based on CellChunkMap from the compacting iterators of the partitions.
+  // First each partition collects its surviving cells (copying them into the MSLAB if needed),
+  // then, once the number of cells in each partition and thus its position in the index is known,
+  // each partition writes its own range of index entries. Both phases run in the given pool.
+  private void initializeCellSetInParallel(int numOfCells,
+      List<MemStoreSegmentsIterator> partitions, MemStoreCompactionStrategy.Action action,
+      ForkJoinPool pool) {
+    List<PartitionTask> tasks = new ArrayList<>(partitions.size());
+    for (MemStoreSegmentsIterator iterator : partitions) {
+      tasks.add(new PartitionTask(iterator, action));
+    }
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        invokeAll(tasks);
+      }
+    });
+
+    int numOfCellsAfterCompaction = 0;
+    int numUniqueKeys = 0;
+    for (PartitionTask task : tasks) {
+      task.firstIndex = numOfCellsAfterCompaction;
+      numOfCellsAfterCompaction += task.cells.size();
+      numUniqueKeys += task.numUniqueKeys;
+    }
+    Chunk[] chunks = allocIndexChunks(numOfCellsAfterCompaction);
+    int numOfCellsInChunk = calcNumOfCellsInChunk(chunks.length == 0 ? 0 : chunks[0].size);
+    List<IndexTask> indexTasks = new ArrayList<>(tasks.size());
+    for (PartitionTask task : tasks) {
+      indexTasks.add(new IndexTask(task, chunks, numOfCellsInChunk));
+    }
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        invokeAll(indexTasks);
+      }
+    });
+
+    if(action == MemStoreCompactionStrategy.Action.COMPACT) {
+      numUniqueKeys = numOfCells;
+    } else if(action != MemStoreCompactionStrategy.Action.MERGE_COUNT_UNIQUE_KEYS) {
+      numUniqueKeys = CellSet.UNKNOWN_NUM_UNIQUES;
+    }
+    // build the immutable CellSet
+    CellChunkMap ccm =
+        new CellChunkMap(getComparator(), chunks, 0, numOfCellsAfterCompaction, false);
+    this.setCellSet(null, new CellSet(ccm, numUniqueKeys));  // update the CellSet of this Segment
+  }
+
+  /**
+   * Collects the cells of one partition of the key space, copying them into the MSLAB of this
+   * segment where needed.
+   */
+  private final class PartitionTask extends RecursiveAction {
+    private final MemStoreSegmentsIterator iterator;
+    private final MemStoreCompactionStrategy.Action action;
+    private final List<Cell> cells = new ArrayList<>();
+    private int numUniqueKeys = 0;
+    // the position of the first cell of this partition in the index of the segment
+    private int firstIndex;
+
+    PartitionTask(MemStoreSegmentsIterator iterator, MemStoreCompactionStrategy.Action action) {
+      this.iterator = iterator;
+      this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+      Cell prev = null;
+      while (iterator.hasNext()) {
+        boolean alreadyCopied = false;
+        Cell c = iterator.next();
+        assert(c instanceof ExtendedCell);
+        if (((ExtendedCell)c).getChunkId() == ExtendedCell.CELL_NOT_BASED_ON_CHUNK) {
+          // CellChunkMap assumes all cells are allocated on MSLAB, see initializeCellSet
+          c = copyCellIntoMSLAB(c, null);
+          alreadyCopied = true;
+        }
+        if (action == MemStoreCompactionStrategy.Action.COMPACT && !alreadyCopied) {
+          // for compaction copy cell to the new segment (MSLAB copy)
+          c = maybeCloneWithAllocator(c, false);
+        }
+        if (action == MemStoreCompactionStrategy.Action.MERGE_COUNT_UNIQUE_KEYS) {
+          // partitions are split on row boundaries, so the counts of the partitions add up
+          if (prev == null || !CellUtil.matchingRowColumnBytes(prev, c)) {
+            numUniqueKeys++;
+          }
+        }
+        cells.add(c);
+        prev = c;
+      }
+    }
+  }
+
+  /**
+   * Writes the index entries of one partition into its range of the index chunks.
+   */
+  private final class IndexTask extends RecursiveAction {
+    private final PartitionTask partition;
+    private final Chunk[] chunks;
+    private final int numOfCellsInChunk;
+
+    IndexTask(PartitionTask partition, Chunk[] chunks, int numOfCellsInChunk) {
+      this.partition = partition;
+      this.chunks = chunks;
+      this.numOfCellsInChunk = numOfCellsInChunk;
+    }
+
+    @Override
+    protected void compute() {
+      int idx = partition.firstIndex;
+      for (Cell c : partition.cells) {
+        int offsetInChunk = ChunkCreator.SIZEOF_CHUNK_HEADER
+            + (idx % numOfCellsInChunk) * ClassSize.CELL_CHUNK_MAP_ENTRY;
+        createCellReference((ByteBufferKeyValue) c, chunks[idx / numOfCellsInChunk].getData(),
+            offsetInChunk);
+        idx++;
+      }
+      // the sizes still need to be updated in the new segment, the meta info of a segment is not
+      // safe for concurrent updates
+      synchronized (CellChunkImmutableSegment.this) {
+        for (Cell c : partition.cells) {
+          updateMetaInfo(c, true, null);
+        }
+      }
+    }
+  }
+
   /*------------------------------------------------------------------------*/
   // Create CellSet based on CellChunkMap from current ConcurrentSkipListMap based CellSet
   // (without compacting iterator)
@@ -131,13 +131,14 @@ public class CellSet implements NavigableSet<Cell>  {
 
   @Override
   public SortedSet<Cell> subSet(Cell fromElement, Cell toElement) {
-    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+    return subSet(fromElement, true, toElement, false);
   }
 
   @Override
   public NavigableSet<Cell> subSet(Cell fromElement,
       boolean fromInclusive, Cell toElement, boolean toInclusive) {
-    throw new UnsupportedOperationException(HConstants.NOT_IMPLEMENTED);
+    return new CellSet(this.delegatee.subMap(fromElement, fromInclusive, toElement, toInclusive),
+        UNKNOWN_NUM_UNIQUES);
   }
 
   @Override
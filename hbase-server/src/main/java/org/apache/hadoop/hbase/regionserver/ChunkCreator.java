@@ -409,6 +409,17 @@ public class ChunkCreator {
       }
     }
 
+    /**
+     * Drops the chunks in the pool, so that as many new ones can be created for the pool again.
+     */
+    private void clear() {
+      Chunk c;
+      while ((c = reclaimedChunks.poll()) != null) {
+        ChunkCreator.this.removeChunk(c.getId());
+        chunkCount.decrementAndGet();
+      }
+    }
+
     private class StatisticsThread extends Thread {
       StatisticsThread() {
         super("MemStoreChunkPool.StatisticsThread");
@@ -580,10 +591,10 @@ public class ChunkCreator {
   @VisibleForTesting
   void clearChunksInPool() {
     if (dataChunksPool != null) {
-      dataChunksPool.reclaimedChunks.clear();
+      dataChunksPool.clear();
     }
     if (indexChunksPool != null) {
-      indexChunksPool.reclaimedChunks.clear();
+      indexChunksPool.clear();
     }
   }
 
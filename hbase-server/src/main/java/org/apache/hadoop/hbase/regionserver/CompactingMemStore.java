@@ -67,6 +67,16 @@ public class CompactingMemStore extends AbstractMemStore {
   public static final String IN_MEMORY_CONPACTION_POOL_SIZE_KEY =
       "hbase.regionserver.inmemory.compaction.pool.size";
   public static final int IN_MEMORY_CONPACTION_POOL_SIZE_DEFAULT = 10;
+  // Number of partitions of the key space compacted (or merged) in parallel when the result is
+  // indexed by CellChunkMap, this is also the size of the shared fork-join pool doing the work.
+  // The value of 1 means the in-memory compaction is single-threaded.
+  public static final String IN_MEMORY_COMPACTION_PARALLELISM_KEY =
+      "hbase.regionserver.inmemory.compaction.parallelism";
+  public static final int IN_MEMORY_COMPACTION_PARALLELISM_DEFAULT = 1;
+  // Minimal number of cells in the pipeline for the in-memory compaction to run in parallel
+  public static final String IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_KEY =
+      "hbase.regionserver.inmemory.compaction.parallel.min.cells";
+  public static final int IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_DEFAULT = 100000;
 
   private static final Logger LOG = LoggerFactory.getLogger(CompactingMemStore.class);
   private HStore store;
@@ -579,7 +589,7 @@ public class CompactingMemStore extends AbstractMemStore {
     }
   }
 
-  private RegionServicesForStores getRegionServices() {
+  RegionServicesForStores getRegionServices() {
     return regionServices;
   }
 
@@ -139,6 +139,7 @@ import org.apache.hadoop.hbase.io.HeapSize;
 import org.apache.hadoop.hbase.io.TimeRange;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.ipc.CallerDisconnectedException;
 import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
 import org.apache.hadoop.hbase.ipc.RpcCall;
@@ -299,6 +300,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   protected volatile long lastReplayedOpenRegionSeqId = -1L;
   protected volatile long lastReplayedCompactionSeqId = -1L;
 
+  /**
+   * For a secondary replica, the time the last replayed edit was written on the primary, 0 if it
+   * has not replayed any edit yet.
+   */
+  private volatile long lastReplayedWriteTime;
+
   //////////////////////////////////////////////////////////////////////////////
   // Members
   //////////////////////////////////////////////////////////////////////////////
@@ -311,6 +318,24 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   private final ConcurrentHashMap<HashedBytes, RowLockContext> lockedRows =
       new ConcurrentHashMap<>();
 
+  /**
+   * Number of lock stripes used for row locking. When greater than zero, rows are locked on a fixed
+   * array of lock stripes chosen by row hash instead of a per row lock in {@link #lockedRows}, so
+   * acquiring a row lock allocates nothing. Distinct rows hashing to the same stripe contend with
+   * each other. Zero, the default, keeps exact per row locking. It can be set per table.
+   */
+  public static final String ROW_LOCK_STRIPES_KEY = "hbase.rowlock.stripes";
+  public static final int DEFAULT_ROW_LOCK_STRIPES = 0;
+
+  // preallocated lock stripes, null when rows are locked exactly through lockedRows
+  private final RowLockContext[] rowLockStripes;
+
+  // coalesces concurrent increments and appends on the same row, null unless enabled for the table
+  private final MutationCoalescer mutationCoalescer;
+
+  // cache of whole row results, null unless enabled for the table
+  private final RegionRowCache rowCache;
+
   protected final Map<byte[], HStore> stores =
       new ConcurrentSkipListMap<>(Bytes.BYTES_RAWCOMPARATOR);
 
@@ -808,6 +833,21 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       tmpRowLockDuration = 1;
     }
     this.rowLockWaitDuration = tmpRowLockDuration;
+    int rowLockStripeCount = conf.getInt(ROW_LOCK_STRIPES_KEY, DEFAULT_ROW_LOCK_STRIPES);
+    if (rowLockStripeCount > 0) {
+      this.rowLockStripes = new RowLockContext[rowLockStripeCount];
+      for (int i = 0; i < rowLockStripeCount; i++) {
+        this.rowLockStripes[i] = new RowLockContext(i);
+      }
+    } else {
+      this.rowLockStripes = null;
+    }
+    this.mutationCoalescer = conf.getBoolean(MutationCoalescer.COALESCING_ENABLED_KEY,
+      MutationCoalescer.DEFAULT_COALESCING_ENABLED) ? new MutationCoalescer(this, conf) : null;
+    // secondary replicas are updated through replay, not worth caching for
+    this.rowCache = RegionRowCache.isEnabled(conf)
+        && RegionReplicaUtil.isDefaultReplica(getRegionInfo())
+            ? new RegionRowCache(conf, htd) : null;
 
     this.isLoadingCfsOnDemandDefault = conf.getBoolean(LOAD_CFS_ON_DEMAND_CONFIG_KEY, true);
     this.htableDescriptor = htd;
@@ -1395,6 +1435,31 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return this.rsServices;
   }
 
+  /**
+   * Computed when asked, so it keeps growing if the replication to the replica stalls. Note that it
+   * also grows while nothing is written to the primary.
+   * @return for a secondary replica, the time since the last edit it replayed was written on the
+   *   primary, in milliseconds. 0 for a primary region, or a replica which has not replayed any
+   *   edit yet.
+   */
+  public long getReplicaStaleness() {
+    long writeTime = lastReplayedWriteTime;
+    if (writeTime <= 0) {
+      return 0;
+    }
+    return Math.max(0, EnvironmentEdgeManager.currentTime() - writeTime);
+  }
+
+  /**
+   * Records the write time of the last edit replayed by a secondary replica.
+   * @param writeTime the time the edit was written on the primary
+   */
+  void updateReplicaStaleness(long writeTime) {
+    if (!RegionReplicaUtil.isDefaultReplica(getRegionInfo()) && writeTime > lastReplayedWriteTime) {
+      lastReplayedWriteTime = writeTime;
+    }
+  }
+
   @Override
   public long getReadRequestsCount() {
     return readRequestsCount.sum();
@@ -3351,6 +3416,11 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     //Durability of the batch (highest durability of all operations)
     protected Durability durability;
     protected boolean atomic = false;
+    // For row locks on stripes, allocated once for all the mini batches: the stripe of each
+    // operation of the mini batch, -1 for the operations not in it, and the stripe and index of
+    // each of them, sorted to lock the stripes in ascending order
+    private int[] operationStripes;
+    private long[] stripeOrder;
 
     public BatchOperation(final HRegion region, T[] operations) {
       this.operations = operations;
@@ -3567,6 +3637,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
      */
     public MiniBatchOperationInProgress<Mutation> lockRowsAndBuildMiniBatch(
         List<RowLock> acquiredRowLocks) throws IOException {
+      if (region.rowLockStripes != null) {
+        return lockRowStripesAndBuildMiniBatch(acquiredRowLocks);
+      }
       int readyToWriteCount = 0;
       int lastIndexExclusive = 0;
       RowLock prevRowLock = null;
@@ -3650,6 +3723,110 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       return createMiniBatch(lastIndexExclusive, readyToWriteCount);
     }
 
+    /**
+     * Variant of {@link #lockRowsAndBuildMiniBatch(List)} for rows locked on stripes. The row
+     * order of a batch maps to an arbitrary stripe order, so the operations of the mini batch are
+     * picked first and then their stripes are locked in ascending order, each stripe only once.
+     * Otherwise two batches, or a batch and a multi row mutation, could each hold a stripe the
+     * other one waits for. If a stripe cannot be locked the mini batch ends before the first
+     * operation on a stripe which is not locked.
+     */
+    private MiniBatchOperationInProgress<Mutation> lockRowStripesAndBuildMiniBatch(
+        List<RowLock> acquiredRowLocks) throws IOException {
+      int readyToWriteCount = 0;
+      int lastIndexExclusive = 0;
+      if (operationStripes == null) {
+        operationStripes = new int[size()];
+        stripeOrder = new long[size()];
+      }
+      int[] stripes = operationStripes;
+      // the stripe in the high int, the index of the operation in the low one
+      int stripeOrderLength = 0;
+      for (; lastIndexExclusive < size(); lastIndexExclusive++) {
+        stripes[lastIndexExclusive] = -1;
+        // It reaches the miniBatchSize, stop here and process the miniBatch
+        // This only applies to non-atomic batch operations.
+        if (!isAtomic() && (readyToWriteCount == region.miniBatchSize)) {
+          break;
+        }
+        if (!isOperationPending(lastIndexExclusive)) {
+          continue;
+        }
+        // HBASE-19389, see lockRowsAndBuildMiniBatch
+        Map<byte[], List<Cell>> curFamilyCellMap =
+            getMutation(lastIndexExclusive).getFamilyCellMap();
+        try {
+          region.storeHotnessProtector.start(curFamilyCellMap);
+        } catch (RegionTooBusyException rtbe) {
+          region.storeHotnessProtector.finish(curFamilyCellMap);
+          if (isAtomic()) {
+            finishStoreHotnessProtectors(stripes, 0, lastIndexExclusive);
+            throw rtbe;
+          }
+          retCodeDetails[lastIndexExclusive] =
+              new OperationStatus(OperationStatusCode.STORE_TOO_BUSY, rtbe.getMessage());
+          continue;
+        }
+        int stripe = region.getRowLockStripe(getMutation(lastIndexExclusive).getRow());
+        stripes[lastIndexExclusive] = stripe;
+        stripeOrder[stripeOrderLength++] = ((long) stripe << 32) | lastIndexExclusive;
+        readyToWriteCount++;
+      }
+
+      Arrays.sort(stripeOrder, 0, stripeOrderLength);
+      int prevStripe = -1;
+      for (int i = 0; i < stripeOrderLength; i++) {
+        int stripe = (int) (stripeOrder[i] >>> 32);
+        if (stripe == prevStripe) {
+          continue;
+        }
+        // lock each stripe once, with the first operation on it
+        prevStripe = stripe;
+        Mutation mutation = getMutation((int) stripeOrder[i]);
+        try {
+          // if atomic then get exclusive lock, else shared lock
+          acquiredRowLocks.add(region.getRowLockInternal(mutation.getRow(), !isAtomic(), null));
+        } catch (IOException ioe) {
+          if (isAtomic() || ioe instanceof TimeoutIOException
+              || ioe instanceof InterruptedIOException) {
+            finishStoreHotnessProtectors(stripes, 0, lastIndexExclusive);
+            throw ioe;
+          }
+          LOG.warn("Failed getting lock, row={}, in region {}",
+            Bytes.toStringBinary(mutation.getRow()), this, ioe);
+          // the stripes below the failed one are locked, stop before the first operation on
+          // another stripe
+          int cut = lastIndexExclusive;
+          for (int j = 0; j < lastIndexExclusive; j++) {
+            if (stripes[j] >= stripe) {
+              cut = j;
+              break;
+            }
+          }
+          for (int j = cut; j < lastIndexExclusive; j++) {
+            if (stripes[j] >= 0) {
+              readyToWriteCount--;
+            }
+          }
+          finishStoreHotnessProtectors(stripes, cut, lastIndexExclusive);
+          lastIndexExclusive = cut;
+          break;
+        } catch (Throwable throwable) {
+          finishStoreHotnessProtectors(stripes, 0, lastIndexExclusive);
+          throw throwable;
+        }
+      }
+      return createMiniBatch(lastIndexExclusive, readyToWriteCount);
+    }
+
+    private void finishStoreHotnessProtectors(int[] stripes, int from, int to) {
+      for (int i = from; i < to; i++) {
+        if (stripes[i] >= 0) {
+          region.storeHotnessProtector.finish(getMutation(i).getFamilyCellMap());
+        }
+      }
+    }
+
     protected MiniBatchOperationInProgress<Mutation> createMiniBatch(final int lastIndexExclusive,
         final int readyToWriteCount) {
       return new MiniBatchOperationInProgress<>(getMutationsForCoprocs(), retCodeDetails,
@@ -4374,6 +4551,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
     private void checkAndMergeCPMutations(final MiniBatchOperationInProgress<Mutation> miniBatchOp,
         final List<RowLock> acquiredRowLocks, final long timestamp) throws IOException {
+      if (region.rowLockStripes != null) {
+        lockCPMutationStripes(miniBatchOp, acquiredRowLocks);
+      }
       visitBatchOperations(true, nextIndexToProcess + miniBatchOp.size(), (int i) -> {
         // we pass (i - firstIndex) below since the call expects a relative index
         Mutation[] cpMutations = miniBatchOp.getOperationsFromCoprocessors(i - nextIndexToProcess);
@@ -4385,8 +4565,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         for (Mutation cpMutation : cpMutations) {
           this.checkAndPrepareMutation(cpMutation, timestamp);
 
-          // Acquire row locks. If not, the whole batch will fail.
-          acquiredRowLocks.add(region.getRowLockInternal(cpMutation.getRow(), true, null));
+          // Acquire row locks. If not, the whole batch will fail. Stripes are locked up front.
+          if (region.rowLockStripes == null) {
+            acquiredRowLocks.add(region.getRowLockInternal(cpMutation.getRow(), true, null));
+          }
 
           // Returned mutations from coprocessor correspond to the Mutation at index i. We can
           // directly add the cells from those mutations to the familyMaps of this mutation.
@@ -4408,6 +4590,34 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       });
     }
 
+    /**
+     * Locks the stripes of the rows of the mutations added by coprocessors, skipping those the
+     * batch already holds and taking the others once each in ascending stripe order. If not, the
+     * whole batch will fail.
+     */
+    private void lockCPMutationStripes(final MiniBatchOperationInProgress<Mutation> miniBatchOp,
+        final List<RowLock> acquiredRowLocks) throws IOException {
+      Set<Integer> heldStripes = new HashSet<>();
+      for (RowLock rowLock : acquiredRowLocks) {
+        heldStripes.add(((RowLockImpl) rowLock).getContext().stripe);
+      }
+      List<byte[]> rowsToLock = new ArrayList<>();
+      visitBatchOperations(true, nextIndexToProcess + miniBatchOp.size(), (int i) -> {
+        Mutation[] cpMutations = miniBatchOp.getOperationsFromCoprocessors(i - nextIndexToProcess);
+        if (cpMutations != null) {
+          for (Mutation cpMutation : cpMutations) {
+            if (!heldStripes.contains(region.getRowLockStripe(cpMutation.getRow()))) {
+              rowsToLock.add(cpMutation.getRow());
+            }
+          }
+        }
+        return true;
+      });
+      for (byte[] row : region.getRowsToLockInOrder(rowsToLock)) {
+        acquiredRowLocks.add(region.getRowLockInternal(row, true, null));
+      }
+    }
+
     private void mergeFamilyMaps(Map<byte[], List<Cell>> familyMap,
         Map<byte[], List<Cell>> toBeMerged) {
       for (Map.Entry<byte[], List<Cell>> entry : toBeMerged.entrySet()) {
@@ -4715,6 +4925,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       // Call complete rather than completeAndWait because we probably had error if walKey != null
       if (writeEntry != null) mvcc.complete(writeEntry);
 
+      // The mutations are visible now, drop the rows from the row cache before releasing the row
+      // locks. Done even on failure as part of the mini-batch may have reached the memstore.
+      if (rowCache != null && miniBatchOp != null) {
+        invalidateRowCache(miniBatchOp);
+      }
+
       if (locked) {
         this.updatesLock.readLock().unlock();
       }
@@ -4748,6 +4964,18 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     }
   }
 
+  private void invalidateRowCache(MiniBatchOperationInProgress<Mutation> miniBatchOp) {
+    for (int i = 0; i < miniBatchOp.size(); i++) {
+      rowCache.invalidate(miniBatchOp.getOperation(i).getRow());
+      Mutation[] fromCP = miniBatchOp.getOperationsFromCoprocessors(i);
+      if (fromCP != null) {
+        for (Mutation m : fromCP) {
+          rowCache.invalidate(m.getRow());
+        }
+      }
+    }
+  }
+
   /**
    * Returns effective durability from the passed durability and
    * the table descriptor.
@@ -5005,7 +5233,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return doBatchMutate(mutation, false);
   }
 
-  private OperationStatus doBatchMutate(Mutation mutation, boolean atomic) throws IOException {
+  OperationStatus doBatchMutate(Mutation mutation, boolean atomic) throws IOException {
     return doBatchMutate(mutation, atomic, HConstants.NO_NONCE, HConstants.NO_NONCE);
   }
 
@@ -6639,6 +6867,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return getRowLock(row, false);
   }
 
+  /**
+   * {@inheritDoc}
+   * <p>
+   * With {@link #ROW_LOCK_STRIPES_KEY} set the callers locking several rows must take the locks
+   * of their stripes once each, in ascending stripe order, as the batch mutations do.
+   */
   @Override
   public RowLock getRowLock(byte[] row, boolean readLock) throws IOException {
     checkRow(row, "row lock");
@@ -6647,8 +6881,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
   protected RowLock getRowLockInternal(byte[] row, boolean readLock, final RowLock prevRowLock)
       throws IOException {
-    // create an object to use a a key in the row lock map
-    HashedBytes rowKey = new HashedBytes(row);
+    // create an object to use a a key in the row lock map, not needed when locking on stripes
+    HashedBytes rowKey = rowLockStripes == null ? new HashedBytes(row) : null;
 
     RowLockContext rowLockContext = null;
     RowLockImpl result = null;
@@ -6659,7 +6893,20 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       // Keep trying until we have a lock or error out.
       // TODO: do we need to add a time component here?
       while (result == null) {
-        rowLockContext = computeIfAbsent(lockedRows, rowKey, () -> new RowLockContext(rowKey));
+        if (rowLockStripes != null) {
+          rowLockContext = rowLockStripes[getRowLockStripe(row)];
+          // A stripe hands out the same RowLockImpl to every holder, so the caller would not
+          // track a second acquisition of the write lock it already holds. Reuse the previous
+          // lock instead.
+          RowLockImpl prevRowLockImpl = (RowLockImpl)prevRowLock;
+          if (!readLock && (prevRowLockImpl != null) && (prevRowLockImpl.getLock() ==
+              rowLockContext.readWriteLock.writeLock())) {
+            success = true;
+            return prevRowLock;
+          }
+        } else {
+          rowLockContext = computeIfAbsent(lockedRows, rowKey, () -> new RowLockContext(rowKey));
+        }
         // Now try an get the lock.
         // This can fail as
         if (readLock) {
@@ -6691,9 +6938,25 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         }
       }
 
-      if (timeout <= 0 || !result.getLock().tryLock(timeout, TimeUnit.MILLISECONDS)) {
+      // Only time the acquisition when we actually have to wait. A zero timeout still honors the
+      // fairness of the lock, unlike tryLock().
+      boolean locked = timeout > 0 && result.getLock().tryLock(0, TimeUnit.MILLISECONDS);
+      if (!locked && timeout > 0) {
+        long waitStart = System.nanoTime();
+        locked = result.getLock().tryLock(timeout, TimeUnit.MILLISECONDS);
+        long waitTime = System.nanoTime() - waitStart;
+        if (this.metricsRegion != null) {
+          this.metricsRegion.updateRowLockWait(waitTime);
+        }
+        CallPhaseTimer phaseTimer = CallPhaseTimer.current();
+        if (phaseTimer != null) {
+          phaseTimer.add(CallPhaseTimer.Phase.ROW_LOCK, waitTime);
+        }
+      }
+      if (!locked) {
         TraceUtil.addTimelineAnnotation("Failed to get row lock");
-        String message = "Timed out waiting for lock for row: " + rowKey + " in region "
+        String message = "Timed out waiting for lock for row: "
+            + (rowKey != null ? rowKey : Bytes.toStringBinary(row)) + " in region "
             + getRegionInfo().getEncodedName();
         if (reachDeadlineFirst) {
           throw new TimeoutIOException(message);
@@ -6707,8 +6970,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       return result;
     } catch (InterruptedException ie) {
       if (LOG.isDebugEnabled()) {
-        LOG.debug("Thread interrupted waiting for lock on row: {}, in region {}", rowKey,
-          getRegionInfo().getRegionNameAsString());
+        LOG.debug("Thread interrupted waiting for lock on row: {}, in region {}",
+          Bytes.toStringBinary(row), getRegionInfo().getRegionNameAsString());
       }
       TraceUtil.addTimelineAnnotation("Interrupted exception getting row lock");
       throw throwOnInterrupt(ie);
@@ -6743,10 +7006,44 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return lock.getReadLockCount();
   }
 
+  /**
+   * @return the contexts of rows currently locked. Always empty when rows are locked on stripes,
+   *   see {@link #ROW_LOCK_STRIPES_KEY}.
+   */
   public ConcurrentHashMap<HashedBytes, RowLockContext> getLockedRows() {
     return lockedRows;
   }
 
+  @VisibleForTesting
+  boolean isRowLockStriped() {
+    return rowLockStripes != null;
+  }
+
+  /**
+   * Operations locking several rows lock them in the order of the rows, callers are expected to
+   * pass them sorted. When rows are locked on stripes that order maps to an arbitrary stripe
+   * order, so one row of each stripe is returned instead, in ascending stripe order, for the
+   * multi row operations not to deadlock each other.
+   */
+  private Collection<byte[]> getRowsToLockInOrder(Collection<byte[]> rows) {
+    if (rowLockStripes == null || rows.size() < 2) {
+      return rows;
+    }
+    TreeMap<Integer, byte[]> rowsByStripe = new TreeMap<>();
+    for (byte[] row : rows) {
+      rowsByStripe.putIfAbsent(getRowLockStripe(row), row);
+    }
+    return rowsByStripe.values();
+  }
+
+  @VisibleForTesting
+  int getRowLockStripe(byte[] row) {
+    // spread the hash so that rows differing only in their last bytes use different stripes
+    int h = Bytes.hashCode(row);
+    h ^= (h >>> 16);
+    return (h & Integer.MAX_VALUE) % rowLockStripes.length;
+  }
+
   @VisibleForTesting
   class RowLockContext {
     private final HashedBytes row;
@@ -6755,16 +7052,37 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     final AtomicInteger count = new AtomicInteger(0);
     final Object lock = new Object();
     private String threadName;
+    // Only set for lock stripes, which are shared by all rows hashing to them and never removed,
+    // so the row locks can be handed out without allocating or reference counting.
+    private final int stripe;
+    private final RowLockImpl stripeReadLock;
+    private final RowLockImpl stripeWriteLock;
 
     RowLockContext(HashedBytes row) {
       this.row = row;
+      this.stripe = -1;
+      this.stripeReadLock = null;
+      this.stripeWriteLock = null;
+    }
+
+    RowLockContext(int stripe) {
+      this.row = null;
+      this.stripe = stripe;
+      this.stripeReadLock = new RowLockImpl(this, readWriteLock.readLock());
+      this.stripeWriteLock = new RowLockImpl(this, readWriteLock.writeLock());
     }
 
     RowLockImpl newWriteLock() {
+      if (stripeWriteLock != null) {
+        return stripeWriteLock;
+      }
       Lock l = readWriteLock.writeLock();
       return getRowLock(l);
     }
     RowLockImpl newReadLock() {
+      if (stripeReadLock != null) {
+        return stripeReadLock;
+      }
       Lock l = readWriteLock.readLock();
       return getRowLock(l);
     }
@@ -6781,6 +7099,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     }
 
     void cleanUp() {
+      if (row == null) {
+        // lock stripes live as long as the region
+        return;
+      }
       long c = count.decrementAndGet();
       if (c <= 0) {
         synchronized (lock) {
@@ -6800,7 +7122,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     @Override
     public String toString() {
       return "RowLockContext{" +
-          "row=" + row +
+          (row != null ? "row=" + row : "stripe=" + stripe) +
           ", readWriteLock=" + readWriteLock +
           ", count=" + count +
           ", threadName=" + threadName +
@@ -7096,6 +7418,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       }
 
       isSuccessful = true;
+      if (rowCache != null) {
+        rowCache.clear();
+      }
       //request compaction
       familyWithFinalPath.keySet().forEach(family -> {
         HStore store = getStore(family);
@@ -7175,6 +7500,8 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     private final long maxResultSize;
     private final ScannerContext defaultScannerContext;
     private final FilterWrapper filter;
+    // the timer of the call running nextInternal, if it is timed and the scan has a filter
+    private CallPhaseTimer phaseTimer;
 
     @Override
     public RegionInfo getRegionInfo() {
@@ -7478,6 +7805,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         throw new IllegalArgumentException("Scanner context cannot be null");
       }
       Optional<RpcCall> rpcCall = RpcServer.getCurrentCall();
+      phaseTimer = filter != null ? rpcCall.map(RpcCall::getPhaseTimer).orElse(null) : null;
 
       // Save the initial progress from the Scanner context in these local variables. The progress
       // may need to be reset a few times if rows are being filtered out so we save the initial
@@ -7561,7 +7889,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           // First, check if we are at a stop row. If so, there are no more results.
           if (shouldStop) {
             if (hasFilterRow) {
-              filter.filterRowCells(results);
+              filterRowCells(results);
             }
             return scannerContext.setScannerState(NextState.NO_MORE_VALUES).hasMoreValues();
           }
@@ -7615,7 +7943,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           // First filter with the filterRow(List).
           FilterWrapper.FilterRowRetCode ret = FilterWrapper.FilterRowRetCode.NOT_CALLED;
           if (hasFilterRow) {
-            ret = filter.filterRowCellsWithRet(results);
+            ret = filterRowCells(results);
 
             // We don't know how the results have changed after being filtered. Must set progress
             // according to contents of results now.
@@ -7752,12 +8080,45 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     private boolean filterRow() throws IOException {
       // when hasFilterRow returns true, filter.filterRow() will be called automatically inside
       // filterRowCells(List<Cell> kvs) so we skip that scenario here.
-      return filter != null && (!filter.hasFilterRow())
-          && filter.filterRow();
+      if (filter == null || filter.hasFilterRow()) {
+        return false;
+      }
+      if (phaseTimer == null) {
+        return filter.filterRow();
+      }
+      long start = phaseTimer.start();
+      try {
+        return filter.filterRow();
+      } finally {
+        phaseTimer.stop(CallPhaseTimer.Phase.FILTER, start);
+      }
     }
 
     private boolean filterRowKey(Cell current) throws IOException {
-      return filter != null && filter.filterRowKey(current);
+      if (filter == null) {
+        return false;
+      }
+      if (phaseTimer == null) {
+        return filter.filterRowKey(current);
+      }
+      long start = phaseTimer.start();
+      try {
+        return filter.filterRowKey(current);
+      } finally {
+        phaseTimer.stop(CallPhaseTimer.Phase.FILTER, start);
+      }
+    }
+
+    private FilterWrapper.FilterRowRetCode filterRowCells(List<Cell> results) throws IOException {
+      if (phaseTimer == null) {
+        return filter.filterRowCellsWithRet(results);
+      }
+      long start = phaseTimer.start();
+      try {
+        return filter.filterRowCellsWithRet(results);
+      } finally {
+        phaseTimer.stop(CallPhaseTimer.Phase.FILTER, start);
+      }
     }
 
     protected boolean nextRow(ScannerContext scannerContext, Cell curRowCell) throws IOException {
@@ -8299,17 +8660,21 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         return results;
       }
     }
-    Scan scan = new Scan(get);
-    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
-      scan.setLoadColumnFamiliesOnDemand(isLoadingCfsOnDemandDefault());
-    }
-    RegionScanner scanner = null;
-    try {
-      scanner = getScanner(scan, null, nonceGroup, nonce);
-      scanner.next(results);
-    } finally {
-      if (scanner != null)
-        scanner.close();
+    if (!getFromRowCache(get, results)) {
+      long rowCacheToken = startRowCacheRead(get);
+      Scan scan = new Scan(get);
+      if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+        scan.setLoadColumnFamiliesOnDemand(isLoadingCfsOnDemandDefault());
+      }
+      RegionScanner scanner = null;
+      try {
+        scanner = getScanner(scan, null, nonceGroup, nonce);
+        scanner.next(results);
+        cacheRow(get, results, rowCacheToken);
+      } finally {
+        if (scanner != null)
+          scanner.close();
+      }
     }
 
     // post-get CP hook
@@ -8322,6 +8687,48 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return results;
   }
 
+  /**
+   * Serves the get out of the row cache, if enabled and the row is cached.
+   * @return whether the results were filled from the row cache
+   */
+  boolean getFromRowCache(Get get, List<Cell> results) {
+    if (rowCache == null || !RegionRowCache.isCacheable(get)) {
+      return false;
+    }
+    List<Cell> cached = rowCache.get(get);
+    if (this.metricsRegion != null) {
+      this.metricsRegion.updateRowCache(cached != null);
+    }
+    if (cached == null) {
+      return false;
+    }
+    results.addAll(cached);
+    return true;
+  }
+
+  /**
+   * To be called before opening the scanner of a get whose results may be passed to
+   * {@link #cacheRow(Get, List, long)}.
+   */
+  long startRowCacheRead(Get get) {
+    return rowCache != null ? rowCache.startRead(get.getRow()) : 0;
+  }
+
+  /**
+   * Caches the results of the get in the row cache if enabled and the get read the whole row. Must
+   * be called before the scanner which read the results is closed.
+   */
+  void cacheRow(Get get, List<Cell> results, long rowCacheToken) {
+    if (rowCache != null && RegionRowCache.isCacheable(get)) {
+      rowCache.cache(get, results, rowCacheToken, stores.size());
+    }
+  }
+
+  @VisibleForTesting
+  RegionRowCache getRowCache() {
+    return rowCache;
+  }
+
   void metricsUpdateForGet(List<Cell> results, long before) {
     if (this.metricsRegion != null) {
       this.metricsRegion.updateGet(EnvironmentEdgeManager.currentTime() - before);
@@ -8357,7 +8764,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       public MiniBatchOperationInProgress<Mutation> lockRowsAndBuildMiniBatch(
           List<RowLock> acquiredRowLocks) throws IOException {
         RowLock prevRowLock = null;
-        for (byte[] row : rowsToLock) {
+        for (byte[] row : region.getRowsToLockInOrder(rowsToLock)) {
           try {
             RowLock rowLock = region.getRowLockInternal(row, false, prevRowLock); // write lock
             if (rowLock != prevRowLock) {
@@ -8457,7 +8864,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         // STEP 2. Acquire the row lock(s)
         acquiredRowLocks = new ArrayList<>(rowsToLock.size());
         RowLock prevRowLock = null;
-        for (byte[] row : rowsToLock) {
+        for (byte[] row : getRowsToLockInOrder(rowsToLock)) {
           // Attempt to lock all involved rows, throw if any lock times out
           // use a writer lock for mixed reads and writes
           RowLock rowLock = getRowLockInternal(row, false, prevRowLock);
@@ -8520,6 +8927,11 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           // STEP 9. Complete mvcc.
           mvcc.completeAndWait(writeEntry);
           writeEntry = null;
+          if (rowCache != null) {
+            for (Mutation m : mutations) {
+              rowCache.invalidate(m.getRow());
+            }
+          }
 
           // STEP 10. Release region lock
           if (locked) {
@@ -8621,6 +9033,13 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     }
   }
 
+  /**
+   * @return how long, in milliseconds, to wait for a row lock at most
+   */
+  int getRowLockWaitDuration() {
+    return rowLockWaitDuration;
+  }
+
   @Override
   public Result append(Append append) throws IOException {
     return append(append, HConstants.NO_NONCE, HConstants.NO_NONCE);
@@ -8631,6 +9050,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     checkResources();
     startRegionOperation(Operation.APPEND);
     try {
+      if (mutationCoalescer != null && mutationCoalescer.canCoalesce(append, nonce)) {
+        Result result = mutationCoalescer.coalesce(append);
+        if (result != null) {
+          return result;
+        }
+      }
       // All edits for the given row (across all column families) must happen atomically.
       return doBatchMutate(append, true, nonceGroup, nonce).getResult();
     } finally {
@@ -8648,6 +9073,12 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     checkResources();
     startRegionOperation(Operation.INCREMENT);
     try {
+      if (mutationCoalescer != null && mutationCoalescer.canCoalesce(increment, nonce)) {
+        Result result = mutationCoalescer.coalesce(increment);
+        if (result != null) {
+          return result;
+        }
+      }
       // All edits for the given row (across all column families) must happen atomically.
       return doBatchMutate(increment, true, nonceGroup, nonce).getResult();
     } finally {
@@ -18,9 +18,7 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import static org.apache.hadoop.hbase.HConstants.DEFAULT_HBASE_SPLIT_COORDINATED_BY_ZK;
-import static org.apache.hadoop.hbase.HConstants.DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER;
 import static org.apache.hadoop.hbase.HConstants.HBASE_SPLIT_WAL_COORDINATED_BY_ZK;
-import static org.apache.hadoop.hbase.HConstants.HBASE_SPLIT_WAL_MAX_SPLITTER;
 import static org.apache.hadoop.hbase.util.DNS.UNSAFE_RS_HOSTNAME_KEY;
 
 import java.io.IOException;
@@ -50,6 +48,7 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -176,6 +175,7 @@ import org.apache.hadoop.hbase.wal.NettyAsyncFSWALConfigHelper;
 import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WALFactory;
 import org.apache.hadoop.hbase.wal.WALProvider;
+import org.apache.hadoop.hbase.wal.WALSplitter;
 import org.apache.hadoop.hbase.zookeeper.ClusterStatusTracker;
 import org.apache.hadoop.hbase.zookeeper.MasterAddressTracker;
 import org.apache.hadoop.hbase.zookeeper.MetaTableLocator;
@@ -333,6 +333,9 @@ public class HRegionServer extends Thread implements
   // Instance of the hbase executor executorService.
   protected ExecutorService executorService;
 
+  // Fork-join pool of the in-memory compactions which are split into partitions, lazily created.
+  private ForkJoinPool parallelInMemoryCompactionPool;
+
   private volatile boolean dataFsOk;
   private HFileSystem dataFs;
   private HFileSystem walFs;
@@ -742,7 +745,8 @@ public class HRegionServer extends Thread implements
     NettyEventLoopGroupConfig nelgc =
       new NettyEventLoopGroupConfig(conf, "RS-EventLoopGroup");
     NettyRpcClientConfigHelper.setEventLoopConfig(conf, nelgc.group(), nelgc.clientChannelClass());
-    NettyAsyncFSWALConfigHelper.setEventLoopConfig(conf, nelgc.group(), nelgc.clientChannelClass());
+    NettyAsyncFSWALConfigHelper.setEventLoopConfig(conf, nelgc.walGroup(),
+      nelgc.clientChannelClass());
     return nelgc;
   }
 
@@ -1778,6 +1782,7 @@ public class HRegionServer extends Thread implements
       .setBlocksLocalWithSsdWeight(blocksLocalWithSsdWeight)
       .setBlocksTotalWeight(blocksTotalWeight)
       .setCompactionState(ProtobufUtil.createCompactionStateForRegionLoad(r.getCompactionState()))
+      .setReplicaStaleness(r.getReplicaStaleness())
       .setLastMajorCompactionTs(r.getOldestHfileTs(true));
     r.setCompleteSequenceId(regionLoadBldr);
     return regionLoadBldr.build();
@@ -2036,8 +2041,8 @@ public class HRegionServer extends Thread implements
       this.executorService.startExecutorService(ExecutorType.RS_PARALLEL_SEEK,
           conf.getInt("hbase.storescanner.parallel.seek.threads", 10));
     }
-    this.executorService.startExecutorService(ExecutorType.RS_LOG_REPLAY_OPS, conf.getInt(
-        HBASE_SPLIT_WAL_MAX_SPLITTER, DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER));
+    this.executorService.startExecutorService(ExecutorType.RS_LOG_REPLAY_OPS,
+        WALSplitter.getSplitWALConcurrency(conf));
     // Start the threads for compacted files discharger
     this.executorService.startExecutorService(ExecutorType.RS_COMPACTED_FILES_DISCHARGER,
         conf.getInt(CompactionConfiguration.HBASE_HFILE_COMPACTION_DISCHARGER_THREAD_COUNT, 10));
@@ -2661,6 +2666,11 @@ public class HRegionServer extends Thread implements
     if (this.executorService != null) {
       this.executorService.shutdown();
     }
+    synchronized (this) {
+      if (this.parallelInMemoryCompactionPool != null) {
+        this.parallelInMemoryCompactionPool.shutdown();
+      }
+    }
     if (sameReplicationSourceAndSink && this.replicationSourceHandler != null) {
       this.replicationSourceHandler.stopReplicationService();
     } else {
@@ -3078,6 +3088,17 @@ public class HRegionServer extends Thread implements
     return executorService;
   }
 
+  @Override
+  public synchronized ForkJoinPool getParallelInMemoryCompactionPool() {
+    if (parallelInMemoryCompactionPool == null) {
+      parallelInMemoryCompactionPool = RegionServicesForStores.createParallelInMemoryCompactionPool(
+        conf.getInt(CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_KEY,
+          CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_DEFAULT),
+        "RS-ParallelInMemoryCompactions-" + getServerName().toShortString());
+    }
+    return parallelInMemoryCompactionPool;
+  }
+
   @Override
   public ChoreService getChoreService() {
     return choreService;
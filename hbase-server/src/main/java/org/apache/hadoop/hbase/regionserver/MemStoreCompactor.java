@@ -19,15 +19,24 @@
 package org.apache.hadoop.hbase.regionserver;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.SortedSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.MemoryCompactionPolicy;
+import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.exceptions.IllegalArgumentIOException;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.hadoop.hbase.util.CollectionBackedScanner;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +62,7 @@ public class MemStoreCompactor {
           // compactingMemStore, versionedList, isInterrupted, strategy (the reference)
           // "action" is an enum and thus it is a class with static final constants,
           // so counting only the size of the reference to it and not the size of the internals
-          + Bytes.SIZEOF_INT        // compactionKVMax
+          + 3 * Bytes.SIZEOF_INT    // compactionKVMax, parallelism, parallelMinCells
           + ClassSize.ATOMIC_BOOLEAN    // isInterrupted (the internals)
       );
 
@@ -69,6 +78,11 @@ public class MemStoreCompactor {
   // the limit to the size of the groups to be later provided to MemStoreSegmentsIterator
   private final int compactionKVMax;
 
+  // the number of key space partitions compacted in parallel, and the minimal number of cells
+  // in the pipeline for the compaction to be split into partitions
+  private final int parallelism;
+  private final int parallelMinCells;
+
   private MemStoreCompactionStrategy strategy;
 
   public MemStoreCompactor(CompactingMemStore compactingMemStore,
@@ -76,13 +90,20 @@ public class MemStoreCompactor {
     this.compactingMemStore = compactingMemStore;
     this.compactionKVMax = compactingMemStore.getConfiguration()
         .getInt(HConstants.COMPACTION_KV_MAX, HConstants.COMPACTION_KV_MAX_DEFAULT);
+    this.parallelism = compactingMemStore.getConfiguration().getInt(
+        CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_KEY,
+        CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_DEFAULT);
+    this.parallelMinCells = compactingMemStore.getConfiguration().getInt(
+        CompactingMemStore.IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_KEY,
+        CompactingMemStore.IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_DEFAULT);
     initiateCompactionStrategy(compactionPolicy, compactingMemStore.getConfiguration(),
         compactingMemStore.getFamilyName());
   }
 
   @Override
   public String toString() {
-    return this.strategy + ", compactionCellMax=" + this.compactionKVMax;
+    return this.strategy + ", compactionCellMax=" + this.compactionKVMax
+        + ", parallelism=" + this.parallelism;
   }
 
   /**----------------------------------------------------------------------
@@ -168,7 +189,14 @@ public class MemStoreCompactor {
       // Create one segment representing all segments in the compaction pipeline,
       // either by compaction or by merge
       if (!isInterrupted.get()) {
-        result = createSubstitution(nextStep);
+        long start = EnvironmentEdgeManager.currentTime();
+        List<Cell> splitKeys = useParallelCompaction(nextStep)
+            ? getPartitionSplitKeys(versionedList.getStoreSegments())
+            : Collections.emptyList();
+        result = splitKeys.isEmpty() ? createSubstitution(nextStep)
+            : createSubstitutionInParallel(nextStep, splitKeys);
+        compactingMemStore.getRegionServices().updateInMemoryCompaction(
+            EnvironmentEdgeManager.currentTime() - start, splitKeys.size() + 1);
       }
 
       // Substitute the pipeline with one segment
@@ -242,6 +270,111 @@ public class MemStoreCompactor {
     return result;
   }
 
+  /**
+   * The pipeline is compacted (or merged) in parallel only when the result is indexed by
+   * CellChunkMap, whose index entries can be written independently per partition, and there
+   * are enough cells to make splitting worthwhile. A compaction runs the memstore compaction hooks
+   * of the region observers, which expect to be called once per compaction, so it is not split
+   * when the region has any.
+   */
+  private boolean useParallelCompaction(MemStoreCompactionStrategy.Action action) {
+    if (parallelism <= 1
+        || compactingMemStore.getIndexType() != CompactingMemStore.IndexType.CHUNK_MAP
+        || versionedList.getNumOfCells() < parallelMinCells) {
+      return false;
+    }
+    RegionCoprocessorHost cpHost = compactingMemStore.getStore().getCoprocessorHost();
+    return action != MemStoreCompactionStrategy.Action.COMPACT || cpHost == null
+        || !cpHost.hasRegionObservers();
+  }
+
+  /**----------------------------------------------------------------------
+   * Creation of the CellChunkMap based ImmutableSegment by merge or copy-compact of the segments
+   * of the pipeline, where the key space is split on row boundaries into partitions which are
+   * compacted in parallel. The query matcher decides on versions and deletes within a row only,
+   * so the result equals that of {@link #createSubstitution(MemStoreCompactionStrategy.Action)}.
+   */
+  private ImmutableSegment createSubstitutionInParallel(MemStoreCompactionStrategy.Action action,
+      List<Cell> splitKeys) throws IOException {
+    if (action != MemStoreCompactionStrategy.Action.COMPACT
+        && action != MemStoreCompactionStrategy.Action.MERGE
+        && action != MemStoreCompactionStrategy.Action.MERGE_COUNT_UNIQUE_KEYS) {
+      throw new RuntimeException("Unknown action " + action); // sanity check
+    }
+    List<ImmutableSegment> segments = versionedList.getStoreSegments();
+    CellComparator comparator = compactingMemStore.getComparator();
+    List<MemStoreSegmentsIterator> partitions = new ArrayList<>(splitKeys.size() + 1);
+    // the partition scanners do not pin the MSLABs of the segments, do it for the whole compaction
+    segments.forEach(Segment::incScannerCount);
+    try {
+      for (int i = 0; i <= splitKeys.size(); i++) {
+        Cell from = i == 0 ? null : splitKeys.get(i - 1);
+        Cell to = i == splitKeys.size() ? null : splitKeys.get(i);
+        List<KeyValueScanner> scanners = new ArrayList<>(segments.size());
+        for (ImmutableSegment s : segments) {
+          scanners.add(new CollectionBackedScanner(getRange(s.getCellSet(), from, to),
+              comparator));
+        }
+        if (action == MemStoreCompactionStrategy.Action.COMPACT) {
+          partitions.add(new MemStoreCompactorSegmentsIterator(scanners, compactionKVMax,
+              compactingMemStore.getStore()));
+        } else {
+          partitions.add(new MemStoreMergerSegmentsIterator(comparator, compactionKVMax,
+              scanners));
+        }
+      }
+      return SegmentFactory.instance().createImmutableSegmentInParallel(
+          compactingMemStore.getConfiguration(), comparator, partitions,
+          versionedList.getNumOfCells(), segments, action,
+          compactingMemStore.getRegionServices().getParallelInMemoryCompactionPool());
+    } finally {
+      partitions.forEach(MemStoreSegmentsIterator::close);
+      segments.forEach(Segment::decScannerCount);
+    }
+  }
+
+  /**
+   * Splits the key space of the pipeline into at most {@link #parallelism} partitions of about
+   * the same number of cells, based on the cells of the biggest segment. The split keys are the
+   * first possible keys on a row so a row never spans two partitions. No split keys means the
+   * pipeline is too small to be split and is compacted as a whole.
+   */
+  private List<Cell> getPartitionSplitKeys(List<ImmutableSegment> segments) {
+    for (ImmutableSegment s : segments) {
+      s.waitForUpdates(); // to ensure all updates preceding s in-memory flush have completed
+    }
+    ImmutableSegment biggest = segments.get(0);
+    for (ImmutableSegment s : segments) {
+      if (s.getCellsCount() > biggest.getCellsCount()) {
+        biggest = s;
+      }
+    }
+    List<Cell> splitKeys = new ArrayList<>(parallelism - 1);
+    int stride = Math.max(1, biggest.getCellsCount() / parallelism);
+    int idx = 0;
+    Cell lastSplitKey = null;
+    for (Cell c : biggest.getCellSet()) {
+      if (idx > 0 && idx % stride == 0 && splitKeys.size() < parallelism - 1
+          && (lastSplitKey == null || !CellUtil.matchingRows(lastSplitKey, c))) {
+        lastSplitKey = PrivateCellUtil.createFirstOnRow(c);
+        splitKeys.add(lastSplitKey);
+      }
+      idx++;
+    }
+    return splitKeys;
+  }
+
+  private static SortedSet<Cell> getRange(CellSet cellSet, Cell from, Cell to) {
+    if (from == null && to == null) {
+      return cellSet;
+    } else if (from == null) {
+      return cellSet.headSet(to, false);
+    } else if (to == null) {
+      return cellSet.tailSet(from, true);
+    }
+    return cellSet.subSet(from, true, to, false);
+  }
+
   @VisibleForTesting
   void initiateCompactionStrategy(MemoryCompactionPolicy compType,
       Configuration configuration, String cfName) throws IllegalArgumentIOException {
@@ -63,6 +63,17 @@ public class MemStoreCompactorSegmentsIterator extends MemStoreSegmentsIterator
     refillKVS();
   }
 
+  /**
+   * C-tor to be used when compacting a key range of the pipeline only. The given scanners must
+   * cover whole rows, as the query matcher decides on versions and deletes per row.
+   */
+  public MemStoreCompactorSegmentsIterator(List<KeyValueScanner> scanners, int compactionKVMax,
+      HStore store) throws IOException {
+    super(compactionKVMax);
+    compactingScanner = createScanner(store, scanners);
+    refillKVS();
+  }
+
   @Override
   public boolean hasNext() {
     if (kvsIterator == null) { // for the case when the result is empty
@@ -51,6 +51,17 @@ public class MemStoreMergerSegmentsIterator extends MemStoreSegmentsIterator {
     heap = new KeyValueHeap(scanners, comparator);
   }
 
+  /**
+   * C-tor to be used when merging a key range of the pipeline only, the given scanners are
+   * expected to be bounded to that range.
+   */
+  public MemStoreMergerSegmentsIterator(CellComparator comparator, int compactionKVMax,
+      List<KeyValueScanner> scanners) throws IOException {
+    super(compactionKVMax);
+    this.scanners.addAll(scanners);
+    heap = new KeyValueHeap(this.scanners, comparator);
+  }
+
   @Override
   public boolean hasNext() {
     if (closed) {
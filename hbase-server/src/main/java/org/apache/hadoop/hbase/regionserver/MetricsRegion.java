@@ -71,6 +71,20 @@ public class MetricsRegion {
     source.updateIncrement();
   }
 
+  /**
+   * @param hit whether a get was served out of the region's row cache
+   */
+  public void updateRowCache(boolean hit) {
+    source.updateRowCache(hit);
+  }
+
+  /**
+   * @param nanos time a row lock acquisition waited for the lock
+   */
+  public void updateRowLockWait(final long nanos) {
+    source.updateRowLockWait(nanos / 1000);
+  }
+
   MetricsRegionSource getSource() {
     return source;
   }
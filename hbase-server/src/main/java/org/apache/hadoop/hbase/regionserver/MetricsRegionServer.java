@@ -244,6 +244,13 @@ public class MetricsRegionServer {
 
   }
 
+  public void updateInMemoryCompaction(long t, boolean parallel) {
+    serverSource.updateInMemoryCompactionTime(t);
+    if (parallel) {
+      serverSource.updateParallelInMemoryCompactionTime(t);
+    }
+  }
+
   public void updateCompaction(String table, boolean isMajor, long t, int inputFileCount, int outputFileCount,
       long inputBytes, long outputBytes) {
     serverSource.updateCompactionTime(isMajor, t);
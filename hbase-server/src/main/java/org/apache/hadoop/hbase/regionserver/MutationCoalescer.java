@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellBuilderType;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.ExtendedCellBuilderFactory;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HConstants.OperationStatusCode;
+import org.apache.hadoop.hbase.client.Append;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
+import org.apache.hadoop.hbase.io.ByteArrayOutputStream;
+import org.apache.hadoop.hbase.ipc.RpcCall;
+import org.apache.hadoop.hbase.ipc.RpcServer;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.HashedBytes;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces concurrent {@link Increment}s, or {@link Append}s, on the same row of a region into a
+ * single mutation, so that hot counter rows pay for one row lock, one read of the current values
+ * and one WAL append per batch of handlers instead of per request.
+ * <p>
+ * Each caller queues its mutation on the row and then takes the row's combiner lock. Whoever gets
+ * the lock drains the queue, sums the increment amounts (or concatenates the appended values, in
+ * queue order) per column and applies the result through the regular batch mutate path. The
+ * individual results are derived from the combined one by backing out the deltas queued after
+ * each mutation. Callers finding their mutation done once they get the lock simply return.
+ * <p>
+ * Only mutations without attributes (so no TTL, ACL or visibility labels), without a time range
+ * and with the default durability are coalesced. The combined WAL edit can carry a single nonce
+ * only, so mutations with a nonce are not coalesced when the region server tracks nonces, as a
+ * client retry after a region server failure would otherwise be applied twice. Coprocessors see the
+ * combined mutation rather than the individual ones, hence this is opt in, per table, through
+ * {@link #COALESCING_ENABLED_KEY}.
+ * <p>
+ * Waiting for the combiner lock is bounded the same way as waiting for a row lock, by
+ * {@code hbase.rowlock.wait.duration} and the deadline of the current rpc call.
+ */
+@InterfaceAudience.Private
+class MutationCoalescer {
+  private static final Logger LOG = LoggerFactory.getLogger(MutationCoalescer.class);
+
+  public static final String COALESCING_ENABLED_KEY = "hbase.region.increment.coalescing.enabled";
+  public static final boolean DEFAULT_COALESCING_ENABLED = false;
+
+  /** Maximum number of mutations combined into one. */
+  public static final String COALESCING_MAX_BATCH_KEY =
+      "hbase.region.increment.coalescing.max.batch";
+  public static final int DEFAULT_COALESCING_MAX_BATCH = 1000;
+
+  private static final class Pending {
+    final Mutation mutation;
+    // set under the row's combiner lock, read by the owner once it gets the same lock
+    boolean done;
+    Result result;
+
+    Pending(Mutation mutation) {
+      this.mutation = mutation;
+    }
+  }
+
+  private static final class PendingQueue {
+    final Queue<Pending> pendings = new ConcurrentLinkedQueue<>();
+    final ReentrantLock combinerLock = new ReentrantLock();
+  }
+
+  private final HRegion region;
+  private final int maxBatch;
+  private final ConcurrentMap<HashedBytes, PendingQueue> increments = new ConcurrentHashMap<>();
+  private final ConcurrentMap<HashedBytes, PendingQueue> appends = new ConcurrentHashMap<>();
+
+  MutationCoalescer(HRegion region, Configuration conf) {
+    this.region = region;
+    this.maxBatch = Math.max(1, conf.getInt(COALESCING_MAX_BATCH_KEY,
+      DEFAULT_COALESCING_MAX_BATCH));
+  }
+
+  /**
+   * @return whether the given increment or append may be combined with others on the same row
+   */
+  boolean canCoalesce(Mutation mutation, long nonce) {
+    if (nonce != HConstants.NO_NONCE && region.rsServices != null
+        && region.rsServices.getNonceManager() != null) {
+      return false;
+    }
+    if (!mutation.getAttributesMap().isEmpty()
+        || mutation.getDurability() != Durability.USE_DEFAULT) {
+      return false;
+    }
+    if (mutation instanceof Increment) {
+      if (!((Increment) mutation).getTimeRange().isAllTime()) {
+        return false;
+      }
+      for (List<Cell> cells : mutation.getFamilyCellMap().values()) {
+        for (Cell cell : cells) {
+          if (cell.getValueLength() != Bytes.SIZEOF_LONG) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return mutation instanceof Append && ((Append) mutation).getTimeRange().isAllTime();
+  }
+
+  /**
+   * Applies the given mutation, possibly combined with concurrent ones on the same row.
+   * @return the result of the mutation, or null if it could not be coalesced and the caller has to
+   *   apply it itself
+   */
+  Result coalesce(Mutation mutation) throws IOException {
+    assert mutation instanceof Increment || mutation instanceof Append;
+    ConcurrentMap<HashedBytes, PendingQueue> queues =
+        mutation instanceof Increment ? increments : appends;
+    HashedBytes row = new HashedBytes(mutation.getRow());
+    Pending pending = new Pending(mutation);
+    PendingQueue queue = queues.computeIfAbsent(row, k -> new PendingQueue());
+    queue.pendings.add(pending);
+    lockCombiner(queue, pending, row);
+    try {
+      while (!pending.done) {
+        combine(queue);
+      }
+      // Safe to drop even if somebody is just adding to it, as every caller that queues a
+      // mutation goes on to take the combiner lock of the queue it added to.
+      if (queue.pendings.isEmpty()) {
+        queues.remove(row, queue);
+      }
+    } finally {
+      queue.combinerLock.unlock();
+    }
+    return pending.result;
+  }
+
+  /**
+   * Takes the combiner lock of the queue, waiting at most as long as for a row lock. Gives up, by
+   * taking the mutation back out of the queue, only if no other caller has started to apply it.
+   */
+  private void lockCombiner(PendingQueue queue, Pending pending, HashedBytes row)
+      throws IOException {
+    int timeout = region.getRowLockWaitDuration();
+    boolean reachDeadlineFirst = false;
+    Optional<RpcCall> call = RpcServer.getCurrentCall();
+    if (call.isPresent()) {
+      long deadline = call.get().getDeadline();
+      if (deadline < Long.MAX_VALUE) {
+        int timeToDeadline = (int) (deadline - System.currentTimeMillis());
+        if (timeToDeadline <= timeout) {
+          reachDeadlineFirst = true;
+          timeout = timeToDeadline;
+        }
+      }
+    }
+    try {
+      if (queue.combinerLock.tryLock(Math.max(0, timeout), TimeUnit.MILLISECONDS)) {
+        return;
+      }
+    } catch (InterruptedException ie) {
+      if (queue.pendings.remove(pending)) {
+        throw region.throwOnInterrupt(ie);
+      }
+      // already being applied by the lock holder, we have to wait for its result
+      Thread.currentThread().interrupt();
+      queue.combinerLock.lock();
+      return;
+    }
+    if (!queue.pendings.remove(pending)) {
+      // already being applied by the lock holder, which will release the lock once it is done
+      queue.combinerLock.lock();
+      return;
+    }
+    String message = "Timed out waiting for lock for row: " + row + " in region "
+        + region.getRegionInfo().getEncodedName();
+    if (reachDeadlineFirst) {
+      throw new TimeoutIOException(message);
+    }
+    throw new IOException(message);
+  }
+
+  private void combine(PendingQueue queue) {
+    List<Pending> batch = new ArrayList<>();
+    Pending pending;
+    while (batch.size() < maxBatch && (pending = queue.pendings.poll()) != null) {
+      batch.add(pending);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      if (batch.size() == 1) {
+        batch.get(0).result = apply(batch.get(0).mutation);
+      } else {
+        boolean isIncrement = batch.get(0).mutation instanceof Increment;
+        Mutation mutation = isIncrement ? combineIncrements(batch) : combineAppends(batch);
+        splitResult(batch, apply(mutation), isIncrement);
+      }
+    } catch (IOException e) {
+      LOG.debug("Failed to apply {} coalesced mutations in region {}, applying them one by one",
+        batch.size(), region, e);
+      // results stay null, each caller falls back to applying its own mutation
+    } finally {
+      for (Pending p : batch) {
+        p.done = true;
+      }
+    }
+  }
+
+  private Result apply(Mutation mutation) throws IOException {
+    OperationStatus status = region.doBatchMutate(mutation, true);
+    if (status.getOperationStatusCode() != OperationStatusCode.SUCCESS) {
+      throw new IOException(status.getExceptionMsg());
+    }
+    return status.getResult() != null ? status.getResult() : Result.EMPTY_RESULT;
+  }
+
+  private static Increment combineIncrements(List<Pending> batch) {
+    NavigableMap<byte[], NavigableMap<byte[], Long>> amounts =
+        new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Pending pending : batch) {
+      for (List<Cell> cells : pending.mutation.getFamilyCellMap().values()) {
+        for (Cell cell : cells) {
+          amounts.computeIfAbsent(CellUtil.cloneFamily(cell),
+            k -> new TreeMap<>(Bytes.BYTES_COMPARATOR))
+            .merge(CellUtil.cloneQualifier(cell), toLong(cell), Long::sum);
+        }
+      }
+    }
+    Increment increment = new Increment(batch.get(0).mutation.getRow());
+    for (Map.Entry<byte[], NavigableMap<byte[], Long>> family : amounts.entrySet()) {
+      for (Map.Entry<byte[], Long> column : family.getValue().entrySet()) {
+        increment.addColumn(family.getKey(), column.getKey(), column.getValue());
+      }
+    }
+    return increment;
+  }
+
+  private static Append combineAppends(List<Pending> batch) {
+    NavigableMap<byte[], NavigableMap<byte[], ByteArrayOutputStream>> values =
+        new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Pending pending : batch) {
+      for (List<Cell> cells : pending.mutation.getFamilyCellMap().values()) {
+        for (Cell cell : cells) {
+          values.computeIfAbsent(CellUtil.cloneFamily(cell),
+            k -> new TreeMap<>(Bytes.BYTES_COMPARATOR))
+            .computeIfAbsent(CellUtil.cloneQualifier(cell),
+              k -> new ByteArrayOutputStream(Bytes.SIZEOF_LONG))
+            .write(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+        }
+      }
+    }
+    Append append = new Append(batch.get(0).mutation.getRow());
+    for (Map.Entry<byte[], NavigableMap<byte[], ByteArrayOutputStream>> family :
+        values.entrySet()) {
+      for (Map.Entry<byte[], ByteArrayOutputStream> column : family.getValue().entrySet()) {
+        append.addColumn(family.getKey(), column.getKey(), column.getValue().toByteArray());
+      }
+    }
+    return append;
+  }
+
+  /**
+   * Derives the result of every mutation in the batch from the combined result, walking the batch
+   * backwards and backing out the delta of each mutation from the running column values.
+   */
+  private static void splitResult(List<Pending> batch, Result combined, boolean isIncrement) {
+    // family -> qualifier -> amount (increments) or length (appends) queued after the current one
+    NavigableMap<byte[], NavigableMap<byte[], Long>> after = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (int i = batch.size() - 1; i >= 0; i--) {
+      Pending pending = batch.get(i);
+      List<Cell> cells = new ArrayList<>();
+      for (List<Cell> deltas : pending.mutation.getFamilyCellMap().values()) {
+        for (Cell delta : deltas) {
+          NavigableMap<byte[], Long> columns = after.computeIfAbsent(
+            CellUtil.cloneFamily(delta), k -> new TreeMap<>(Bytes.BYTES_COMPARATOR));
+          byte[] qualifier = CellUtil.cloneQualifier(delta);
+          long backedOut = columns.getOrDefault(qualifier, 0L);
+          Cell current = combined.getColumnLatestCell(CellUtil.cloneFamily(delta), qualifier);
+          if (current != null) {
+            byte[] value;
+            if (isIncrement) {
+              value = Bytes.toBytes(toLong(current) - backedOut);
+            } else {
+              value = new byte[current.getValueLength() - (int) backedOut];
+              System.arraycopy(current.getValueArray(), current.getValueOffset(), value, 0,
+                value.length);
+            }
+            cells.add(ExtendedCellBuilderFactory.create(CellBuilderType.DEEP_COPY)
+              .setRow(current.getRowArray(), current.getRowOffset(), current.getRowLength())
+              .setFamily(current.getFamilyArray(), current.getFamilyOffset(),
+                current.getFamilyLength())
+              .setQualifier(qualifier).setTimestamp(current.getTimestamp())
+              .setType(current.getType()).setValue(value).build());
+          }
+          columns.put(qualifier,
+            backedOut + (isIncrement ? toLong(delta) : delta.getValueLength()));
+        }
+      }
+      boolean returnResults = isIncrement ? ((Increment) pending.mutation).isReturnResults()
+          : ((Append) pending.mutation).isReturnResults();
+      if (returnResults) {
+        cells.sort(CellComparator.getInstance());
+        pending.result = Result.create(cells);
+      } else {
+        pending.result = Result.EMPTY_RESULT;
+      }
+    }
+  }
+
+  private static long toLong(Cell cell) {
+    return Bytes.toLong(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+  }
+}
@@ -305,6 +305,17 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
    */
   private static final boolean DEFAULT_REJECT_BATCH_ROWS_OVER_THRESHOLD = false;
 
+  /**
+   * Max size in bytes of the first response of a scanner. When positive, the max result size of
+   * the responses of a scanner ramps up: every response may be twice as large as the previous one,
+   * up to the max result size of the scan. The client gets the first rows of a large scan without
+   * waiting for a whole batch of the max result size, at the cost of more round trips. Each
+   * response is still the complete answer to one next call, nothing is sent before it is done.
+   * Default 0, disabled.
+   */
+  public static final String SCANNER_INITIAL_RESULT_SIZE_KEY =
+    "hbase.server.scanner.initial.result.size";
+
   // Request counter. (Includes requests that are not serviced by regions.)
   // Count only once for requests with multiple actions like multi/caching-scan/replayBatch
   final LongAdder requestCount = new LongAdder();
@@ -331,6 +342,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
   @VisibleForTesting
   protected final HRegionServer regionServer;
   private final long maxScannerResultSize;
+  private final long scannerInitialResultSize;
 
   // The reference to the priority extraction function
   private final PriorityFunction priority;
@@ -463,10 +475,12 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     private byte[] rowOfLastPartialResult;
     private boolean needCursor;
     private boolean fullRegionScan;
+    // max result size of the next response when ramping up the result size, 0 if not ramping up
+    private long rampedResultSize;
 
     public RegionScannerHolder(String scannerName, RegionScanner s, HRegion r,
         RpcCallback closeCallBack, RpcCallback shippedCallback, boolean needCursor,
-        boolean fullRegionScan) {
+        boolean fullRegionScan, long initialResultSize) {
       this.scannerName = scannerName;
       this.s = s;
       this.r = r;
@@ -474,6 +488,21 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
       this.shippedCallback = shippedCallback;
       this.needCursor = needCursor;
       this.fullRegionScan = fullRegionScan;
+      this.rampedResultSize = initialResultSize;
+    }
+
+    /**
+     * Ramps up the max result size of the responses of the scanner, see
+     * {@link #SCANNER_INITIAL_RESULT_SIZE_KEY}.
+     * @return the max result size of the next response, which is twice the one of the previous
+     *   response, up to the given max result size
+     */
+    long nextRampedResultSize(long maxResultSize) {
+      long size = Math.min(rampedResultSize, maxResultSize);
+      if (rampedResultSize < maxResultSize) {
+        rampedResultSize = Math.min(rampedResultSize * 2, maxResultSize);
+      }
+      return size;
     }
 
     public long getNextCallSeq() {
@@ -1174,6 +1203,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     maxScannerResultSize = conf.getLong(
       HConstants.HBASE_SERVER_SCANNER_MAX_RESULT_SIZE_KEY,
       HConstants.DEFAULT_HBASE_SERVER_SCANNER_MAX_RESULT_SIZE);
+    scannerInitialResultSize = conf.getLong(SCANNER_INITIAL_RESULT_SIZE_KEY, 0);
     rpcTimeout = conf.getInt(
       HConstants.HBASE_RPC_TIMEOUT_KEY,
       HConstants.DEFAULT_HBASE_RPC_TIMEOUT);
@@ -1345,7 +1375,7 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
 
     RegionScannerHolder rsh =
         new RegionScannerHolder(scannerName, s, r, closeCallback, shippedCallback,
-          needCursor, fullRegionScan);
+          needCursor, fullRegionScan, scannerInitialResultSize);
     RegionScannerHolder existing = scanners.putIfAbsent(scannerName, rsh);
     assert existing == null : "scannerId must be unique within regionserver's whole lifecycle! " +
       scannerName;
@@ -2121,73 +2151,19 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
         // empty input
         return ReplicateWALEntryResponse.newBuilder().build();
       }
-      ByteString regionName = entries.get(0).getKey().getEncodedRegionName();
-      HRegion region = regionServer.getRegionByEncodedName(regionName.toStringUtf8());
-      RegionCoprocessorHost coprocessorHost =
-          ServerRegionReplicaUtil.isDefaultReplica(region.getRegionInfo())
-            ? region.getCoprocessorHost()
-            : null; // do not invoke coprocessors if this is a secondary region replica
-      List<Pair<WALKey, WALEdit>> walEntries = new ArrayList<>();
-
-      // Skip adding the edits to WAL if this is a secondary region replica
-      boolean isPrimary = RegionReplicaUtil.isDefaultReplica(region.getRegionInfo());
-      Durability durability = isPrimary ? Durability.USE_DEFAULT : Durability.SKIP_WAL;
-
-      for (WALEntry entry : entries) {
-        if (!regionName.equals(entry.getKey().getEncodedRegionName())) {
-          throw new NotServingRegionException("Replay request contains entries from multiple " +
-              "regions. First region:" + regionName.toStringUtf8() + " , other region:"
-              + entry.getKey().getEncodedRegionName());
-        }
-        if (regionServer.nonceManager != null && isPrimary) {
-          long nonceGroup = entry.getKey().hasNonceGroup()
-            ? entry.getKey().getNonceGroup() : HConstants.NO_NONCE;
-          long nonce = entry.getKey().hasNonce() ? entry.getKey().getNonce() : HConstants.NO_NONCE;
-          regionServer.nonceManager.reportOperationFromWal(
-              nonceGroup,
-              nonce,
-              entry.getKey().getWriteTime());
-        }
-        Pair<WALKey, WALEdit> walEntry = (coprocessorHost == null) ? null : new Pair<>();
-        List<MutationReplay> edits = WALSplitUtil.getMutationsFromWALEntry(entry,
-          cells, walEntry, durability);
-        if (coprocessorHost != null) {
-          // Start coprocessor replay here. The coprocessor is for each WALEdit instead of a
-          // KeyValue.
-          if (coprocessorHost.preWALRestore(region.getRegionInfo(), walEntry.getFirst(),
-            walEntry.getSecond())) {
-            // if bypass this log entry, ignore it ...
-            continue;
-          }
-          walEntries.add(walEntry);
-        }
-        if(edits!=null && !edits.isEmpty()) {
-          // HBASE-17924
-          // sort to improve lock efficiency
-          Collections.sort(edits, (v1, v2) -> Row.COMPARATOR.compare(v1.mutation, v2.mutation));
-          long replaySeqId = (entry.getKey().hasOrigSequenceNumber()) ?
-            entry.getKey().getOrigSequenceNumber() : entry.getKey().getLogSequenceNumber();
-          OperationStatus[] result = doReplayBatchOp(region, edits, replaySeqId);
-          // check if it's a partial success
-          for (int i = 0; result != null && i < result.length; i++) {
-            if (result[i] != OperationStatus.SUCCESS) {
-              throw new IOException(result[i].getExceptionMsg());
-            }
-          }
-        }
-      }
-
-      //sync wal at the end because ASYNC_WAL is used above
-      WAL wal = region.getWAL();
-      if (wal != null) {
-        wal.sync();
-      }
-
-      if (coprocessorHost != null) {
-        for (Pair<WALKey, WALEdit> entry : walEntries) {
-          coprocessorHost.postWALRestore(region.getRegionInfo(), entry.getFirst(),
-            entry.getSecond());
+      // the entries of several regions hosted here may be batched in one request, in runs of
+      // entries of the same region
+      int start = 0;
+      while (start < entries.size()) {
+        ByteString regionName = entries.get(start).getKey().getEncodedRegionName();
+        int end = start + 1;
+        while (end < entries.size() &&
+            regionName.equals(entries.get(end).getKey().getEncodedRegionName())) {
+          end++;
         }
+        replay(regionServer.getRegionByEncodedName(regionName.toStringUtf8()),
+          entries.subList(start, end), cells);
+        start = end;
       }
       return ReplicateWALEntryResponse.newBuilder().build();
     } catch (IOException ie) {
@@ -2200,6 +2176,75 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     }
   }
 
+  /**
+   * Replays entries of a region.
+   */
+  private void replay(HRegion region, List<WALEntry> entries, CellScanner cells)
+      throws IOException {
+    RegionCoprocessorHost coprocessorHost =
+        ServerRegionReplicaUtil.isDefaultReplica(region.getRegionInfo())
+          ? region.getCoprocessorHost()
+          : null; // do not invoke coprocessors if this is a secondary region replica
+    List<Pair<WALKey, WALEdit>> walEntries = new ArrayList<>();
+
+    // Skip adding the edits to WAL if this is a secondary region replica
+    boolean isPrimary = RegionReplicaUtil.isDefaultReplica(region.getRegionInfo());
+    Durability durability = isPrimary ? Durability.USE_DEFAULT : Durability.SKIP_WAL;
+
+    for (WALEntry entry : entries) {
+      if (regionServer.nonceManager != null && isPrimary) {
+        long nonceGroup = entry.getKey().hasNonceGroup()
+          ? entry.getKey().getNonceGroup() : HConstants.NO_NONCE;
+        long nonce = entry.getKey().hasNonce() ? entry.getKey().getNonce() : HConstants.NO_NONCE;
+        regionServer.nonceManager.reportOperationFromWal(
+            nonceGroup,
+            nonce,
+            entry.getKey().getWriteTime());
+      }
+      Pair<WALKey, WALEdit> walEntry = (coprocessorHost == null) ? null : new Pair<>();
+      List<MutationReplay> edits = WALSplitUtil.getMutationsFromWALEntry(entry,
+        cells, walEntry, durability);
+      if (coprocessorHost != null) {
+        // Start coprocessor replay here. The coprocessor is for each WALEdit instead of a
+        // KeyValue.
+        if (coprocessorHost.preWALRestore(region.getRegionInfo(), walEntry.getFirst(),
+          walEntry.getSecond())) {
+          // if bypass this log entry, ignore it ...
+          continue;
+        }
+        walEntries.add(walEntry);
+      }
+      if(edits!=null && !edits.isEmpty()) {
+        // HBASE-17924
+        // sort to improve lock efficiency
+        Collections.sort(edits, (v1, v2) -> Row.COMPARATOR.compare(v1.mutation, v2.mutation));
+        long replaySeqId = (entry.getKey().hasOrigSequenceNumber()) ?
+          entry.getKey().getOrigSequenceNumber() : entry.getKey().getLogSequenceNumber();
+        OperationStatus[] result = doReplayBatchOp(region, edits, replaySeqId);
+        // check if it's a partial success
+        for (int i = 0; result != null && i < result.length; i++) {
+          if (result[i] != OperationStatus.SUCCESS) {
+            throw new IOException(result[i].getExceptionMsg());
+          }
+        }
+      }
+    }
+
+    //sync wal at the end because ASYNC_WAL is used above
+    WAL wal = region.getWAL();
+    if (wal != null) {
+      wal.sync();
+    }
+
+    if (coprocessorHost != null) {
+      for (Pair<WALKey, WALEdit> entry : walEntries) {
+        coprocessorHost.postWALRestore(region.getRegionInfo(), entry.getFirst(),
+          entry.getSecond());
+      }
+    }
+    region.updateReplicaStaleness(entries.get(entries.size() - 1).getKey().getWriteTime());
+  }
+
   private void checkShouldRejectReplicationRequest(List<WALEntry> entries) throws IOException {
     ReplicationSourceService replicationSource = regionServer.getReplicationSourceService();
     if (replicationSource == null || entries.isEmpty()) {
@@ -2565,28 +2610,32 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
             .create(results, get.isCheckExistenceOnly() ? !results.isEmpty() : null, stale);
       }
     }
-    Scan scan = new Scan(get);
-    if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
-      scan.setLoadColumnFamiliesOnDemand(region.isLoadingCfsOnDemandDefault());
-    }
-    RegionScannerImpl scanner = null;
-    try {
-      scanner = region.getScanner(scan);
-      scanner.next(results);
-    } finally {
-      if (scanner != null) {
-        if (closeCallBack == null) {
-          // If there is a context then the scanner can be added to the current
-          // RpcCallContext. The rpc callback will take care of closing the
-          // scanner, for eg in case
-          // of get()
-          context.setCallBack(scanner);
-        } else {
-          // The call is from multi() where the results from the get() are
-          // aggregated and then send out to the
-          // rpc. The rpccall back will close all such scanners created as part
-          // of multi().
-          closeCallBack.addScanner(scanner);
+    if (!region.getFromRowCache(get, results)) {
+      long rowCacheToken = region.startRowCacheRead(get);
+      Scan scan = new Scan(get);
+      if (scan.getLoadColumnFamiliesOnDemandValue() == null) {
+        scan.setLoadColumnFamiliesOnDemand(region.isLoadingCfsOnDemandDefault());
+      }
+      RegionScannerImpl scanner = null;
+      try {
+        scanner = region.getScanner(scan);
+        scanner.next(results);
+        region.cacheRow(get, results, rowCacheToken);
+      } finally {
+        if (scanner != null) {
+          if (closeCallBack == null) {
+            // If there is a context then the scanner can be added to the current
+            // RpcCallContext. The rpc callback will take care of closing the
+            // scanner, for eg in case
+            // of get()
+            context.setCallBack(scanner);
+          } else {
+            // The call is from multi() where the results from the get() are
+            // aggregated and then send out to the
+            // rpc. The rpccall back will close all such scanners created as part
+            // of multi().
+            closeCallBack.addScanner(scanner);
+          }
         }
       }
     }
@@ -3255,6 +3304,10 @@ public class RSRpcServices implements HBaseRPCErrorHandler,
     } else {
       maxResultSize = maxQuotaResultSize;
     }
+    if (rsh.rampedResultSize > 0) {
+      // The calls of a scanner do not run concurrently, see checkScanNextCallSeq
+      maxResultSize = rsh.nextRampedResultSize(maxResultSize);
+    }
     // This is cells inside a row. Default size is 10 so if many versions or many cfs,
     // then we'll resize. Resizings show in profiler. Set it higher than 10. For now
     // arbitrary 32. TODO: keep record of general size of results being returned.
@@ -268,6 +268,11 @@ public interface Region extends ConfigurationObserver {
    * NOTE: the boolean passed here has changed. It used to be a boolean that
    * stated whether or not to wait on the lock. Now it is whether it an exclusive
    * lock is requested.
+   * <p>
+   * NOTE: when the row locks are striped, see {@code hbase.rowlock.stripes}, two rows may share
+   * a lock. Callers holding the lock of a row while locking another one must then lock the rows
+   * in ascending order of their stripe, like the batch mutations of the region do, else two of
+   * them could each hold a stripe the other one waits for.
    *
    * @param row The row actions will be performed against
    * @param readLock is the lock reader or writer. True indicates that a non-exclusive
@@ -305,6 +305,18 @@ public class RegionCoprocessorHost
     this.hasCustomPostScannerFilterRow = hasCustomPostScannerFilterRow;
   }
 
+  /**
+   * @return whether any of the loaded coprocessors is a region observer
+   */
+  public boolean hasRegionObservers() {
+    for (RegionCoprocessorEnvironment env : coprocEnvironments) {
+      if (env.getInstance().getRegionObserver().isPresent()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   static List<TableCoprocessorAttribute> getTableCoprocessorAttrsFromSchema(Configuration conf,
       TableDescriptor htd) {
     return htd.getCoprocessorDescriptors().stream().map(cp -> {
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.Tag;
+import org.apache.hadoop.hbase.TagType;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptor;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.IsolationLevel;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.HashedBytes;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A per region cache of whole row results, for read-after-write workloads where gets mostly hit
+ * rows that were just written and would otherwise merge the memstore with every store file of the
+ * row's stores.
+ * <p>
+ * The cache is populated by gets reading a whole row and serves every get of a cached row that
+ * only selects columns, i.e. without filter, time range, extra versions or per family limits.
+ * Rows are invalidated once a mutation on them becomes visible, see
+ * {@code HRegion#doMiniBatchMutate}. To avoid a get that started before such an invalidation
+ * caching the row as it was before the mutation, a get only caches its result if no invalidation
+ * hit the row, or another row sharing its invalidation stripe, since the get started.
+ * <p>
+ * The cache holds on heap copies of the cells and is bounded by {@link #ROW_CACHE_SIZE_KEY} bytes,
+ * evicting with a second chance policy. Entries expire after {@link #ROW_CACHE_MAX_AGE_KEY}, and
+ * as soon as one of their cells reaches its TTL, family or cell level, as the row read from the
+ * stores would then change. Disabled by default, can be enabled per table.
+ */
+@InterfaceAudience.Private
+public class RegionRowCache {
+
+  /** Maximum heap size of the cached rows of a region, in bytes. 0 disables the cache. */
+  public static final String ROW_CACHE_SIZE_KEY = "hbase.region.row.cache.size";
+  public static final long DEFAULT_ROW_CACHE_SIZE = 0;
+
+  /** Maximum time a row stays cached, in milliseconds. */
+  public static final String ROW_CACHE_MAX_AGE_KEY = "hbase.region.row.cache.max.age";
+  public static final long DEFAULT_ROW_CACHE_MAX_AGE = 60000;
+
+  private static final int INVALIDATION_STRIPES = 64;
+
+  private static final long ENTRY_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+      + 2 * ClassSize.REFERENCE + 3 * Bytes.SIZEOF_LONG + Bytes.SIZEOF_BOOLEAN)
+      + ClassSize.CONCURRENT_HASHMAP_ENTRY + ClassSize.ARRAYLIST;
+
+  private static final class Entry {
+    final HashedBytes row;
+    final List<Cell> cells;
+    final long heapSize;
+    final long createTime;
+    // the time the first of the cells expires
+    final long expireTime;
+    // second chance bit for eviction
+    volatile boolean accessed;
+
+    Entry(HashedBytes row, List<Cell> cells, long heapSize, long createTime, long expireTime) {
+      this.row = row;
+      this.cells = cells;
+      this.heapSize = heapSize;
+      this.createTime = createTime;
+      this.expireTime = expireTime;
+    }
+  }
+
+  private final ConcurrentHashMap<HashedBytes, Entry> rows = new ConcurrentHashMap<>();
+  private final AtomicLongArray invalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+  private final AtomicLong heapSize = new AtomicLong();
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final long maxHeapSize;
+  private final long maxAge;
+  // the TTLs of the families with one, in milliseconds
+  private final Map<byte[], Long> ttls = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+
+  RegionRowCache(Configuration conf, TableDescriptor htd) {
+    this.maxHeapSize = conf.getLong(ROW_CACHE_SIZE_KEY, DEFAULT_ROW_CACHE_SIZE);
+    this.maxAge = conf.getLong(ROW_CACHE_MAX_AGE_KEY, DEFAULT_ROW_CACHE_MAX_AGE);
+    for (ColumnFamilyDescriptor family : htd.getColumnFamilies()) {
+      long ttl = HStore.determineTTLFromFamily(family);
+      if (ttl != Long.MAX_VALUE) {
+        ttls.put(family.getName(), ttl);
+      }
+    }
+  }
+
+  static boolean isEnabled(Configuration conf) {
+    return conf.getLong(ROW_CACHE_SIZE_KEY, DEFAULT_ROW_CACHE_SIZE) > 0;
+  }
+
+  /**
+   * @return whether the get can be served from, or populate, the cache. The get must have its
+   *   families set, see {@link HRegion#prepareGet(Get)}.
+   */
+  static boolean isCacheable(Get get) {
+    return get.getFilter() == null && get.getMaxVersions() == 1 && get.getTimeRange().isAllTime()
+        && get.getColumnFamilyTimeRange().isEmpty() && get.getMaxResultsPerColumnFamily() < 0
+        && get.getRowOffsetPerColumnFamily() <= 0
+        && get.getIsolationLevel() == IsolationLevel.READ_COMMITTED;
+  }
+
+  /**
+   * @return the cells of the cached row selected by the get, or null if the row is not cached
+   */
+  List<Cell> get(Get get) {
+    Entry entry = rows.get(new HashedBytes(get.getRow()));
+    if (entry == null) {
+      return null;
+    }
+    long now = EnvironmentEdgeManager.currentTime();
+    if (now - entry.createTime > maxAge || now >= entry.expireTime) {
+      remove(entry);
+      return null;
+    }
+    entry.accessed = true;
+    Map<byte[], NavigableSet<byte[]>> families = get.getFamilyMap();
+    List<Cell> cells = new ArrayList<>(entry.cells.size());
+    for (Cell cell : entry.cells) {
+      for (Map.Entry<byte[], NavigableSet<byte[]>> family : families.entrySet()) {
+        if (CellUtil.matchingFamily(cell, family.getKey())) {
+          NavigableSet<byte[]> qualifiers = family.getValue();
+          if (qualifiers == null || qualifiers.isEmpty()
+              || qualifiers.contains(CellUtil.cloneQualifier(cell))) {
+            cells.add(cell);
+          }
+          break;
+        }
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * To be called before reading the row from the stores.
+   * @return the token to pass to {@link #cache(Get, List, long, int)}
+   */
+  long startRead(byte[] row) {
+    return invalidations.get(stripe(row));
+  }
+
+  /**
+   * Caches the result of a get reading the whole row, unless the row was invalidated since the
+   * given token was taken.
+   * @param numFamilies number of families of the region
+   */
+  void cache(Get get, List<Cell> results, long token, int numFamilies) {
+    if (!isWholeRow(get, numFamilies)) {
+      return;
+    }
+    int stripe = stripe(get.getRow());
+    if (invalidations.get(stripe) != token) {
+      return;
+    }
+    List<Cell> cells = new ArrayList<>(results.size());
+    long size = ENTRY_OVERHEAD + ClassSize.align(get.getRow().length + ClassSize.ARRAY);
+    long expireTime = Long.MAX_VALUE;
+    for (Cell cell : results) {
+      // results may point into memstore chunks or block cache buffers, keep our own copy
+      KeyValue kv = KeyValueUtil.copyToNewKeyValue(cell);
+      size += kv.heapSize() + ClassSize.REFERENCE;
+      cells.add(kv);
+      expireTime = Math.min(expireTime, getExpireTime(kv));
+    }
+    long now = EnvironmentEdgeManager.currentTime();
+    if (size > maxHeapSize || now >= expireTime) {
+      return;
+    }
+    HashedBytes row = new HashedBytes(get.getRow());
+    Entry entry = new Entry(row, cells, size, now, expireTime);
+    Entry previous = rows.put(row, entry);
+    heapSize.addAndGet(previous == null ? size : size - previous.heapSize);
+    if (invalidations.get(stripe) != token) {
+      // raced with a mutation of the row, what we read may already be stale
+      remove(entry);
+      return;
+    }
+    if (heapSize.get() > maxHeapSize) {
+      evict();
+    }
+  }
+
+  /**
+   * Drops the row from the cache. Must be called once a mutation of the row is visible to readers.
+   */
+  void invalidate(byte[] row) {
+    invalidations.incrementAndGet(stripe(row));
+    Entry entry = rows.remove(new HashedBytes(row));
+    if (entry != null) {
+      heapSize.addAndGet(-entry.heapSize);
+    }
+  }
+
+  /**
+   * Drops every row, for changes not going through mutations, like bulk loads.
+   */
+  void clear() {
+    for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+      invalidations.incrementAndGet(i);
+    }
+    for (Entry entry : rows.values()) {
+      remove(entry);
+    }
+  }
+
+  @VisibleForTesting
+  long getHeapSize() {
+    return heapSize.get();
+  }
+
+  @VisibleForTesting
+  int size() {
+    return rows.size();
+  }
+
+  private void remove(Entry entry) {
+    if (rows.remove(entry.row, entry)) {
+      heapSize.addAndGet(-entry.heapSize);
+    }
+  }
+
+  private void evict() {
+    // one evicting thread is enough, the others go on serving their gets
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      // Two passes at most, the first one may only clear the accessed bits.
+      for (int pass = 0; pass < 2 && heapSize.get() > maxHeapSize; pass++) {
+        Iterator<Entry> it = rows.values().iterator();
+        while (it.hasNext() && heapSize.get() > maxHeapSize) {
+          Entry entry = it.next();
+          if (entry.accessed) {
+            entry.accessed = false;
+          } else {
+            remove(entry);
+          }
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @return the time the cell reaches the TTL of its family or its own, Long.MAX_VALUE if none
+   */
+  private long getExpireTime(Cell cell) {
+    long ttl = ttls.getOrDefault(CellUtil.cloneFamily(cell), Long.MAX_VALUE);
+    Optional<Tag> ttlTag = PrivateCellUtil.getTag(cell, TagType.TTL_TAG_TYPE);
+    if (ttlTag.isPresent()) {
+      // cell TTLs are in milliseconds and cannot extend the family TTL
+      ttl = Math.min(ttl, Tag.getValueAsLong(ttlTag.get()));
+    }
+    long expireTime = cell.getTimestamp() + ttl;
+    // no TTL, or one so long it overflows
+    return ttl == Long.MAX_VALUE || expireTime < cell.getTimestamp() ? Long.MAX_VALUE : expireTime;
+  }
+
+  private static boolean isWholeRow(Get get, int numFamilies) {
+    if (get.numFamilies() != numFamilies) {
+      return false;
+    }
+    for (NavigableSet<byte[]> qualifiers : get.getFamilyMap().values()) {
+      if (qualifiers != null && !qualifiers.isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int stripe(byte[] row) {
+    return (Bytes.hashCode(row) & Integer.MAX_VALUE) % INVALIDATION_STRIPES;
+  }
+}
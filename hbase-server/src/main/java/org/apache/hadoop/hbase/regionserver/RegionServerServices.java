@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.hadoop.hbase.Abortable;
 import org.apache.hadoop.hbase.Server;
 import org.apache.hadoop.hbase.TableDescriptors;
@@ -203,6 +204,12 @@ public interface RegionServerServices extends Server, MutableOnlineRegions, Favo
    */
   ExecutorService getExecutorService();
 
+  /**
+   * @return the fork-join pool shared by the stores of this server for the in-memory compactions
+   *   which are split into partitions of the key space, created on first use
+   */
+  ForkJoinPool getParallelInMemoryCompactionPool();
+
   /**
    * Only required for "old" log replay; if it's removed, remove this.
    * @return The RegionServer's NonceManager
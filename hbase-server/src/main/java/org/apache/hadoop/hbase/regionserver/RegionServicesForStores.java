@@ -18,6 +18,8 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -105,6 +107,50 @@ public class RegionServicesForStores {
     }
   }
 
+  /**
+   * Creates a fork-join pool of daemon threads for the in-memory compactions which are split into
+   * partitions of the key space.
+   */
+  static ForkJoinPool createParallelInMemoryCompactionPool(int parallelism, String name) {
+    return new ForkJoinPool(Math.max(1, parallelism), pool -> {
+      ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      t.setName(name + "-" + t.getPoolIndex());
+      t.setDaemon(true);
+      return t;
+    }, null, false);
+  }
+
+  private static ForkJoinPool PARALLEL_INMEMORY_COMPACTION_POOL_FOR_TEST;
+
+  private static synchronized ForkJoinPool getParallelInMemoryCompactionPoolForTest() {
+    if (PARALLEL_INMEMORY_COMPACTION_POOL_FOR_TEST == null) {
+      PARALLEL_INMEMORY_COMPACTION_POOL_FOR_TEST =
+        createParallelInMemoryCompactionPool(10, "ParallelInMemoryCompactionsForTest");
+    }
+    return PARALLEL_INMEMORY_COMPACTION_POOL_FOR_TEST;
+  }
+
+  ForkJoinPool getParallelInMemoryCompactionPool() {
+    ForkJoinPool pool = rsServices != null ? rsServices.getParallelInMemoryCompactionPool() : null;
+    if (pool == null) {
+      // this could only happen in tests
+      pool = getParallelInMemoryCompactionPoolForTest();
+    }
+    return pool;
+  }
+
+  /**
+   * Update the in-memory compaction metrics of the region server, if any.
+   * @param t time it took, in milliseconds
+   * @param partitions number of partitions of the key space compacted in parallel, 1 if the
+   *   compaction was not split
+   */
+  void updateInMemoryCompaction(long t, int partitions) {
+    if (rsServices != null && rsServices.getMetrics() != null) {
+      rsServices.getMetrics().updateInMemoryCompaction(t, partitions > 1);
+    }
+  }
+
   public long getMemStoreFlushSize() {
     return region.getMemStoreFlushSize();
   }
@@ -25,6 +25,7 @@ import org.apache.yetus.audience.InterfaceAudience;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A singleton store segment factory.
@@ -101,6 +102,19 @@ public final class SegmentFactory {
 
   }
 
+  // create new CellChunkMap based immutable segment from compacting or merging old immutable
+  // segments, where each iterator covers one partition of the key space and the partitions are
+  // processed in parallel
+  public ImmutableSegment createImmutableSegmentInParallel(final Configuration conf,
+      final CellComparator comparator, List<MemStoreSegmentsIterator> partitions, int numOfCells,
+      List<ImmutableSegment> segments, MemStoreCompactionStrategy.Action action,
+      ForkJoinPool pool) {
+    MemStoreLAB memStoreLAB = action == MemStoreCompactionStrategy.Action.COMPACT ?
+        MemStoreLAB.newInstance(conf) : getMergedMemStoreLAB(conf, segments);
+    return new CellChunkImmutableSegment(comparator, partitions, memStoreLAB, numOfCells, action,
+        pool);
+  }
+
   // create flat immutable segment from non-flat immutable segment
   // for flattening
   public ImmutableSegment createImmutableSegmentByFlattening(
@@ -38,6 +38,7 @@ import org.apache.hadoop.hbase.client.IsolationLevel;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.LimitScope;
 import org.apache.hadoop.hbase.regionserver.ScannerContext.NextState;
 import org.apache.hadoop.hbase.regionserver.handler.ParallelSeekHandler;
@@ -585,6 +586,11 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       scannerContext.clearProgress();
     }
 
+    // the store scanner outlives the call which opened it, take the timer of the current one
+    if (matcher.getFilter() != null) {
+      matcher.setPhaseTimer(CallPhaseTimer.current());
+    }
+
     int count = 0;
     long totalBytesRead = 0;
     // track the cells for metrics only if it is a user read request.
@@ -33,6 +33,7 @@ import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.TagType;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.regionserver.RegionCoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.ScanInfo;
 import org.apache.hadoop.hbase.regionserver.ShipperListener;
@@ -129,6 +130,9 @@ public abstract class ScanQueryMatcher implements ShipperListener {
   /** Row the query is on */
   protected Cell currentRow;
 
+  /** Timer of the call the scan is serving, if the call and the filter are timed */
+  protected CallPhaseTimer phaseTimer;
+
   protected ScanQueryMatcher(Cell startKey, ScanInfo scanInfo, ColumnTracker columns,
       long oldestUnexpiredTS, long now) {
     this.rowComparator = scanInfo.getComparator();
@@ -350,6 +354,13 @@ public abstract class ScanQueryMatcher implements ShipperListener {
    */
   public abstract Cell getNextKeyHint(Cell cell) throws IOException;
 
+  /**
+   * Sets the timer the evaluation of the filter is added to, null to not time it.
+   */
+  public void setPhaseTimer(CallPhaseTimer phaseTimer) {
+    this.phaseTimer = phaseTimer;
+  }
+
   @Override
   public void beforeShipped() throws IOException {
     if (this.currentRow != null) {
@@ -29,6 +29,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.Filter.ReturnCode;
 import org.apache.hadoop.hbase.io.TimeRange;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.regionserver.RegionCoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.ScanInfo;
 import org.apache.hadoop.hbase.util.Pair;
@@ -152,8 +153,19 @@ public abstract class UserScanQueryMatcher extends ScanQueryMatcher {
         break;
     }
 
-    return filter == null ? matchCode : mergeFilterResponse(cell, matchCode,
-      filter.filterCell(cell));
+    return filter == null ? matchCode : mergeFilterResponse(cell, matchCode, filterCell(cell));
+  }
+
+  private ReturnCode filterCell(Cell cell) throws IOException {
+    if (phaseTimer == null) {
+      return filter.filterCell(cell);
+    }
+    long start = phaseTimer.start();
+    try {
+      return filter.filterCell(cell);
+    } finally {
+      phaseTimer.stop(CallPhaseTimer.Phase.FILTER, start);
+    }
   }
 
   /**
@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.lang.management.MemoryType;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -63,6 +64,7 @@ import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.exceptions.TimeoutIOException;
 import org.apache.hadoop.hbase.io.util.MemorySizeUtil;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.ipc.RpcServer;
 import org.apache.hadoop.hbase.ipc.ServerCall;
 import org.apache.hadoop.hbase.log.HBaseMarkers;
@@ -268,6 +270,11 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
    */
   volatile W writer;
 
+  /**
+   * Path of the current log file, set when {@link #writer} is replaced, while no entry is appended.
+   */
+  private volatile Path writerPath;
+
   // Last time to check low replication on hlog's pipeline
   private volatile long lastTimeCheckLowReplication = EnvironmentEdgeManager.currentTime();
 
@@ -808,6 +815,7 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
 
   protected final void logRollAndSetupWalProps(Path oldPath, Path newPath, long oldFileLen) {
     int oldNumEntries = this.numEntries.getAndSet(0);
+    this.writerPath = newPath;
     String newPathString = newPath != null ? CommonFSUtils.getPath(newPath) : null;
     if (oldPath != null) {
       this.walFile2Props.put(oldPath,
@@ -852,7 +860,12 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
         if (closed) {
           throw new IOException("WAL has been closed");
         } else {
+          CallPhaseTimer phaseTimer = CallPhaseTimer.current();
+          long syncStart = phaseTimer != null ? phaseTimer.start() : 0;
           syncFuture.get(walSyncTimeoutNs);
+          if (phaseTimer != null) {
+            phaseTimer.stop(CallPhaseTimer.Phase.WAL_SYNC, syncStart);
+          }
         }
       }
     } catch (TimeoutIOException tioe) {
@@ -1066,6 +1079,7 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
         i.visitLogEntryBeforeWrite(entry.getKey(), entry.getEdit());
       }
     }
+    long position = listeners.isEmpty() ? 0 : writer.getLength();
     doAppend(writer, entry);
     assert highestUnsyncedTxid < entry.getTxid();
     highestUnsyncedTxid = entry.getTxid();
@@ -1079,6 +1093,12 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
     coprocessorHost.postWALWrite(entry.getRegionInfo(), entry.getKey(), entry.getEdit());
     // Update metrics.
     postAppend(entry, EnvironmentEdgeManager.currentTime() - start);
+    if (!listeners.isEmpty()) {
+      long length = writer.getLength();
+      for (WALActionsListener listener : listeners) {
+        listener.postWrite(writerPath, position, length, entry.getKey(), entry.getEdit());
+      }
+    }
     numEntries.incrementAndGet();
     return true;
   }
@@ -1124,9 +1144,26 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
     }
   }
 
+  protected final void postGroupCommit(long timeInNanos, int handlerSyncs, long syncedBytes) {
+    if (!listeners.isEmpty()) {
+      for (WALActionsListener listener : listeners) {
+        listener.postGroupCommit(timeInNanos, handlerSyncs, syncedBytes);
+      }
+    }
+  }
+
   protected final long stampSequenceIdAndPublishToRingBuffer(RegionInfo hri, WALKeyImpl key,
     WALEdit edits, boolean inMemstore, RingBuffer<RingBufferTruck> ringBuffer)
     throws IOException {
+    return stampSequenceIdAndPublishToRingBuffer(hri, key, edits, inMemstore, ringBuffer, null);
+  }
+
+  /**
+   * @param encodedCells the cells of the edits already encoded, see {@link FSWALEntry}, or null
+   */
+  protected final long stampSequenceIdAndPublishToRingBuffer(RegionInfo hri, WALKeyImpl key,
+    WALEdit edits, boolean inMemstore, RingBuffer<RingBufferTruck> ringBuffer,
+    ByteBuffer encodedCells) throws IOException {
     if (this.closed) {
       throw new IOException(
         "Cannot append; log is closed, regionName = " + hri.getRegionNameAsString());
@@ -1139,7 +1176,8 @@ public abstract class AbstractFSWAL<W extends WriterBase> implements WAL {
     ServerCall<?> rpcCall = RpcServer.getCurrentCall().filter(c -> c instanceof ServerCall)
       .filter(c -> c.getCellScanner() != null).map(c -> (ServerCall) c).orElse(null);
     try (TraceScope scope = TraceUtil.createTrace(implClassName + ".append")) {
-      FSWALEntry entry = new FSWALEntry(txid, key, edits, hri, inMemstore, rpcCall);
+      FSWALEntry entry =
+        new FSWALEntry(txid, key, edits, hri, inMemstore, rpcCall, encodedCells);
       entry.stampRegionSequenceId(we);
       ringBuffer.get(txid).load(entry);
     } finally {
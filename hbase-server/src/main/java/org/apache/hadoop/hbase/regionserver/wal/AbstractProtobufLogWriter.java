@@ -25,6 +25,7 @@ import java.io.OutputStream;
 import java.security.Key;
 import java.security.SecureRandom;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
 import javax.crypto.spec.SecretKeySpec;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -67,6 +68,9 @@ public abstract class AbstractProtobufLogWriter {
   // maximum size of the wal Trailer in bytes. If a user writes/reads a trailer with size larger
   // than this size, it is written/read respectively, with a WARN message in the log.
   protected int trailerWarnSize;
+  // whether the cells are encoded with an uncompressed WALCellCodec, so encoded cells of a
+  // FSWALEntry can be written as is
+  protected boolean plainCellEncoding;
 
   protected AtomicLong length = new AtomicLong();
 
@@ -146,7 +150,9 @@ public abstract class AbstractProtobufLogWriter {
       try {
         this.compressionContext =
           new CompressionContext(LRUDictionary.class, CommonFSUtils.isRecoveredEdits(path),
-            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true));
+            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true),
+            conf.getBoolean(CompressionContext.ENABLE_WAL_VALUE_COMPRESSION, false),
+            conf.getInt(CompressionContext.WAL_VALUE_COMPRESSION_LEVEL, Deflater.BEST_SPEED));
       } catch (Exception e) {
         throw new IOException("Failed to initiate CompressionContext", e);
       }
@@ -167,8 +173,11 @@ public abstract class AbstractProtobufLogWriter {
 
     boolean doTagCompress = doCompress
         && conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true);
+    boolean doValueCompress = doCompress
+        && conf.getBoolean(CompressionContext.ENABLE_WAL_VALUE_COMPRESSION, false);
     length.set(writeMagicAndWALHeader(ProtobufLogReader.PB_WAL_MAGIC, buildWALHeader(conf,
-      WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress))));
+      WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress)
+        .setHasValueCompression(doValueCompress))));
 
     initAfterHeader(doCompress);
 
@@ -187,6 +196,7 @@ public abstract class AbstractProtobufLogWriter {
     } else {
       this.compressor = WALCellCodec.getNoneCompressor();
     }
+    this.plainCellEncoding = !doCompress;
   }
 
   protected void initAfterHeader(boolean doCompress) throws IOException {
@@ -26,7 +26,9 @@ import com.lmax.disruptor.Sequence;
 import com.lmax.disruptor.Sequencer;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Deque;
 import java.util.Iterator;
@@ -49,9 +51,16 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Abortable;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.PrivateCellUtil;
 import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.io.ByteBufferOutputStream;
 import org.apache.hadoop.hbase.io.asyncfs.AsyncFSOutput;
+import org.apache.hadoop.hbase.io.asyncfs.ExcludeDatanodeManager;
+import org.apache.hadoop.hbase.io.asyncfs.FanOutOneBlockAsyncDFSOutput;
 import org.apache.hadoop.hbase.trace.TraceUtil;
 import org.apache.hadoop.hbase.wal.AsyncFSWALProvider;
 import org.apache.hadoop.hbase.wal.WALEdit;
@@ -79,6 +88,7 @@ import org.apache.hbase.thirdparty.io.netty.util.concurrent.SingleThreadEventExe
  * <ol>
  * <li>In the caller thread(typically, in the rpc handler thread):
  * <ol>
+ * <li>If {@link #ASYNC_WAL_PRE_SERIALIZE_CELLS} is set, encode the cells of the entry.</li>
  * <li>Insert the entry into 'waitingConsumePayloads'. Use ringbuffer sequence as txid.</li>
  * <li>Schedule the consumer task if needed. See {@link #shouldScheduleConsumer()} for more details.
  * </li>
@@ -140,10 +150,28 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
   public static final String WAL_BATCH_SIZE = "hbase.wal.batch.size";
   public static final long DEFAULT_WAL_BATCH_SIZE = 64L * 1024;
 
+  /**
+   * The time window, in microseconds, a sync of the WAL is held back after the first sync request
+   * of a group so the sync requests of other handlers and regions may join the group and be
+   * released by the same sync. The group is synced earlier when its unsynced data reaches
+   * {@link #WAL_BATCH_SIZE}. The default of 0 syncs as soon as there is nothing left to append.
+   */
+  public static final String WAL_GROUP_COMMIT_WINDOW_US = "hbase.wal.group.commit.window.us";
+  public static final long DEFAULT_WAL_GROUP_COMMIT_WINDOW_US = 0L;
+
   public static final String ASYNC_WAL_USE_SHARED_EVENT_LOOP =
     "hbase.wal.async.use-shared-event-loop";
   public static final boolean DEFAULT_ASYNC_WAL_USE_SHARED_EVENT_LOOP = false;
 
+  /**
+   * Whether to encode the cells of an entry in the caller thread, so the single consumer thread
+   * only encodes the key and copies the encoded cells to the writer. Has no effect when the WAL is
+   * compressed or encrypted, whose encodings depend on the state of the writer, or when there are
+   * WAL coprocessors, which may modify the entry before it is written.
+   */
+  public static final String ASYNC_WAL_PRE_SERIALIZE_CELLS = "hbase.wal.async.preserialize.cells";
+  public static final boolean DEFAULT_ASYNC_WAL_PRE_SERIALIZE_CELLS = false;
+
   public static final String ASYNC_WAL_WAIT_ON_SHUTDOWN_IN_SECONDS =
     "hbase.wal.async.wait.on.shutdown.seconds";
   public static final int DEFAULT_ASYNC_WAL_WAIT_ON_SHUTDOWN_IN_SECONDS = 5;
@@ -183,11 +211,29 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
 
   private final long batchSize;
 
+  private final long groupCommitWindowNs;
+
+  // whether a sync request of the group to be synced next was received
+  private boolean groupCommitStarted;
+
+  // the time the first sync request of the group to be synced next was received, only valid if
+  // groupCommitStarted is true
+  private long groupCommitStartNs;
+
+  // whether there is a scheduled task to wake up the consumer once the group commit window ends
+  private final AtomicBoolean groupCommitScheduled = new AtomicBoolean(false);
+
   private final ExecutorService closeExecutor = Executors.newCachedThreadPool(
     new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Close-WAL-Writer-%d").build());
 
   private volatile AsyncFSOutput fsOut;
 
+  // the datanodes which were slow to ack, kept out of the pipeline of the next writer
+  private final ExcludeDatanodeManager excludeDatanodeManager;
+
+  // the datanodes of the pipeline of fsOut whose acks are tracked by the listeners
+  private String[] ackTrackedDatanodes = new String[0];
+
   private final Deque<FSWALEntry> toWriteAppends = new ArrayDeque<>();
 
   private final Deque<FSWALEntry> unackedAppends = new ArrayDeque<>();
@@ -204,6 +250,9 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
 
   private final int waitOnShutdownInSeconds;
 
+  // to encode the cells in the caller thread, null if we do not
+  private final WALCellCodec preSerializeCodec;
+
   public AsyncFSWAL(FileSystem fs, Path rootDir, String logDir, String archiveDir,
       Configuration conf, List<WALActionsListener> listeners, boolean failIfWALExists,
       String prefix, String suffix, EventLoopGroup eventLoopGroup,
@@ -220,6 +269,7 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
         suffix);
     this.eventLoopGroup = eventLoopGroup;
     this.channelClass = channelClass;
+    this.excludeDatanodeManager = new ExcludeDatanodeManager(conf);
     Supplier<Boolean> hasConsumerTask;
     if (conf.getBoolean(ASYNC_WAL_USE_SHARED_EVENT_LOOP, DEFAULT_ASYNC_WAL_USE_SHARED_EVENT_LOOP)) {
       this.consumeExecutor = eventLoopGroup.next();
@@ -260,8 +310,18 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     waitingConsumePayloadsGatingSequence.set(waitingConsumePayloads.getCursor());
 
     batchSize = conf.getLong(WAL_BATCH_SIZE, DEFAULT_WAL_BATCH_SIZE);
+    groupCommitWindowNs = TimeUnit.MICROSECONDS.toNanos(
+      conf.getLong(WAL_GROUP_COMMIT_WINDOW_US, DEFAULT_WAL_GROUP_COMMIT_WINDOW_US));
     waitOnShutdownInSeconds = conf.getInt(ASYNC_WAL_WAIT_ON_SHUTDOWN_IN_SECONDS,
       DEFAULT_ASYNC_WAL_WAIT_ON_SHUTDOWN_IN_SECONDS);
+    if (conf.getBoolean(ASYNC_WAL_PRE_SERIALIZE_CELLS, DEFAULT_ASYNC_WAL_PRE_SERIALIZE_CELLS) &&
+      !conf.getBoolean(HConstants.ENABLE_WAL_COMPRESSION, false) &&
+      !conf.getBoolean(HConstants.ENABLE_WAL_ENCRYPTION, false) &&
+      coprocessorHost.getCoprocessors().isEmpty()) {
+      preSerializeCodec = WALCellCodec.create(conf, null);
+    } else {
+      preSerializeCodec = null;
+    }
   }
 
   private static boolean waitingRoll(int epochAndState) {
@@ -333,7 +393,8 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     }
   }
 
-  private void syncCompleted(AsyncWriter writer, long processedTxid, long startTimeNs) {
+  private void syncCompleted(AsyncWriter writer, long processedTxid, long startTimeNs,
+      boolean groupStarted, long groupStartNs, long syncedBytes) {
     highestSyncedTxid.set(processedTxid);
     for (Iterator<FSWALEntry> iter = unackedAppends.iterator(); iter.hasNext();) {
       FSWALEntry entry = iter.next();
@@ -344,7 +405,12 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
         break;
       }
     }
-    postSync(System.nanoTime() - startTimeNs, finishSync(true));
+    int handlerSyncs = finishSync(true);
+    long nowNs = System.nanoTime();
+    postSync(nowNs - startTimeNs, handlerSyncs);
+    if (groupStarted) {
+      postGroupCommit(nowNs - groupStartNs, handlerSyncs, syncedBytes);
+    }
     if (trySetReadyForRolling()) {
       // we have just finished a roll, then do not need to check for log rolling, the writer will be
       // closed soon.
@@ -377,6 +443,10 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
   }
 
   private void sync(AsyncWriter writer) {
+    final long syncedBytes = writer.getLength() - fileLengthAtLastSync;
+    final boolean groupStarted = groupCommitStarted;
+    final long groupStartNs = groupCommitStartNs;
+    groupCommitStarted = false;
     fileLengthAtLastSync = writer.getLength();
     long currentHighestProcessedAppendTxid = highestProcessedAppendTxid;
     boolean shouldUseHsync =
@@ -388,7 +458,8 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
       if (error != null) {
         syncFailed(epoch, error);
       } else {
-        syncCompleted(writer, currentHighestProcessedAppendTxid, startTimeNs);
+        syncCompleted(writer, currentHighestProcessedAppendTxid, startTimeNs, groupStarted,
+          groupStartNs, syncedBytes);
       }
     }, consumeExecutor);
   }
@@ -419,6 +490,16 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
 
   // try advancing the highestSyncedTxid as much as possible
   private int finishSync(boolean addSyncTrace) {
+    int finished = finishSync0(addSyncTrace);
+    if (syncFutures.isEmpty()) {
+      // the sync requests of the group may also be finished without a sync, the next sync request
+      // starts a new group then
+      groupCommitStarted = false;
+    }
+    return finished;
+  }
+
+  private int finishSync0(boolean addSyncTrace) {
     if (unackedAppends.isEmpty()) {
       // All outstanding appends have been acked.
       if (toWriteAppends.isEmpty()) {
@@ -588,6 +669,10 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
           break;
         case SYNC:
           syncFutures.add(truck.unloadSync());
+          if (!groupCommitStarted) {
+            groupCommitStarted = true;
+            groupCommitStartNs = System.nanoTime();
+          }
           break;
         default:
           LOG.warn("RingBufferTruck with unexpected type: " + truck.type());
@@ -615,8 +700,11 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
           // we will give up consuming so if there are some unsynced data we need to issue a sync.
           if (writer.getLength() > fileLengthAtLastSync && !syncFutures.isEmpty() &&
             syncFutures.last().getTxid() > highestProcessedAppendTxidAtLastSync) {
-            // no new data in the ringbuffer and we have at least one sync request
-            sync(writer);
+            // no new data in the ringbuffer and we have at least one sync request, unless the
+            // sync is held back for the group commit
+            if (!delaySyncForGroupCommit()) {
+              sync(writer);
+            }
           }
           return;
         } else {
@@ -631,6 +719,30 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     consumeExecutor.execute(consumer);
   }
 
+  /**
+   * Decide whether to hold back the sync of the current group as its group commit window has not
+   * ended yet. If so make sure the consumer is woken up at the end of the window, the sync requests
+   * and appends received in the meantime will join the group.
+   */
+  private boolean delaySyncForGroupCommit() {
+    if (groupCommitWindowNs <= 0 || !groupCommitStarted) {
+      return false;
+    }
+    long remainingNs = groupCommitStartNs + groupCommitWindowNs - System.nanoTime();
+    if (remainingNs <= 0) {
+      return false;
+    }
+    if (groupCommitScheduled.compareAndSet(false, true)) {
+      eventLoopGroup.next().schedule(() -> {
+        groupCommitScheduled.set(false);
+        if (shouldScheduleConsumer()) {
+          consumeExecutor.execute(consumer);
+        }
+      }, remainingNs, TimeUnit.NANOSECONDS);
+    }
+    return true;
+  }
+
   private boolean shouldScheduleConsumer() {
     int currentEpochAndState = epochAndState;
     if (writerBroken(currentEpochAndState) || waitingRoll(currentEpochAndState)) {
@@ -651,14 +763,33 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
       if (markerEditOnly() && !edits.isMetaEdit()) {
         throw new IOException("WAL is closing, only marker edit is allowed");
       }
+    ByteBuffer encodedCells = preSerializeCodec != null ? encodeCells(edits) : null;
     long txid = stampSequenceIdAndPublishToRingBuffer(hri, key, edits, inMemstore,
-      waitingConsumePayloads);
+      waitingConsumePayloads, encodedCells);
     if (shouldScheduleConsumer()) {
       consumeExecutor.execute(consumer);
     }
     return txid;
   }
 
+  private ByteBuffer encodeCells(WALEdit edits) throws IOException {
+    List<Cell> cells = edits.getCells();
+    if (cells.isEmpty()) {
+      return null;
+    }
+    int size = 0;
+    for (Cell cell : cells) {
+      size += PrivateCellUtil.estimatedSerializedSizeOf(cell);
+    }
+    ByteBufferOutputStream out = new ByteBufferOutputStream(size);
+    Codec.Encoder encoder = preSerializeCodec.getEncoder(out);
+    for (Cell cell : cells) {
+      encoder.write(cell);
+    }
+    encoder.flush();
+    return out.getByteBuffer();
+  }
+
   @Override
   public void sync() throws IOException {
     sync(useHsync);
@@ -713,7 +844,7 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
 
   protected final AsyncWriter createAsyncWriter(FileSystem fs, Path path) throws IOException {
     return AsyncFSWALProvider.createAsyncWriter(conf, fs, path, false, this.blocksize,
-      eventLoopGroup, channelClass);
+      eventLoopGroup, channelClass, excludeDatanodeManager);
   }
 
   @Override
@@ -766,6 +897,13 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     this.writer = nextWriter;
     if (nextWriter instanceof AsyncProtobufLogWriter) {
       this.fsOut = ((AsyncProtobufLogWriter) nextWriter).getOutput();
+      String[] datanodes = new String[0];
+      if (fsOut instanceof FanOutOneBlockAsyncDFSOutput) {
+        ((FanOutOneBlockAsyncDFSOutput) fsOut).setAckListener(this::postDatanodeAck);
+        datanodes = Arrays.stream(fsOut.getPipeline()).map(DatanodeInfo::getXferAddr)
+          .toArray(String[]::new);
+      }
+      postPipelineChange(datanodes);
     }
     this.fileLengthAtLastSync = nextWriter.getLength();
     this.highestProcessedAppendTxidAtLastSync = 0L;
@@ -789,6 +927,7 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     waitForSafePoint();
     closeWriter(this.writer);
     this.writer = null;
+    postPipelineChange(new String[0]);
     closeExecutor.shutdown();
     try {
       if (!closeExecutor.awaitTermination(waitOnShutdownInSeconds, TimeUnit.SECONDS)) {
@@ -837,6 +976,23 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     return output != null ? output.getPipeline() : new DatanodeInfo[0];
   }
 
+  private void postDatanodeAck(DatanodeInfo datanode, long timeInNanos) {
+    excludeDatanodeManager.onAck(datanode, timeInNanos);
+    if (!listeners.isEmpty()) {
+      String xferAddr = datanode.getXferAddr();
+      for (WALActionsListener listener : listeners) {
+        listener.postDatanodeAck(xferAddr, timeInNanos);
+      }
+    }
+  }
+
+  private void postPipelineChange(String[] datanodes) {
+    for (WALActionsListener listener : listeners) {
+      listener.postPipelineChange(ackTrackedDatanodes, datanodes);
+    }
+    ackTrackedDatanodes = datanodes;
+  }
+
   @Override
   int getLogReplication() {
     return getPipeline().length;
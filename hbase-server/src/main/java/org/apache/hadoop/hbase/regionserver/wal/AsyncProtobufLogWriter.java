@@ -32,6 +32,7 @@ import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.io.ByteBufferWriter;
 import org.apache.hadoop.hbase.io.asyncfs.AsyncFSOutput;
 import org.apache.hadoop.hbase.io.asyncfs.AsyncFSOutputHelper;
+import org.apache.hadoop.hbase.io.asyncfs.ExcludeDatanodeManager;
 import org.apache.hadoop.hbase.util.CommonFSUtils.StreamLacksCapabilityException;
 import org.apache.hadoop.hbase.wal.AsyncFSWALProvider;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
@@ -59,6 +60,8 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
 
   private final Class<? extends Channel> channelClass;
 
+  private ExcludeDatanodeManager excludeDatanodeManager;
+
   private volatile AsyncFSOutput output;
   /**
    * Save {@link AsyncFSOutput#getSyncedLength()} when {@link #output} is closed.
@@ -114,6 +117,14 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
     this.channelClass = channelClass;
   }
 
+  /**
+   * Set the slow datanodes to keep out of the pipeline of the output, must be called before
+   * {@code init}.
+   */
+  public void setExcludeDatanodeManager(ExcludeDatanodeManager excludeDatanodeManager) {
+    this.excludeDatanodeManager = excludeDatanodeManager;
+  }
+
   /*
    * @return class name which is recognized by hbase-1.x to avoid ProtobufLogReader throwing error:
    *   IOException: Got unknown writer class: AsyncProtobufLogWriter
@@ -123,6 +134,10 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
     return "ProtobufLogWriter";
   }
 
+  /**
+   * Writes the cells encoded in the {@link FSWALEntry} by the caller as is if they are encoded the
+   * way we would encode them, i.e. when this writer neither compresses nor encrypts.
+   */
   @Override
   public void append(Entry entry) {
     int buffered = output.buffered();
@@ -133,6 +148,13 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
     } catch (IOException e) {
       throw new AssertionError("should not happen", e);
     }
+    ByteBuffer encodedCells =
+      entry instanceof FSWALEntry ? ((FSWALEntry) entry).getEncodedCells() : null;
+    if (encodedCells != null && plainCellEncoding) {
+      output.write(encodedCells.duplicate());
+      length.addAndGet(output.buffered() - buffered);
+      return;
+    }
     try {
       for (Cell cell : entry.getEdit().getCells()) {
         cellEncoder.write(cell);
@@ -178,7 +200,7 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
   protected void initOutput(FileSystem fs, Path path, boolean overwritable, int bufferSize,
       short replication, long blockSize) throws IOException, StreamLacksCapabilityException {
     this.output = AsyncFSOutputHelper.createOutput(fs, path, overwritable, false, replication,
-        blockSize, eventLoopGroup, channelClass);
+        blockSize, eventLoopGroup, channelClass, excludeDatanodeManager);
     this.asyncOutputWrapper = new OutputStreamWrapper(output);
   }
 
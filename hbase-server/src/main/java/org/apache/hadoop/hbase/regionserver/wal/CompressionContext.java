@@ -18,12 +18,24 @@
 
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+import org.apache.hadoop.hbase.ByteBufferExtendedCell;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.io.util.StreamUtils;
+import org.apache.hadoop.io.IOUtils;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.hadoop.hbase.io.TagCompressionContext;
 import org.apache.hadoop.hbase.io.util.Dictionary;
@@ -37,6 +49,12 @@ public class CompressionContext {
   static final String ENABLE_WAL_TAGS_COMPRESSION =
       "hbase.regionserver.wal.tags.enablecompression";
 
+  public static final String ENABLE_WAL_VALUE_COMPRESSION =
+      "hbase.regionserver.wal.value.enablecompression";
+
+  public static final String WAL_VALUE_COMPRESSION_LEVEL =
+      "hbase.regionserver.wal.value.compression.level";
+
   public enum DictionaryIndex {
     REGION, TABLE, FAMILY, QUALIFIER, ROW
   }
@@ -45,10 +63,26 @@ public class CompressionContext {
       new EnumMap<>(DictionaryIndex.class);
   // Context used for compressing tags
   TagCompressionContext tagCompressionContext = null;
+  // Context used for compressing values
+  ValueCompressor valueCompressor = null;
 
   public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
       boolean hasTagCompression) throws SecurityException, NoSuchMethodException,
       InstantiationException, IllegalAccessException, InvocationTargetException {
+    this(dictType, recoveredEdits, hasTagCompression, false);
+  }
+
+  public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
+      boolean hasTagCompression, boolean hasValueCompression) throws SecurityException,
+      NoSuchMethodException, InstantiationException, IllegalAccessException,
+      InvocationTargetException {
+    this(dictType, recoveredEdits, hasTagCompression, hasValueCompression, Deflater.BEST_SPEED);
+  }
+
+  public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
+      boolean hasTagCompression, boolean hasValueCompression, int valueCompressionLevel)
+      throws SecurityException, NoSuchMethodException, InstantiationException,
+      IllegalAccessException, InvocationTargetException {
     Constructor<? extends Dictionary> dictConstructor =
         dictType.getConstructor();
     for (DictionaryIndex dictionaryIndex : DictionaryIndex.values()) {
@@ -70,6 +104,9 @@ public class CompressionContext {
     if (hasTagCompression) {
       tagCompressionContext = new TagCompressionContext(dictType, Short.MAX_VALUE);
     }
+    if (hasValueCompression) {
+      valueCompressor = new ValueCompressor(valueCompressionLevel);
+    }
   }
 
   public Dictionary getDictionary(Enum dictIndex) {
@@ -83,5 +120,111 @@ public class CompressionContext {
     if (tagCompressionContext != null) {
       tagCompressionContext.clear();
     }
+    if (valueCompressor != null) {
+      valueCompressor.clear();
+    }
+  }
+
+  /**
+   * Compresses cell values with a single deflate stream per WAL file. Every value is sync flushed
+   * so that it can be decoded on its own, but the compression window is carried over from one
+   * value to the next, so the many small and similar values of a WAL compress well where a
+   * compressor reset per value would gain next to nothing. Like the dictionaries, the stream
+   * starts over with each new WAL file, and readers have to decode the values of a file in order.
+   */
+  static class ValueCompressor {
+    private final int level;
+    private Deflater deflater;
+    private Inflater inflater;
+    // reused buffers, for compressed bytes and for values not backed by an array
+    private byte[] compressed = new byte[4096];
+    private byte[] uncompressed = new byte[0];
+    private final byte[] trailer = new byte[1];
+
+    ValueCompressor(int level) {
+      this.level = level;
+    }
+
+    /**
+     * Writes the compressed value of the cell, preceded by its compressed length.
+     */
+    void compress(OutputStream out, Cell cell) throws IOException {
+      int valueLength = cell.getValueLength();
+      if (valueLength == 0) {
+        return;
+      }
+      if (deflater == null) {
+        deflater = new Deflater(level, true);
+      }
+      if (cell instanceof ByteBufferExtendedCell) {
+        if (uncompressed.length < valueLength) {
+          uncompressed = new byte[valueLength];
+        }
+        CellUtil.copyValueTo(cell, uncompressed, 0);
+        deflater.setInput(uncompressed, 0, valueLength);
+      } else {
+        deflater.setInput(cell.getValueArray(), cell.getValueOffset(), valueLength);
+      }
+      int length = 0;
+      for (;;) {
+        length += deflater.deflate(compressed, length, compressed.length - length,
+          Deflater.SYNC_FLUSH);
+        if (length < compressed.length) {
+          break;
+        }
+        // a full output buffer may leave pending output, retry with more room
+        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+      }
+      StreamUtils.writeRawVInt32(out, length);
+      out.write(compressed, 0, length);
+    }
+
+    /**
+     * Reads a value written by {@link #compress(OutputStream, Cell)} into the given array.
+     */
+    void decompress(InputStream in, byte[] to, int offset, int valueLength) throws IOException {
+      if (valueLength == 0) {
+        return;
+      }
+      if (inflater == null) {
+        inflater = new Inflater(true);
+      }
+      int length = StreamUtils.readRawVarint32(in);
+      if (compressed.length < length) {
+        compressed = new byte[length];
+      }
+      // read the whole compressed value first, a truncated entry must not advance the inflater
+      IOUtils.readFully(in, compressed, 0, length);
+      inflater.setInput(compressed, 0, length);
+      try {
+        int read = 0;
+        while (read < valueLength) {
+          int n = inflater.inflate(to, offset + read, valueLength - read);
+          if (n == 0) {
+            throw new IOException("Truncated compressed value, expected " + valueLength
+              + " bytes but got " + read);
+          }
+          read += n;
+        }
+        // consume the empty block marking the flush, so the next value starts from fresh input
+        while (inflater.getRemaining() > 0) {
+          int remaining = inflater.getRemaining();
+          if (inflater.inflate(trailer) != 0 || inflater.getRemaining() == remaining) {
+            throw new IOException("Compressed value longer than expected " + valueLength);
+          }
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt compressed value", e);
+      }
+    }
+
+    void clear() {
+      if (deflater != null) {
+        deflater.reset();
+      }
+      if (inflater != null) {
+        inflater.reset();
+      }
+    }
   }
 }
@@ -18,6 +18,7 @@
 package org.apache.hadoop.hbase.regionserver.wal;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -66,6 +67,8 @@ class FSWALEntry extends Entry {
   private final transient RegionInfo regionInfo;
   private final transient Set<byte[]> familyNames;
   private final transient ServerCall<?> rpcCall;
+  // the cells of the edit already encoded by the caller, or null
+  private final transient ByteBuffer encodedCells;
 
   /**
    * @param inMemstore If true, then this is a data edit, one that came from client. If false, it
@@ -73,7 +76,17 @@ class FSWALEntry extends Entry {
    */
   FSWALEntry(final long txid, final WALKeyImpl key, final WALEdit edit, final RegionInfo regionInfo,
     final boolean inMemstore, ServerCall<?> rpcCall) {
+    this(txid, key, edit, regionInfo, inMemstore, rpcCall, null);
+  }
+
+  /**
+   * @param encodedCells the cells of the edit encoded with an uncompressed {@link WALCellCodec},
+   *   see {@link AsyncProtobufLogWriter#append(Entry)}, or null
+   */
+  FSWALEntry(final long txid, final WALKeyImpl key, final WALEdit edit, final RegionInfo regionInfo,
+    final boolean inMemstore, ServerCall<?> rpcCall, ByteBuffer encodedCells) {
     super(key, edit);
+    this.encodedCells = encodedCells;
     this.inMemstore = inMemstore;
     this.closeRegion = !inMemstore && edit.isRegionCloseMarker();
     this.regionInfo = regionInfo;
@@ -147,6 +160,13 @@ class FSWALEntry extends Entry {
     return regionSequenceId;
   }
 
+  /**
+   * @return the cells of the edit already encoded, or null if they were not.
+   */
+  ByteBuffer getEncodedCells() {
+    return encodedCells;
+  }
+
   /**
    * @return the family names which are effected by this edit.
    */
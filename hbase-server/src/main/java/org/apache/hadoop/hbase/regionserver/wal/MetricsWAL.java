@@ -41,19 +41,61 @@ public class MetricsWAL implements WALActionsListener {
   private static final Logger LOG = LoggerFactory.getLogger(MetricsWAL.class);
 
   private final MetricsWALSource source;
+  // the wal group of the WAL, when it should get its own metrics
+  private final String group;
 
   public MetricsWAL() {
-    this(CompatibilitySingletonFactory.getInstance(MetricsWALSource.class));
+    this((String) null);
+  }
+
+  /**
+   * @param group name of the wal group, to also report the appends and syncs of the WAL under,
+   *   see {@link org.apache.hadoop.hbase.wal.RegionGroupingProvider}
+   */
+  public MetricsWAL(String group) {
+    this(CompatibilitySingletonFactory.getInstance(MetricsWALSource.class), group);
   }
 
   @VisibleForTesting
   MetricsWAL(MetricsWALSource s) {
+    this(s, null);
+  }
+
+  @VisibleForTesting
+  MetricsWAL(MetricsWALSource s, String group) {
     this.source = s;
+    this.group = group;
   }
 
   @Override
   public void postSync(final long timeInNanos, final int handlerSyncs) {
-    source.incrementSyncTime(timeInNanos/1000000L);
+    long timeInMillis = timeInNanos / 1000000L;
+    source.incrementSyncTime(timeInMillis);
+    if (group != null) {
+      source.incrementGroupSyncTime(group, timeInMillis);
+    }
+  }
+
+  @Override
+  public void postGroupCommit(final long timeInNanos, final int handlerSyncs,
+      final long syncedBytes) {
+    source.updateGroupCommit(timeInNanos / 1000L, handlerSyncs, syncedBytes);
+  }
+
+  @Override
+  public void postDatanodeAck(final String datanode, final long timeInNanos) {
+    source.updateDatanodeAckTime(datanode, timeInNanos / 1000L);
+  }
+
+  @Override
+  public void postPipelineChange(final String[] oldDatanodes, final String[] newDatanodes) {
+    // add first, not to drop the metrics of the datanodes in both pipelines
+    for (String datanode : newDatanodes) {
+      source.addDatanode(datanode);
+    }
+    for (String datanode : oldDatanodes) {
+      source.removeDatanode(datanode);
+    }
   }
 
   @Override
@@ -64,6 +106,9 @@ public class MetricsWAL implements WALActionsListener {
     source.incrementAppendTime(time);
     source.incrementAppendSize(tableName, size);
     source.incrementWrittenBytes(size);
+    if (group != null) {
+      source.incrementGroupAppend(group, size);
+    }
 
     if (time > 1000) {
       source.incrementSlowAppendCount();
@@ -20,8 +20,8 @@ package org.apache.hadoop.hbase.regionserver.wal;
 import static org.apache.hadoop.hbase.util.ConcurrentMapUtils.computeIfAbsent;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,10 +29,9 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.util.Bytes;
-import org.apache.hadoop.hbase.util.ImmutableByteArray;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,67 +45,218 @@ import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesti
  * <p>
  * For the implementation, we assume that all the {@code encodedRegionName} passed in are gotten by
  * {@link org.apache.hadoop.hbase.client.RegionInfo#getEncodedNameAsBytes()}. So it is safe to use
- * it as a hash key. And for family name, we use {@link ImmutableByteArray} as key. This is because
- * hash based map is much faster than RBTree or CSLM and here we are on the critical write path. See
- * HBASE-16278 for more details.
+ * it as a hash key. Each region has a {@link RegionSequenceIds} holding its sequence ids in
+ * primitive arrays indexed by the ordinal of the family in the region, the order in which this
+ * instance first saw the families. As update is called per append, on the critical write path, it
+ * only does one hash lookup for the region and a scan of the few family names of the region, and
+ * does not allocate once the region and its families are known. See HBASE-16278 for the history.
  * </p>
  */
 @InterfaceAudience.Private
 class SequenceIdAccounting {
   private static final Logger LOG = LoggerFactory.getLogger(SequenceIdAccounting.class);
 
-  /**
-   * This lock ties all operations on {@link SequenceIdAccounting#flushingSequenceIds} and
-   * {@link #lowestUnflushedSequenceIds} Maps. {@link #lowestUnflushedSequenceIds} has the
-   * lowest outstanding sequence ids EXCEPT when flushing. When we flush, the current
-   * lowest set for the region/column family are moved (atomically because of this lock) to
-   * {@link #flushingSequenceIds}.
-   * 
-   * <p>The two Maps are tied by this locking object EXCEPT when we go to update the lowest
-   * entry; see {@link #lowestUnflushedSequenceIds}. In here is a putIfAbsent call on
-   * {@link #lowestUnflushedSequenceIds}. In this latter case, we will add this lowest
-   * sequence id if we find that there is no entry for the current column family. There will be no
-   * entry only if we just came up OR we have moved aside current set of lowest sequence ids
-   * because the current set are being flushed (by putting them into {@link #flushingSequenceIds}).
-   * This is how we pick up the next 'lowest' sequence id per region per column family to be used
-   * figuring what is in the next flush.
-   */
-  private final Object tieLock = new Object();
+  private static final byte[][] NO_FAMILIES = new byte[0][];
 
   /**
-   * Map of encoded region names and family names to their OLDEST -- i.e. their first,
-   * the longest-lived, their 'earliest', the 'lowest' -- sequence id.
-   *
-   * <p>When we flush, the current lowest sequence ids get cleared and added to
-   * {@link #flushingSequenceIds}. The next append that comes in, is then added
-   * here to {@link #lowestUnflushedSequenceIds} as the next lowest sequenceid.
+   * This lock ties all operations on the lowest unflushed and the flushing sequence ids of the
+   * regions. {@link RegionSequenceIds#lowest} has the lowest outstanding sequence ids EXCEPT when
+   * flushing. When we flush, the current lowest set for the region/column family are moved
+   * (atomically because of this lock) to {@link RegionSequenceIds#flushing}.
    *
-   * <p>If flush fails, currently server is aborted so no need to restore previous sequence ids.
-   * <p>Needs to be concurrent Maps because we use putIfAbsent updating oldest.
-   */
-  private final ConcurrentMap<byte[], ConcurrentMap<ImmutableByteArray, Long>>
-    lowestUnflushedSequenceIds = new ConcurrentHashMap<>();
-
-  /**
-   * Map of encoded region names and family names to their lowest or OLDEST sequence/edit id
-   * currently being flushed out to hfiles. Entries are moved here from
-   * {@link #lowestUnflushedSequenceIds} while the lock {@link #tieLock} is held
-   * (so movement between the Maps is atomic).
+   * <p>The two are tied by this locking object EXCEPT when we go to update the lowest entry in
+   * {@link #update(byte[], Set, long, boolean)}. There we compare-and-set the lowest sequence id
+   * of the family if it has none. There will be none only if we just came up OR we have moved
+   * aside current set of lowest sequence ids because the current set are being flushed. This is
+   * how we pick up the next 'lowest' sequence id per region per column family to be used figuring
+   * what is in the next flush. New families of a region are also added under this lock.
    */
-  private final Map<byte[], Map<ImmutableByteArray, Long>> flushingSequenceIds = new HashMap<>();
+  private final Object tieLock = new Object();
 
   /**
-   * <p>
-   * Map of region encoded names to the latest/highest region sequence id. Updated on each call to
-   * append.
-   * </p>
+   * Map of encoded region names to their sequence ids.
    * <p>
    * This map uses byte[] as the key, and uses reference equality. It works in our use case as we
    * use {@link org.apache.hadoop.hbase.client.RegionInfo#getEncodedNameAsBytes()} as keys. For a
-   * given region, it always returns the same array.
-   * </p>
+   * given region, it always returns the same array. Entries are removed when the region closes.
    */
-  private Map<byte[], Long> highestSequenceIds = new HashMap<>();
+  private final ConcurrentMap<byte[], RegionSequenceIds> regions = new ConcurrentHashMap<>();
+
+  /**
+   * The sequence ids of a region, indexed by family ordinal.
+   */
+  @VisibleForTesting
+  static final class RegionSequenceIds {
+
+    // the lowest sequence ids are held in chunks of CHUNK_SIZE families
+    private static final int CHUNK_SHIFT = 3;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * The families of the region, in ordinal order. Only grows, under {@link #tieLock}.
+     */
+    private volatile byte[][] families = NO_FAMILIES;
+
+    /**
+     * The OLDEST -- i.e. their first, the longest-lived, their 'earliest', the 'lowest' --
+     * sequence id of the families, or {@link HConstants#NO_SEQNUM}.
+     * <p>When we flush, the current lowest sequence ids get cleared and moved to
+     * {@link #flushing}. The next append that comes in, is then set here as the next lowest
+     * sequenceid.
+     * <p>If flush fails, currently server is aborted so no need to restore previous sequence ids.
+     * <p>Adding a family may add a chunk, under {@link #tieLock}. Chunks are never copied, so an
+     * update racing with the addition of a family can not be lost.
+     */
+    private volatile AtomicLongArray[] lowest = new AtomicLongArray[0];
+
+    /**
+     * The lowest or OLDEST sequence/edit id of the families currently being flushed out to hfiles,
+     * or {@link HConstants#NO_SEQNUM}. Null when not flushing. Guarded by {@link #tieLock}.
+     */
+    private long[] flushing;
+
+    /**
+     * The latest/highest region sequence id since the last {@link #resetHighest()}, or
+     * {@link HConstants#NO_SEQNUM}. Updated on each call to append.
+     */
+    private volatile long highest = HConstants.NO_SEQNUM;
+
+    /**
+     * @return the ordinal of the family, or -1 if this region has no sequence id for it yet.
+     */
+    private int indexOf(byte[] familyName) {
+      byte[][] families = this.families;
+      for (int i = 0; i < families.length; i++) {
+        if (families[i] == familyName) {
+          return i;
+        }
+      }
+      for (int i = 0; i < families.length; i++) {
+        if (Bytes.equals(families[i], familyName)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Must be called under {@link #tieLock}.
+     * @return the ordinal of the family, added if needed.
+     */
+    private int getOrAddFamily(byte[] familyName) {
+      int index = indexOf(familyName);
+      if (index >= 0) {
+        return index;
+      }
+      byte[][] families = this.families;
+      index = families.length;
+      if ((index & (CHUNK_SIZE - 1)) == 0) {
+        AtomicLongArray[] lowest = this.lowest;
+        AtomicLongArray chunk = new AtomicLongArray(CHUNK_SIZE);
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+          chunk.set(i, HConstants.NO_SEQNUM);
+        }
+        AtomicLongArray[] newLowest = Arrays.copyOf(lowest, lowest.length + 1);
+        newLowest[lowest.length] = chunk;
+        // publish the chunk first, so a reader seeing the family also sees its slot
+        this.lowest = newLowest;
+      }
+      byte[][] newFamilies = Arrays.copyOf(families, index + 1);
+      newFamilies[index] = Arrays.copyOf(familyName, familyName.length);
+      this.families = newFamilies;
+      return index;
+    }
+
+    private int size() {
+      return families.length;
+    }
+
+    private AtomicLongArray chunk(int index) {
+      return lowest[index >>> CHUNK_SHIFT];
+    }
+
+    /**
+     * @return the lowest unflushed sequence id of the family, or {@link HConstants#NO_SEQNUM}
+     */
+    private long get(int index) {
+      return chunk(index).get(index & (CHUNK_SIZE - 1));
+    }
+
+    private long getAndSet(int index, long sequenceId) {
+      return chunk(index).getAndSet(index & (CHUNK_SIZE - 1), sequenceId);
+    }
+
+    private boolean compareAndSet(int index, long expect, long sequenceId) {
+      return chunk(index).compareAndSet(index & (CHUNK_SIZE - 1), expect, sequenceId);
+    }
+
+    /**
+     * Sets the lowest sequence id of the family if it has none.
+     */
+    private void putIfAbsent(int index, long sequenceId) {
+      compareAndSet(index, HConstants.NO_SEQNUM, sequenceId);
+    }
+
+    /**
+     * @return the previous lowest sequence id of the family, or {@link HConstants#NO_SEQNUM} if it
+     *   had none, in which case it is not replaced.
+     */
+    private long replaceIfPresent(int index, long sequenceId) {
+      for (;;) {
+        long current = get(index);
+        if (current == HConstants.NO_SEQNUM || compareAndSet(index, current, sequenceId)) {
+          return current;
+        }
+      }
+    }
+
+    /**
+     * @return the lowest of the lowest unflushed sequence ids of the families, or
+     *   {@link HConstants#NO_SEQNUM} if none.
+     */
+    private long getLowestUnflushed() {
+      long result = HConstants.NO_SEQNUM;
+      for (int i = 0, n = size(); i < n; i++) {
+        long sequenceId = get(i);
+        if (sequenceId != HConstants.NO_SEQNUM
+            && (result == HConstants.NO_SEQNUM || sequenceId < result)) {
+          result = sequenceId;
+        }
+      }
+      return result;
+    }
+
+    /**
+     * @return the lowest of the flushing sequence ids of the families, or
+     *   {@link HConstants#NO_SEQNUM} if none.
+     */
+    private long getLowestFlushing() {
+      long result = HConstants.NO_SEQNUM;
+      if (flushing != null) {
+        for (long sequenceId : flushing) {
+          if (sequenceId != HConstants.NO_SEQNUM
+              && (result == HConstants.NO_SEQNUM || sequenceId < result)) {
+            result = sequenceId;
+          }
+        }
+      }
+      return result;
+    }
+
+    private String flushingToString() {
+      StringBuilder sb = new StringBuilder("{");
+      byte[][] families = this.families;
+      for (int i = 0; i < flushing.length; i++) {
+        if (flushing[i] != HConstants.NO_SEQNUM) {
+          if (sb.length() > 1) {
+            sb.append(",");
+          }
+          sb.append(Bytes.toString(families[i])).append("->").append(flushing[i]);
+        }
+      }
+      return sb.append("}").toString();
+    }
+  }
 
   /**
    * Returns the lowest unflushed sequence id for the region.
@@ -115,11 +265,15 @@ class SequenceIdAccounting {
    */
   long getLowestSequenceId(final byte[] encodedRegionName) {
     synchronized (this.tieLock) {
-      Map<?, Long> m = this.flushingSequenceIds.get(encodedRegionName);
-      long flushingLowest = m != null ? getLowestSequenceId(m) : Long.MAX_VALUE;
-      m = this.lowestUnflushedSequenceIds.get(encodedRegionName);
-      long unflushedLowest = m != null ? getLowestSequenceId(m) : HConstants.NO_SEQNUM;
-      return Math.min(flushingLowest, unflushedLowest);
+      RegionSequenceIds r = this.regions.get(encodedRegionName);
+      if (r == null) {
+        return HConstants.NO_SEQNUM;
+      }
+      long flushingLowest = r.getLowestFlushing();
+      if (flushingLowest == HConstants.NO_SEQNUM) {
+        flushingLowest = Long.MAX_VALUE;
+      }
+      return Math.min(flushingLowest, r.getLowestUnflushed());
     }
   }
 
@@ -129,24 +283,21 @@ class SequenceIdAccounting {
    *         flushed.
    */
   long getLowestSequenceId(final byte[] encodedRegionName, final byte[] familyName) {
-    ImmutableByteArray familyNameWrapper = ImmutableByteArray.wrap(familyName);
     synchronized (this.tieLock) {
-      Map<ImmutableByteArray, Long> m = this.flushingSequenceIds.get(encodedRegionName);
-      if (m != null) {
-        Long lowest = m.get(familyNameWrapper);
-        if (lowest != null) {
-          return lowest;
-        }
+      RegionSequenceIds r = this.regions.get(encodedRegionName);
+      if (r == null) {
+        return HConstants.NO_SEQNUM;
       }
-      m = this.lowestUnflushedSequenceIds.get(encodedRegionName);
-      if (m != null) {
-        Long lowest = m.get(familyNameWrapper);
-        if (lowest != null) {
-          return lowest;
-        }
+      int index = r.indexOf(familyName);
+      if (index < 0) {
+        return HConstants.NO_SEQNUM;
       }
+      if (r.flushing != null && index < r.flushing.length
+          && r.flushing[index] != HConstants.NO_SEQNUM) {
+        return r.flushing[index];
+      }
+      return r.get(index);
     }
-    return HConstants.NO_SEQNUM;
   }
 
   /**
@@ -155,8 +306,15 @@ class SequenceIdAccounting {
    * each.
    */
   Map<byte[], Long> resetHighest() {
-    Map<byte[], Long> old = this.highestSequenceIds;
-    this.highestSequenceIds = new HashMap<>();
+    Map<byte[], Long> old = new HashMap<>();
+    for (Map.Entry<byte[], RegionSequenceIds> e : this.regions.entrySet()) {
+      RegionSequenceIds r = e.getValue();
+      long highest = r.highest;
+      if (highest != HConstants.NO_SEQNUM) {
+        old.put(e.getKey(), highest);
+        r.highest = HConstants.NO_SEQNUM;
+      }
+    }
     return old;
   }
 
@@ -171,12 +329,17 @@ class SequenceIdAccounting {
    */
   void update(byte[] encodedRegionName, Set<byte[]> families, long sequenceid,
       final boolean lowest) {
-    Long l = Long.valueOf(sequenceid);
-    this.highestSequenceIds.put(encodedRegionName, l);
+    RegionSequenceIds r = getOrCreateRegionSequenceIds(encodedRegionName);
+    r.highest = sequenceid;
     if (lowest) {
-      ConcurrentMap<ImmutableByteArray, Long> m = getOrCreateLowestSequenceIds(encodedRegionName);
       for (byte[] familyName : families) {
-        m.putIfAbsent(ImmutableByteArray.wrap(familyName), l);
+        int index = r.indexOf(familyName);
+        if (index < 0) {
+          synchronized (this.tieLock) {
+            index = r.getOrAddFamily(familyName);
+          }
+        }
+        r.putIfAbsent(index, sequenceid);
       }
     }
   }
@@ -187,22 +350,18 @@ class SequenceIdAccounting {
    * We will call this once we get the region close marker. We need this because that, if we use
    * Durability.ASYNC_WAL, after calling startCacheFlush, we may still get some ongoing wal entries
    * that has not been processed yet, this will lead to orphan records in the
-   * lowestUnflushedSequenceIds and then cause too many WAL files.
+   * lowest unflushed sequence ids and then cause too many WAL files.
    * <p/>
    * See HBASE-23157 for more details.
    */
   void onRegionClose(byte[] encodedRegionName) {
     synchronized (tieLock) {
-      this.lowestUnflushedSequenceIds.remove(encodedRegionName);
-      Map<ImmutableByteArray, Long> flushing = this.flushingSequenceIds.remove(encodedRegionName);
-      if (flushing != null) {
+      RegionSequenceIds r = this.regions.remove(encodedRegionName);
+      if (r != null && r.flushing != null) {
         LOG.warn("Still have flushing records when closing {}, {}",
-          Bytes.toString(encodedRegionName),
-          flushing.entrySet().stream().map(e -> e.getKey().toString() + "->" + e.getValue())
-            .collect(Collectors.joining(",", "{", "}")));
+          Bytes.toString(encodedRegionName), r.flushingToString());
       }
     }
-    this.highestSequenceIds.remove(encodedRegionName);
   }
 
   /**
@@ -213,27 +372,28 @@ class SequenceIdAccounting {
     if (sequenceId == null) {
       return;
     }
-    Long highest = this.highestSequenceIds.get(encodedRegionName);
-    if (highest == null || sequenceId > highest) {
-      this.highestSequenceIds.put(encodedRegionName, sequenceId);
+    RegionSequenceIds r = getOrCreateRegionSequenceIds(encodedRegionName);
+    long highest = r.highest;
+    if (highest == HConstants.NO_SEQNUM || sequenceId > highest) {
+      r.highest = sequenceId;
     }
-    ImmutableByteArray familyNameWrapper = ImmutableByteArray.wrap(familyName);
     synchronized (this.tieLock) {
-      ConcurrentMap<ImmutableByteArray, Long> m = getOrCreateLowestSequenceIds(encodedRegionName);
-      boolean replaced = false;
-      while (!replaced) {
-        Long oldSeqId = m.get(familyNameWrapper);
-        if (oldSeqId == null) {
-          m.put(familyNameWrapper, sequenceId);
-          replaced = true;
+      int index = r.getOrAddFamily(familyName);
+      for (;;) {
+        long oldSeqId = r.get(index);
+        if (oldSeqId == HConstants.NO_SEQNUM) {
+          if (r.compareAndSet(index, oldSeqId, sequenceId)) {
+            return;
+          }
         } else if (onlyIfGreater) {
-          if (sequenceId > oldSeqId) {
-            replaced = m.replace(familyNameWrapper, oldSeqId, sequenceId);
-          } else {
+          if (sequenceId <= oldSeqId) {
+            return;
+          }
+          if (r.compareAndSet(index, oldSeqId, sequenceId)) {
             return;
           }
         } else { // replace even if sequence id is not greater than oldSeqId
-          m.put(familyNameWrapper, sequenceId);
+          r.getAndSet(index, sequenceId);
           return;
         }
       }
@@ -241,43 +401,11 @@ class SequenceIdAccounting {
   }
 
   @VisibleForTesting
-  ConcurrentMap<ImmutableByteArray, Long> getOrCreateLowestSequenceIds(byte[] encodedRegionName) {
-    // Intentionally, this access is done outside of this.regionSequenceIdLock. Done per append.
-    return computeIfAbsent(this.lowestUnflushedSequenceIds, encodedRegionName,
-      ConcurrentHashMap::new);
-  }
-
-  /**
-   * @param sequenceids Map to search for lowest value.
-   * @return Lowest value found in <code>sequenceids</code>.
-   */
-  private static long getLowestSequenceId(Map<?, Long> sequenceids) {
-    long lowest = HConstants.NO_SEQNUM;
-    for (Long sid: sequenceids.values()) {
-      if (lowest == HConstants.NO_SEQNUM || sid.longValue() < lowest) {
-        lowest = sid.longValue();
-      }
-    }
-    return lowest;
-  }
-
-  /**
-   * @param src
-   * @return New Map that has same keys as <code>src</code> but instead of a Map for a value, it
-   *         instead has found the smallest sequence id and it returns that as the value instead.
-   */
-  private <T extends Map<?, Long>> Map<byte[], Long> flattenToLowestSequenceId(Map<byte[], T> src) {
-    if (src == null || src.isEmpty()) {
-      return null;
-    }
-    Map<byte[], Long> tgt = new HashMap<>();
-    for (Map.Entry<byte[], T> entry : src.entrySet()) {
-      long lowestSeqId = getLowestSequenceId(entry.getValue());
-      if (lowestSeqId != HConstants.NO_SEQNUM) {
-        tgt.put(entry.getKey(), lowestSeqId);
-      }
-    }
-    return tgt;
+  RegionSequenceIds getOrCreateRegionSequenceIds(byte[] encodedRegionName) {
+    // Intentionally, this access is done outside of this.tieLock. Done per append.
+    RegionSequenceIds r = this.regions.get(encodedRegionName);
+    return r != null ? r
+      : computeIfAbsent(this.regions, encodedRegionName, RegionSequenceIds::new);
   }
 
   /**
@@ -298,57 +426,46 @@ class SequenceIdAccounting {
   }
 
   Long startCacheFlush(final byte[] encodedRegionName, final Map<byte[], Long> familyToSeq) {
-    Map<ImmutableByteArray, Long> oldSequenceIds = null;
-    Long lowestUnflushedInRegion = HConstants.NO_SEQNUM;
+    long lowestUnflushedInRegion = HConstants.NO_SEQNUM;
     synchronized (tieLock) {
-      Map<ImmutableByteArray, Long> m = this.lowestUnflushedSequenceIds.get(encodedRegionName);
-      if (m != null) {
-        // NOTE: Removal from this.lowestUnflushedSequenceIds must be done in controlled
+      RegionSequenceIds r = this.regions.get(encodedRegionName);
+      if (r != null) {
+        // NOTE: Clearing the lowest unflushed sequence ids must be done in controlled
         // circumstance because another concurrent thread now may add sequenceids for this family
-        // (see above in getOrCreateLowestSequenceId). Make sure you are ok with this. Usually it
-        // is fine because updates are blocked when this method is called. Make sure!!!
+        // (see above in update). Make sure you are ok with this. Usually it is fine because
+        // updates are blocked when this method is called. Make sure!!!
+        long[] oldSequenceIds = null;
         for (Map.Entry<byte[], Long> entry : familyToSeq.entrySet()) {
-          ImmutableByteArray familyNameWrapper = ImmutableByteArray.wrap((byte[]) entry.getKey());
-          Long seqId = null;
-          if(entry.getValue() == HConstants.NO_SEQNUM) {
-            seqId = m.remove(familyNameWrapper);
+          int index = r.indexOf(entry.getKey());
+          if (index < 0) {
+            continue;
+          }
+          long seqId;
+          if (entry.getValue() == HConstants.NO_SEQNUM) {
+            seqId = r.getAndSet(index, HConstants.NO_SEQNUM);
           } else {
-            seqId = m.replace(familyNameWrapper, entry.getValue());
+            seqId = r.replaceIfPresent(index, entry.getValue());
           }
-          if (seqId != null) {
+          if (seqId != HConstants.NO_SEQNUM) {
             if (oldSequenceIds == null) {
-              oldSequenceIds = new HashMap<>();
+              oldSequenceIds = new long[r.size()];
+              Arrays.fill(oldSequenceIds, HConstants.NO_SEQNUM);
             }
-            oldSequenceIds.put(familyNameWrapper, seqId);
+            oldSequenceIds[index] = seqId;
           }
         }
-        if (oldSequenceIds != null && !oldSequenceIds.isEmpty()) {
-          if (this.flushingSequenceIds.put(encodedRegionName, oldSequenceIds) != null) {
+        if (oldSequenceIds != null) {
+          if (r.flushing != null) {
             LOG.warn("Flushing Map not cleaned up for " + Bytes.toString(encodedRegionName) +
-              ", sequenceid=" + oldSequenceIds);
+              ", sequenceid=" + r.flushingToString());
           }
+          r.flushing = oldSequenceIds;
         }
-        if (m.isEmpty()) {
-          // Remove it otherwise it will be in oldestUnflushedStoreSequenceIds for ever
-          // even if the region is already moved to other server.
-          // Do not worry about data racing, we held write lock of region when calling
-          // startCacheFlush, so no one can add value to the map we removed.
-          this.lowestUnflushedSequenceIds.remove(encodedRegionName);
-        } else {
-          // Flushing a subset of the region families. Return the sequence id of the oldest entry.
-          lowestUnflushedInRegion = Collections.min(m.values());
-        }
+        // If flushing a subset of the region families, return the sequence id of the oldest
+        // entry.
+        lowestUnflushedInRegion = r.getLowestUnflushed();
       }
     }
-    // Do this check outside lock.
-    if (oldSequenceIds != null && oldSequenceIds.isEmpty()) {
-      // TODO: if we have no oldStoreSeqNum, and WAL is not disabled, presumably either
-      // the region is already flushing (which would make this call invalid), or there
-      // were no appends after last flush, so why are we starting flush? Maybe we should
-      // assert not empty. Less rigorous, but safer, alternative is telling the caller to stop.
-      // For now preserve old logic.
-      LOG.warn("Couldn't find oldest sequenceid for " + Bytes.toString(encodedRegionName));
-    }
     return lowestUnflushedInRegion;
   }
 
@@ -370,16 +487,20 @@ class SequenceIdAccounting {
     // means we have flushed all the stores so the seq id for actual data should be at least plus 1.
     // And if we do not flush all the stores, then the maxFlushedSeqId is calculated by
     // lowestUnflushedSeqId - 1, so here let's plus the 1 back.
-    Long wrappedSeqId = Long.valueOf(maxFlushedSeqId + 1);
+    long wrappedSeqId = maxFlushedSeqId + 1;
     synchronized (tieLock) {
-      this.flushingSequenceIds.remove(encodedRegionName);
-      Map<ImmutableByteArray, Long> unflushed = lowestUnflushedSequenceIds.get(encodedRegionName);
-      if (unflushed == null) {
+      RegionSequenceIds r = this.regions.get(encodedRegionName);
+      if (r == null) {
         return;
       }
-      for (Map.Entry<ImmutableByteArray, Long> e : unflushed.entrySet()) {
-        if (e.getValue().longValue() <= maxFlushedSeqId) {
-          e.setValue(wrappedSeqId);
+      r.flushing = null;
+      for (int i = 0, n = r.size(); i < n; i++) {
+        for (;;) {
+          long current = r.get(i);
+          if (current == HConstants.NO_SEQNUM || current > maxFlushedSeqId
+              || r.compareAndSet(i, current, wrappedSeqId)) {
+            break;
+          }
         }
       }
     }
@@ -388,19 +509,23 @@ class SequenceIdAccounting {
   void abortCacheFlush(final byte[] encodedRegionName) {
     // Method is called when we are crashing down because failed write flush AND it is called
     // if we fail prepare. The below is for the fail prepare case; we restore the old sequence ids.
-    Map<ImmutableByteArray, Long> flushing = null;
-    Map<ImmutableByteArray, Long> tmpMap = new HashMap<>();
+    RegionSequenceIds r;
+    long[] flushing = null;
+    long[] current = null;
     // Here we are moving sequenceids from flushing back to unflushed; doing opposite of what
     // happened in startCacheFlush. During prepare phase, we have update lock on the region so
     // no edits should be coming in via append.
     synchronized (tieLock) {
-      flushing = this.flushingSequenceIds.remove(encodedRegionName);
-      if (flushing != null) {
-        Map<ImmutableByteArray, Long> unflushed = getOrCreateLowestSequenceIds(encodedRegionName);
-        for (Map.Entry<ImmutableByteArray, Long> e: flushing.entrySet()) {
+      r = this.regions.get(encodedRegionName);
+      if (r != null && r.flushing != null) {
+        flushing = r.flushing;
+        r.flushing = null;
+        current = new long[flushing.length];
+        for (int i = 0; i < flushing.length; i++) {
           // Set into unflushed the 'old' oldest sequenceid and if any value in flushed with this
-          // value, it will now be in tmpMap.
-          tmpMap.put(e.getKey(), unflushed.put(e.getKey(), e.getValue()));
+          // value, it will now be in current.
+          current[i] = flushing[i] == HConstants.NO_SEQNUM ? HConstants.NO_SEQNUM
+            : r.getAndSet(i, flushing[i]);
         }
       }
     }
@@ -408,12 +533,11 @@ class SequenceIdAccounting {
     // Here we are doing some 'test' to see if edits are going in out of order. What is it for?
     // Carried over from old code.
     if (flushing != null) {
-      for (Map.Entry<ImmutableByteArray, Long> e : flushing.entrySet()) {
-        Long currentId = tmpMap.get(e.getKey());
-        if (currentId != null && currentId.longValue() < e.getValue().longValue()) {
+      for (int i = 0; i < flushing.length; i++) {
+        if (current[i] != HConstants.NO_SEQNUM && current[i] < flushing[i]) {
           String errorStr = Bytes.toString(encodedRegionName) + " family "
-              + e.getKey().toString() + " acquired edits out of order current memstore seq="
-              + currentId + ", previous oldest unflushed id=" + e.getValue();
+              + Bytes.toString(r.families[i]) + " acquired edits out of order current memstore seq="
+              + current[i] + ", previous oldest unflushed id=" + flushing[i];
           LOG.error(errorStr);
           Runtime.getRuntime().halt(1);
         }
@@ -431,42 +555,35 @@ class SequenceIdAccounting {
    * @return true if all sequenceids are lower, older than, the old sequenceids in this instance.
    */
   boolean areAllLower(Map<byte[], Long> sequenceids, Collection<byte[]> keysBlocking) {
-    Map<byte[], Long> flushing = null;
-    Map<byte[], Long> unflushed = null;
-    synchronized (this.tieLock) {
-      // Get a flattened -- only the oldest sequenceid -- copy of current flushing and unflushed
-      // data structures to use in tests below.
-      flushing = flattenToLowestSequenceId(this.flushingSequenceIds);
-      unflushed = flattenToLowestSequenceId(this.lowestUnflushedSequenceIds);
-    }
     boolean result = true;
-    for (Map.Entry<byte[], Long> e : sequenceids.entrySet()) {
-      long oldestFlushing = Long.MAX_VALUE;
-      long oldestUnflushed = Long.MAX_VALUE;
-      if (flushing != null && flushing.containsKey(e.getKey())) {
-        oldestFlushing = flushing.get(e.getKey());
-      }
-      if (unflushed != null && unflushed.containsKey(e.getKey())) {
-        oldestUnflushed = unflushed.get(e.getKey());
-      }
-      long min = Math.min(oldestFlushing, oldestUnflushed);
-      if (min <= e.getValue()) {
-        if (keysBlocking == null) {
-          return false;
+    synchronized (this.tieLock) {
+      for (Map.Entry<byte[], Long> e : sequenceids.entrySet()) {
+        RegionSequenceIds r = this.regions.get(e.getKey());
+        if (r == null) {
+          continue;
+        }
+        long oldestFlushing = r.getLowestFlushing();
+        long oldestUnflushed = r.getLowestUnflushed();
+        long min = Math.min(oldestFlushing == HConstants.NO_SEQNUM ? Long.MAX_VALUE
+          : oldestFlushing, oldestUnflushed == HConstants.NO_SEQNUM ? Long.MAX_VALUE
+          : oldestUnflushed);
+        if (min <= e.getValue()) {
+          if (keysBlocking == null) {
+            return false;
+          }
+          result = false;
+          keysBlocking.add(e.getKey());
+          // Continue examining the map so we could log all regions blocking this WAL.
         }
-        result = false;
-        keysBlocking.add(e.getKey());
-        // Continue examining the map so we could log all regions blocking this WAL.
       }
     }
     return result;
   }
 
   /**
-   * Iterates over the given Map and compares sequence ids with corresponding entries in
-   * {@link #lowestUnflushedSequenceIds}. If a region in
-   * {@link #lowestUnflushedSequenceIds} has a sequence id less than that passed in
-   * <code>sequenceids</code> then return it.
+   * Iterates over the given Map and compares sequence ids with the corresponding lowest unflushed
+   * sequence ids. If a region has a sequence id less than that passed in <code>sequenceids</code>
+   * then return it.
    * @param sequenceids Sequenceids keyed by encoded region name.
    * @return stores of regions found in this instance with sequence ids less than those passed in.
    */
@@ -475,17 +592,19 @@ class SequenceIdAccounting {
     // Keeping the old behavior of iterating unflushedSeqNums under oldestSeqNumsLock.
     synchronized (tieLock) {
       for (Map.Entry<byte[], Long> e : sequenceids.entrySet()) {
-        Map<ImmutableByteArray, Long> m = this.lowestUnflushedSequenceIds.get(e.getKey());
-        if (m == null) {
+        RegionSequenceIds r = this.regions.get(e.getKey());
+        if (r == null) {
           continue;
         }
-        for (Map.Entry<ImmutableByteArray, Long> me : m.entrySet()) {
-          if (me.getValue() <= e.getValue()) {
+        byte[][] families = r.families;
+        for (int i = 0; i < families.length; i++) {
+          long sequenceId = r.get(i);
+          if (sequenceId != HConstants.NO_SEQNUM && sequenceId <= e.getValue()) {
             if (toFlush == null) {
-              toFlush = new TreeMap(Bytes.BYTES_COMPARATOR);
+              toFlush = new TreeMap<>(Bytes.BYTES_COMPARATOR);
             }
             toFlush.computeIfAbsent(e.getKey(), k -> new ArrayList<>())
-              .add(Bytes.toBytes(me.getKey().toString()));
+              .add(Bytes.copy(families[i]));
           }
         }
       }
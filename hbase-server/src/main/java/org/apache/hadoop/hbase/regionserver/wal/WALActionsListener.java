@@ -111,6 +111,19 @@ public interface WALActionsListener {
   default void postAppend(final long entryLen, final long elapsedTimeMillis, final WALKey logKey,
       final WALEdit logEdit) throws IOException {}
 
+  /**
+   * For notification post append to the writer, with the location of the entry in the WAL file.
+   * Called in the order the entries are written, from the thread writing them, must not block. The
+   * entry is not synced yet, and its cells may be released once it is.
+   * @param path the WAL file written to
+   * @param position the offset of the entry in the file
+   * @param length the length of the file once the entry is written, i.e. the end of the entry
+   * @param logKey A WAL key
+   * @param logEdit A WAL edit containing list of cells.
+   */
+  default void postWrite(final Path path, final long position, final long length,
+      final WALKey logKey, final WALEdit logEdit) {}
+
   /**
    * For notification post writer sync.  Used by metrics system at least.
    * @param timeInNanos How long the filesystem sync took in nanoseconds.
@@ -118,4 +131,31 @@ public interface WALActionsListener {
    * sync.
    */
   default void postSync(final long timeInNanos, final int handlerSyncs) {}
+
+  /**
+   * For notification of the ack of a write by a datanode of the WAL pipeline, when the writer
+   * tracks them. Called from IO threads, must not block.
+   * @param datanode the transfer address of the datanode
+   * @param timeInNanos How long the datanode took to ack the write, in nanoseconds.
+   */
+  default void postDatanodeAck(final String datanode, final long timeInNanos) {}
+
+  /**
+   * For notification of a change of the datanodes whose acks are tracked, when the writer is
+   * replaced or the WAL is closed.
+   * @param oldDatanodes the transfer addresses of the datanodes of the previous pipeline
+   * @param newDatanodes the transfer addresses of the datanodes of the new pipeline, empty if the
+   *          WAL was closed
+   */
+  default void postPipelineChange(final String[] oldDatanodes, final String[] newDatanodes) {}
+
+  /**
+   * For notification post the sync of a group commit. Used by metrics system at least.
+   * @param timeInNanos How long it took since the first sync request of the group until the group
+   * was synced, in nanoseconds.
+   * @param handlerSyncs How many sync handler calls were released by the sync of the group.
+   * @param syncedBytes How many bytes were written to the WAL since the previous sync.
+   */
+  default void postGroupCommit(final long timeInNanos, final int handlerSyncs,
+      final long syncedBytes) {}
 }
@@ -241,10 +241,14 @@ public class WALCellCodec implements Codec {
         compression.getDictionary(CompressionContext.DictionaryIndex.FAMILY));
       PrivateCellUtil.compressQualifier(out, cell,
         compression.getDictionary(CompressionContext.DictionaryIndex.QUALIFIER));
-      // Write timestamp, type and value as uncompressed.
+      // Write timestamp and type as uncompressed, the value too unless value compression is on.
       StreamUtils.writeLong(out, cell.getTimestamp());
       out.write(cell.getTypeByte());
-      PrivateCellUtil.writeValue(out, cell, cell.getValueLength());
+      if (compression.valueCompressor != null) {
+        compression.valueCompressor.compress(out, cell);
+      } else {
+        PrivateCellUtil.writeValue(out, cell, cell.getValueLength());
+      }
       if (tagsLength > 0) {
         if (compression.tagCompressionContext != null) {
           // Write tags using Dictionary compression
@@ -307,7 +311,13 @@ public class WALCellCodec implements Codec {
       if (tagsLength > 0) {
         tsTypeValLen = tsTypeValLen - tagsLength - KeyValue.TAGS_LENGTH_SIZE;
       }
-      IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
+      if (compression.valueCompressor != null) {
+        IOUtils.readFully(in, backingArray, pos, KeyValue.TIMESTAMP_TYPE_SIZE);
+        compression.valueCompressor.decompress(in, backingArray,
+          pos + KeyValue.TIMESTAMP_TYPE_SIZE, vlength);
+      } else {
+        IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
+      }
       pos += tsTypeValLen;
 
       // tags
@@ -29,6 +29,7 @@ import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.ScheduledChore;
 import org.apache.hadoop.hbase.Server;
 import org.apache.hadoop.hbase.Stoppable;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.ReplicationSinkService;
 import org.apache.hadoop.hbase.replication.regionserver.ReplicationLoad;
 import org.apache.hadoop.hbase.replication.regionserver.ReplicationSink;
@@ -75,7 +76,8 @@ public class ReplicationSinkServiceImpl implements ReplicationSinkService {
 
   @Override
   public void startReplicationService() throws IOException {
-    this.replicationSink = new ReplicationSink(this.conf);
+    this.replicationSink = new ReplicationSink(this.conf,
+      server instanceof RegionServerServices ? (RegionServerServices) server : null);
     this.server.getChoreService().scheduleChore(
         new ReplicationStatisticsChore("ReplicationSinkStatistics", server,
             (int) TimeUnit.SECONDS.toMillis(statsPeriodInSecond)));
@@ -83,6 +83,23 @@ public class MetricsSink {
     mss.incrAppliedHFiles(hfileSize);
   }
 
+  /**
+   * Records the number of edits of a batch written directly into regions of this server.
+   * @param ops number of mutations applied locally
+   */
+  public void applyLocally(long ops) {
+    mss.incrAppliedLocalOps(ops);
+  }
+
+  /**
+   * Records the time it took to apply a batch shipped by a source cluster.
+   * @param sourceClusterId id of the source cluster the batch came from
+   * @param latency time to apply the batch in milliseconds
+   */
+  public void updateApplyLatency(String sourceClusterId, long latency) {
+    mss.updateApplyLatency(sourceClusterId, latency);
+  }
+
   /**
    * Get the Age of Last Applied Op
    * @return ageOfLastAppliedOp
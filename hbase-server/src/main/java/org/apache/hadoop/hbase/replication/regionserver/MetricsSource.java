@@ -185,6 +185,12 @@ public class MetricsSource implements BaseSource {
     incrLogEditsRead(1);
   }
 
+  /** Increment the number of log edits read from the in memory tail of the WAL by one. */
+  public void incrLogEditsReadFromTailBuffer() {
+    singleSourceSource.incrLogReadFromTailBuffer(1);
+    globalSourceSource.incrLogReadFromTailBuffer(1);
+  }
+
   /**
    * Add on the number of log edits filtered
    *
@@ -252,6 +258,17 @@ public class MetricsSource implements BaseSource {
     globalSourceSource.incrHFilesShipped(hfiles);
   }
 
+  /**
+   * Breaks down the replication lag of a shipped batch.
+   * @param readLag time from the write of the last edit of the batch to the end of its read
+   * @param shipLag time from the end of the read to the start of the successful shipment
+   * @param applyLag time the peer took to apply the batch
+   */
+  public void updateLagBreakdown(long readLag, long shipLag, long applyLag) {
+    singleSourceSource.updateLagBreakdown(readLag, shipLag, applyLag);
+    globalSourceSource.updateLagBreakdown(readLag, shipLag, applyLag);
+  }
+
   /** increase the byte number read by source from log file */
   public void incrLogReadInBytes(long readInBytes) {
     singleSourceSource.incrLogReadInBytes(readInBytes);
@@ -20,6 +20,7 @@ package org.apache.hadoop.hbase.replication.regionserver;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -30,20 +31,27 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseIOException;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.RegionLocations;
+import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableDescriptors;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.client.AsyncClusterConnection;
+import org.apache.hadoop.hbase.client.ClusterConnectionFactory;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.RegionReplicaUtil;
 import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.protobuf.ReplicationProtobufUtil;
 import org.apache.hadoop.hbase.replication.HBaseReplicationEndpoint;
 import org.apache.hadoop.hbase.replication.WALEntryFilter;
+import org.apache.hadoop.hbase.security.UserProvider;
 import org.apache.hadoop.hbase.util.AtomicUtils;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.FutureUtils;
@@ -60,9 +68,19 @@ import org.apache.hbase.thirdparty.com.google.common.cache.CacheBuilder;
 import org.apache.hbase.thirdparty.com.google.common.cache.CacheLoader;
 import org.apache.hbase.thirdparty.com.google.common.cache.LoadingCache;
 
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ReplicateWALEntryRequest;
+
 /**
  * A {@link org.apache.hadoop.hbase.replication.ReplicationEndpoint} endpoint which receives the WAL
  * edits from the WAL, and sends the edits to replicas of regions.
+ * <p/>
+ * By default the edits are replayed to each replica of each region with its own call. When
+ * {@link #BATCH_PER_SERVER_KEY} is set, the edits of all the replicas hosted by a server are sent
+ * in one call, once all the regions of a batch are located. All the region servers must support
+ * replaying edits of several regions in one call. If the call fails, the edits are replayed to
+ * each replica of the call on its own, which relocates the replica and retries. The cell blocks of
+ * the calls can be compressed with {@link #RPC_COMPRESSOR_KEY}, the endpoint then uses its own
+ * connection.
  */
 @InterfaceAudience.Private
 public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
@@ -73,8 +91,19 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
   private static String CLIENT_RETRIES_NUMBER =
     "hbase.region.replica.replication.client.retries.number";
 
+  /** Whether to replay the edits of all the replicas hosted by a server in one call. */
+  public static final String BATCH_PER_SERVER_KEY =
+    "hbase.region.replica.replication.batch.per.server";
+
+  /** Class of the compression codec of the cell blocks sent to the replicas, none if not set. */
+  public static final String RPC_COMPRESSOR_KEY =
+    "hbase.region.replica.replication.rpc.compressor";
+
   private Configuration conf;
   private AsyncClusterConnection connection;
+  // whether the connection was created by this endpoint, and must be closed on stop
+  private boolean ownConnection;
+  private boolean batchPerServer;
   private TableDescriptors tableDescriptors;
 
   private int numRetries;
@@ -134,7 +163,117 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
     this.operationTimeoutNs =
       TimeUnit.MILLISECONDS.toNanos(conf.getInt(HConstants.HBASE_CLIENT_OPERATION_TIMEOUT,
         HConstants.DEFAULT_HBASE_CLIENT_OPERATION_TIMEOUT));
-    this.connection = context.getServer().getAsyncClusterConnection();
+    this.batchPerServer = conf.getBoolean(BATCH_PER_SERVER_KEY, false);
+    String compressor = conf.get(RPC_COMPRESSOR_KEY);
+    if (StringUtils.isNotEmpty(compressor)) {
+      Configuration connConf = new Configuration(conf);
+      connConf.set("hbase.client.rpc.compressor", compressor);
+      this.connection = ClusterConnectionFactory.createAsyncClusterConnection(connConf, null,
+        UserProvider.instantiate(conf).getCurrent());
+      this.ownConnection = true;
+    } else {
+      this.connection = context.getServer().getAsyncClusterConnection();
+    }
+  }
+
+  @Override
+  protected void doStop() {
+    if (ownConnection) {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close the connection to region replicas", e);
+      }
+    }
+    super.doStop();
+  }
+
+  /**
+   * Completes the future of the entries of a region once they were replayed to all the replicas of
+   * the region, with the maximum number of edits a replica skipped.
+   */
+  private static final class ReplicasTracker {
+
+    private final CompletableFuture<Long> future;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final AtomicInteger remainingTasks;
+    private final AtomicLong skippedEdits = new AtomicLong(0);
+
+    ReplicasTracker(CompletableFuture<Long> future, int replicas) {
+      this.future = future;
+      this.remainingTasks = new AtomicInteger(replicas);
+    }
+
+    void done(Long skipped, Throwable e) {
+      if (e != null) {
+        error.compareAndSet(null, e);
+      } else {
+        AtomicUtils.updateMax(skippedEdits, skipped.longValue());
+      }
+      if (remainingTasks.decrementAndGet() == 0) {
+        if (error.get() != null) {
+          future.completeExceptionally(error.get());
+        } else {
+          future.complete(skippedEdits.get());
+        }
+      }
+    }
+  }
+
+  /**
+   * The entries of a region to replay to one of its replicas.
+   */
+  private static final class ReplicaEntries {
+
+    private final TableDescriptor tableDesc;
+    private final RegionInfo replica;
+    private final byte[] row;
+    private final List<Entry> entries;
+    private final ReplicasTracker tracker;
+
+    ReplicaEntries(TableDescriptor tableDesc, RegionInfo replica, byte[] row, List<Entry> entries,
+        ReplicasTracker tracker) {
+      this.tableDesc = tableDesc;
+      this.replica = replica;
+      this.row = row;
+      this.entries = entries;
+      this.tracker = tracker;
+    }
+  }
+
+  /**
+   * Collects the entries to replay to the replicas hosted by each server, and sends them with one
+   * call per server once all the regions of a batch are located.
+   */
+  private final class ServerBatcher {
+
+    // regions being located, plus one until all the regions of the batch are submitted
+    private final AtomicInteger pendingRegions = new AtomicInteger(1);
+    // guarded by this
+    private final Map<ServerName, List<ReplicaEntries>> batches = new HashMap<>();
+
+    void locating() {
+      pendingRegions.incrementAndGet();
+    }
+
+    void located() {
+      if (pendingRegions.decrementAndGet() == 0) {
+        flush();
+      }
+    }
+
+    synchronized void add(ServerName serverName, ReplicaEntries replicaEntries) {
+      batches.computeIfAbsent(serverName, k -> new ArrayList<>()).add(replicaEntries);
+    }
+
+    private void flush() {
+      synchronized (this) {
+        for (Map.Entry<ServerName, List<ReplicaEntries>> entry : batches.entrySet()) {
+          replay(entry.getKey(), entry.getValue());
+        }
+        batches.clear();
+      }
+    }
   }
 
   /**
@@ -180,7 +319,8 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
   }
 
   private void replicate(CompletableFuture<Long> future, RegionLocations locs,
-      TableDescriptor tableDesc, byte[] encodedRegionName, byte[] row, List<Entry> entries) {
+      TableDescriptor tableDesc, byte[] encodedRegionName, byte[] row, List<Entry> entries,
+      ServerBatcher batcher) {
     if (locs.size() == 1) {
       LOG.info("Only one location for {}.{}, refresh the location cache only for meta now",
         tableDesc.getTableName(), Bytes.toString(encodedRegionName));
@@ -210,32 +350,59 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
       future.complete(Long.valueOf(entries.size()));
       return;
     }
-    AtomicReference<Throwable> error = new AtomicReference<>();
-    AtomicInteger remainingTasks = new AtomicInteger(locs.size() - 1);
-    AtomicLong skippedEdits = new AtomicLong(0);
-
+    ReplicasTracker tracker = new ReplicasTracker(future, locs.size() - 1);
     for (int i = 1, n = locs.size(); i < n; i++) {
       // Do not use the elements other than the default replica as they may be null. We will fail
       // earlier if the location for default replica is null.
-      final RegionInfo replica = RegionReplicaUtil.getRegionInfoForReplica(defaultReplica, i);
-      FutureUtils
-        .addListener(connection.replay(tableDesc.getTableName(), replica.getEncodedNameAsBytes(),
-          row, entries, replica.getReplicaId(), numRetries, operationTimeoutNs), (r, e) -> {
-            if (e != null) {
-              LOG.warn("Failed to replicate to {}", replica, e);
-              error.compareAndSet(null, e);
-            } else {
-              AtomicUtils.updateMax(skippedEdits, r.longValue());
-            }
-            if (remainingTasks.decrementAndGet() == 0) {
-              if (error.get() != null) {
-                future.completeExceptionally(error.get());
-              } else {
-                future.complete(skippedEdits.get());
-              }
-            }
-          });
+      RegionInfo replica = RegionReplicaUtil.getRegionInfoForReplica(defaultReplica, i);
+      ReplicaEntries replicaEntries = new ReplicaEntries(tableDesc, replica, row, entries, tracker);
+      HRegionLocation loc = locs.getRegionLocation(i);
+      // meta edits keep their own calls, they are sent with a higher priority
+      if (batcher != null && !tableDesc.isMetaTable() && loc != null &&
+        loc.getServerName() != null) {
+        batcher.add(loc.getServerName(), replicaEntries);
+      } else {
+        replay(replicaEntries);
+      }
+    }
+  }
+
+  private void replay(ReplicaEntries replicaEntries) {
+    RegionInfo replica = replicaEntries.replica;
+    FutureUtils.addListener(
+      connection.replay(replicaEntries.tableDesc.getTableName(), replica.getEncodedNameAsBytes(),
+        replicaEntries.row, replicaEntries.entries, replica.getReplicaId(), numRetries,
+        operationTimeoutNs),
+      (r, e) -> {
+        if (e != null) {
+          LOG.warn("Failed to replicate to {}", replica, e);
+        }
+        replicaEntries.tracker.done(r, e);
+      });
+  }
+
+  /**
+   * Replays the entries of several replicas hosted by a server with one call. Falls back to
+   * replaying the entries of each replica on its own if the call fails.
+   */
+  private void replay(ServerName serverName, List<ReplicaEntries> batch) {
+    List<Pair<byte[], List<Entry>>> regionEntries = new ArrayList<>(batch.size());
+    for (ReplicaEntries replicaEntries : batch) {
+      regionEntries.add(
+        Pair.newPair(replicaEntries.replica.getEncodedNameAsBytes(), replicaEntries.entries));
     }
+    Pair<ReplicateWALEntryRequest, CellScanner> p =
+      ReplicationProtobufUtil.buildReplayRequest(regionEntries);
+    FutureUtils.addListener(
+      connection.getRegionServerAdmin(serverName).replay(p.getFirst(), p.getSecond()), (r, e) -> {
+        if (e != null) {
+          LOG.debug("Failed to replay entries of {} replicas to {}, replaying them one by one",
+            batch.size(), serverName, e);
+          batch.forEach(this::replay);
+        } else {
+          batch.forEach(replicaEntries -> replicaEntries.tracker.done(0L, null));
+        }
+      });
   }
 
   private void logSkipped(TableName tableName, List<Entry> entries, String reason) {
@@ -247,14 +414,21 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
     }
   }
 
+  /**
+   * @param batcher collects the entries to send to each server, null to send the entries of each
+   *          replica with its own call
+   */
   private CompletableFuture<Long> replicate(TableDescriptor tableDesc, byte[] encodedRegionName,
-      List<Entry> entries) {
+      List<Entry> entries, ServerBatcher batcher) {
     if (disabledTableCache.getIfPresent(tableDesc.getTableName()) != null) {
       logSkipped(tableDesc.getTableName(), entries, "cached as a disabled table");
       return CompletableFuture.completedFuture(Long.valueOf(entries.size()));
     }
     byte[] row = CellUtil.cloneRow(entries.get(0).getEdit().getCells().get(0));
     CompletableFuture<RegionLocations> locateFuture = new CompletableFuture<>();
+    if (batcher != null) {
+      batcher.locating();
+    }
     getRegionLocations(locateFuture, tableDesc, encodedRegionName, row, false);
     CompletableFuture<Long> future = new CompletableFuture<>();
     FutureUtils.addListener(locateFuture, (locs, error) -> {
@@ -265,7 +439,10 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
           new HBaseIOException("No location found for default replica of table=" +
             tableDesc.getTableName() + " row='" + Bytes.toStringBinary(row) + "'"));
       } else {
-        replicate(future, locs, tableDesc, encodedRegionName, row, entries);
+        replicate(future, locs, tableDesc, encodedRegionName, row, entries, batcher);
+      }
+      if (batcher != null) {
+        batcher.located();
       }
     });
     return future;
@@ -315,12 +492,17 @@ public class RegionReplicaReplicationEndpoint extends HBaseReplicationEndpoint {
     while (isRunning()) {
       List<Pair<CompletableFuture<Long>, byte[]>> futureAndEncodedRegionNameList =
         new ArrayList<Pair<CompletableFuture<Long>, byte[]>>();
+      ServerBatcher batcher = batchPerServer ? new ServerBatcher() : null;
       for (Map.Entry<byte[], Pair<TableDescriptor, List<Entry>>> entry : encodedRegionName2Entries
         .entrySet()) {
-        CompletableFuture<Long> future =
-          replicate(entry.getValue().getFirst(), entry.getKey(), entry.getValue().getSecond());
+        CompletableFuture<Long> future = replicate(entry.getValue().getFirst(), entry.getKey(),
+          entry.getValue().getSecond(), batcher);
         futureAndEncodedRegionNameList.add(Pair.newPair(future, entry.getKey()));
       }
+      if (batcher != null) {
+        // all the regions are submitted, the batches are sent once they are all located
+        batcher.located();
+      }
       for (Pair<CompletableFuture<Long>, byte[]> pair : futureAndEncodedRegionNameList) {
         byte[] encodedRegionName = pair.getSecond();
         try {
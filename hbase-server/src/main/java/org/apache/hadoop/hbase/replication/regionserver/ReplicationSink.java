@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.Future;
@@ -46,11 +47,17 @@ import org.apache.hadoop.hbase.client.ClusterConnectionFactory;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionReplicaUtil;
 import org.apache.hadoop.hbase.client.RetriesExhaustedException;
 import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.replication.ReplicationUtils;
 import org.apache.hadoop.hbase.security.UserProvider;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.FutureUtils;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.wal.WALEdit;
@@ -73,7 +80,11 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.StoreDescript
  * is synchronized (after reading from WALs in ReplicationSource) and that a
  * single region server cannot receive edits from two sources at the same time
  * </p><p>
- * This class uses the native HBase client in order to replicate entries.
+ * This class uses the native HBase client in order to replicate entries. The batches of all the
+ * tables of a call are sent concurrently. When {@link #LOCAL_APPLY_KEY} is set and the sink runs
+ * in a region server, the mutations of the regions hosted by the server are written directly into
+ * the regions instead of going through the client and the RPC layer. Mutations a local region
+ * fails to apply are sent through the client, which retries or reports the error.
  * </p>
  *
  * TODO make this class more like ReplicationSource wrt log handling
@@ -82,6 +93,11 @@ import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.StoreDescript
 public class ReplicationSink {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReplicationSink.class);
+
+  /** Whether to write edits of the regions hosted by this server directly into the regions. */
+  public static final String LOCAL_APPLY_KEY = "replication.sink.local.apply";
+  public static final boolean DEFAULT_LOCAL_APPLY = false;
+
   private final Configuration conf;
   // Volatile because of note in here -- look for double-checked locking:
   // http://www.oracle.com/technetwork/articles/javase/bloch-effective-08-qa-140880.html
@@ -93,6 +109,8 @@ public class ReplicationSink {
   private long hfilesReplicated = 0;
   private SourceFSConfigurationProvider provider;
   private WALEntrySinkFilter walEntrySinkFilter;
+  // the region server hosting the sink, null if edits are only applied through the client
+  private final RegionServerServices rsServices;
 
   /**
    * Row size threshold for multi requests above which a warning is logged
@@ -106,7 +124,21 @@ public class ReplicationSink {
    */
   public ReplicationSink(Configuration conf)
       throws IOException {
+    this(conf, null);
+  }
+
+  /**
+   * Create a sink for replication
+   * @param conf conf object
+   * @param rsServices the region server hosting the sink, used to apply the edits of its regions
+   *          directly when {@link #LOCAL_APPLY_KEY} is set. May be null.
+   * @throws IOException thrown when HDFS goes bad or bad file name
+   */
+  public ReplicationSink(Configuration conf, RegionServerServices rsServices)
+      throws IOException {
     this.conf = HBaseConfiguration.create(conf);
+    this.rsServices =
+        conf.getBoolean(LOCAL_APPLY_KEY, DEFAULT_LOCAL_APPLY) ? rsServices : null;
     rowSizeWarnThreshold = conf.getInt(
       HConstants.BATCH_ROWS_THRESHOLD_NAME, HConstants.BATCH_ROWS_THRESHOLD_DEFAULT);
     decorateConf();
@@ -177,6 +209,7 @@ public class ReplicationSink {
     }
     // Very simple optimization where we batch sequences of rows going
     // to the same table.
+    long startTime = EnvironmentEdgeManager.currentTime();
     try {
       long totalReplicated = 0;
       // Map of table => list of Rows, grouped by cluster id, we only want to flushCommits once per
@@ -252,9 +285,7 @@ public class ReplicationSink {
       // TODO Replicating mutations and bulk loaded data can be made parallel
       if (!rowMap.isEmpty()) {
         LOG.debug("Started replicating mutations.");
-        for (Entry<TableName, Map<List<UUID>, List<Row>>> entry : rowMap.entrySet()) {
-          batch(entry.getKey(), entry.getValue().values(), rowSizeWarnThreshold);
-        }
+        batch(rowMap, rowSizeWarnThreshold);
         LOG.debug("Finished replicating mutations.");
       }
 
@@ -279,6 +310,8 @@ public class ReplicationSink {
       this.metrics.setAgeOfLastAppliedOp(entries.get(size - 1).getKey().getWriteTime());
       this.metrics.applyBatch(size + hfilesReplicated, hfilesReplicated);
       this.totalReplicatedEdits.addAndGet(totalReplicated);
+      this.metrics.updateApplyLatency(replicationClusterId,
+        EnvironmentEdgeManager.currentTime() - startTime);
     } catch (IOException ex) {
       LOG.error("Unable to accept edit because:", ex);
       throw ex;
@@ -395,18 +428,62 @@ public class ReplicationSink {
 
 
   /**
-   * Do the changes and handle the pool
+   * Do the changes of all the tables, and wait for them to complete. The mutations of the regions
+   * hosted by this server are applied directly if enabled, the others are sent to the cluster
+   * through the client while the local ones are applied.
+   * @param rowMap actions by table, grouped by cluster ids
+   * @param batchRowSizeThreshold rowSize threshold for batch mutation
+   */
+  private void batch(Map<TableName, Map<List<UUID>, List<Row>>> rowMap,
+      int batchRowSizeThreshold) throws IOException {
+    Map<TableName, List<Future<?>>> futures = new TreeMap<>();
+    Map<TableName, Map<Region, List<Mutation>>> localMutations = new TreeMap<>();
+    for (Entry<TableName, Map<List<UUID>, List<Row>>> entry : rowMap.entrySet()) {
+      TableName tableName = entry.getKey();
+      Collection<List<Row>> allRows = entry.getValue().values();
+      if (rsServices != null) {
+        Map<Region, List<Mutation>> regionMutations = new HashMap<>();
+        allRows = splitLocalRows(tableName, allRows, regionMutations);
+        if (!regionMutations.isEmpty()) {
+          localMutations.put(tableName, regionMutations);
+        }
+      }
+      batch(tableName, allRows, batchRowSizeThreshold, futures);
+    }
+    for (Entry<TableName, Map<Region, List<Mutation>>> entry : localMutations.entrySet()) {
+      List<Row> failed = applyLocally(entry.getValue());
+      if (!failed.isEmpty()) {
+        batch(entry.getKey(), Collections.singletonList(failed), batchRowSizeThreshold, futures);
+      }
+    }
+    for (Entry<TableName, List<Future<?>>> entry : futures.entrySet()) {
+      for (Future<?> future : entry.getValue()) {
+        try {
+          FutureUtils.get(future);
+        } catch (RetriesExhaustedException e) {
+          if (e.getCause() instanceof TableNotFoundException) {
+            throw new TableNotFoundException("'" + entry.getKey() + "'");
+          }
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Send the changes of a table to the cluster, without waiting for them to complete.
    * @param tableName table to insert into
    * @param allRows list of actions
    * @param batchRowSizeThreshold rowSize threshold for batch mutation
+   * @param futures where to add the futures of the sent batches
    */
-  private void batch(TableName tableName, Collection<List<Row>> allRows, int batchRowSizeThreshold)
-      throws IOException {
+  private void batch(TableName tableName, Collection<List<Row>> allRows, int batchRowSizeThreshold,
+      Map<TableName, List<Future<?>>> futures) throws IOException {
     if (allRows.isEmpty()) {
       return;
     }
     AsyncTable<?> table = getConnection().getTable(tableName);
-    List<Future<?>> futures = new ArrayList<>();
+    List<Future<?>> tableFutures = futures.computeIfAbsent(tableName, k -> new ArrayList<>());
     for (List<Row> rows : allRows) {
       List<List<Row>> batchRows;
       if (rows.size() > batchRowSizeThreshold) {
@@ -414,18 +491,76 @@ public class ReplicationSink {
       } else {
         batchRows = Collections.singletonList(rows);
       }
-      futures.addAll(batchRows.stream().map(table::batchAll).collect(Collectors.toList()));
+      tableFutures.addAll(batchRows.stream().map(table::batchAll).collect(Collectors.toList()));
+    }
+  }
+
+  /**
+   * Pick the mutations of a table going to regions hosted by this server.
+   * @param regionMutations where to add the mutations of each local region
+   * @return the rows to send through the client
+   */
+  private Collection<List<Row>> splitLocalRows(TableName tableName, Collection<List<Row>> allRows,
+      Map<Region, List<Mutation>> regionMutations) throws IOException {
+    NavigableMap<byte[], Region> regions = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Region region : rsServices.getRegions(tableName)) {
+      RegionInfo info = region.getRegionInfo();
+      if (RegionReplicaUtil.isDefaultReplica(info) && region.isAvailable() &&
+          !region.isReadOnly()) {
+        regions.put(info.getStartKey(), region);
+      }
+    }
+    if (regions.isEmpty()) {
+      return allRows;
+    }
+    List<List<Row>> remoteRows = new ArrayList<>(allRows.size());
+    for (List<Row> rows : allRows) {
+      List<Row> remote = new ArrayList<>();
+      for (Row row : rows) {
+        Entry<byte[], Region> entry = regions.floorEntry(row.getRow());
+        if (entry != null && entry.getValue().getRegionInfo().containsRow(row.getRow())) {
+          regionMutations.computeIfAbsent(entry.getValue(), k -> new ArrayList<>())
+            .add((Mutation) row);
+        } else {
+          remote.add(row);
+        }
+      }
+      if (!remote.isEmpty()) {
+        remoteRows.add(remote);
+      }
     }
-    for (Future<?> future : futures) {
+    return remoteRows;
+  }
+
+  /**
+   * Write mutations directly into regions of this server.
+   * @return the mutations that were not applied, to send through the client
+   */
+  private List<Row> applyLocally(Map<Region, List<Mutation>> regionMutations) {
+    List<Row> failed = new ArrayList<>();
+    long applied = 0;
+    for (Entry<Region, List<Mutation>> entry : regionMutations.entrySet()) {
+      Region region = entry.getKey();
+      List<Mutation> mutations = entry.getValue();
+      OperationStatus[] statuses;
       try {
-        FutureUtils.get(future);
-      } catch (RetriesExhaustedException e) {
-        if (e.getCause() instanceof TableNotFoundException) {
-          throw new TableNotFoundException("'" + tableName + "'");
+        statuses = region.batchMutate(mutations.toArray(new Mutation[mutations.size()]));
+      } catch (IOException e) {
+        LOG.debug("Failed to apply {} mutations to local region {}, sending them to the cluster",
+          mutations.size(), region.getRegionInfo().getEncodedName(), e);
+        failed.addAll(mutations);
+        continue;
+      }
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i].getOperationStatusCode() == HConstants.OperationStatusCode.SUCCESS) {
+          applied++;
+        } else {
+          failed.add(mutations.get(i));
         }
-        throw e;
       }
     }
+    metrics.applyLocally(applied);
+    return failed;
   }
 
   private AsyncClusterConnection getConnection() throws IOException {
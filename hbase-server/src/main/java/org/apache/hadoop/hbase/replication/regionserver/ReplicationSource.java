@@ -446,9 +446,14 @@ public class ReplicationSource implements ReplicationSourceInterface {
 
   private ReplicationSourceWALReader createNewWALReader(String walGroupId,
       PriorityBlockingQueue<Path> queue, long startPosition) {
-    return replicationPeer.getPeerConfig().isSerial()
+    ReplicationSourceWALReader reader = replicationPeer.getPeerConfig().isSerial()
       ? new SerialReplicationSourceWALReader(fs, conf, queue, startPosition, walEntryFilter, this)
       : new ReplicationSourceWALReader(fs, conf, queue, startPosition, walEntryFilter, this);
+    if (!isRecovered()) {
+      // only the WALs of this server are being written here
+      reader.setWALTailBuffer(manager.getWALTailBuffer(walGroupId));
+    }
+    return reader;
   }
 
   /**
@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.hbase.replication.regionserver;
 
+import static org.apache.hadoop.hbase.util.ConcurrentMapUtils.computeIfAbsent;
+
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -71,7 +73,9 @@ import org.apache.hadoop.hbase.util.ServerRegionReplicaUtil;
 import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
 import org.apache.hadoop.hbase.wal.SyncReplicationWALProvider;
 import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WALEdit;
 import org.apache.hadoop.hbase.wal.WALFactory;
+import org.apache.hadoop.hbase.wal.WALKeyImpl;
 import org.apache.hadoop.hbase.wal.WALProvider;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.apache.zookeeper.KeeperException;
@@ -188,6 +192,9 @@ public class ReplicationSourceManager implements ReplicationListener {
   // Total buffer size on this RegionServer for holding batched edits to be shipped.
   private final long totalBufferLimit;
   private final MetricsReplicationGlobalSourceSource globalMetrics;
+  // The in memory tails of the WALs being written, by wal group
+  private final ConcurrentMap<String, WALTailBuffer> walTailBuffers = new ConcurrentHashMap<>();
+  private final long walTailBufferSize;
 
   /**
    * A special ReplicationSource for hbase:meta Region Read Replicas.
@@ -253,6 +260,8 @@ public class ReplicationSourceManager implements ReplicationListener {
     this.totalBufferLimit = conf.getLong(HConstants.REPLICATION_SOURCE_TOTAL_BUFFER_KEY,
         HConstants.REPLICATION_SOURCE_TOTAL_BUFFER_DFAULT);
     this.globalMetrics = globalMetrics;
+    this.walTailBufferSize = conf.getLong(WALTailBuffer.WAL_TAIL_BUFFER_SIZE_KEY,
+      WALTailBuffer.DEFAULT_WAL_TAIL_BUFFER_SIZE);
   }
 
   /**
@@ -829,6 +838,11 @@ public class ReplicationSourceManager implements ReplicationListener {
   // public because of we call it in TestReplicationEmptyWALRecovery
   @VisibleForTesting
   public void postLogRoll(Path newLog) throws IOException {
+    WALTailBuffer tailBuffer =
+      walTailBuffers.get(AbstractFSWALProvider.getWALPrefixFromWALName(newLog.getName()));
+    if (tailBuffer != null) {
+      tailBuffer.roll(newLog);
+    }
     // This only updates the sources we own, not the recovered ones
     for (ReplicationSourceInterface source : this.sources.values()) {
       source.enqueueLog(newLog);
@@ -837,6 +851,28 @@ public class ReplicationSourceManager implements ReplicationListener {
     }
   }
 
+  /**
+   * Buffers an entry written to a WAL of this server, if there is a source to replicate it.
+   */
+  void postWALWrite(Path path, long position, long length, WALKeyImpl key, WALEdit edit) {
+    if (walTailBufferSize <= 0 || path == null || sources.isEmpty()) {
+      return;
+    }
+    getWALTailBuffer(AbstractFSWALProvider.getWALPrefixFromWALName(path.getName()))
+      .append(path, position, length, key, edit);
+  }
+
+  /**
+   * @return the in memory tail of the WAL being written for the given wal group, or null if the
+   *   WALs are not buffered
+   */
+  WALTailBuffer getWALTailBuffer(String walGroupId) {
+    if (walTailBufferSize <= 0) {
+      return null;
+    }
+    return computeIfAbsent(walTailBuffers, walGroupId, () -> new WALTailBuffer(walTailBufferSize));
+  }
+
   @Override
   public void regionServerRemoved(String regionserver) {
     transferQueues(ServerName.valueOf(regionserver));
@@ -20,31 +20,52 @@ package org.apache.hadoop.hbase.replication.regionserver;
 import static org.apache.hadoop.hbase.replication.ReplicationUtils.getAdaptiveTimeout;
 import static org.apache.hadoop.hbase.replication.ReplicationUtils.sleepForRetries;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.replication.ReplicationEndpoint;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
 import org.apache.hadoop.hbase.wal.WALEdit;
 import org.apache.yetus.audience.InterfaceAudience;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.BulkLoadDescriptor;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.StoreDescriptor;
 
 /**
  * This thread reads entries from a queue and ships them. Entries are placed onto the queue by
  * ReplicationSourceWALReaderThread
+ * <p>
+ * By default a batch is shipped only once the previous one was acknowledged by the peer. With
+ * {@link #MAX_INFLIGHT_BATCHES_KEY} above one, up to that many batches are shipped concurrently,
+ * see {@link ShipPipeline}. Serial peers always ship one batch at a time.
  */
 @InterfaceAudience.Private
 public class ReplicationSourceShipper extends Thread {
   private static final Logger LOG = LoggerFactory.getLogger(ReplicationSourceShipper.class);
 
+  /** Maximum number of batches of a wal group being shipped to the peer at the same time. */
+  public static final String MAX_INFLIGHT_BATCHES_KEY =
+      "replication.source.shipper.inflight.batches";
+  public static final int DEFAULT_MAX_INFLIGHT_BATCHES = 1;
+
   // Hold the state of a replication worker thread
   public enum WorkerState {
     RUNNING,
@@ -73,6 +94,7 @@ public class ReplicationSourceShipper extends Thread {
   private final int DEFAULT_TIMEOUT = 20000;
   private final int getEntriesTimeout;
   private final int shipEditsTimeout;
+  private final int maxInflightBatches;
 
   public ReplicationSourceShipper(Configuration conf, String walGroupId,
       PriorityBlockingQueue<Path> queue, ReplicationSource source) {
@@ -88,12 +110,18 @@ public class ReplicationSourceShipper extends Thread {
         this.conf.getInt("replication.source.getEntries.timeout", DEFAULT_TIMEOUT); // 20 seconds
     this.shipEditsTimeout = this.conf.getInt(HConstants.REPLICATION_SOURCE_SHIPEDITS_TIMEOUT,
         HConstants.REPLICATION_SOURCE_SHIPEDITS_TIMEOUT_DFAULT);
+    this.maxInflightBatches =
+        Math.max(1, conf.getInt(MAX_INFLIGHT_BATCHES_KEY, DEFAULT_MAX_INFLIGHT_BATCHES));
   }
 
   @Override
   public final void run() {
     setWorkerState(WorkerState.RUNNING);
     LOG.info("Running ReplicationSourceShipper Thread for wal group: {}", this.walGroupId);
+    ShipPipeline pipeline = null;
+    if (maxInflightBatches > 1 && !source.getPeer().getPeerConfig().isSerial()) {
+      pipeline = new ShipPipeline(maxInflightBatches);
+    }
     // Loop until we close down
     while (isActive()) {
       // Sleep until replication is enabled again
@@ -112,7 +140,12 @@ public class ReplicationSourceShipper extends Thread {
         }
         // the NO_MORE_DATA instance has no path so do not call shipEdits
         if (entryBatch == WALEntryBatch.NO_MORE_DATA) {
-          noMoreData();
+          // do not let the queue go before all of its batches are recorded as shipped
+          if (pipeline == null || pipeline.drain()) {
+            noMoreData();
+          }
+        } else if (pipeline != null) {
+          pipeline.submit(entryBatch);
         } else {
           shipEdits(entryBatch);
         }
@@ -122,6 +155,9 @@ public class ReplicationSourceShipper extends Thread {
         Thread.currentThread().interrupt();
       }
     }
+    if (pipeline != null) {
+      pipeline.shutdown();
+    }
     // If the worker exits run loop without finishing its task, mark it as stopped.
     if (!isFinished()) {
       setWorkerState(WorkerState.STOPPED);
@@ -162,12 +198,19 @@ public class ReplicationSourceShipper extends Thread {
    * Do the shipping logic
    */
   private void shipEdits(WALEntryBatch entryBatch) {
-    List<Entry> entries = entryBatch.getWalEntries();
-    int sleepMultiplier = 0;
-    if (entries.isEmpty()) {
+    if (entryBatch.getNbEntries() == 0 || replicate(entryBatch)) {
       updateLogPosition(entryBatch);
-      return;
     }
+  }
+
+  /**
+   * Ships the entries of the batch to the peer, retrying until they are acknowledged or the
+   * shipper is stopped. Does not record the new log position.
+   * @return whether the entries were shipped
+   */
+  private boolean replicate(WALEntryBatch entryBatch) {
+    List<Entry> entries = entryBatch.getWalEntries();
+    int sleepMultiplier = 0;
     int currentSize = (int) entryBatch.getHeapSize();
     int sizeExcludeBulkLoad = getBatchEntrySizeExcludeBulkLoad(entryBatch);
     source.getSourceMetrics().setTimeStampNextToReplicate(entries.get(entries.size() - 1)
@@ -191,6 +234,7 @@ public class ReplicationSourceShipper extends Thread {
         replicateContext.setWalGroupId(walGroupId);
         replicateContext.setTimeout(getAdaptiveTimeout(this.shipEditsTimeout, sleepMultiplier));
 
+        long startTime = EnvironmentEdgeManager.currentTime();
         long startTimeNs = System.nanoTime();
         // send the edits to the endpoint. Will block until the edits are shipped and acknowledged
         boolean replicated = source.getReplicationEndpoint().replicate(replicateContext);
@@ -206,9 +250,6 @@ public class ReplicationSourceShipper extends Thread {
           cleanUpHFileRefs(entry.getEdit());
           LOG.trace("shipped entry {}: ", entry);
         }
-        // Log and clean up WAL logs
-        updateLogPosition(entryBatch);
-
         //offsets totalBufferUsed by deducting shipped batchSize (excludes bulk load size)
         //this sizeExcludeBulkLoad has to use same calculation that when calling
         //acquireBufferQuota() in ReplicationSourceWALReader because they maintain
@@ -220,12 +261,18 @@ public class ReplicationSourceShipper extends Thread {
         source.getSourceMetrics().setAgeOfLastShippedOp(
           entries.get(entries.size() - 1).getKey().getWriteTime(), walGroupId);
         source.getSourceMetrics().updateTableLevelMetrics(entryBatch.getWalEntriesWithSize());
+        if (entryBatch.getReadTime() > 0) {
+          long writeTime = entries.get(entries.size() - 1).getKey().getWriteTime();
+          source.getSourceMetrics().updateLagBreakdown(
+            Math.max(0, entryBatch.getReadTime() - writeTime),
+            Math.max(0, startTime - entryBatch.getReadTime()), (endTimeNs - startTimeNs) / 1000000);
+        }
 
         if (LOG.isTraceEnabled()) {
           LOG.debug("Replicated {} entries or {} operations in {} ms",
               entries.size(), entryBatch.getNbOperations(), (endTimeNs - startTimeNs) / 1000000);
         }
-        break;
+        return true;
       } catch (Exception ex) {
         LOG.warn("{} threw unknown exception:",
           source.getReplicationEndpoint().getClass().getName(), ex);
@@ -235,6 +282,7 @@ public class ReplicationSourceShipper extends Thread {
         }
       }
     }
+    return false;
   }
 
   private void cleanUpHFileRefs(WALEdit edit) throws IOException {
@@ -285,6 +333,164 @@ public class ReplicationSourceShipper extends Thread {
     return updated;
   }
 
+  /**
+   * Ships the batches of the wal group concurrently, while keeping the edits of every region in
+   * order at the peer: a batch is only handed to a shipping thread once no other batch being
+   * shipped holds edits of one of its regions. Log positions are recorded in the order the batches
+   * were read, once every batch up to them was shipped, so that a restart never skips the edits of
+   * a batch that had not been acknowledged yet. They are written to the queue storage out of the
+   * monitor of the pipeline, so a slow write does not hold back the next batches.
+   */
+  private final class ShipPipeline {
+
+    private final class InflightBatch {
+      final WALEntryBatch batch;
+      final Set<byte[]> regions = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+      // the shipping attempt is over, successful or not
+      boolean done;
+      boolean shipped;
+
+      InflightBatch(WALEntryBatch batch) {
+        this.batch = batch;
+        for (Entry entry : batch.getWalEntries()) {
+          regions.add(entry.getKey().getEncodedRegionName());
+        }
+      }
+
+      boolean overlaps(InflightBatch other) {
+        for (byte[] region : regions) {
+          if (other.regions.contains(region)) {
+            return true;
+          }
+        }
+        return false;
+      }
+    }
+
+    private final int maxInflight;
+    private final ThreadPoolExecutor pool;
+    // batches not recorded yet, in read order. Guarded by this.
+    private final Deque<InflightBatch> inflight = new ArrayDeque<>();
+    // number of batches being shipped. Guarded by this.
+    private int shipping;
+    // serializes the recording of the log positions, taken before the monitor of the pipeline
+    private final Object recordLock = new Object();
+
+    ShipPipeline(int maxInflight) {
+      this.maxInflight = maxInflight;
+      this.pool = Threads.getBoundedCachedThreadPool(maxInflight, 60, TimeUnit.SECONDS,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat(getName() + "-ship-%d").build());
+    }
+
+    private boolean canShip(InflightBatch batch) {
+      if (shipping >= maxInflight) {
+        return false;
+      }
+      for (InflightBatch other : inflight) {
+        if (!other.done && other.overlaps(batch)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Waits for the batch to be allowed in flight and hands it to a shipping thread.
+     */
+    void submit(WALEntryBatch entryBatch) throws InterruptedException {
+      InflightBatch batch = new InflightBatch(entryBatch);
+      synchronized (this) {
+        while (!canShip(batch)) {
+          if (!isActive()) {
+            return;
+          }
+          wait(sleepForRetries);
+        }
+        inflight.addLast(batch);
+        if (entryBatch.getNbEntries() > 0) {
+          shipping++;
+        } else {
+          // nothing to ship, may still carry a new position or the end of a file
+          batch.done = true;
+          batch.shipped = true;
+        }
+      }
+      if (entryBatch.getNbEntries() > 0) {
+        pool.execute(() -> ship(batch));
+      } else {
+        recordShipped();
+      }
+    }
+
+    private void ship(InflightBatch batch) {
+      boolean shipped = replicate(batch.batch);
+      synchronized (this) {
+        shipping--;
+        batch.done = true;
+        batch.shipped = shipped;
+        notifyAll();
+      }
+      try {
+        recordShipped();
+      } catch (ReplicationRuntimeException e) {
+        LOG.warn("Failed to record the log position of wal group {}", walGroupId, e);
+        ReplicationSourceShipper.this.interrupt();
+      }
+    }
+
+    // Records the log positions of the shipped batches not preceded by a batch still in flight.
+    // The batches stay in flight until recorded, see drain.
+    private void recordShipped() {
+      synchronized (recordLock) {
+        List<WALEntryBatch> toRecord = new ArrayList<>();
+        synchronized (this) {
+          for (InflightBatch batch : inflight) {
+            if (!batch.shipped) {
+              break;
+            }
+            toRecord.add(batch.batch);
+          }
+        }
+        int recorded = 0;
+        try {
+          for (WALEntryBatch batch : toRecord) {
+            updateLogPosition(batch);
+            recorded++;
+          }
+        } finally {
+          if (recorded > 0) {
+            synchronized (this) {
+              // only the batches recorded here may have left the head since
+              for (int i = 0; i < recorded; i++) {
+                inflight.removeFirst();
+              }
+              notifyAll();
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Waits for all the submitted batches to be shipped and recorded.
+     * @return false if the shipper was stopped before
+     */
+    synchronized boolean drain() throws InterruptedException {
+      while (!inflight.isEmpty()) {
+        if (!isActive()) {
+          return false;
+        }
+        wait(sleepForRetries);
+      }
+      return true;
+    }
+
+    void shutdown() {
+      pool.shutdownNow();
+    }
+  }
+
   public void startup(UncaughtExceptionHandler handler) {
     String name = Thread.currentThread().getName();
     Threads.setDaemonThreadRunning(this,
@@ -59,6 +59,11 @@ class ReplicationSourceWALActionListener implements WALActionsListener {
     scopeWALEdits(logKey, logEdit, conf);
   }
 
+  @Override
+  public void postWrite(Path path, long position, long length, WALKey logKey, WALEdit logEdit) {
+    manager.postWALWrite(path, position, length, (WALKeyImpl) logKey, logEdit);
+  }
+
   /**
    * Utility method used to set the correct scopes on each log key. Doesn't set a scope on keys from
    * compaction WAL edits and if the scope is local.
@@ -52,6 +52,8 @@ class WALEntryBatch {
   private Map<String, Long> lastSeqIds = new HashMap<>();
   // indicate that this is the end of the current file
   private boolean endOfFile;
+  // time the batch was handed to the shipper, for the replication lag breakdown
+  private long readTime;
 
   /**
    * @param lastWalPath Path of the WAL the last entry in this batch was read from
@@ -152,6 +154,17 @@ class WALEntryBatch {
     this.endOfFile = endOfFile;
   }
 
+  /**
+   * @return the time the batch was handed to the shipper, or 0 if not known
+   */
+  public long getReadTime() {
+    return readTime;
+  }
+
+  public void setReadTime(long readTime) {
+    this.readTime = readTime;
+  }
+
   public void incrementNbRowKeys(int increment) {
     nbRowKeys += increment;
   }
@@ -47,6 +47,9 @@ import org.slf4j.LoggerFactory;
  * Streaming access to WAL entries. This class is given a queue of WAL {@link Path}, and continually
  * iterates through all the WAL {@link Entry} in the queue. When it's done reading from a Path, it
  * dequeues it and starts reading from the next.
+ * <p>
+ * When given a {@link WALTailBuffer}, the synced entries of the WAL being written are read from it
+ * when buffered, and from the file otherwise.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
@@ -70,6 +73,10 @@ class WALEntryStream implements Closeable {
   // which region server the WALs belong to
   private final ServerName serverName;
   private final MetricsSource metrics;
+  // the in memory tail of the WAL being written, may be null
+  private final WALTailBuffer tailBuffer;
+  // whether entries were read from the tail buffer since the reader was last positioned
+  private boolean readerBehind;
 
   /**
    * Create an entry stream over the given queue at the given start position
@@ -84,6 +91,17 @@ class WALEntryStream implements Closeable {
   public WALEntryStream(PriorityBlockingQueue<Path> logQueue, Configuration conf,
       long startPosition, WALFileLengthProvider walFileLengthProvider, ServerName serverName,
       MetricsSource metrics) throws IOException {
+    this(logQueue, conf, startPosition, walFileLengthProvider, serverName, metrics, null);
+  }
+
+  /**
+   * Create an entry stream over the given queue at the given start position, reading the synced
+   * entries of the WAL being written from the given buffer when it holds them
+   * @param tailBuffer the in memory tail of the WAL being written, may be null
+   */
+  public WALEntryStream(PriorityBlockingQueue<Path> logQueue, Configuration conf,
+      long startPosition, WALFileLengthProvider walFileLengthProvider, ServerName serverName,
+      MetricsSource metrics, WALTailBuffer tailBuffer) throws IOException {
     this.logQueue = logQueue;
     this.fs = CommonFSUtils.getWALFileSystem(conf);
     this.conf = conf;
@@ -91,6 +109,7 @@ class WALEntryStream implements Closeable {
     this.walFileLengthProvider = walFileLengthProvider;
     this.serverName = serverName;
     this.metrics = metrics;
+    this.tailBuffer = tailBuffer;
   }
 
   /**
@@ -260,6 +279,31 @@ class WALEntryStream implements Closeable {
    * Returns whether the file is opened for writing.
    */
   private boolean readNextEntryAndRecordReaderPosition() throws IOException {
+    if (tailBuffer != null) {
+      OptionalLong syncedLength = walFileLengthProvider.getLogFileSizeIfBeingWritten(currentPath);
+      if (syncedLength.isPresent()) {
+        if (currentPositionOfEntry > 0 && currentPositionOfEntry >= syncedLength.getAsLong()) {
+          // nothing synced past our position, no need to go to the file to find out
+          currentEntry = null;
+          return true;
+        }
+        WALTailBuffer.BufferedEntry buffered = tailBuffer.get(currentPath, currentPositionOfEntry);
+        if (buffered != null && buffered.getEnd() <= syncedLength.getAsLong()) {
+          currentEntry = buffered.toEntry();
+          LOG.trace("reading entry from tail buffer: {} ", currentEntry);
+          metrics.incrLogEditsRead();
+          metrics.incrLogEditsReadFromTailBuffer();
+          metrics.incrLogReadInBytes(buffered.getEnd() - currentPositionOfEntry);
+          currentPositionOfReader = buffered.getEnd();
+          readerBehind = true;
+          return true;
+        }
+      }
+    }
+    if (readerBehind) {
+      // the source fell behind the buffer, or the WAL rolled, go back to the file
+      resetReader();
+    }
     Entry readEntry = reader.next();
     long readerPos = reader.getPosition();
     OptionalLong fileLength = walFileLengthProvider.getLogFileSizeIfBeingWritten(currentPath);
@@ -356,6 +400,7 @@ class WALEntryStream implements Closeable {
       if (reader == null || !getCurrentPath().equals(path)) {
         closeReader();
         reader = WALFactory.createReader(fs, path, conf);
+        readerBehind = false;
         seek();
         setCurrentPath(path);
       } else {
@@ -400,6 +445,7 @@ class WALEntryStream implements Closeable {
   private void resetReader() throws IOException {
     try {
       currentEntry = null;
+      readerBehind = false;
       reader.reset();
       seek();
     } catch (FileNotFoundException fnfe) {
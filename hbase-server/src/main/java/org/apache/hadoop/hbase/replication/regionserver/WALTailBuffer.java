@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.ByteBufferExtendedCell;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.PrivateCellUtil;
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ClassSize;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WALEdit;
+import org.apache.hadoop.hbase.wal.WALKeyImpl;
+import org.apache.yetus.audience.InterfaceAudience;
+
+import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Keeps the last entries written to the WAL file of a wal group in memory, so that the replication
+ * sources of this server can read the WAL being written without going back to the file system.
+ * <p>
+ * Entries are indexed by their offset in the file, so that a {@link WALEntryStream} at a given
+ * position can tell whether the next entry is buffered. The buffer is bounded by
+ * {@link #WAL_TAIL_BUFFER_SIZE_KEY} bytes, and drops its oldest entries when full: a source lagging
+ * behind the buffer reads the file until it catches up with it. Only entries of the current WAL
+ * file are kept, and a stream must only return buffered entries the WAL already synced.
+ * <p>
+ * The entries are appended by the thread writing the WAL, so appending takes no lock and only
+ * copies what it must: the cells backed by off heap buffers, which come from the pool of the rpc
+ * server and are reused once the entry is synced. The on heap cells are referenced as is, their
+ * arrays are never reused, though a cell may keep the whole request it came with alive while it is
+ * buffered.
+ */
+@InterfaceAudience.Private
+class WALTailBuffer {
+
+  /** Maximum heap size of the buffered entries of a wal group. 0 disables the buffer. */
+  static final String WAL_TAIL_BUFFER_SIZE_KEY = "replication.source.wal.tail.buffer.size";
+  static final long DEFAULT_WAL_TAIL_BUFFER_SIZE = 0;
+
+  private static final long ENTRY_OVERHEAD = ClassSize.align(ClassSize.OBJECT
+      + 3 * ClassSize.REFERENCE + 3 * Bytes.SIZEOF_LONG) + ClassSize.CONCURRENT_SKIPLISTMAP_ENTRY
+      + ClassSize.ARRAYLIST;
+
+  /**
+   * An entry of the WAL, and its location in the file.
+   */
+  static final class BufferedEntry {
+    private final long position;
+    private final long end;
+    private final WALKeyImpl key;
+    private final List<Cell> cells;
+    private final long heapSize;
+
+    private BufferedEntry(long position, long end, WALKeyImpl key, List<Cell> cells,
+        long heapSize) {
+      this.position = position;
+      this.end = end;
+      this.key = key;
+      this.cells = cells;
+      this.heapSize = heapSize;
+    }
+
+    /**
+     * @return the offset of the end of the entry in the WAL file
+     */
+    long getEnd() {
+      return end;
+    }
+
+    /**
+     * @return a new copy of the entry, as it would have been read from the file. The cells are
+     *   shared, the key and edit are not, the replication filters may change them.
+     */
+    Entry toEntry() {
+      WALKeyImpl copy = copyKey(key);
+      WALEdit edit = new WALEdit(cells.size());
+      for (Cell cell : cells) {
+        edit.add(cell);
+      }
+      return new Entry(copy, edit);
+    }
+  }
+
+  /**
+   * The buffered entries of a WAL file.
+   */
+  private static final class Tail {
+    private final Path path;
+    // buffered entries by offset in the file
+    private final ConcurrentNavigableMap<Long, BufferedEntry> entries =
+      new ConcurrentSkipListMap<>();
+    // only changed by the thread appending
+    private volatile long size;
+
+    private Tail(Path path) {
+      this.path = path;
+    }
+  }
+
+  private final long maxSize;
+  // replaced when the WAL moves to a new file
+  private final AtomicReference<Tail> tail = new AtomicReference<>(new Tail(null));
+
+  WALTailBuffer(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  private static WALKeyImpl copyKey(WALKeyImpl key) {
+    NavigableMap<byte[], Integer> scopes = key.getReplicationScopes();
+    return new WALKeyImpl(key, new ArrayList<>(key.getClusterIds()), null,
+      scopes != null ? new TreeMap<>(scopes) : null, key.getExtendedAttributes());
+  }
+
+  /**
+   * Buffers an entry written to the WAL file. Entries must be added in the order they are written.
+   * @param path the WAL file
+   * @param position the offset of the entry in the file
+   * @param end the offset of the end of the entry in the file
+   */
+  void append(Path path, long position, long end, WALKeyImpl key, WALEdit edit) {
+    List<Cell> cells = new ArrayList<>(edit.size());
+    long heapSize = ENTRY_OVERHEAD + key.estimatedSerializedSizeOf();
+    for (Cell cell : edit.getCells()) {
+      if (cell instanceof ByteBufferExtendedCell) {
+        cell = KeyValueUtil.copyToNewKeyValue(cell);
+      }
+      heapSize += (cell instanceof HeapSize ? ((HeapSize) cell).heapSize()
+        : PrivateCellUtil.estimatedSerializedSizeOf(cell)) + ClassSize.REFERENCE;
+      cells.add(cell);
+    }
+    BufferedEntry entry = new BufferedEntry(position, end, copyKey(key), cells, heapSize);
+    Tail t = getTail(path);
+    t.entries.put(position, entry);
+    long size = t.size + heapSize;
+    while (size > maxSize) {
+      Map.Entry<Long, BufferedEntry> first = t.entries.pollFirstEntry();
+      if (first == null) {
+        break;
+      }
+      size -= first.getValue().heapSize;
+    }
+    t.size = size;
+  }
+
+  /**
+   * @return the entries of the given WAL file, the entries of the previous file are dropped
+   */
+  private Tail getTail(Path path) {
+    for (;;) {
+      Tail t = tail.get();
+      if (path.equals(t.path)) {
+        return t;
+      }
+      Tail newTail = new Tail(path);
+      if (tail.compareAndSet(t, newTail)) {
+        return newTail;
+      }
+    }
+  }
+
+  /**
+   * @return the buffered entry at the given offset of the WAL file, or null if it is not buffered
+   */
+  BufferedEntry get(Path path, long position) {
+    Tail t = tail.get();
+    return path.equals(t.path) ? t.entries.get(position) : null;
+  }
+
+  /**
+   * Drops the entries of the previous WAL file once the WAL rolled.
+   */
+  void roll(Path newPath) {
+    getTail(newPath);
+  }
+
+  @VisibleForTesting
+  long getHeapSize() {
+    return tail.get().size;
+  }
+
+  @VisibleForTesting
+  Long getFirstPosition() {
+    Map.Entry<Long, BufferedEntry> first = tail.get().entries.firstEntry();
+    return first != null ? first.getValue().position : null;
+  }
+}
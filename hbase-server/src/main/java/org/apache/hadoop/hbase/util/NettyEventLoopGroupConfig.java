@@ -17,9 +17,28 @@
  */
 package org.apache.hadoop.hbase.util;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.hbase.thirdparty.io.netty.bootstrap.ServerBootstrap;
 import org.apache.hbase.thirdparty.io.netty.channel.Channel;
+import org.apache.hbase.thirdparty.io.netty.channel.ChannelOption;
 import org.apache.hbase.thirdparty.io.netty.channel.EventLoopGroup;
+import org.apache.hbase.thirdparty.io.netty.channel.SelectStrategy;
+import org.apache.hbase.thirdparty.io.netty.channel.SelectStrategyFactory;
 import org.apache.hbase.thirdparty.io.netty.channel.ServerChannel;
+import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollChannelOption;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollEventLoopGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollServerSocketChannel;
 import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollSocketChannel;
@@ -27,21 +46,96 @@ import org.apache.hbase.thirdparty.io.netty.channel.nio.NioEventLoopGroup;
 import org.apache.hbase.thirdparty.io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.apache.hbase.thirdparty.io.netty.channel.socket.nio.NioSocketChannel;
 import org.apache.hbase.thirdparty.io.netty.util.concurrent.DefaultThreadFactory;
-import java.util.concurrent.ThreadFactory;
-import org.apache.hadoop.conf.Configuration;
-import org.apache.yetus.audience.InterfaceAudience;
+import org.apache.hbase.thirdparty.io.netty.util.concurrent.EventExecutor;
+import org.apache.hbase.thirdparty.io.netty.util.concurrent.SingleThreadEventExecutor;
 
 /**
  * Event loop group related config.
+ * <p/>
+ * The {@link #TRANSPORT_PROFILE_KEY} selects the defaults of the transport settings. The
+ * 'latency' profile trades cpu for latency: with the native epoll transport the sockets accepted
+ * by the rpc server busy poll the device queue, disable Nagle's algorithm and acknowledge
+ * immediately. Each of these can also be set on its own. The event loops, whose epoll channels are
+ * edge-triggered, can also spin on epoll instead of blocking in it, see
+ * {@link #EPOLL_BUSY_WAIT_KEY}, but never by default as it burns a core per event loop. The
+ * AsyncFSWAL can get an event loop
+ * group of its own, see {@link #WAL_WORKER_COUNT_KEY}, so the WAL writes do not queue behind
+ * client rpcs on the same event loops, or the other way around.
  */
 @InterfaceAudience.Private
 public class NettyEventLoopGroupConfig {
+  private static final Logger LOG = LoggerFactory.getLogger(NettyEventLoopGroupConfig.class);
+
+  /** Either 'default' or 'latency', see the class comment */
+  public static final String TRANSPORT_PROFILE_KEY = "hbase.netty.transport.profile";
+  public static final String TRANSPORT_PROFILE_DEFAULT = "default";
+  public static final String TRANSPORT_PROFILE_LATENCY = "latency";
+
+  /**
+   * Whether the epoll event loops spin waiting for events instead of blocking, which saves the
+   * wake up latency at the cost of one busy core per event loop. Default false, also for the
+   * latency profile. Only honored for a group whose number of event loops is set explicitly, see
+   * {@link #WORKER_COUNT_KEY} and {@link #WAL_WORKER_COUNT_KEY}, as the default of netty, twice the
+   * number of cores, would keep every core busy and starve the rpc handlers, flushes and
+   * compactions.
+   */
+  public static final String EPOLL_BUSY_WAIT_KEY = "hbase.netty.epoll.busy.wait";
+
+  /**
+   * SO_BUSY_POLL of the sockets accepted by the rpc server, the microseconds a read busy polls
+   * the device queue for packets. Default 50 for the latency profile, 0, disabled, otherwise.
+   */
+  public static final String SO_BUSY_POLL_KEY = "hbase.netty.so.busy.poll";
+  static final int LATENCY_PROFILE_SO_BUSY_POLL = 50;
+
+  /**
+   * Whether to set TCP_QUICKACK on the sockets accepted by the rpc server, so acks are not
+   * delayed. Default true for the latency profile.
+   */
+  public static final String TCP_QUICKACK_KEY = "hbase.netty.tcp.quickack";
+
+  /**
+   * Number of event loops of the group used by the rpc server and client. If not positive, the
+   * default, netty picks twice the number of cores.
+   */
+  public static final String WORKER_COUNT_KEY = "hbase.netty.worker.count";
+
+  /**
+   * Number of event loops of the group used by the AsyncFSWAL to write to the datanodes. If not
+   * positive, the default, the WAL shares the event loop group with the rpc server and client.
+   */
+  public static final String WAL_WORKER_COUNT_KEY = "hbase.netty.wal.worker.count";
+
+  private static final SelectStrategyFactory BUSY_WAIT_SELECT_STRATEGY_FACTORY =
+    () -> (selectSupplier, hasTasks) -> hasTasks ? selectSupplier.get() : SelectStrategy.BUSY_WAIT;
+
   private final EventLoopGroup group;
 
+  // same as group if the WAL does not have a group of its own
+  private final EventLoopGroup walGroup;
+
   private final Class<? extends ServerChannel> serverChannelClass;
 
   private final Class<? extends Channel> clientChannelClass;
 
+  private final boolean useEpoll;
+
+  private final int soBusyPoll;
+
+  private final boolean tcpQuickAck;
+
+  private final boolean latencyProfile;
+
+  private final boolean busyWait;
+
+  private final boolean walBusyWait;
+
+  // the threads of the event loops which have been started, of both groups
+  private final List<Thread> eventLoopThreads = new CopyOnWriteArrayList<>();
+
+  // cpu time and wall clock time in nanos of each event loop thread at the previous sample
+  private final Map<Long, long[]> lastUtilizationSamples = new HashMap<>();
+
   private static boolean useEpoll(Configuration conf) {
     // Config to enable native transport.
     boolean epollEnabled = conf.getBoolean("hbase.netty.nativetransport", true);
@@ -50,25 +144,92 @@ public class NettyEventLoopGroupConfig {
   }
 
   public NettyEventLoopGroupConfig(Configuration conf, String threadPoolName) {
-    boolean useEpoll = useEpoll(conf);
-    int workerCount = conf.getInt("hbase.netty.worker.count", 0);
-    ThreadFactory eventLoopThreadFactory =
-        new DefaultThreadFactory(threadPoolName, true, Thread.MAX_PRIORITY);
+    this.useEpoll = useEpoll(conf);
+    this.latencyProfile =
+      TRANSPORT_PROFILE_LATENCY.equals(conf.get(TRANSPORT_PROFILE_KEY, TRANSPORT_PROFILE_DEFAULT));
+    boolean busyWait = useEpoll && conf.getBoolean(EPOLL_BUSY_WAIT_KEY, false);
+    this.soBusyPoll =
+      conf.getInt(SO_BUSY_POLL_KEY, latencyProfile ? LATENCY_PROFILE_SO_BUSY_POLL : 0);
+    this.tcpQuickAck = conf.getBoolean(TCP_QUICKACK_KEY, latencyProfile);
+    int workerCount = conf.getInt(WORKER_COUNT_KEY, 0);
+    int walWorkerCount = conf.getInt(WAL_WORKER_COUNT_KEY, 0);
+    this.busyWait = busyWait && workerCount > 0;
+    this.walBusyWait = busyWait && walWorkerCount > 0;
+    if (busyWait) {
+      if (workerCount > 0) {
+        LOG.warn("{} is set, the {} event loops of {} will keep {} cores busy", EPOLL_BUSY_WAIT_KEY,
+          workerCount, threadPoolName, workerCount);
+      } else {
+        LOG.warn("{} is set but {} is not, not busy waiting in the event loops of {} as there "
+          + "would be one per 2 cores", EPOLL_BUSY_WAIT_KEY, WORKER_COUNT_KEY, threadPoolName);
+      }
+      if (walWorkerCount > 0) {
+        LOG.warn("{} is set, the {} WAL event loops will keep {} cores busy", EPOLL_BUSY_WAIT_KEY,
+          walWorkerCount, walWorkerCount);
+      }
+    }
+    group = createGroup(workerCount, threadPoolName, this.busyWait);
+    walGroup = walWorkerCount > 0
+      ? createGroup(walWorkerCount, threadPoolName + "-WAL", walBusyWait)
+      : group;
     if (useEpoll) {
-      group = new EpollEventLoopGroup(workerCount, eventLoopThreadFactory);
       serverChannelClass = EpollServerSocketChannel.class;
       clientChannelClass = EpollSocketChannel.class;
     } else {
-      group = new NioEventLoopGroup(workerCount, eventLoopThreadFactory);
+      if (soBusyPoll > 0 || tcpQuickAck) {
+        LOG.warn("{} and {} are only supported by the native epoll transport, ignoring them",
+          SO_BUSY_POLL_KEY, TCP_QUICKACK_KEY);
+      }
       serverChannelClass = NioServerSocketChannel.class;
       clientChannelClass = NioSocketChannel.class;
     }
+    LOG.info("{} transport profile, epoll={}, busyWait={}, soBusyPoll={}, tcpQuickAck={}, "
+        + "separate WAL event loops={}, WAL busyWait={}", latencyProfile ? TRANSPORT_PROFILE_LATENCY
+          : TRANSPORT_PROFILE_DEFAULT, useEpoll, this.busyWait, soBusyPoll, tcpQuickAck,
+      walGroup != group, walBusyWait);
+  }
+
+  private EventLoopGroup createGroup(int workerCount, String threadPoolName, boolean busyWait) {
+    ThreadFactory eventLoopThreadFactory =
+        new DefaultThreadFactory(threadPoolName, true, Thread.MAX_PRIORITY) {
+
+          @Override
+          protected Thread newThread(Runnable r, String name) {
+            Thread thread = super.newThread(r, name);
+            eventLoopThreads.add(thread);
+            return thread;
+          }
+        };
+    if (useEpoll) {
+      return busyWait
+        ? new EpollEventLoopGroup(workerCount, eventLoopThreadFactory,
+          BUSY_WAIT_SELECT_STRATEGY_FACTORY)
+        : new EpollEventLoopGroup(workerCount, eventLoopThreadFactory);
+    } else {
+      return new NioEventLoopGroup(workerCount, eventLoopThreadFactory);
+    }
   }
 
   public EventLoopGroup group() {
     return group;
   }
 
+  /**
+   * @return the event loop group for the AsyncFSWAL, the same as {@link #group()} unless
+   *   {@link #WAL_WORKER_COUNT_KEY} is set
+   */
+  public EventLoopGroup walGroup() {
+    return walGroup;
+  }
+
+  boolean isBusyWait() {
+    return busyWait;
+  }
+
+  boolean isWALBusyWait() {
+    return walBusyWait;
+  }
+
   public Class<? extends ServerChannel> serverChannelClass() {
     return serverChannelClass;
   }
@@ -76,4 +237,75 @@ public class NettyEventLoopGroupConfig {
   public Class<? extends Channel> clientChannelClass() {
     return clientChannelClass;
   }
+
+  /**
+   * Sets the socket options of the transport profile on the channels the server accepts.
+   */
+  public ServerBootstrap applyChildOptions(ServerBootstrap bootstrap) {
+    if (latencyProfile) {
+      bootstrap.childOption(ChannelOption.TCP_NODELAY, true);
+    }
+    if (useEpoll) {
+      if (soBusyPoll > 0) {
+        bootstrap.childOption(EpollChannelOption.SO_BUSY_POLL, soBusyPoll);
+      }
+      if (tcpQuickAck) {
+        bootstrap.childOption(EpollChannelOption.TCP_QUICKACK, true);
+      }
+    }
+    return bootstrap;
+  }
+
+  /**
+   * Samples the share of the time each event loop thread was running on a cpu since the previous
+   * call. Note that an event loop which busy waits is always running.
+   * @return the utilization in percent by event loop thread name
+   */
+  public synchronized Map<String, Integer> sampleUtilization() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Map<String, Integer> utilization = new HashMap<>();
+    if (!threadMXBean.isThreadCpuTimeSupported() || !threadMXBean.isThreadCpuTimeEnabled()) {
+      return utilization;
+    }
+    long now = System.nanoTime();
+    for (Thread thread : eventLoopThreads) {
+      long cpuTime = threadMXBean.getThreadCpuTime(thread.getId());
+      if (cpuTime < 0) {
+        // the thread has died
+        eventLoopThreads.remove(thread);
+        lastUtilizationSamples.remove(thread.getId());
+        continue;
+      }
+      long[] last = lastUtilizationSamples.put(thread.getId(), new long[] { cpuTime, now });
+      if (last != null && now > last[1]) {
+        utilization.put(thread.getName(),
+          (int) Math.min(100, (cpuTime - last[0]) * 100 / (now - last[1])));
+      }
+    }
+    return utilization;
+  }
+
+  /**
+   * @return the number of tasks waiting to be run by each event loop which has been started, by
+   *   event loop thread name
+   */
+  public Map<String, Integer> getPendingTasks() {
+    Map<String, Integer> pendingTasks = new HashMap<>();
+    for (EventLoopGroup g : walGroup != group ? Arrays.asList(group, walGroup)
+      : Collections.singletonList(group)) {
+      for (EventExecutor executor : g) {
+        if (!(executor instanceof SingleThreadEventExecutor)) {
+          continue;
+        }
+        SingleThreadEventExecutor eventLoop = (SingleThreadEventExecutor) executor;
+        for (Thread thread : eventLoopThreads) {
+          if (eventLoop.inEventLoop(thread)) {
+            pendingTasks.put(thread.getName(), eventLoop.pendingTasks());
+            break;
+          }
+        }
+      }
+    }
+    return pendingTasks;
+  }
 }
@@ -21,6 +21,7 @@ import java.io.IOException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.io.asyncfs.ExcludeDatanodeManager;
 import org.apache.hadoop.hbase.io.asyncfs.FanOutOneBlockAsyncDFSOutput;
 import org.apache.hadoop.hbase.io.asyncfs.FanOutOneBlockAsyncDFSOutputHelper;
 import org.apache.hadoop.hbase.io.asyncfs.FanOutOneBlockAsyncDFSOutputSaslHelper;
@@ -96,12 +97,27 @@ public class AsyncFSWALProvider extends AbstractFSWALProvider<AsyncFSWAL> {
   public static AsyncWriter createAsyncWriter(Configuration conf, FileSystem fs, Path path,
       boolean overwritable, long blocksize, EventLoopGroup eventLoopGroup,
       Class<? extends Channel> channelClass) throws IOException {
+    return createAsyncWriter(conf, fs, path, overwritable, blocksize, eventLoopGroup,
+      channelClass, null);
+  }
+
+  /**
+   * Public because of AsyncFSWAL. Should be package-private
+   * @param excludeDatanodeManager the slow datanodes to keep out of the pipeline, can be null
+   */
+  public static AsyncWriter createAsyncWriter(Configuration conf, FileSystem fs, Path path,
+      boolean overwritable, long blocksize, EventLoopGroup eventLoopGroup,
+      Class<? extends Channel> channelClass, ExcludeDatanodeManager excludeDatanodeManager)
+      throws IOException {
     // Configuration already does caching for the Class lookup.
     Class<? extends AsyncWriter> logWriterClass = conf.getClass(
       "hbase.regionserver.hlog.async.writer.impl", AsyncProtobufLogWriter.class, AsyncWriter.class);
     try {
       AsyncWriter writer = logWriterClass.getConstructor(EventLoopGroup.class, Class.class)
           .newInstance(eventLoopGroup, channelClass);
+      if (writer instanceof AsyncProtobufLogWriter) {
+        ((AsyncProtobufLogWriter) writer).setExcludeDatanodeManager(excludeDatanodeManager);
+      }
       writer.init(fs, path, conf, overwritable, blocksize);
       return writer;
     } catch (Exception e) {
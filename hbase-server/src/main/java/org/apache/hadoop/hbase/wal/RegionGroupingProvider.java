@@ -177,10 +177,17 @@ public class RegionGroupingProvider implements WALProvider {
     WALProvider provider = WALFactory.createProvider(providerClass);
     provider.init(factory, conf,
       META_WAL_PROVIDER_ID.equals(providerId) ? META_WAL_PROVIDER_ID : group, this.abortable);
-    provider.addWALActionsListener(new MetricsWAL());
+    // no per group metrics with one group per region, there would be too many of them
+    provider.addWALActionsListener(strategy instanceof IdentityGroupingStrategy ?
+      new MetricsWAL() : new MetricsWAL(getMetricsGroupName(group)));
     return provider;
   }
 
+  private String getMetricsGroupName(String group) {
+    String prefix = providerId + RegionGroupingStrategy.GROUP_NAME_DELIMITER;
+    return group.startsWith(prefix) ? group.substring(prefix.length()) : group;
+  }
+
   @Override
   public List<WAL> getWALs() {
     return cached.values().stream().flatMap(p -> p.getWALs().stream()).collect(Collectors.toList());
@@ -28,6 +28,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.apache.commons.lang3.ArrayUtils;
@@ -51,6 +55,7 @@ import org.apache.hadoop.hbase.util.CancelableProgressable;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.RecoverLeaseFSUtils;
+import org.apache.hadoop.hbase.util.Threads;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
 import org.apache.hadoop.hbase.wal.WAL.Reader;
 import org.apache.hadoop.ipc.RemoteException;
@@ -59,6 +64,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.hbase.thirdparty.com.google.common.annotations.VisibleForTesting;
 import org.apache.hbase.thirdparty.com.google.common.base.Preconditions;
+import org.apache.hbase.thirdparty.com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.hbase.thirdparty.com.google.protobuf.TextFormat;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClusterStatusProtos.RegionStoreSequenceIds;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.ClusterStatusProtos.StoreSequenceId;
@@ -133,6 +139,17 @@ public class WALSplitter {
   public final static String SPLIT_WAL_WRITER_THREADS =
     "hbase.regionserver.hlog.splitlog.writer.threads";
 
+  /**
+   * @return the number of WALs split at the same time, by a region server, whether the split tasks
+   *   are procedures or coordinated by zookeeper, and by {@link #split(Path, Path, Path,
+   *   FileSystem, Configuration, WALFactory)}: {@link HConstants#HBASE_SPLIT_WAL_MAX_SPLITTER}.
+   *   Each of them buffers up to 'hbase.regionserver.hlog.splitlog.buffersize' of edits.
+   */
+  public static int getSplitWALConcurrency(Configuration conf) {
+    return conf.getInt(HConstants.HBASE_SPLIT_WAL_MAX_SPLITTER,
+      HConstants.DEFAULT_HBASE_SPLIT_WAL_MAX_SPLITTER);
+  }
+
   private final int numWriterThreads;
   private final long bufferSize;
   private final boolean splitWriterCreationBounded;
@@ -219,19 +236,38 @@ public class WALSplitter {
       Configuration conf, final WALFactory factory) throws IOException {
     Path rootDir = CommonFSUtils.getRootDir(conf);
     FileSystem rootFS = rootDir.getFileSystem(conf);
-    WALSplitter splitter = new WALSplitter(factory, conf, walRootDir, walFS, rootDir, rootFS);
     final FileStatus[] wals =
       SplitLogManager.getFileList(conf, Collections.singletonList(walsDir), null);
     List<Path> splits = new ArrayList<>();
-    if (ArrayUtils.isNotEmpty(wals)) {
-      for (FileStatus wal: wals) {
-        SplitWALResult splitWALResult = splitter.splitWAL(wal, null);
-        if (splitWALResult.isFinished()) {
-          WALSplitUtil.archive(wal.getPath(), splitWALResult.isCorrupt(), archiveDir, walFS, conf);
-          if (splitter.outputSink.splits != null) {
-            splits.addAll(splitter.outputSink.splits);
-          }
+    int concurrency = Math.min(getSplitWALConcurrency(conf), ArrayUtils.getLength(wals));
+    if (concurrency <= 1) {
+      WALSplitter splitter = new WALSplitter(factory, conf, walRootDir, walFS, rootDir, rootFS);
+      if (ArrayUtils.isNotEmpty(wals)) {
+        for (FileStatus wal: wals) {
+          splits.addAll(splitter.splitAndArchive(wal, archiveDir));
+        }
+      }
+    } else {
+      // A splitter per WAL, they keep the state of the WAL being split.
+      ExecutorService pool = Executors.newFixedThreadPool(concurrency,
+        new ThreadFactoryBuilder().setNameFormat("split-wal-pool-%d").setDaemon(true)
+          .setUncaughtExceptionHandler(Threads.LOGGING_EXCEPTION_HANDLER).build());
+      try {
+        List<Future<List<Path>>> futures = new ArrayList<>(wals.length);
+        for (FileStatus wal : wals) {
+          futures.add(pool.submit(() -> new WALSplitter(factory, conf, walRootDir, walFS, rootDir,
+            rootFS).splitAndArchive(wal, archiveDir)));
+        }
+        for (Future<List<Path>> future : futures) {
+          splits.addAll(future.get());
         }
+      } catch (InterruptedException e) {
+        throw (IOException) new InterruptedIOException().initCause(e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+      } finally {
+        pool.shutdownNow();
       }
     }
     if (!walFS.delete(walsDir, true)) {
@@ -240,6 +276,19 @@ public class WALSplitter {
     return splits;
   }
 
+  /**
+   * Splits the WAL and archives it once finished.
+   * @return the output files created by the split
+   */
+  private List<Path> splitAndArchive(FileStatus wal, Path archiveDir) throws IOException {
+    SplitWALResult splitWALResult = splitWAL(wal, null);
+    if (!splitWALResult.isFinished()) {
+      return Collections.emptyList();
+    }
+    WALSplitUtil.archive(wal.getPath(), splitWALResult.isCorrupt(), archiveDir, walFS, conf);
+    return outputSink.splits != null ? outputSink.splits : Collections.emptyList();
+  }
+
   /**
    * Data structure returned as result by #splitWAL(FileStatus, CancelableProgressable).
    * Test {@link #isFinished()} to see if we are done with the WAL and {@link #isCorrupt()} for if
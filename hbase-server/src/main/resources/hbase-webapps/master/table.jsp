@@ -898,6 +898,7 @@
             <th>End Key</th>
             <th>Region State</th>
             <th>ReplicaID</th>
+            <th title="Time since the last edit replayed by the secondary replica was written on the primary, as of the last report of its region server">Replica Staleness</th>
           </tr>
         </thead>
         <tbody>
@@ -919,6 +920,7 @@
             String fileCount = "N/A";
             String memSize = ZEROMB;
             String state = "N/A";
+            String staleness = "N/A";
             if (load != null) {
               readReq = String.format("%,1d", load.getReadRequestCount());
               writeReq = String.format("%,1d", load.getWriteRequestCount());
@@ -931,6 +933,9 @@
               if (mSize > 0) {
                 memSize = StringUtils.byteDesc((long)mSize);
               }
+              if (!RegionReplicaUtil.isDefaultReplica(regionInfo.getReplicaId())) {
+                staleness = String.format("%,1d ms", load.getReplicaStaleness());
+              }
             }
 
             if (stateMap.containsKey(regionInfo.getEncodedName())) {
@@ -965,6 +970,7 @@
           <td><%= escapeXml(Bytes.toStringBinary(regionInfo.getEndKey()))%></td>
           <td><%= state%></td>
           <td><%= regionInfo.getReplicaId() %></td>
+          <td><%= staleness%></td>
         </tr>
         <% } %>
         <% } %>
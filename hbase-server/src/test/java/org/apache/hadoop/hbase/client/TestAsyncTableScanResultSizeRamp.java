@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.RSRpcServices;
+import org.apache.hadoop.hbase.testclassification.ClientTests;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ MediumTests.class, ClientTests.class })
+public class TestAsyncTableScanResultSizeRamp {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestAsyncTableScanResultSizeRamp.class);
+
+  private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+
+  private static final TableName TABLE_NAME = TableName.valueOf("ScanResultSizeRamp");
+
+  private static final byte[] CF = Bytes.toBytes("cf");
+
+  private static final byte[] CQ = Bytes.toBytes("cq");
+
+  private static final int ROW_COUNT = 100;
+
+  private static final int VALUE_SIZE = 1024;
+
+  private static AsyncConnection CONN;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    UTIL.getConfiguration().setLong(RSRpcServices.SCANNER_INITIAL_RESULT_SIZE_KEY,
+      2 * VALUE_SIZE);
+    UTIL.startMiniCluster(1);
+    try (Table table = UTIL.createTable(TABLE_NAME, CF)) {
+      List<Put> puts = new ArrayList<>();
+      for (int i = 0; i < ROW_COUNT; i++) {
+        puts.add(new Put(Bytes.toBytes(String.format("%03d", i))).addColumn(CF, CQ,
+          new byte[VALUE_SIZE]));
+      }
+      table.put(puts);
+    }
+    CONN = ConnectionFactory.createAsyncConnection(UTIL.getConfiguration()).get();
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    IOUtils.closeQuietly(CONN);
+    UTIL.shutdownMiniCluster();
+  }
+
+  @Test
+  public void testGrowingResults() throws Exception {
+    List<Integer> responses = new ArrayList<>();
+    List<Result> results = new ArrayList<>();
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    CONN.getTable(TABLE_NAME).scan(new Scan(), new AdvancedScanResultConsumer() {
+
+      @Override
+      public void onNext(Result[] response, ScanController controller) {
+        responses.add(response.length);
+        for (Result result : response) {
+          results.add(result);
+        }
+      }
+
+      @Override
+      public void onError(Throwable error) {
+        future.completeExceptionally(error);
+      }
+
+      @Override
+      public void onComplete() {
+        future.complete(null);
+      }
+    });
+    future.get();
+    assertEquals(ROW_COUNT, results.size());
+    for (int i = 0; i < ROW_COUNT; i++) {
+      assertEquals(String.format("%03d", i), Bytes.toString(results.get(i).getRow()));
+    }
+    // the whole region would fit in a single response of the default max result size
+    assertTrue("responses " + responses, responses.size() > 3);
+    assertTrue("responses " + responses, responses.get(0) <= 2);
+    for (int i = 1; i < responses.size() - 1; i++) {
+      assertTrue("responses " + responses, responses.get(i) >= responses.get(i - 1));
+    }
+  }
+}
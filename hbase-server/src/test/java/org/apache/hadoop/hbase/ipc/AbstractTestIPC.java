@@ -43,6 +43,8 @@ import org.apache.hadoop.hbase.DoNotRetryIOException;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.Server;
+import org.apache.hadoop.hbase.Waiter;
+import org.apache.hadoop.hbase.io.ByteBuffAllocator;
 import org.apache.hadoop.hbase.ipc.RpcServer.BlockingServiceAndInterface;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.io.compress.GzipCodec;
@@ -51,6 +53,7 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.hbase.thirdparty.com.google.common.base.Strings;
 import org.apache.hbase.thirdparty.com.google.common.collect.ImmutableList;
 import org.apache.hbase.thirdparty.com.google.common.collect.Lists;
 import org.apache.hbase.thirdparty.com.google.protobuf.ServiceException;
@@ -151,6 +154,55 @@ public abstract class AbstractTestIPC {
     }
   }
 
+  /**
+   * A request bigger than a buffer of the ByteBuffAllocator, read into several of them by the
+   * servers which pool the requests. All the buffers must be back in the pool after the call.
+   */
+  @Test
+  public void testLargeRequest() throws Exception {
+    Configuration conf = HBaseConfiguration.create();
+    RpcServer rpcServer = createRpcServer(null, "testRpcServer",
+        Lists.newArrayList(new RpcServer.BlockingServiceAndInterface(
+            SERVICE, null)), new InetSocketAddress("localhost", 0), CONF,
+        new FifoRpcScheduler(CONF, 1));
+    try (AbstractRpcClient<?> client = createRpcClient(conf)) {
+      rpcServer.start();
+      BlockingInterface stub = newBlockingStub(client, rpcServer.getListenerAddress());
+      ByteBuffAllocator allocator = rpcServer.getByteBuffAllocator();
+      // the pool creates its buffers lazily, so let a first call fill it
+      echoLargeRequest(stub);
+      Waiter.waitFor(conf, 10000,
+        () -> allocator.getFreeBufferCount() == allocator.getUsedBufferCount());
+      int freeBefore = allocator.getFreeBufferCount();
+      echoLargeRequest(stub);
+      Waiter.waitFor(conf, 10000,
+        () -> allocator.getFreeBufferCount() == allocator.getUsedBufferCount());
+      assertEquals(freeBefore, allocator.getFreeBufferCount());
+    } finally {
+      rpcServer.stop();
+    }
+  }
+
+  private static void echoLargeRequest(BlockingInterface stub)
+      throws IOException, ServiceException {
+    List<Cell> cells = new ArrayList<>();
+    int count = 100;
+    for (int i = 0; i < count; i++) {
+      cells.add(CELL);
+    }
+    HBaseRpcController pcrc = new HBaseRpcControllerImpl(CellUtil.createCellScanner(cells));
+    String message = Strings.repeat("a", 200 * 1024);
+    assertEquals(message,
+      stub.echo(pcrc, EchoRequestProto.newBuilder().setMessage(message).build()).getMessage());
+    int index = 0;
+    CellScanner cellScanner = pcrc.cellScanner();
+    while (cellScanner.advance()) {
+      assertEquals(CELL, cellScanner.current());
+      index++;
+    }
+    assertEquals(count, index);
+  }
+
   protected abstract AbstractRpcClient<?> createRpcClientRTEDuringConnectionSetup(
       Configuration conf) throws IOException;
 
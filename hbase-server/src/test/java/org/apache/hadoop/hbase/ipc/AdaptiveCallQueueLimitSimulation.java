@@ -0,0 +1,244 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * This class simulates a group of call queues under a load which goes from normal to overload and
+ * back, with the static limit of the queue length only and with the
+ * {@link AdaptiveCallQueueLimit}. It is a discrete event simulation in virtual time: the calls
+ * arrive as a poisson process and take an exponentially distributed service time on one of the
+ * handlers, so a run of minutes takes a fraction of a second and is repeatable. A call which
+ * completes later than the client timeout is counted as late, it was served for nothing. The tool
+ * reports, for each phase of the load, the calls offered, rejected, completed in time and late,
+ * and the latency percentiles of the admitted calls.
+ * See usage for this tool by running:
+ * <code>$ hbase org.apache.hadoop.hbase.ipc.AdaptiveCallQueueLimitSimulation -h</code>
+ */
+@InterfaceAudience.Private
+public final class AdaptiveCallQueueLimitSimulation extends Configured implements Tool {
+
+  static final String[] PHASES = { "normal", "overload", "recovery" };
+
+  int handlers = 30;
+  int queueLength = 900;
+  long serviceMicros = 20000;
+  double normalLoad = 0.7;
+  double overload = 1.5;
+  long normalSeconds = 30;
+  long overloadSeconds = 60;
+  long timeoutMillis = 500;
+  long seed = 42;
+
+  /**
+   * The outcome of the calls which arrived during a phase of the load.
+   */
+  static final class PhaseResult {
+    long offered;
+    long rejected;
+    long good;
+    long late;
+    private long[] latencies = new long[1024];
+    private int count;
+
+    void completed(long latencyNanos, long timeoutNanos) {
+      if (latencyNanos > timeoutNanos) {
+        late++;
+      } else {
+        good++;
+      }
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = latencyNanos;
+    }
+
+    /**
+     * @return the given percentile of the latency of the completed calls, in msec
+     */
+    long percentile(double p) {
+      if (count == 0) {
+        return 0;
+      }
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.min(count - 1, Math.round(p * count));
+      return TimeUnit.NANOSECONDS.toMillis(sorted[index]);
+    }
+  }
+
+  @Override
+  public int run(String[] args) throws Exception {
+    // Process command line args
+    for (int i = 0; i < args.length; i++) {
+      String cmd = args[i];
+      try {
+        if (cmd.equals("-handlers")) {
+          handlers = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-queueLength")) {
+          queueLength = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-serviceTime")) {
+          serviceMicros = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-normalLoad")) {
+          normalLoad = Double.parseDouble(args[++i]);
+        } else if (cmd.equals("-overload")) {
+          overload = Double.parseDouble(args[++i]);
+        } else if (cmd.equals("-normalDuration")) {
+          normalSeconds = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-overloadDuration")) {
+          overloadSeconds = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-timeout")) {
+          timeoutMillis = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-seed")) {
+          seed = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-h") || cmd.equals("-help") || cmd.equals("--help")) {
+          printUsageAndExit();
+        } else {
+          System.err.println("UNEXPECTED: " + cmd);
+          printUsageAndExit();
+        }
+      } catch (Exception e) {
+        printUsageAndExit();
+      }
+    }
+    print("static", simulate(false));
+    print("adaptive", simulate(true));
+    return 0;
+  }
+
+  private void print(String mode, PhaseResult[] results) {
+    System.out.println(String.format("limit=%s, handlers=%d, queueLength=%d, serviceTime=%dus, "
+        + "timeout=%dms", mode, handlers, queueLength, serviceMicros, timeoutMillis));
+    for (int i = 0; i < PHASES.length; i++) {
+      PhaseResult r = results[i];
+      System.out.println(String.format("  %-8s offered=%d, rejected=%d, good=%d, late=%d, "
+          + "latency ms: p50=%d, p99=%d, max=%d", PHASES[i], r.offered, r.rejected, r.good,
+        r.late, r.percentile(0.5), r.percentile(0.99), r.percentile(1.0)));
+    }
+  }
+
+  private int phaseOf(long nanos) {
+    long normal = TimeUnit.SECONDS.toNanos(normalSeconds);
+    if (nanos < normal) {
+      return 0;
+    }
+    return nanos < normal + TimeUnit.SECONDS.toNanos(overloadSeconds) ? 1 : 2;
+  }
+
+  /**
+   * Runs the simulation.
+   * @param adaptive whether to limit the calls in flight with an {@link AdaptiveCallQueueLimit}
+   * @return the results of the phases of the load
+   */
+  PhaseResult[] simulate(boolean adaptive) {
+    Random rand = new Random(seed);
+    long serviceNanos = TimeUnit.MICROSECONDS.toNanos(serviceMicros);
+    long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    long end = TimeUnit.SECONDS.toNanos(2 * normalSeconds + overloadSeconds);
+    // the number of calls per nanosecond the handlers serve when all of them are busy
+    double capacity = (double) handlers / serviceNanos;
+
+    Configuration conf = new Configuration(getConf());
+    AdaptiveCallQueueLimit limit = adaptive
+        ? new AdaptiveCallQueueLimit("simulation", handlers, 1, queueLength, conf, 0L) : null;
+    PhaseResult[] results = new PhaseResult[PHASES.length];
+    for (int i = 0; i < results.length; i++) {
+      results[i] = new PhaseResult();
+    }
+    // the arrival times of the queued calls, and the completion and arrival times of the running
+    ArrayDeque<Long> queue = new ArrayDeque<>();
+    PriorityQueue<long[]> running = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+
+    long nextArrival = 0;
+    while (nextArrival < end || !running.isEmpty()) {
+      long nextCompletion = running.isEmpty() ? Long.MAX_VALUE : running.peek()[0];
+      if (nextArrival < end && nextArrival <= nextCompletion) {
+        long now = nextArrival;
+        PhaseResult result = results[phaseOf(now)];
+        result.offered++;
+        if (running.size() + queue.size() >= handlers + queueLength
+            || (limit != null && !limit.tryAcquire())) {
+          result.rejected++;
+        } else if (running.size() < handlers) {
+          running.add(new long[] { now + exponential(rand, serviceNanos), now });
+        } else {
+          queue.add(now);
+        }
+        double load = phaseOf(now) == 1 ? overload : normalLoad;
+        nextArrival = now + exponential(rand, 1 / (capacity * load));
+      } else {
+        long[] call = running.poll();
+        long now = call[0];
+        long latency = now - call[1];
+        if (limit != null) {
+          limit.release(latency, now);
+        }
+        results[phaseOf(call[1])].completed(latency, timeoutNanos);
+        if (!queue.isEmpty()) {
+          running.add(new long[] { now + exponential(rand, serviceNanos), queue.poll() });
+        }
+      }
+    }
+    return results;
+  }
+
+  private static long exponential(Random rand, double mean) {
+    return Math.max(1, (long) (-mean * Math.log(1 - rand.nextDouble())));
+  }
+
+  private void printUsageAndExit() {
+    System.err.printf("Usage: hbase %s [options]\n", getClass().getName());
+    System.err.println(" where [options] are:");
+    System.err.println("  -h|-help               Show this help and exit.");
+    System.err.println("  -handlers <N>          Number of handlers. Default: 30");
+    System.err.println("  -queueLength <N>       Static limit of the queued calls. Default: 900");
+    System.err.println("  -serviceTime <N>       Mean microseconds a call takes. Default: 20000");
+    System.err.println("  -normalLoad <F>        Load before and after the overload, as a share of "
+        + "the capacity of the handlers. Default: 0.7");
+    System.err.println("  -overload <F>          Load during the overload. Default: 1.5");
+    System.err.println("  -normalDuration <N>    Seconds of normal load before and after the "
+        + "overload. Default: 30");
+    System.err.println("  -overloadDuration <N>  Seconds of overload. Default: 60");
+    System.err.println("  -timeout <N>           Client timeout in milliseconds. Default: 500");
+    System.err.println("  -seed <N>              Seed of the random arrivals and service times. "
+        + "Default: 42");
+    System.err.println("");
+    System.err.println("The adaptive limit is configured with the "
+        + "hbase.ipc.server.callqueue.adaptive.limit.* properties, e.g.:");
+    System.err.println(" $ hbase " + getClass().getName() + " -D"
+        + AdaptiveCallQueueLimit.TOLERANCE_CONF_KEY + "=1.5 -overload 3");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int exitCode = ToolRunner.run(HBaseConfiguration.create(),
+      new AdaptiveCallQueueLimitSimulation(), args);
+    System.exit(exitCode);
+  }
+}
@@ -18,6 +18,9 @@
 
 package org.apache.hadoop.hbase.ipc;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class MetricsHBaseServerWrapperStub implements MetricsHBaseServerWrapper{
   @Override
   public long getTotalQueueSize() {
@@ -118,4 +121,14 @@ public class MetricsHBaseServerWrapperStub implements MetricsHBaseServerWrapper{
   public int getActiveMetaPriorityRpcHandlerCount() {
     return 1;
   }
+
+  @Override
+  public Map<String, Integer> getEventLoopUtilization() {
+    return Collections.singletonMap("loop-1", 40);
+  }
+
+  @Override
+  public Map<String, Integer> getEventLoopPendingTasks() {
+    return Collections.singletonMap("loop-1", 3);
+  }
 }
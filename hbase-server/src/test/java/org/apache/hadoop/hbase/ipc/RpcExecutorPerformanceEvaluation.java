@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.yetus.audience.InterfaceAudience;
+
+/**
+ * This class benchmarks the rpc executors which run the calls of the region server. It compares
+ * the {@link FastPathBalancedQueueRpcExecutor}, which runs the calls on a fixed number of handler
+ * threads, with the {@link VirtualThreadRpcExecutor}, which starts a thread per call, under a mix
+ * of gets served from the block cache and gets which have to read from HDFS. The cache hits are
+ * simulated by spinning the cpu for a few microseconds, the cache misses by sleeping, as a
+ * handler blocked on a pread does. A number of client threads dispatch the calls in a closed loop
+ * and the tool reports the throughput, the latency percentiles and the peak number of threads.
+ * See usage for this tool by running:
+ * <code>$ hbase org.apache.hadoop.hbase.ipc.RpcExecutorPerformanceEvaluation -h</code>
+ */
+@InterfaceAudience.Private
+public final class RpcExecutorPerformanceEvaluation extends Configured implements Tool {
+
+  static final String FAST_PATH = "fastpath";
+  static final String VIRTUAL = "virtual";
+
+  private String executorType = null;
+  private int handlers = 30;
+  private float concurrencyFactor = 10.0f;
+  private int clients = 300;
+  private long numCalls = 200000;
+  private double missRatio = 0.1;
+  private long missLatencyMicros = 5000;
+  private long hitCostMicros = 20;
+
+  @Override
+  public int run(String[] args) throws Exception {
+    // Process command line args
+    for (int i = 0; i < args.length; i++) {
+      String cmd = args[i];
+      try {
+        if (cmd.equals("-executor")) {
+          executorType = args[++i];
+        } else if (cmd.equals("-handlers")) {
+          handlers = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-concurrencyFactor")) {
+          concurrencyFactor = Float.parseFloat(args[++i]);
+        } else if (cmd.equals("-clients")) {
+          clients = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-calls")) {
+          numCalls = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-missRatio")) {
+          missRatio = Double.parseDouble(args[++i]);
+        } else if (cmd.equals("-missLatency")) {
+          missLatencyMicros = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-hitCost")) {
+          hitCostMicros = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-h") || cmd.equals("-help") || cmd.equals("--help")) {
+          printUsageAndExit();
+        } else {
+          System.err.println("UNEXPECTED: " + cmd);
+          printUsageAndExit();
+        }
+      } catch (Exception e) {
+        printUsageAndExit();
+      }
+    }
+    if (executorType == null || executorType.equals(FAST_PATH)) {
+      runBenchmark(FAST_PATH);
+    }
+    if (executorType == null || executorType.equals(VIRTUAL)) {
+      runBenchmark(VIRTUAL);
+    }
+    return 0;
+  }
+
+  private RpcExecutor createExecutor(String type) {
+    Configuration conf = new Configuration(getConf());
+    conf.setFloat(VirtualThreadRpcExecutor.CONCURRENCY_FACTOR_CONF_KEY, concurrencyFactor);
+    int maxQueueLength =
+        Math.max(clients, handlers * RpcServer.DEFAULT_MAX_CALLQUEUE_LENGTH_PER_HANDLER);
+    if (type.equals(VIRTUAL)) {
+      return new VirtualThreadRpcExecutor("default.VTBQ", handlers,
+          RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, maxQueueLength, null, conf, null);
+    }
+    return new FastPathBalancedQueueRpcExecutor("default.FPBQ", handlers,
+        RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, maxQueueLength, null, conf, null);
+  }
+
+  private void runBenchmark(String type) throws InterruptedException {
+    RpcExecutor executor = createExecutor(type);
+    executor.start(0);
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    threads.resetPeakThreadCount();
+    long[] latencies = new long[(int) numCalls];
+    AtomicInteger nextCall = new AtomicInteger(0);
+    LongAdder rejected = new LongAdder();
+    LongAdder misses = new LongAdder();
+    CountDownLatch done = new CountDownLatch(clients);
+    long start = System.nanoTime();
+    for (int c = 0; c < clients; c++) {
+      Thread client = new Thread(() -> {
+        try {
+          for (int i; (i = nextCall.getAndIncrement()) < numCalls;) {
+            boolean miss = ThreadLocalRandom.current().nextDouble() < missRatio;
+            if (miss) {
+              misses.increment();
+            }
+            GetCall call = new GetCall(miss);
+            long callStart = System.nanoTime();
+            while (!executor.dispatch(call)) {
+              rejected.increment();
+              Threads.sleep(1);
+            }
+            call.done.await();
+            latencies[i] = System.nanoTime() - callStart;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      }, "client-" + c);
+      client.setDaemon(true);
+      client.start();
+    }
+    done.await();
+    long elapsed = System.nanoTime() - start;
+    int peakThreads = threads.getPeakThreadCount();
+    executor.stop();
+
+    Arrays.sort(latencies);
+    System.out.println(String.format("executor=%s, handlers=%d, clients=%d, calls=%d, misses=%d",
+      executor.getName(), handlers, clients, numCalls, misses.sum()));
+    System.out.println(String.format("  throughput=%.0f calls/s, rejected=%d, peakThreads=%d",
+      numCalls * 1e9 / elapsed, rejected.sum(), peakThreads));
+    System.out.println(String.format("  latency us: p50=%d, p90=%d, p99=%d, p999=%d, max=%d",
+      percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+      percentile(latencies, 0.999), percentile(latencies, 1.0)));
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    int index = (int) Math.min(sorted.length - 1, Math.round(p * sorted.length));
+    return TimeUnit.NANOSECONDS.toMicros(sorted[index]);
+  }
+
+  /**
+   * A get which either finds its blocks in the block cache, and only costs some cpu, or has to
+   * block on a pread.
+   */
+  private final class GetCall extends CallRunner {
+    private final boolean miss;
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    GetCall(boolean miss) {
+      super(null, null);
+      this.miss = miss;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (miss) {
+          Thread.sleep(TimeUnit.MICROSECONDS.toMillis(missLatencyMicros),
+            (int) (missLatencyMicros % 1000) * 1000);
+        } else {
+          long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(hitCostMicros);
+          while (System.nanoTime() < deadline) {
+            // spin, as decoding blocks from the cache does
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+
+  private void printUsageAndExit() {
+    System.err.printf("Usage: hbase %s [options]\n", getClass().getName());
+    System.err.println(" where [options] are:");
+    System.err.println("  -h|-help         Show this help and exit.");
+    System.err.println("  -executor <type> fastpath or virtual. Default: run both");
+    System.err.println("  -handlers <N>    Number of handlers. Default: 30");
+    System.err.println("  -concurrencyFactor <F>  Concurrent calls per handler of the virtual "
+        + "executor. Default: 10");
+    System.err.println("  -clients <N>     Number of client threads. Default: 300");
+    System.err.println("  -calls <N>       Number of calls in total. Default: 200000");
+    System.err.println("  -missRatio <R>   Ratio of gets missing the block cache. Default: 0.1");
+    System.err.println("  -missLatency <N> Microseconds a cache miss blocks. Default: 5000");
+    System.err.println("  -hitCost <N>     Microseconds of cpu a cache hit costs. Default: 20");
+    System.err.println("");
+    System.err.println("Examples:");
+    System.err.println("");
+    System.err.println(" To compare the executors with a fifth of the gets missing the cache:");
+    System.err.println(" $ hbase " + getClass().getName() + " -missRatio 0.2");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int exitCode = ToolRunner.run(HBaseConfiguration.create(),
+      new RpcExecutorPerformanceEvaluation(), args);
+    System.exit(exitCode);
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestAdaptiveCallQueueLimit {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestAdaptiveCallQueueLimit.class);
+
+  private static final int HANDLERS = 10;
+
+  private static final int QUEUE_LENGTH = 100;
+
+  private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private Configuration conf;
+
+  private long now;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    now = 0;
+  }
+
+  /**
+   * Completes a window of calls with the given latency.
+   */
+  private void window(AdaptiveCallQueueLimit limit, long latencyMillis) {
+    int calls = AdaptiveCallQueueLimit.MIN_WINDOW_SAMPLES;
+    for (int i = 0; i < calls; i++) {
+      limit.acquire();
+      now += WINDOW / calls;
+      limit.release(TimeUnit.MILLISECONDS.toNanos(latencyMillis), now);
+    }
+  }
+
+  private void windows(AdaptiveCallQueueLimit limit, int count, long latencyMillis) {
+    for (int i = 0; i < count; i++) {
+      window(limit, latencyMillis);
+    }
+  }
+
+  @Test
+  public void testShrinkAndGrow() {
+    MetricsHBaseServer metrics = mock(MetricsHBaseServer.class);
+    AdaptiveCallQueueLimit limit =
+        new AdaptiveCallQueueLimit("test", HANDLERS, 1, QUEUE_LENGTH, conf, now);
+    limit.setMetrics(metrics);
+    int maxLimit = HANDLERS + QUEUE_LENGTH;
+    assertEquals(maxLimit, limit.getLimit());
+    // keep enough calls in flight for the limit to matter
+    for (int i = 0; i < maxLimit / 2 + 1; i++) {
+      assertTrue(limit.tryAcquire());
+    }
+
+    windows(limit, 20, 10);
+    assertEquals(maxLimit, limit.getLimit());
+    verify(metrics, atLeastOnce()).callQueueLimitUpdated(eq("test"), eq(maxLimit), anyInt());
+
+    // the latency goes up ten fold, the limit goes down to the handlers
+    windows(limit, 50, 100);
+    assertEquals(HANDLERS, limit.getLimit());
+    assertFalse(limit.tryAcquire());
+    assertEquals(1, limit.getNumRejected());
+    verify(metrics).callQueueLimitRejected("test");
+
+    // and back up once the latency recovers
+    windows(limit, 50, 10);
+    assertTrue(limit.getLimit() > 2 * HANDLERS);
+  }
+
+  @Test
+  public void testUnusedLimit() {
+    AdaptiveCallQueueLimit limit =
+        new AdaptiveCallQueueLimit("test", HANDLERS, 1, QUEUE_LENGTH, conf, now);
+    windows(limit, 20, 10);
+    // few calls in flight, their latency does not come from queueing behind the limit
+    windows(limit, 20, 100);
+    assertEquals(HANDLERS + QUEUE_LENGTH, limit.getLimit());
+
+    limit.setQueueLength(QUEUE_LENGTH / 2);
+    assertEquals(HANDLERS + QUEUE_LENGTH / 2, limit.getLimit());
+  }
+
+  @Test
+  public void testExecutor() throws Exception {
+    conf.setBoolean(RpcExecutor.CALL_QUEUE_ADAPTIVE_LIMIT_CONF_KEY, true);
+    RpcExecutor executor = new BalancedQueueRpcExecutor("test", 1,
+        RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, QUEUE_LENGTH, null, conf, null);
+    executor.start(0);
+    try {
+      AdaptiveCallQueueLimit limit = executor.getCallQueueLimit(0);
+      assertNotNull(limit);
+      while (limit.getInFlight() < limit.getLimit()) {
+        limit.acquire();
+      }
+      assertFalse(executor.dispatch(mock(CallRunner.class)));
+      assertEquals(1, limit.getNumRejected());
+      assertEquals(0, executor.getQueueLength());
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testVirtualThreadExecutor() throws Exception {
+    conf.setBoolean(RpcExecutor.CALL_QUEUE_ADAPTIVE_LIMIT_CONF_KEY, true);
+    VirtualThreadRpcExecutor executor = new VirtualThreadRpcExecutor("test", HANDLERS,
+        RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, QUEUE_LENGTH, null, conf, null);
+    executor.start(0);
+    try {
+      // the floor is the number of calls which run at the same time, not the dispatchers
+      AdaptiveCallQueueLimit limit = executor.getCallQueueLimit(0);
+      assertNotNull(limit);
+      assertTrue(executor.getMaxConcurrency() > executor.getQueues().size());
+      assertEquals(executor.getMaxConcurrency(), limit.getMinLimit());
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testPriorityExecutor() throws Exception {
+    conf.setBoolean(RpcExecutor.CALL_QUEUE_ADAPTIVE_LIMIT_CONF_KEY, true);
+    RpcExecutor executor = new FastPathBalancedQueueRpcExecutor("priority", 1,
+        RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, QUEUE_LENGTH, null, conf, null);
+    executor.disableAdaptiveLimit();
+    executor.start(0);
+    try {
+      assertNull(executor.getCallQueueLimit(0));
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testSimulation() {
+    AdaptiveCallQueueLimitSimulation simulation = new AdaptiveCallQueueLimitSimulation();
+    simulation.setConf(conf);
+    simulation.normalSeconds = 10;
+    simulation.overloadSeconds = 20;
+    AdaptiveCallQueueLimitSimulation.PhaseResult staticLimit = simulation.simulate(false)[1];
+    AdaptiveCallQueueLimitSimulation.PhaseResult adaptiveLimit = simulation.simulate(true)[1];
+    // with the static limit only, the queue fills with calls which wait longer than the timeout
+    assertTrue(staticLimit.late > staticLimit.good);
+    assertTrue(adaptiveLimit.good > 2 * staticLimit.good);
+    assertTrue(adaptiveLimit.late < adaptiveLimit.good / 10);
+    assertTrue(adaptiveLimit.percentile(0.99) < simulation.timeoutMillis);
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CompareOperator;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.ValueFilter;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RPCTests.class, MediumTests.class })
+public class TestCallPhaseTimer {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestCallPhaseTimer.class);
+
+  private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+
+  private static final byte[] FAMILY = Bytes.toBytes("family");
+
+  private static final byte[] QUALIFIER = Bytes.toBytes("qualifier");
+
+  private static final byte[] ROW = Bytes.toBytes("row");
+
+  private static final byte[] VALUE = Bytes.toBytes("value");
+
+  @AfterClass
+  public static void tearDown() {
+    UTIL.cleanupTestDir();
+  }
+
+  @Test
+  public void testPhases() {
+    CallPhaseTimer timer = new CallPhaseTimer();
+    assertEquals(0, timer.getPhases().length);
+    assertEquals("", timer.toString());
+
+    timer.add(CallPhaseTimer.Phase.WAL_SYNC, TimeUnit.MICROSECONDS.toNanos(830));
+    timer.add(CallPhaseTimer.Phase.ROW_LOCK, TimeUnit.MICROSECONDS.toNanos(1000));
+    timer.add(CallPhaseTimer.Phase.ROW_LOCK, TimeUnit.MICROSECONDS.toNanos(520));
+    assertArrayEquals(
+      new CallPhaseTimer.Phase[] { CallPhaseTimer.Phase.ROW_LOCK, CallPhaseTimer.Phase.WAL_SYNC },
+      timer.getPhases());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(1520),
+      timer.getTime(CallPhaseTimer.Phase.ROW_LOCK));
+    assertEquals(2, timer.getCount(CallPhaseTimer.Phase.ROW_LOCK));
+    assertEquals(0, timer.getCount(CallPhaseTimer.Phase.FILTER));
+    assertEquals("rowLock=1520us(2), walSync=830us(1)", timer.toString());
+  }
+
+  private static RpcCall mockCall(CallPhaseTimer timer) {
+    RpcCall call = mock(RpcCall.class);
+    when(call.getDeadline()).thenReturn(Long.MAX_VALUE);
+    when(call.disconnectSince()).thenReturn(-1L);
+    when(call.getPhaseTimer()).thenReturn(timer);
+    return call;
+  }
+
+  @Test
+  public void testRegionPhases() throws Exception {
+    TableDescriptor desc = TableDescriptorBuilder.newBuilder(TableName.valueOf("testRegionPhases"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build();
+    HRegion region = UTIL.createLocalHRegion(
+      RegionInfoBuilder.newBuilder(desc.getTableName()).build(), desc);
+    try {
+      assertNull(CallPhaseTimer.current());
+
+      // a put waiting for the lock of its row, then for the WAL sync
+      CallPhaseTimer putTimer = new CallPhaseTimer();
+      RpcCall putCall = mockCall(putTimer);
+      CountDownLatch locked = new CountDownLatch(1);
+      Thread holder = new Thread(() -> {
+        try {
+          Region.RowLock lock = region.getRowLock(ROW, false);
+          locked.countDown();
+          Thread.sleep(200);
+          lock.release();
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+      holder.start();
+      locked.await();
+      RpcServer.setCurrentCall(putCall);
+      try {
+        assertTrue(CallPhaseTimer.current() == putTimer);
+        region.put(new Put(ROW).addColumn(FAMILY, QUALIFIER, VALUE));
+      } finally {
+        RpcServer.setCurrentCall(null);
+      }
+      holder.join();
+      assertEquals(1, putTimer.getCount(CallPhaseTimer.Phase.ROW_LOCK));
+      assertTrue(putTimer.toString(),
+        putTimer.getTime(CallPhaseTimer.Phase.ROW_LOCK) >= TimeUnit.MILLISECONDS.toNanos(100));
+      assertTrue(putTimer.toString(), putTimer.getCount(CallPhaseTimer.Phase.WAL_SYNC) > 0);
+      assertEquals(0, putTimer.getCount(CallPhaseTimer.Phase.BLOCK_READ));
+
+      // a get reading the flushed file, there is no block cache
+      region.flush(true);
+      CallPhaseTimer getTimer = new CallPhaseTimer();
+      RpcServer.setCurrentCall(mockCall(getTimer));
+      try {
+        assertEquals(1, region.get(new Get(ROW)).size());
+      } finally {
+        RpcServer.setCurrentCall(null);
+      }
+      assertTrue(getTimer.toString(), getTimer.getCount(CallPhaseTimer.Phase.BLOCK_READ) > 0);
+      assertEquals(0, getTimer.getCount(CallPhaseTimer.Phase.FILTER));
+      assertEquals(0, getTimer.getCount(CallPhaseTimer.Phase.ROW_LOCK));
+
+      // a scan with a filter
+      CallPhaseTimer scanTimer = new CallPhaseTimer();
+      RpcServer.setCurrentCall(mockCall(scanTimer));
+      Scan scan = new Scan()
+          .setFilter(new ValueFilter(CompareOperator.EQUAL, new BinaryComparator(VALUE)));
+      try (RegionScanner scanner = region.getScanner(scan)) {
+        List<Cell> cells = new ArrayList<>();
+        scanner.next(cells);
+        assertEquals(1, cells.size());
+      } finally {
+        RpcServer.setCurrentCall(null);
+      }
+      assertTrue(scanTimer.toString(), scanTimer.getCount(CallPhaseTimer.Phase.FILTER) > 0);
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+}
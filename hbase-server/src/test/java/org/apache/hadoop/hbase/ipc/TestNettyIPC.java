@@ -53,20 +53,24 @@ public class TestNettyIPC extends AbstractTestIPC {
   public static final HBaseClassTestRule CLASS_RULE =
       HBaseClassTestRule.forClass(TestNettyIPC.class);
 
-  @Parameters(name = "{index}: EventLoop={0}")
+  @Parameters(name = "{index}: EventLoop={0}, pooledRequests={1}")
   public static Collection<Object[]> parameters() {
     List<Object[]> params = new ArrayList<>();
-    params.add(new Object[] { "nio" });
-    params.add(new Object[] { "perClientNio" });
+    params.add(new Object[] { "nio", false });
+    params.add(new Object[] { "nio", true });
+    params.add(new Object[] { "perClientNio", false });
     if (JVM.isLinux() && JVM.isAmd64()) {
-      params.add(new Object[] { "epoll" });
+      params.add(new Object[] { "epoll", false });
     }
     return params;
   }
 
-  @Parameter
+  @Parameter(0)
   public String eventLoopType;
 
+  @Parameter(1)
+  public boolean pooledRequests;
+
   private static NioEventLoopGroup NIO;
 
   private static EpollEventLoopGroup EPOLL;
@@ -109,6 +113,11 @@ public class TestNettyIPC extends AbstractTestIPC {
   protected RpcServer createRpcServer(Server server, String name,
       List<RpcServer.BlockingServiceAndInterface> services, InetSocketAddress bindAddress,
       Configuration conf, RpcScheduler scheduler) throws IOException {
+    if (pooledRequests) {
+      conf = new Configuration(conf);
+      conf.setBoolean(NettyRpcServer.HBASE_NETTY_RPCSERVER_POOLED_REQUEST_KEY, true);
+      conf.setBoolean(NettyRpcServer.HBASE_NETTY_RPCSERVER_ALLOCATION_METRICS_KEY, true);
+    }
     return new NettyRpcServer(server, name, services, bindAddress, conf, scheduler, true);
   }
 
@@ -83,6 +83,8 @@ public class TestRpcMetrics {
     HELPER.assertGauge("numCallsInWriteQueue", 50, serverSource);
     HELPER.assertGauge("numCallsInReadQueue", 50, serverSource);
     HELPER.assertGauge("numCallsInScanQueue", 2, serverSource);
+    HELPER.assertGauge("eventLoop_loop-1_utilization", 40, serverSource);
+    HELPER.assertGauge("eventLoop_loop-1_pendingTasks", 3, serverSource);
   }
 
   /**
@@ -121,6 +123,12 @@ public class TestRpcMetrics {
     HELPER.assertCounter("processCallTime_NumOps", 1, serverSource);
     HELPER.assertCounter("totalCallTime_NumOps", 1, serverSource);
 
+    mrpc.callPhase("rowLock", 1500);
+    mrpc.callPhase("rowLock", 500);
+    mrpc.callPhase("walSync", 800);
+    HELPER.assertCounter("callPhaseTime_rowLock_NumOps", 2, serverSource);
+    HELPER.assertCounter("callPhaseTime_walSync_NumOps", 1, serverSource);
+
     mrpc.sentBytes(103);
     mrpc.sentBytes(103);
     mrpc.sentBytes(103);
@@ -150,6 +158,25 @@ public class TestRpcMetrics {
     HELPER.assertCounter("exceptions", 5, serverSource);
   }
 
+  @Test
+  public void testTenantMetricsBounded() {
+    MetricsHBaseServer mrpc =
+      new MetricsHBaseServer("HRegionserver", new MetricsHBaseServerWrapperStub());
+    MetricsHBaseServerSource serverSource = mrpc.getMetricsSource();
+    for (int i = 0; i < MetricsHBaseServerSource.MAX_TENANTS + 10; i++) {
+      mrpc.tenantDequeuedCall("user" + i, 10);
+    }
+    mrpc.tenantCallDropped("user0");
+    mrpc.tenantCallDropped("user" + (MetricsHBaseServerSource.MAX_TENANTS + 1));
+    HELPER.assertCounter("tenant_user0_queueCallTime_NumOps", 1, serverSource);
+    HELPER.assertCounter("tenant_user0_numCallsDropped", 1, serverSource);
+    // the tenants past the max are recorded together
+    HELPER.assertCounter("tenant_" + MetricsHBaseServerSource.OTHER_TENANT
+      + "_queueCallTime_NumOps", 10, serverSource);
+    HELPER.assertCounter("tenant_" + MetricsHBaseServerSource.OTHER_TENANT + "_numCallsDropped",
+      1, serverSource);
+  }
+
   @Test
   public void testServerContextNameWithHostName() {
     String[] masterServerNames = { "master/node-xyz/10.19.250.253:16020",
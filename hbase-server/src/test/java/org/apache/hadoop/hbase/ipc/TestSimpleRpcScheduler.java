@@ -39,6 +39,7 @@ import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Abortable;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
@@ -586,6 +587,87 @@ public class TestSimpleRpcScheduler {
       Mockito.any(), Mockito.any());
   }
 
+  @Test
+  public void testWorkStealing() throws Exception {
+    conf.setFloat(RpcExecutor.CALL_QUEUE_HANDLER_FACTOR_CONF_KEY, 1.0f);
+    conf.setBoolean(RpcExecutor.CALL_QUEUE_WORK_STEALING_CONF_KEY, true);
+    BalancedQueueRpcExecutor executor = new BalancedQueueRpcExecutor(testName.getMethodName(), 2,
+        RpcExecutor.CALL_QUEUE_TYPE_FIFO_CONF_VALUE, 100, mock(PriorityFunction.class), conf,
+        null);
+    MetricsHBaseServer metrics = mock(MetricsHBaseServer.class);
+    executor.setMetrics(metrics);
+    executor.start(0);
+    try {
+      final CountDownLatch running = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      CallRunner slowTask = createMockTask();
+      doAnswer(new Answer<Void>() {
+        @Override
+        public Void answer(InvocationOnMock invocation) throws Throwable {
+          running.countDown();
+          release.await();
+          return null;
+        }
+      }).when(slowTask).run();
+      // park the handler of the first queue
+      assertTrue(executor.queues.get(0).offer(slowTask));
+      running.await();
+      CallRunner task = createMockTask();
+      assertTrue(executor.queues.get(0).offer(task));
+      // the idle handler of the second queue takes it
+      verify(task, timeout(10000)).run();
+      assertEquals(1, executor.getNumCallsStolen());
+      verify(metrics).dequeuedCall(eq(executor.getName() + ".queue0"), Mockito.anyLong(),
+        eq(true));
+      release.countDown();
+    } finally {
+      executor.stop();
+    }
+  }
+
+  @Test
+  public void testVirtualThreadHandlers() throws Exception {
+    conf.set(VirtualThreadRpcExecutor.HANDLER_TYPE_CONF_KEY,
+      VirtualThreadRpcExecutor.HANDLER_TYPE_VIRTUAL_CONF_VALUE);
+    conf.setFloat(VirtualThreadRpcExecutor.CONCURRENCY_FACTOR_CONF_KEY, 2.0f);
+    PriorityFunction qosFunction = mock(PriorityFunction.class);
+    SimpleRpcScheduler scheduler = new SimpleRpcScheduler(conf, 2, 0, 0, qosFunction, 0);
+    scheduler.init(CONTEXT);
+    scheduler.start();
+    try {
+      final AtomicInteger running = new AtomicInteger(0);
+      final AtomicInteger maxRunning = new AtomicInteger(0);
+      final CountDownLatch started = new CountDownLatch(4);
+      final CountDownLatch release = new CountDownLatch(1);
+      List<CallRunner> tasks = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        CallRunner task = createMockTask();
+        doAnswer(new Answer<Void>() {
+          @Override
+          public Void answer(InvocationOnMock invocation) throws Throwable {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            release.await();
+            running.decrementAndGet();
+            return null;
+          }
+        }).when(task).run();
+        tasks.add(task);
+        assertTrue(scheduler.dispatch(task));
+      }
+      // two handlers with a concurrency factor of two allow for four calls at the same time
+      started.await();
+      assertEquals(4, scheduler.getActiveGeneralRpcHandlerCount());
+      release.countDown();
+      for (CallRunner task : tasks) {
+        verify(task, timeout(10000)).run();
+      }
+      assertEquals(4, maxRunning.get());
+    } finally {
+      scheduler.stop();
+    }
+  }
+
   @Test
   public void testMetaRWScanQueues() throws Exception {
     Configuration schedConf = HBaseConfiguration.create();
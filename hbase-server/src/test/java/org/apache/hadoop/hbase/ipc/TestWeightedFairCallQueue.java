@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.testclassification.RPCTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hbase.thirdparty.com.google.protobuf.ByteString;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.ClientProtos.GetRequest;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos.RegionSpecifier.RegionSpecifierType;
+
+@Category({ RPCTests.class, SmallTests.class })
+public class TestWeightedFairCallQueue {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestWeightedFairCallQueue.class);
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+  }
+
+  private CallRunner createCall(String user, long deadline) {
+    ServerCall<?> call = mock(ServerCall.class);
+    when(call.getRequestUser())
+        .thenReturn(Optional.of(User.createUserForTesting(conf, user, new String[0])));
+    when(call.getDeadline()).thenReturn(deadline);
+    CallRunner cr = mock(CallRunner.class);
+    when(cr.getRpcCall()).thenReturn(call);
+    return cr;
+  }
+
+  private CallRunner createCall(String user) {
+    return createCall(user, Long.MAX_VALUE);
+  }
+
+  private String tenantOf(CallRunner cr) {
+    return cr.getRpcCall().getRequestUser().get().getShortName();
+  }
+
+  @Test
+  public void testFairShare() throws Exception {
+    WeightedFairCallQueue queue = new WeightedFairCallQueue(100, new CallCostModel(conf));
+    for (int i = 0; i < 10; i++) {
+      assertTrue(queue.offer(createCall("noisy")));
+    }
+    assertTrue(queue.offer(createCall("quiet")));
+    assertTrue(queue.offer(createCall("quiet")));
+    assertEquals(12, queue.size());
+    // the calls of the quiet tenant do not wait for the backlog of the noisy one
+    int quiet = 0;
+    for (int i = 0; i < 4; i++) {
+      if (tenantOf(queue.take()).equals("quiet")) {
+        quiet++;
+      }
+    }
+    assertEquals(2, quiet);
+    for (int i = 0; i < 8; i++) {
+      assertEquals("noisy", tenantOf(queue.poll()));
+    }
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void testWeights() throws Exception {
+    conf.set(CallCostModel.WEIGHTS_CONF_KEY, "gold:3, bad, silver:-1");
+    WeightedFairCallQueue queue = new WeightedFairCallQueue(100, new CallCostModel(conf));
+    for (int i = 0; i < 8; i++) {
+      queue.offer(createCall("gold"));
+      queue.offer(createCall("silver"));
+    }
+    int gold = 0;
+    for (int i = 0; i < 8; i++) {
+      if (tenantOf(queue.take()).equals("gold")) {
+        gold++;
+      }
+    }
+    assertEquals(6, gold);
+  }
+
+  @Test
+  public void testCapacity() {
+    WeightedFairCallQueue queue = new WeightedFairCallQueue(2, new CallCostModel(conf));
+    assertTrue(queue.offer(createCall("a")));
+    assertTrue(queue.offer(createCall("b")));
+    assertFalse(queue.offer(createCall("a")));
+    assertEquals(0, queue.remainingCapacity());
+  }
+
+  @Test
+  public void testDropExpired() throws Exception {
+    CallCostModel costModel = new CallCostModel(conf);
+    MetricsHBaseServer metrics = mock(MetricsHBaseServer.class);
+    costModel.setMetrics(metrics);
+    WeightedFairCallQueue queue = new WeightedFairCallQueue(100, costModel);
+    CallRunner expired = createCall("late", EnvironmentEdgeManager.currentTime() - 1);
+    CallRunner live = createCall("late");
+    queue.offer(expired);
+    queue.offer(live);
+    assertSame(live, queue.take());
+    verify(expired).drop();
+    verify(live, never()).drop();
+    verify(metrics).tenantCallDropped("late");
+    verify(metrics).tenantDequeuedCall(eq("late"), anyLong());
+    assertEquals(0, queue.size());
+  }
+
+  @Test
+  public void testNamespaceTenant() {
+    conf.set(CallCostModel.TENANT_CONF_KEY, CallCostModel.TENANT_NAMESPACE);
+    CallCostModel costModel = new CallCostModel(conf);
+    CallRunner cr = createCall("user");
+    RpcCall call = cr.getRpcCall();
+    when(call.getParam()).thenReturn(GetRequest.newBuilder().setRegion(RegionSpecifier
+        .newBuilder().setType(RegionSpecifierType.REGION_NAME)
+        .setValue(ByteString.copyFrom(Bytes.toBytes("ns:table,,1.abcdef")))).buildPartial());
+    assertEquals("ns", costModel.getTenant(call));
+    when(call.getParam()).thenReturn(GetRequest.newBuilder().setRegion(RegionSpecifier
+        .newBuilder().setType(RegionSpecifierType.REGION_NAME)
+        .setValue(ByteString.copyFrom(Bytes.toBytes("table,a:b,1.abcdef")))).buildPartial());
+    assertEquals("default", costModel.getTenant(call));
+    // no region in the request, falls back to the user
+    when(call.getParam()).thenReturn(null);
+    assertEquals("user", costModel.getTenant(call));
+  }
+}
@@ -518,6 +518,11 @@ public class TestRegionsRecoveryChore {
       public CompactionState getCompactionState() {
         return null;
       }
+
+      @Override
+      public long getReplicaStaleness() {
+        return 0;
+      }
     };
     return regionMetrics;
   }
@@ -35,6 +35,7 @@ import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.ipc.CallPhaseTimer;
 import org.apache.hadoop.hbase.ipc.RpcCall;
 import org.apache.hadoop.hbase.ipc.RpcCallback;
 import org.apache.hadoop.hbase.namequeues.request.NamedQueueGetRequest;
@@ -593,6 +594,40 @@ public class TestNamedQueueRecorder {
       () -> getSlowLogPayloads(requestSlowLog).size() == 15));
   }
 
+  @Test
+  public void testSlowLogPhaseTimes() throws Exception {
+    Configuration conf = applySlowLogRecorderConf(10);
+    Constructor<NamedQueueRecorder> constructor =
+      NamedQueueRecorder.class.getDeclaredConstructor(Configuration.class);
+    constructor.setAccessible(true);
+    namedQueueRecorder = constructor.newInstance(conf);
+    AdminProtos.SlowLogResponseRequest request =
+      AdminProtos.SlowLogResponseRequest.newBuilder().setLimit(15).build();
+    namedQueueRecorder.clearNamedQueue(NamedQueuePayload.NamedQueueEvent.SLOW_LOG);
+
+    CallPhaseTimer phaseTimer = new CallPhaseTimer();
+    phaseTimer.add(CallPhaseTimer.Phase.ROW_LOCK, TimeUnit.MILLISECONDS.toNanos(3));
+    phaseTimer.add(CallPhaseTimer.Phase.WAL_SYNC, TimeUnit.MILLISECONDS.toNanos(1));
+    phaseTimer.add(CallPhaseTimer.Phase.WAL_SYNC, TimeUnit.MILLISECONDS.toNanos(1));
+    RpcCall rpcCall = getRpcCall("userName_1", phaseTimer);
+    namedQueueRecorder.addRecord(new RpcLogDetails(rpcCall, rpcCall.getParam(), "client_1", 0,
+      "class_1", true, false));
+    // a call which was not timed
+    namedQueueRecorder.addRecord(getRpcLogDetails("userName_2", "client_2", "class_2"));
+
+    Assert.assertNotEquals(-1,
+      HBASE_TESTING_UTILITY.waitFor(3000, () -> getSlowLogPayloads(request).size() == 2));
+    List<SlowLogPayload> slowLogPayloads = getSlowLogPayloads(request);
+    Assert.assertEquals(0, slowLogPayloads.get(0).getPhaseTimesCount());
+    SlowLogPayload timed = slowLogPayloads.get(1);
+    Assert.assertEquals("userName_1", timed.getUserName());
+    Assert.assertEquals(2, timed.getPhaseTimesCount());
+    Assert.assertEquals("rowLock", timed.getPhaseTimes(0).getName());
+    Assert.assertEquals(3000, timed.getPhaseTimes(0).getValue());
+    Assert.assertEquals("walSync", timed.getPhaseTimes(1).getName());
+    Assert.assertEquals(2000, timed.getPhaseTimes(1).getValue());
+  }
+
   static RpcLogDetails getRpcLogDetails(String userName, String clientAddress, String className) {
     RpcCall rpcCall = getRpcCall(userName);
     return new RpcLogDetails(rpcCall, rpcCall.getParam(), clientAddress, 0, className, true, true);
@@ -606,6 +641,10 @@ public class TestNamedQueueRecorder {
   }
 
   private static RpcCall getRpcCall(String userName) {
+    return getRpcCall(userName, null);
+  }
+
+  private static RpcCall getRpcCall(String userName, CallPhaseTimer phaseTimer) {
     RpcCall rpcCall = new RpcCall() {
       @Override
       public BlockingService getService() {
@@ -750,6 +789,11 @@ public class TestNamedQueueRecorder {
       @Override
       public void incrementResponseExceptionSize(long exceptionSize) {
       }
+
+      @Override
+      public CallPhaseTimer getPhaseTimer() {
+        return phaseTimer;
+      }
     };
     return rpcCall;
   }
@@ -17,23 +17,34 @@
  */
 package org.apache.hadoop.hbase.protobuf;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.testclassification.MiscTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WALEdit;
+import org.apache.hadoop.hbase.wal.WALKeyImpl;
 import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.ReplicateWALEntryRequest;
+
 @Category({MiscTests.class, SmallTests.class})
 public class TestReplicationProtobuf {
 
@@ -74,6 +85,34 @@ public class TestReplicationProtobuf {
     assertFalse(scanner.advance());
   }
 
+  @Test
+  public void testBuildReplayRequest() throws IOException {
+    byte[] region1 = Bytes.toBytes("region1");
+    byte[] region2 = Bytes.toBytes("region2");
+    List<Pair<byte[], List<Entry>>> regionEntries = Arrays.asList(
+      Pair.newPair(region1, Arrays.asList(createEntry("a"), createEntry("b"))),
+      Pair.newPair(region2, Collections.singletonList(createEntry("c"))));
+    Pair<ReplicateWALEntryRequest, CellScanner> p =
+      ReplicationProtobufUtil.buildReplayRequest(regionEntries);
+    ReplicateWALEntryRequest request = p.getFirst();
+    assertEquals(3, request.getEntryCount());
+    assertArrayEquals(region1, request.getEntry(0).getKey().getEncodedRegionName().toByteArray());
+    assertArrayEquals(region1, request.getEntry(1).getKey().getEncodedRegionName().toByteArray());
+    assertArrayEquals(region2, request.getEntry(2).getKey().getEncodedRegionName().toByteArray());
+    CellScanner scanner = p.getSecond();
+    testAdvancetHasSameRow(scanner, new KeyValue(Bytes.toBytes("a"), -1L));
+    testAdvancetHasSameRow(scanner, new KeyValue(Bytes.toBytes("b"), -1L));
+    testAdvancetHasSameRow(scanner, new KeyValue(Bytes.toBytes("c"), -1L));
+    assertFalse(scanner.advance());
+  }
+
+  private static Entry createEntry(String row) {
+    WALEdit edit = new WALEdit();
+    edit.add(new KeyValue(Bytes.toBytes(row), -1L));
+    return new Entry(
+      new WALKeyImpl(Bytes.toBytes("primary"), TableName.valueOf("test"), 0), edit);
+  }
+
   private void testAdvancetHasSameRow(CellScanner scanner, final KeyValue kv) throws IOException {
     scanner.advance();
     assertTrue(Bytes.equals(scanner.current().getRowArray(), scanner.current().getRowOffset(),
@@ -20,16 +20,22 @@ package org.apache.hadoop.hbase.regionserver;
 import static org.apache.hadoop.hbase.HBaseTestingUtility.fam1;
 import static org.apache.hadoop.hbase.HBaseTestingUtility.fam2;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -298,8 +304,12 @@ public class TestAtomicOperation {
 
   private void initHRegion(byte[] tableName, String callingMethod, int[] maxVersions,
     byte[]... families) throws IOException {
-    TableDescriptorBuilder builder =
-      TableDescriptorBuilder.newBuilder(TableName.valueOf(tableName));
+    initHRegion(TableDescriptorBuilder.newBuilder(TableName.valueOf(tableName)), maxVersions,
+      families);
+  }
+
+  private void initHRegion(TableDescriptorBuilder builder, int[] maxVersions, byte[]... families)
+    throws IOException {
 
     int i = 0;
     for (byte[] family : families) {
@@ -312,6 +322,78 @@ public class TestAtomicOperation {
     region = TEST_UTIL.createLocalHRegion(info, tableDescriptor);
   }
 
+  @Test
+  public void testCoalescedIncrementsAndAppends() throws Exception {
+    initHRegion(TableDescriptorBuilder.newBuilder(TableName.valueOf(tableName))
+      .setValue(MutationCoalescer.COALESCING_ENABLED_KEY, "true"), null, fam1);
+
+    int numThreads = 20;
+    int opsPerThread = 200;
+    Set<Long> counts = ConcurrentHashMap.newKeySet();
+    Set<Integer> lengths = ConcurrentHashMap.newKeySet();
+    List<byte[]> appended = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger failures = new AtomicInteger(0);
+    Thread[] all = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      all[i] = new Thread(() -> {
+        try {
+          for (int j = 0; j < opsPerThread; j++) {
+            Result result = region.increment(new Increment(row).addColumn(fam1, qual1, 1));
+            counts.add(Bytes.toLong(result.getValue(fam1, qual1)));
+            result = region.append(new Append(row).addColumn(fam1, qual2, new byte[] { 1 }));
+            lengths.add(result.getValue(fam1, qual2).length);
+            appended.add(result.getValue(fam1, qual2));
+          }
+        } catch (IOException e) {
+          LOG.error("Coalesced operation failed", e);
+          failures.incrementAndGet();
+        }
+      });
+      all[i].start();
+    }
+    for (Thread t : all) {
+      t.join();
+    }
+    assertEquals(0, failures.get());
+
+    // every caller saw its own intermediate value
+    int total = numThreads * opsPerThread;
+    assertEquals(total, counts.size());
+    assertEquals(total, lengths.size());
+    for (long i = 1; i <= total; i++) {
+      assertTrue(counts.contains(i));
+    }
+    assertICV(row, fam1, qual1, total, false);
+    byte[] value = region.get(new Get(row)).getValue(fam1, qual2);
+    assertEquals(total, value.length);
+    for (byte[] prefix : appended) {
+      assertTrue(Bytes.startsWith(value, prefix));
+    }
+  }
+
+  @Test
+  public void testNoCoalescingWithNonce() throws Exception {
+    initHRegion(TableDescriptorBuilder.newBuilder(TableName.valueOf(tableName))
+      .setValue(MutationCoalescer.COALESCING_ENABLED_KEY, "true"), null, fam1);
+    MutationCoalescer coalescer = new MutationCoalescer(region, region.getBaseConf());
+    Increment increment = new Increment(row).addColumn(fam1, qual1, 1);
+    // nonces mean nothing without a nonce manager
+    assertTrue(coalescer.canCoalesce(increment, HConstants.NO_NONCE));
+    assertTrue(coalescer.canCoalesce(increment, 1));
+
+    RegionServerServices rsServices = mock(RegionServerServices.class);
+    when(rsServices.getNonceManager()).thenReturn(new ServerNonceManager(region.getBaseConf()));
+    region.rsServices = rsServices;
+    try {
+      assertTrue(coalescer.canCoalesce(increment, HConstants.NO_NONCE));
+      assertFalse(coalescer.canCoalesce(increment, 1));
+      Append append = new Append(row).addColumn(fam1, qual2, new byte[] { 1 });
+      assertFalse(coalescer.canCoalesce(append, 1));
+    } finally {
+      region.rsServices = null;
+    }
+  }
+
   /**
    * A thread that makes increment calls always on the same row, this.row against two column
    * families on this row.
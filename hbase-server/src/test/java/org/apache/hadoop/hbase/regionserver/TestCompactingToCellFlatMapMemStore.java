@@ -24,7 +24,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellComparatorImpl;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.KeyValue;
@@ -39,6 +41,8 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -491,8 +495,102 @@ public class TestCompactingToCellFlatMapMemStore extends TestCompactingMemStore
     assertEquals("the count should be ", 150, cnt);
   }
 
-  private void addRowsByKeysWith50Cols(AbstractMemStore hmc, String[] keys) {
+  @Test
+  public void testParallelCompaction() throws IOException {
+    conf.setInt(CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_KEY, 3);
+    conf.setInt(CompactingMemStore.IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_KEY, 1);
+    this.memstore = new MyCompactingMemStore(conf, CellComparatorImpl.COMPARATOR, store,
+        regionServicesForStores, MemoryCompactionPolicy.EAGER);
+    if (toCellChunkMap) {
+      // only the compaction into CellChunkMap is done in parallel
+      ((CompactingMemStore)memstore).setIndexType(CompactingMemStore.IndexType.CHUNK_MAP);
+    } else {
+      ((CompactingMemStore)memstore).setIndexType(CompactingMemStore.IndexType.ARRAY_MAP);
+    }
+    String[] keys1 = { "A", "A", "B", "C", "D", "E", "E", "F", "G" };
+    String[] keys2 = { "A", "B", "D", "H", "I" };
+
+    long totalCellsLen1 = addRowsByKeysWith50Cols(memstore, keys1);
+    ((CompactingMemStore) memstore).flushInMemory(); // push keys to pipeline and compact
+    // Two rows are duplicated and the compaction will remove them. All rows of same size
+    totalCellsLen1 = (totalCellsLen1 * 7) / 9;
+    assertEquals(7 * 50, memstore.getSegments().stream().mapToInt(Segment::getCellsCount).sum());
+    assertEquals(totalCellsLen1, memstore.getSegments().stream()
+        .mapToLong(Segment::getDataSize).sum());
+
+    long totalCellsLen2 = addRowsByKeysWith50Cols(memstore, keys2);
+    ((CompactingMemStore) memstore).flushInMemory(); // push keys to pipeline and compact
+    // Three rows are duplicated in set 2
+    totalCellsLen2 = (totalCellsLen2 * 2) / 5;
+    assertEquals(9 * 50, memstore.getSegments().stream().mapToInt(Segment::getCellsCount).sum());
+    assertEquals(totalCellsLen1 + totalCellsLen2, memstore.getSegments().stream()
+        .mapToLong(Segment::getDataSize).sum());
+
+    // the cells must be in order and only the latest version of each cell may survive
+    List<KeyValueScanner> scanners = memstore.getScanners(Long.MAX_VALUE);
+    int count = 0;
+    try (KeyValueHeap heap = new KeyValueHeap(scanners, CellComparatorImpl.COMPARATOR)) {
+      heap.seek(KeyValue.LOWESTKEY);
+      Cell prev = null;
+      Cell cur;
+      while ((cur = heap.next()) != null) {
+        if (prev != null) {
+          assertTrue(CellComparatorImpl.COMPARATOR.compare(prev, cur) < 0);
+          assertTrue(!CellUtil.matchingRowColumn(prev, cur));
+        }
+        prev = cur;
+        count++;
+      }
+    }
+    assertEquals(9 * 50, count);
+
+    // both compactions of the 9 (then 7 and 5) rows must have been split into 3 partitions
+    ArgumentCaptor<Integer> partitions = ArgumentCaptor.forClass(Integer.class);
+    Mockito.verify(regionServicesForStores, Mockito.times(2))
+        .updateInMemoryCompaction(Mockito.anyLong(), partitions.capture());
+    for (int p : partitions.getAllValues()) {
+      assertEquals(toCellChunkMap ? 3 : 1, p);
+    }
+
+    MemStoreSnapshot snapshot = memstore.snapshot(); // push keys to snapshot
+    assertEquals(9 * 50, memstore.getSnapshot().getCellsCount());
+    memstore.clearSnapshot(snapshot.getId());
+  }
+
+  @Test
+  public void testNoParallelCompactionWithRegionObservers() throws IOException {
+    conf.setInt(CompactingMemStore.IN_MEMORY_COMPACTION_PARALLELISM_KEY, 3);
+    conf.setInt(CompactingMemStore.IN_MEMORY_COMPACTION_PARALLEL_MIN_CELLS_KEY, 1);
+    RegionCoprocessorHost cpHost = Mockito.mock(RegionCoprocessorHost.class);
+    Mockito.when(cpHost.hasRegionObservers()).thenReturn(true);
+    Mockito.when(cpHost.preMemStoreCompactionCompactScannerOpen(Mockito.any()))
+        .thenReturn(store.getScanInfo());
+    Mockito.when(cpHost.preMemStoreCompactionCompact(Mockito.any(), Mockito.any()))
+        .thenAnswer(i -> i.getArgument(1));
+    HStore observedStore = Mockito.spy(store);
+    Mockito.doReturn(cpHost).when(observedStore).getCoprocessorHost();
+    this.memstore = new MyCompactingMemStore(conf, CellComparatorImpl.COMPARATOR, observedStore,
+        regionServicesForStores, MemoryCompactionPolicy.EAGER);
+    ((CompactingMemStore)memstore).setIndexType(CompactingMemStore.IndexType.CHUNK_MAP);
+    String[] keys = { "A", "A", "B", "C", "D", "E", "E", "F", "G" };
+
+    addRowsByKeysWith50Cols(memstore, keys);
+    ((CompactingMemStore) memstore).flushInMemory(); // push keys to pipeline and compact
+    assertEquals(7 * 50, memstore.getSegments().stream().mapToInt(Segment::getCellsCount).sum());
+
+    // a single partition, the hooks are invoked once for the whole compaction
+    Mockito.verify(regionServicesForStores)
+        .updateInMemoryCompaction(Mockito.anyLong(), Mockito.eq(1));
+    Mockito.verify(cpHost).preMemStoreCompactionCompactScannerOpen(Mockito.any());
+    Mockito.verify(cpHost).preMemStoreCompactionCompact(Mockito.any(), Mockito.any());
+
+    MemStoreSnapshot snapshot = memstore.snapshot(); // push keys to snapshot
+    memstore.clearSnapshot(snapshot.getId());
+  }
+
+  private long addRowsByKeysWith50Cols(AbstractMemStore hmc, String[] keys) {
     byte[] fam = Bytes.toBytes("testfamily");
+    MemStoreSizing memstoreSizing = new NonThreadSafeMemStoreSizing();
     for (int i = 0; i < keys.length; i++) {
       long timestamp = System.currentTimeMillis();
       Threads.sleep(1); // to make sure each kv gets a different ts
@@ -501,9 +599,10 @@ public class TestCompactingToCellFlatMapMemStore extends TestCompactingMemStore
         byte[] qf = Bytes.toBytes("testqualifier"+j);
         byte[] val = Bytes.toBytes(keys[i] + j);
         KeyValue kv = new KeyValue(row, fam, qf, timestamp, val);
-        hmc.add(kv, null);
+        hmc.add(kv, memstoreSizing);
       }
     }
+    return memstoreSizing.getDataSize();
   }
 
   @Override
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -55,6 +56,7 @@ import java.util.Objects;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -7141,6 +7143,166 @@ public class TestHRegion {
     f2.get();
   }
 
+  @Test
+  public void testStripedRowLocks() throws Exception {
+    final byte[] a = Bytes.toBytes("a");
+    final byte[] b = Bytes.toBytes("b");
+
+    Configuration conf = new Configuration(CONF);
+    // a single stripe makes every row collide
+    conf.setInt(HRegion.ROW_LOCK_STRIPES_KEY, 1);
+    conf.setInt("hbase.rowlock.wait.duration", 100);
+    region = initHRegion(tableName, method, conf, fam1);
+    assertTrue(region.isRowLockStriped());
+
+    // stripe locks are reused and reentrant for the holding thread
+    RowLock lockA = region.getRowLock(a);
+    RowLock lockB = region.getRowLock(b);
+    assertSame(lockA, lockB);
+    assertTrue(region.getLockedRows().isEmpty());
+
+    // another row on the same stripe can not be locked by another thread
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      Future<RowLock> f = exec.submit(() -> region.getRowLock(b));
+      try {
+        f.get();
+        fail("Should not get the row lock while the stripe is held");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+
+      // batch with rows on the same stripe, atomic or not, does not leak locks
+      Put putA = new Put(a).addColumn(fam1, qual1, value1);
+      Put putB = new Put(b).addColumn(fam1, qual1, value1);
+      region.mutateRow(new RowMutations(a).add(putA));
+      region.batchMutate(new Mutation[] { putA, putB, putA });
+      lockB.release();
+      lockA.release();
+      region.batchMutate(new Mutation[] { putB, putA });
+
+      exec.submit(() -> {
+        region.getRowLock(b).release();
+        return null;
+      }).get();
+    } finally {
+      exec.shutdownNow();
+    }
+    assertEquals(1, region.get(new Get(b)).size());
+  }
+
+  @Test
+  public void testStripedRowLocksOfMultiRowMutations() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    conf.setInt(HRegion.ROW_LOCK_STRIPES_KEY, 4);
+    conf.setInt("hbase.rowlock.wait.duration", 5000);
+    region = initHRegion(tableName, method, conf, fam1);
+
+    // two pairs of sorted rows on the same two stripes, in opposite stripe orders
+    byte[][] pair1 = null;
+    byte[][] pair2 = null;
+    for (int i = 0; pair1 == null; i++) {
+      byte[] first = Bytes.toBytes(String.format("row%03d", i));
+      byte[] second = Bytes.toBytes(String.format("row%03d", i + 1));
+      if (region.getRowLockStripe(first) > region.getRowLockStripe(second)) {
+        pair1 = new byte[][] { first, second };
+      }
+    }
+    byte[] first = null;
+    for (int i = 100; pair2 == null; i++) {
+      byte[] row = Bytes.toBytes(String.format("row%03d", i));
+      if (first == null && region.getRowLockStripe(row) == region.getRowLockStripe(pair1[1])) {
+        first = row;
+      } else if (first != null
+          && region.getRowLockStripe(row) == region.getRowLockStripe(pair1[0])) {
+        pair2 = new byte[][] { first, row };
+      }
+    }
+    final List<byte[]> rows1 = Arrays.asList(pair1);
+    final List<byte[]> rows2 = Arrays.asList(pair2);
+    final List<Mutation> puts1 = Arrays.asList(new Put(pair1[0]).addColumn(fam1, qual1, value1),
+      new Put(pair1[1]).addColumn(fam1, qual1, value1));
+    final List<Mutation> puts2 = Arrays.asList(new Put(pair2[0]).addColumn(fam1, qual1, value1),
+      new Put(pair2[1]).addColumn(fam1, qual1, value1));
+
+    // locking the rows in row order instead of stripe order makes these time out
+    ExecutorService exec = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      futures.add(exec.submit(() -> {
+        for (int i = 0; i < 500; i++) {
+          region.mutateRowsWithLocks(puts1, rows1, HConstants.NO_NONCE, HConstants.NO_NONCE);
+        }
+        return null;
+      }));
+      futures.add(exec.submit(() -> {
+        for (int i = 0; i < 500; i++) {
+          region.mutateRowsWithLocks(puts2, rows2, HConstants.NO_NONCE, HConstants.NO_NONCE);
+        }
+        return null;
+      }));
+      for (List<Mutation> puts : Arrays.asList(puts1, puts2)) {
+        futures.add(exec.submit(() -> {
+          // a non-atomic batch takes read locks
+          for (int i = 0; i < 500; i++) {
+            OperationStatus[] statuses = region.batchMutate(puts.toArray(new Mutation[0]));
+            for (OperationStatus status : statuses) {
+              assertEquals(OperationStatusCode.SUCCESS, status.getOperationStatusCode());
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f : futures) {
+        f.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      exec.shutdownNow();
+    }
+    for (byte[] row : Arrays.asList(pair1[0], pair1[1], pair2[0], pair2[1])) {
+      assertEquals(1, region.get(new Get(row)).size());
+    }
+  }
+
+  @Test
+  public void testStripedRowLocksOfCoprocessorMutations() throws Exception {
+    byte[] a = Bytes.toBytes("a");
+    byte[] b = Bytes.toBytes("b");
+    Configuration conf = new Configuration(CONF);
+    // a single stripe, the rows added by the coprocessor are on the stripe the batch holds
+    conf.setInt(HRegion.ROW_LOCK_STRIPES_KEY, 1);
+    conf.setInt("hbase.rowlock.wait.duration", 100);
+    region = initHRegion(tableName, method, conf, fam1);
+    RegionCoprocessorHost normalCPHost = region.getCoprocessorHost();
+    RegionCoprocessorHost mockedCPHost = Mockito.mock(RegionCoprocessorHost.class);
+    Mockito.doAnswer(invocation -> {
+      MiniBatchOperationInProgress<Mutation> mb = invocation.getArgument(0);
+      mb.addOperationsFromCP(0,
+        new Mutation[] { new Put(b).addColumn(fam1, qual1, mb.getOperation(0).getRow()) });
+      return null;
+    }).when(mockedCPHost).preBatchMutate(Mockito.isA(MiniBatchOperationInProgress.class));
+    region.setCoprocessorHost(mockedCPHost);
+    try {
+      // atomic, holding the write lock of the stripe, and not
+      region.mutateRow(new RowMutations(a).add(new Put(a).addColumn(fam1, qual1, value1)));
+      region.batchMutate(new Mutation[] { new Put(a).addColumn(fam1, qual2, value1) });
+    } finally {
+      region.setCoprocessorHost(normalCPHost);
+    }
+    assertEquals(2, region.get(new Get(a)).size());
+    assertArrayEquals(a, region.get(new Get(b)).getValue(fam1, qual1));
+    // no lock of the stripe is left behind
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try {
+      exec.submit(() -> {
+        region.getRowLock(b).release();
+        return null;
+      }).get();
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
   @Test
   public void testCheckAndRowMutateTimestampsAreMonotonic() throws IOException {
     region = initHRegion(tableName, method, CONF, fam1);
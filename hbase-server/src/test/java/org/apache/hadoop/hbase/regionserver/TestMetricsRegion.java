@@ -111,4 +111,38 @@ public class TestMetricsRegion {
       6, agg);
     mr.close();
   }
+
+  @Test
+  public void testRowLockWait() {
+    MetricsRegion mr = new MetricsRegion(new MetricsRegionWrapperStub(), new Configuration());
+    MetricsRegionAggregateSource agg = mr.getSource().getAggregateSource();
+    mr.updateRowLockWait(3000);
+    mr.updateRowLockWait(5000);
+    HELPER.assertCounter(
+      "namespace_TestNS_table_MetricsRegionWrapperStub_region_DEADBEEF001_metric_rowLockWaitCount",
+      2, agg);
+    HELPER.assertCounter("namespace_TestNS_table_MetricsRegionWrapperStub_region_DEADBEEF001"
+      + "_metric_rowLockWaitTimeMicros", 8, agg);
+    mr.close();
+  }
+
+  @Test
+  public void testRowCache() {
+    MetricsRegion mr = new MetricsRegion(new MetricsRegionWrapperStub(), new Configuration());
+    MetricsRegionAggregateSource agg = mr.getSource().getAggregateSource();
+    mr.updateRowCache(true);
+    mr.updateRowCache(true);
+    mr.updateRowCache(true);
+    mr.updateRowCache(false);
+    HELPER.assertCounter(
+      "namespace_TestNS_table_MetricsRegionWrapperStub_region_DEADBEEF001_metric_rowCacheHitCount",
+      3, agg);
+    HELPER.assertCounter(
+      "namespace_TestNS_table_MetricsRegionWrapperStub_region_DEADBEEF001_metric_rowCacheMissCount",
+      1, agg);
+    HELPER.assertGauge(
+      "namespace_TestNS_table_MetricsRegionWrapperStub_region_DEADBEEF001_metric_rowCacheHitRatio",
+      0.75, agg);
+    mr.close();
+  }
 }
@@ -191,6 +191,17 @@ public class TestMetricsRegionServer {
     HELPER.assertCounter("flushedOutputBytes", 33, serverSource);
   }
 
+  @Test
+  public void testInMemoryCompaction() {
+    rsm.updateInMemoryCompaction(1, false);
+    HELPER.assertCounter("inMemoryCompactionTime_num_ops", 1, serverSource);
+    HELPER.assertCounter("parallelInMemoryCompactionTime_num_ops", 0, serverSource);
+
+    rsm.updateInMemoryCompaction(10, true);
+    HELPER.assertCounter("inMemoryCompactionTime_num_ops", 2, serverSource);
+    HELPER.assertCounter("parallelInMemoryCompactionTime_num_ops", 1, serverSource);
+  }
+
   @Test
   public void testCompaction() {
     rsm.updateCompaction(null, false, 1, 2, 3, 4, 5);
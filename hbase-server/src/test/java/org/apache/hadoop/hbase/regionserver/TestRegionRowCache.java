@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestRegionRowCache {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestRegionRowCache.class);
+
+  private static final byte[] FAMILY1 = Bytes.toBytes("f1");
+  private static final byte[] FAMILY2 = Bytes.toBytes("f2");
+  private static final byte[] QUALIFIER1 = Bytes.toBytes("q1");
+  private static final byte[] QUALIFIER2 = Bytes.toBytes("q2");
+  private static final byte[] ROW = Bytes.toBytes("row");
+
+  private final HBaseTestingUtility hbu = new HBaseTestingUtility();
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    TableDescriptor htd = TableDescriptorBuilder.newBuilder(TableName.valueOf(name.getMethodName()))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY1).setMaxVersions(3)
+            .build())
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.newBuilder(FAMILY2).setTimeToLive(3600)
+            .build())
+        .setValue(RegionRowCache.ROW_CACHE_SIZE_KEY, Long.toString(1024 * 1024)).build();
+    region = hbu.createLocalHRegion(
+      RegionInfoBuilder.newBuilder(htd.getTableName()).build(), htd);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  @Test
+  public void testPopulateAndInvalidate() throws IOException {
+    RegionRowCache cache = region.getRowCache();
+    region.put(new Put(ROW).addColumn(FAMILY1, QUALIFIER1, Bytes.toBytes("v1"))
+        .addColumn(FAMILY1, QUALIFIER2, Bytes.toBytes("v2"))
+        .addColumn(FAMILY2, QUALIFIER1, Bytes.toBytes("v3")));
+    assertEquals(0, cache.size());
+
+    // a column get does not populate the cache
+    region.get(new Get(ROW).addColumn(FAMILY1, QUALIFIER1));
+    assertEquals(0, cache.size());
+
+    Result result = region.get(new Get(ROW));
+    assertEquals(3, result.size());
+    assertEquals(1, cache.size());
+    assertTrue(cache.getHeapSize() > 0);
+
+    // served from the cache, only the selected columns
+    Get get = new Get(ROW).addColumn(FAMILY1, QUALIFIER2).addFamily(FAMILY2);
+    region.prepareGet(get);
+    assertEquals(2, cache.get(get).size());
+    result = region.get(new Get(ROW).addColumn(FAMILY1, QUALIFIER2).addFamily(FAMILY2));
+    assertEquals(2, result.size());
+    assertArrayEquals(Bytes.toBytes("v2"), result.getValue(FAMILY1, QUALIFIER2));
+    assertArrayEquals(Bytes.toBytes("v3"), result.getValue(FAMILY2, QUALIFIER1));
+
+    // mutations drop the row
+    region.put(new Put(ROW).addColumn(FAMILY1, QUALIFIER1, Bytes.toBytes("v4")));
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getHeapSize());
+    assertArrayEquals(Bytes.toBytes("v4"), region.get(new Get(ROW)).getValue(FAMILY1, QUALIFIER1));
+    assertEquals(1, cache.size());
+
+    region.delete(new Delete(ROW).addFamily(FAMILY2));
+    assertEquals(0, cache.size());
+    assertNull(region.get(new Get(ROW)).getValue(FAMILY2, QUALIFIER1));
+
+    region.increment(new Increment(ROW).addColumn(FAMILY2, QUALIFIER2, 5));
+    assertEquals(0, cache.size());
+    assertEquals(5L,
+      Bytes.toLong(region.get(new Get(ROW)).getValue(FAMILY2, QUALIFIER2)));
+  }
+
+  @Test
+  public void testNotCacheable() throws IOException {
+    RegionRowCache cache = region.getRowCache();
+    region.put(new Put(ROW).addColumn(FAMILY1, QUALIFIER1, Bytes.toBytes("v1")));
+    region.put(new Put(ROW).addColumn(FAMILY1, QUALIFIER1, Bytes.toBytes("v2")));
+    region.get(new Get(ROW).readVersions(2));
+    region.get(new Get(ROW).setTimeRange(0, Long.MAX_VALUE - 1));
+    assertEquals(0, cache.size());
+
+    region.get(new Get(ROW));
+    assertEquals(1, cache.size());
+    // not served from the cache, which only holds the latest version
+    Result result = region.get(new Get(ROW).readVersions(2));
+    assertEquals(2, result.size());
+    assertArrayEquals(Bytes.toBytes("v1"), CellUtil.cloneValue(result.rawCells()[1]));
+    result = region.get(new Get(ROW).setTimeRange(0, Long.MAX_VALUE - 1));
+    assertEquals(1, result.size());
+    assertArrayEquals(Bytes.toBytes("v2"), result.getValue(FAMILY1, QUALIFIER1));
+  }
+
+  @Test
+  public void testExpireWithTtl() throws IOException {
+    RegionRowCache cache = region.getRowCache();
+    ManualEnvironmentEdge edge = new ManualEnvironmentEdge();
+    edge.setValue(EnvironmentEdgeManager.currentTime());
+    EnvironmentEdgeManager.injectEdge(edge);
+    try {
+      long now = edge.currentTime();
+      // reaches the TTL of the family in 10 seconds
+      region.put(new Put(ROW).addColumn(FAMILY2, QUALIFIER1, now - 3590 * 1000,
+        Bytes.toBytes("v1")));
+      assertEquals(1, region.get(new Get(ROW)).size());
+      assertEquals(1, cache.size());
+      edge.incValue(11 * 1000);
+      // not served from the cache, which would still return the cell
+      assertTrue(region.get(new Get(ROW)).isEmpty());
+
+      // a cell TTL of one second
+      region.put(new Put(ROW).addColumn(FAMILY1, QUALIFIER1, Bytes.toBytes("v2")).setTTL(1000));
+      assertEquals(1, region.get(new Get(ROW)).size());
+      assertEquals(1, cache.size());
+      Get get = new Get(ROW);
+      region.prepareGet(get);
+      assertEquals(1, cache.get(get).size());
+      edge.incValue(2 * 1000);
+      assertNull(cache.get(get));
+      assertTrue(region.get(new Get(ROW)).isEmpty());
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testBounded() throws IOException {
+    RegionRowCache cache = region.getRowCache();
+    byte[] value = new byte[10 * 1024];
+    for (int i = 0; i < 300; i++) {
+      byte[] row = Bytes.toBytes(i);
+      region.put(new Put(row).addColumn(FAMILY1, QUALIFIER1, value));
+      region.get(new Get(row));
+      assertTrue(cache.getHeapSize() <= 1024 * 1024);
+    }
+    assertTrue(cache.size() > 0);
+    assertTrue(cache.size() < 300);
+  }
+}
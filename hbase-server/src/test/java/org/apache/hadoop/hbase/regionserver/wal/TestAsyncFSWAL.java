@@ -17,30 +17,42 @@
  */
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.ArrayBackedTag;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
 import org.apache.hadoop.hbase.client.RegionInfo;
 import org.apache.hadoop.hbase.client.RegionInfoBuilder;
 import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.coprocessor.CoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.LogRoller;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConcurrencyControl;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
@@ -51,7 +63,9 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
 import org.apache.hadoop.hbase.util.FutureUtils;
 import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WALEdit;
+import org.apache.hadoop.hbase.wal.WALFactory;
 import org.apache.hadoop.hbase.wal.WALKey;
 import org.apache.hadoop.hbase.wal.WALKeyImpl;
 import org.apache.hadoop.hbase.wal.WALProvider.AsyncWriter;
@@ -224,4 +238,154 @@ public class TestAsyncFSWAL extends AbstractTestFSWAL {
       assertNull(error.get());
     }
   }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    // a window long enough for all the writers below to join the first group
+    conf.setLong(AsyncFSWAL.WAL_GROUP_COMMIT_WINDOW_US, TimeUnit.SECONDS.toMicros(1));
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf("table"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of("row")).build();
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    NavigableMap<byte[], Integer> scopes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (byte[] fam : td.getColumnFamilyNames()) {
+      scopes.put(fam, 0);
+    }
+    long timestamp = System.currentTimeMillis();
+    AtomicInteger groups = new AtomicInteger(0);
+    AtomicInteger groupedSyncs = new AtomicInteger(0);
+    List<WALActionsListener> listeners = new ArrayList<>();
+    listeners.add(new WALActionsListener() {
+
+      @Override
+      public void postGroupCommit(long timeInNanos, int handlerSyncs, long syncedBytes) {
+        groups.incrementAndGet();
+        groupedSyncs.addAndGet(handlerSyncs);
+      }
+    });
+    String testName = currentTest.getMethodName();
+    try (AsyncFSWAL wal = new AsyncFSWAL(FS, CommonFSUtils.getWALRootDir(conf), DIR.toString(),
+        testName, conf, listeners, true, null, null, GROUP, CHANNEL_CLASS)) {
+      wal.init();
+      int numThreads = 10;
+      AtomicReference<Exception> error = new AtomicReference<>();
+      CountDownLatch startLatch = new CountDownLatch(1);
+      Thread[] threads = new Thread[numThreads];
+      for (int i = 0; i < numThreads; i++) {
+        final int index = i;
+        // every writer writes to its own region, the group is shared by the regions of the WAL
+        RegionInfo ri = RegionInfoBuilder.newBuilder(td.getTableName())
+            .setStartKey(Bytes.toBytes("row" + index)).build();
+        threads[index] = new Thread("Write-Thread-" + index) {
+
+          @Override
+          public void run() {
+            byte[] row = Bytes.toBytes("row" + index);
+            WALEdit cols = new WALEdit();
+            cols.add(new KeyValue(row, row, row, timestamp + index, row));
+            WALKeyImpl key = new WALKeyImpl(ri.getEncodedNameAsBytes(), td.getTableName(),
+                SequenceId.NO_SEQUENCE_ID, timestamp, WALKey.EMPTY_UUIDS, HConstants.NO_NONCE,
+                HConstants.NO_NONCE, mvcc, scopes);
+            try {
+              startLatch.await();
+              wal.sync(wal.append(ri, key, cols, true));
+            } catch (Exception e) {
+              error.set(e);
+            }
+          }
+        };
+      }
+      for (Thread t : threads) {
+        t.start();
+      }
+      long startNs = System.nanoTime();
+      startLatch.countDown();
+      for (Thread t : threads) {
+        t.join();
+      }
+      assertNull(error.get());
+      // the first sync request of the group waited for the window to end
+      assertTrue(System.nanoTime() - startNs >= TimeUnit.SECONDS.toNanos(1));
+      assertEquals(numThreads, groupedSyncs.get());
+      assertTrue("Expected less than " + numThreads + " groups, got " + groups.get(),
+        groups.get() < numThreads);
+    }
+  }
+
+  @Test
+  public void testPreSerializeCells() throws Exception {
+    Configuration conf = new Configuration(CONF);
+    conf.setBoolean(AsyncFSWAL.ASYNC_WAL_PRE_SERIALIZE_CELLS, true);
+    // WAL coprocessors disable it
+    conf.unset(CoprocessorHost.WAL_COPROCESSOR_CONF_KEY);
+    TableDescriptor td = TableDescriptorBuilder.newBuilder(TableName.valueOf("table"))
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of("row")).build();
+    RegionInfo ri = RegionInfoBuilder.newBuilder(td.getTableName()).build();
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    NavigableMap<byte[], Integer> scopes = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (byte[] fam : td.getColumnFamilyNames()) {
+      scopes.put(fam, 0);
+    }
+    long timestamp = System.currentTimeMillis();
+    List<List<Cell>> written = new ArrayList<>();
+    String testName = currentTest.getMethodName();
+    // cells encoded by the writer itself, instead of taken from the pre-encoded buffer
+    AtomicInteger reEncoded = new AtomicInteger(0);
+    try (AsyncFSWAL wal = new AsyncFSWAL(FS, CommonFSUtils.getWALRootDir(conf), DIR.toString(),
+        testName, conf, null, true, null, null, GROUP, CHANNEL_CLASS) {
+
+          @Override
+          protected AsyncWriter createWriterInstance(Path path) throws IOException {
+            AsyncProtobufLogWriter writer =
+                (AsyncProtobufLogWriter) super.createWriterInstance(path);
+            assertTrue(writer.plainCellEncoding);
+            Codec.Encoder encoder = writer.cellEncoder;
+            writer.cellEncoder = new Codec.Encoder() {
+
+              @Override
+              public void write(Cell cell) throws IOException {
+                reEncoded.incrementAndGet();
+                encoder.write(cell);
+              }
+
+              @Override
+              public void flush() throws IOException {
+                encoder.flush();
+              }
+            };
+            return writer;
+          }
+        }) {
+      wal.init();
+      for (int i = 0; i < 10; i++) {
+        byte[] row = Bytes.toBytes("row" + i);
+        WALEdit cols = new WALEdit();
+        for (int j = 0; j <= i; j++) {
+          byte[] qualifier = Bytes.toBytes("q" + j);
+          cols.add(new KeyValue(row, row, qualifier, timestamp, new byte[i * 10 + j],
+            new Tag[] { new ArrayBackedTag((byte) 1, qualifier) }));
+        }
+        written.add(cols.getCells());
+        WALKeyImpl key = new WALKeyImpl(ri.getEncodedNameAsBytes(), td.getTableName(),
+            SequenceId.NO_SEQUENCE_ID, timestamp, WALKey.EMPTY_UUIDS, HConstants.NO_NONCE,
+            HConstants.NO_NONCE, mvcc, scopes);
+        wal.sync(wal.appendData(ri, key, cols));
+      }
+      assertEquals(0, reEncoded.get());
+      Path path = wal.getCurrentFileName();
+      wal.rollWriter();
+      try (WAL.Reader reader = WALFactory.createReader(FS, path, conf)) {
+        for (List<Cell> cells : written) {
+          WAL.Entry entry = reader.next();
+          assertEquals(cells.size(), entry.getEdit().size());
+          for (int i = 0; i < cells.size(); i++) {
+            // compare the whole serialized cells, including the values and the tags
+            assertArrayEquals(KeyValueUtil.copyToNewByteArray(cells.get(i)),
+              KeyValueUtil.copyToNewByteArray(entry.getEdit().getCells().get(i)));
+          }
+        }
+        assertNull(reader.next());
+      }
+    }
+  }
 }
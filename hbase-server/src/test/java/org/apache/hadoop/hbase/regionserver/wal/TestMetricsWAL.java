@@ -18,6 +18,8 @@
 package org.apache.hadoop.hbase.regionserver.wal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -72,6 +74,15 @@ public class TestMetricsWAL {
     verify(source, times(1)).incrementSyncTime(145);
   }
 
+  @Test
+  public void testPostGroupCommit() throws Exception {
+    long nanos = TimeUnit.MICROSECONDS.toNanos(250);
+    MetricsWALSource source = mock(MetricsWALSourceImpl.class);
+    MetricsWAL metricsWAL = new MetricsWAL(source);
+    metricsWAL.postGroupCommit(nanos, 12, 4096);
+    verify(source, times(1)).updateGroupCommit(250, 12, 4096);
+  }
+
   @Test
   public void testSlowAppend() throws Exception {
     MetricsWALSource source = new MetricsWALSourceImpl();
@@ -98,6 +109,59 @@ public class TestMetricsWAL {
     verify(source, times(1)).incrementWrittenBytes(200);
   }
 
+  @Test
+  public void testPerGroupWALMetrics() throws Exception {
+    MetricsWALSource source = mock(MetricsWALSourceImpl.class);
+    MetricsWAL metricsWAL = new MetricsWAL(source, "regiongroup-0");
+    WALKey walKey = new WALKeyImpl(null, TableName.valueOf("foo"), -1);
+    metricsWAL.postAppend(100, 10, walKey, null);
+    metricsWAL.postSync(TimeUnit.MILLISECONDS.toNanos(5), 1);
+    verify(source, times(1)).incrementGroupAppend("regiongroup-0", 100);
+    verify(source, times(1)).incrementGroupSyncTime("regiongroup-0", 5);
+
+    MetricsWALSourceImpl sourceImpl = new MetricsWALSourceImpl("bar", "bar", "bar", "bar");
+    sourceImpl.incrementGroupAppend("regiongroup-0", 100);
+    sourceImpl.incrementGroupAppend("regiongroup-0", 200);
+    sourceImpl.incrementGroupSyncTime("regiongroup-0", 5);
+    DynamicMetricsRegistry registry = sourceImpl.getMetricsRegistry();
+    assertEquals(2, registry.getCounter(
+      "walgroup:regiongroup-0:" + MetricsWALSource.APPEND_COUNT, -1).value());
+    assertEquals(300, registry.getCounter(
+      "walgroup:regiongroup-0:" + MetricsWALSource.APPEND_SIZE, -1).value());
+    assertEquals(5, registry.getCounter(
+      "walgroup:regiongroup-0:" + MetricsWALSource.SYNC_TIME, -1).value());
+  }
+
+  @Test
+  public void testPerDatanodeWALMetrics() throws Exception {
+    MetricsWALSource source = mock(MetricsWALSourceImpl.class);
+    MetricsWAL metricsWAL = new MetricsWAL(source);
+    metricsWAL.postDatanodeAck("127.0.0.1:9866", TimeUnit.MICROSECONDS.toNanos(300));
+    verify(source, times(1)).updateDatanodeAckTime("127.0.0.1:9866", 300);
+
+    metricsWAL.postPipelineChange(new String[] { "127.0.0.1:9866" },
+      new String[] { "127.0.0.2:9866" });
+    verify(source, times(1)).addDatanode("127.0.0.2:9866");
+    verify(source, times(1)).removeDatanode("127.0.0.1:9866");
+
+    MetricsWALSourceImpl sourceImpl = new MetricsWALSourceImpl("baz", "baz", "baz", "baz");
+    sourceImpl.addDatanode("127.0.0.1:9866");
+    sourceImpl.addDatanode("127.0.0.1:9866");
+    sourceImpl.updateDatanodeAckTime("127.0.0.1:9866", 100);
+    sourceImpl.updateDatanodeAckTime("127.0.0.1:9866", 200);
+    // not in any pipeline, ignored
+    sourceImpl.updateDatanodeAckTime("127.0.0.2:9866", 100);
+    DynamicMetricsRegistry registry = sourceImpl.getMetricsRegistry();
+    String key = "datanode:127.0.0.1:9866:" + MetricsWALSource.DATANODE_ACK_TIME;
+    assertNotNull(registry.get(key));
+    assertNull(registry.get("datanode:127.0.0.2:9866:" + MetricsWALSource.DATANODE_ACK_TIME));
+    // still in the pipeline of another WAL
+    sourceImpl.removeDatanode("127.0.0.1:9866");
+    assertNotNull(registry.get(key));
+    sourceImpl.removeDatanode("127.0.0.1:9866");
+    assertNull(registry.get(key));
+  }
+
   @Test
   public void testPerTableWALMetrics() throws Exception {
     MetricsWALSourceImpl source = new MetricsWALSourceImpl("foo", "foo", "foo", "foo");
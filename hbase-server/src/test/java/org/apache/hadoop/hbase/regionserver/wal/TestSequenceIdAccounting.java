@@ -23,10 +23,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -53,7 +56,7 @@ public class TestSequenceIdAccounting {
   @Test
   public void testStartCacheFlush() {
     SequenceIdAccounting sida = new SequenceIdAccounting();
-    sida.getOrCreateLowestSequenceIds(ENCODED_REGION_NAME);
+    sida.getOrCreateRegionSequenceIds(ENCODED_REGION_NAME);
     Map<byte[], Long> m = new HashMap<>();
     m.put(ENCODED_REGION_NAME, HConstants.NO_SEQNUM);
     assertEquals(HConstants.NO_SEQNUM, (long)sida.startCacheFlush(ENCODED_REGION_NAME, FAMILIES));
@@ -76,7 +79,7 @@ public class TestSequenceIdAccounting {
   @Test
   public void testAreAllLower() {
     SequenceIdAccounting sida = new SequenceIdAccounting();
-    sida.getOrCreateLowestSequenceIds(ENCODED_REGION_NAME);
+    sida.getOrCreateRegionSequenceIds(ENCODED_REGION_NAME);
     Map<byte[], Long> m = new HashMap<>();
     m.put(ENCODED_REGION_NAME, HConstants.NO_SEQNUM);
     assertTrue(sida.areAllLower(m, null));
@@ -128,7 +131,7 @@ public class TestSequenceIdAccounting {
   @Test
   public void testFindLower() {
     SequenceIdAccounting sida = new SequenceIdAccounting();
-    sida.getOrCreateLowestSequenceIds(ENCODED_REGION_NAME);
+    sida.getOrCreateRegionSequenceIds(ENCODED_REGION_NAME);
     Map<byte[], Long> m = new HashMap<>();
     m.put(ENCODED_REGION_NAME, HConstants.NO_SEQNUM);
     long sequenceid = 1;
@@ -141,4 +144,84 @@ public class TestSequenceIdAccounting {
     m.put(ENCODED_REGION_NAME, sida.getLowestSequenceId(ENCODED_REGION_NAME) - 1);
     assertTrue(sida.findLower(m) == null);
   }
+
+  @Test
+  public void testMultipleFamilies() {
+    SequenceIdAccounting sida = new SequenceIdAccounting();
+    byte[] otherFamilyName = Bytes.toBytes("otherCf");
+    Set<byte[]> families = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    families.add(FAMILY_NAME);
+    families.add(otherFamilyName);
+    sida.update(ENCODED_REGION_NAME, FAMILIES, 1, true);
+    sida.update(ENCODED_REGION_NAME, families, 2, true);
+    sida.update(ENCODED_REGION_NAME, families, 3, true);
+    // family names are matched by content
+    assertEquals(1, sida.getLowestSequenceId(ENCODED_REGION_NAME, Bytes.toBytes("cf")));
+    assertEquals(2, sida.getLowestSequenceId(ENCODED_REGION_NAME, otherFamilyName));
+    assertEquals(1, sida.getLowestSequenceId(ENCODED_REGION_NAME));
+
+    Map<byte[], Long> m = new HashMap<>();
+    m.put(ENCODED_REGION_NAME, 1L);
+    Map<byte[], List<byte[]>> toFlush = sida.findLower(m);
+    assertEquals(1, toFlush.get(ENCODED_REGION_NAME).size());
+    assertArrayEquals(FAMILY_NAME, toFlush.get(ENCODED_REGION_NAME).get(0));
+
+    // flush a subset, the other family is still unflushed
+    assertEquals(2, (long) sida.startCacheFlush(ENCODED_REGION_NAME, FAMILIES));
+    assertEquals(1, sida.getLowestSequenceId(ENCODED_REGION_NAME, FAMILY_NAME));
+    sida.update(ENCODED_REGION_NAME, families, 4, true);
+    // an edit of the flushed family came in while flushing, it is not lower than the flush
+    sida.completeCacheFlush(ENCODED_REGION_NAME, 5);
+    assertEquals(6, sida.getLowestSequenceId(ENCODED_REGION_NAME, FAMILY_NAME));
+    assertEquals(6, sida.getLowestSequenceId(ENCODED_REGION_NAME, otherFamilyName));
+
+    // abort restores the flushing sequence ids
+    sida.startCacheFlush(ENCODED_REGION_NAME, families);
+    assertEquals(HConstants.NO_SEQNUM, sida.getLowestSequenceId(ENCODED_REGION_NAME));
+    m.put(ENCODED_REGION_NAME, 6L);
+    assertFalse(sida.areAllLower(m, null));
+    sida.abortCacheFlush(ENCODED_REGION_NAME);
+    assertEquals(6, sida.getLowestSequenceId(ENCODED_REGION_NAME, otherFamilyName));
+
+    sida.updateStore(ENCODED_REGION_NAME, otherFamilyName, 8L, true);
+    sida.updateStore(ENCODED_REGION_NAME, otherFamilyName, 7L, true);
+    assertEquals(8, sida.getLowestSequenceId(ENCODED_REGION_NAME, otherFamilyName));
+    sida.updateStore(ENCODED_REGION_NAME, otherFamilyName, 7L, false);
+    assertEquals(7, sida.getLowestSequenceId(ENCODED_REGION_NAME, otherFamilyName));
+
+    Map<byte[], Long> highest = sida.resetHighest();
+    assertEquals(8, (long) highest.get(ENCODED_REGION_NAME));
+    assertTrue(sida.resetHighest().isEmpty());
+
+    sida.onRegionClose(ENCODED_REGION_NAME);
+    assertEquals(HConstants.NO_SEQNUM, sida.getLowestSequenceId(ENCODED_REGION_NAME));
+    assertTrue(sida.areAllLower(m, null));
+  }
+
+  @Test
+  public void testUpdateWhileAddingFamilies() throws Exception {
+    SequenceIdAccounting sida = new SequenceIdAccounting();
+    int numFamilies = 200;
+    Thread adder = new Thread(() -> {
+      for (int i = 0; i < numFamilies; i++) {
+        sida.updateStore(ENCODED_REGION_NAME, Bytes.toBytes("cf-" + i), 1L, true);
+      }
+    });
+    adder.start();
+    // a single appender, like the WAL consumer, racing with the families being added
+    long sequenceId = 1;
+    while (adder.isAlive()) {
+      sida.startCacheFlush(ENCODED_REGION_NAME, FAMILIES);
+      sida.completeCacheFlush(ENCODED_REGION_NAME, HConstants.NO_SEQNUM);
+      sida.update(ENCODED_REGION_NAME, FAMILIES, ++sequenceId, true);
+      assertEquals(sequenceId, sida.getLowestSequenceId(ENCODED_REGION_NAME, FAMILY_NAME));
+    }
+    adder.join();
+    for (int i = 0; i < numFamilies; i++) {
+      assertEquals(1,
+        sida.getLowestSequenceId(ENCODED_REGION_NAME, Bytes.toBytes("cf-" + i)));
+    }
+    assertEquals(numFamilies, sida.findLower(Collections.singletonMap(ENCODED_REGION_NAME, 1L))
+      .get(ENCODED_REGION_NAME).size());
+  }
 }
@@ -17,7 +17,10 @@
  */
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -28,6 +31,7 @@ import java.util.List;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.ArrayBackedTag;
 import org.apache.hadoop.hbase.ByteBufferKeyValue;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
@@ -65,11 +69,63 @@ public class TestWALCellCodecWithCompression {
     doTest(true, true);
   }
 
+  @Test
+  public void testEncodeDecodeKVsWithValueCompression() throws Exception {
+    doTest(true, false, true);
+  }
+
+  @Test
+  public void testEncodeDecodeOffKVsWithValueCompression() throws Exception {
+    doTest(false, true, true);
+  }
+
+  @Test
+  public void testValueCompressionAcrossCells() throws Exception {
+    int count = 1000;
+    byte[][] values = new byte[count][];
+    for (int i = 0; i < count; i++) {
+      // similar, but not equal, values; empty and large ones too
+      values[i] = i % 100 == 0 ? new byte[0]
+        : Bytes.toBytes("{\"user\":\"user" + i + "\",\"status\":\"active\",\"n\":" + i + "}");
+    }
+    values[count - 1] = new byte[256 * 1024];
+
+    ByteArrayOutputStream plain = new ByteArrayOutputStream();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    WALCellCodec plainCodec = new WALCellCodec(new Configuration(false),
+        new CompressionContext(LRUDictionary.class, false, false, false));
+    WALCellCodec codec = new WALCellCodec(new Configuration(false),
+        new CompressionContext(LRUDictionary.class, false, false, true));
+    Encoder plainEncoder = plainCodec.getEncoder(plain);
+    Encoder encoder = codec.getEncoder(compressed);
+    for (int i = 0; i < count; i++) {
+      KeyValue kv = new KeyValue(Bytes.toBytes("row" + i), Bytes.toBytes("f"),
+          Bytes.toBytes("q"), i, values[i]);
+      plainEncoder.write(kv);
+      encoder.write(kv);
+    }
+    assertTrue(compressed.size() * 2 < plain.size());
+
+    Decoder decoder = codec.getDecoder(new ByteArrayInputStream(compressed.toByteArray()));
+    for (int i = 0; i < count; i++) {
+      assertTrue(decoder.advance());
+      assertEquals("row" + i, Bytes.toString(CellUtil.cloneRow(decoder.current())));
+      assertEquals(i, decoder.current().getTimestamp());
+      assertArrayEquals(values[i], CellUtil.cloneValue(decoder.current()));
+    }
+    assertFalse(decoder.advance());
+  }
+
   private void doTest(boolean compressTags, boolean offheapKV) throws Exception {
+    doTest(compressTags, offheapKV, false);
+  }
+
+  private void doTest(boolean compressTags, boolean offheapKV, boolean compressValues)
+      throws Exception {
     Configuration conf = new Configuration(false);
     conf.setBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, compressTags);
     WALCellCodec codec = new WALCellCodec(conf, new CompressionContext(LRUDictionary.class, false,
-        compressTags));
+        compressTags, compressValues));
     ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
     Encoder encoder = codec.getEncoder(bos);
     if (offheapKV) {
@@ -86,6 +142,7 @@ public class TestWALCellCodecWithCompression {
     Decoder decoder = codec.getDecoder(is);
     decoder.advance();
     KeyValue kv = (KeyValue) decoder.current();
+    assertEquals("myValue", Bytes.toString(CellUtil.cloneValue(kv)));
     List<Tag> tags = PrivateCellUtil.getTags(kv);
     assertEquals(1, tags.size());
     assertEquals("tagValue1", Bytes.toString(Tag.cloneValue(tags.get(0))));
@@ -50,6 +50,7 @@ import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.WALCoprocessor;
 import org.apache.hadoop.hbase.coprocessor.WALCoprocessorEnvironment;
 import org.apache.hadoop.hbase.coprocessor.WALObserver;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.HRegionServer;
 import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.TestRegionServerNoMaster;
@@ -277,4 +278,41 @@ public class TestRegionReplicaReplicationEndpointNoMaster {
     HTU.deleteNumericRows(table, f, 0, 1000);
     closeRegion(HTU, rs0, hriSecondary);
   }
+
+  @Test
+  public void testRegionReplicaReplicationEndpointReplicateBatched() throws Exception {
+    // tests replaying the edits to a secondary region replica with one compressed call per server
+    openRegion(HTU, rs0, hriSecondary);
+    RegionReplicaReplicationEndpoint replicator = new RegionReplicaReplicationEndpoint();
+
+    Configuration conf = new Configuration(HTU.getConfiguration());
+    conf.setBoolean(RegionReplicaReplicationEndpoint.BATCH_PER_SERVER_KEY, true);
+    conf.set(RegionReplicaReplicationEndpoint.RPC_COMPRESSOR_KEY,
+      "org.apache.hadoop.io.compress.GzipCodec");
+    ReplicationEndpoint.Context context = mock(ReplicationEndpoint.Context.class);
+    when(context.getConfiguration()).thenReturn(conf);
+    when(context.getMetrics()).thenReturn(mock(MetricsSource.class));
+    when(context.getServer()).thenReturn(rs0);
+    when(context.getTableDescriptors()).thenReturn(rs0.getTableDescriptors());
+    replicator.init(context);
+    replicator.startAsync();
+
+    //load some data to primary
+    HTU.loadNumericRows(table, f, 0, 1000);
+
+    Assert.assertEquals(1000, entries.size());
+    Assert.assertTrue(replicator.replicate(new ReplicateContext()
+      .setEntries(Lists.newArrayList(entries)).setWalGroupId("fakeWALGroup")));
+    replicator.stop();
+    HRegion region = rs0.getRegion(hriSecondary.getEncodedName());
+    HTU.verifyNumericRows(region, f, 0, 1000);
+    long staleness = region.getReplicaStaleness();
+    Assert.assertTrue(staleness >= 0);
+    // nothing replayed since, so the replica gets staler
+    Thread.sleep(100);
+    Assert.assertTrue(region.getReplicaStaleness() >= staleness + 100);
+
+    HTU.deleteNumericRows(table, f, 0, 1000);
+    closeRegion(HTU, rs0, hriSecondary);
+  }
 }
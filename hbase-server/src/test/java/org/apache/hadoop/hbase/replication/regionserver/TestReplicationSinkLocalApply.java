@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionServerServices;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.WALEntry;
+
+/**
+ * Tests that the sink writes the edits of the regions hosted by its server directly into them.
+ */
+@Category({ ReplicationTests.class, MediumTests.class })
+public class TestReplicationSinkLocalApply {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+      HBaseClassTestRule.forClass(TestReplicationSinkLocalApply.class);
+
+  private static final TableName TABLE = TableName.valueOf("test");
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+
+  private final HBaseTestingUtility util = new HBaseTestingUtility();
+
+  private HRegion region;
+  private ReplicationSink sink;
+
+  @Before
+  public void setUp() throws IOException {
+    TableDescriptor htd = TableDescriptorBuilder.newBuilder(TABLE)
+        .setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY)).build();
+    region = util.createLocalHRegion(RegionInfoBuilder.newBuilder(TABLE).build(), htd);
+    RegionServerServices rsServices = mock(RegionServerServices.class);
+    doReturn(Collections.singletonList(region)).when(rsServices).getRegions(TABLE);
+    Configuration conf = new Configuration(util.getConfiguration());
+    conf.setBoolean(ReplicationSink.LOCAL_APPLY_KEY, true);
+    sink = new ReplicationSink(conf, rsServices);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    sink.stopReplicationSinkServices();
+    HBaseTestingUtility.closeRegionAndWAL(region);
+  }
+
+  private WALEntry createEntry(int row, KeyValue.Type type, long ts, List<Cell> cells) {
+    byte[] rowBytes = Bytes.toBytes(row);
+    cells.add(type == KeyValue.Type.Put ?
+        new KeyValue(rowBytes, FAMILY, FAMILY, ts, type, Bytes.toBytes(row)) :
+        new KeyValue(rowBytes, FAMILY, FAMILY, ts, type));
+    return TestReplicationSink.createWALEntryBuilder(TABLE).build();
+  }
+
+  @Test
+  public void testApplyLocally() throws IOException {
+    List<WALEntry> entries = new ArrayList<>();
+    List<Cell> cells = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry(i, KeyValue.Type.Put, 1, cells));
+    }
+    long appliedOps = sink.getSinkMetrics().getAppliedOps();
+    sink.replicateEntries(entries, CellUtil.createCellScanner(cells), "source", null, null);
+    assertEquals(10, sink.getSinkMetrics().getAppliedOps() - appliedOps);
+    for (int i = 0; i < 10; i++) {
+      Result result = region.get(new Get(Bytes.toBytes(i)));
+      assertArrayEquals(Bytes.toBytes(i), result.getValue(FAMILY, FAMILY));
+    }
+    assertTrue(sink.getStats().contains("total replicated edits: 10"));
+  }
+
+  @Test
+  public void testMixedPutDelete() throws IOException {
+    List<WALEntry> entries = new ArrayList<>();
+    List<Cell> cells = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry(i, KeyValue.Type.Put, 1, cells));
+    }
+    sink.replicateEntries(entries, CellUtil.createCellScanner(cells), "source", null, null);
+    entries = new ArrayList<>();
+    cells = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      entries.add(createEntry(i, i % 2 == 0 ? KeyValue.Type.DeleteColumn : KeyValue.Type.Put, 2,
+        cells));
+    }
+    sink.replicateEntries(entries, CellUtil.createCellScanner(cells), "source", null, null);
+    for (int i = 0; i < 10; i++) {
+      Result result = region.get(new Get(Bytes.toBytes(i)));
+      assertEquals(i % 2 == 0, result.isEmpty());
+    }
+  }
+}
@@ -23,8 +23,13 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.OptionalLong;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -455,6 +460,89 @@ public class TestReplicationSource {
     assertEquals(1001L, shipper.getStartPosition());
   }
 
+  private static WALEntryBatch createBatch(Path path, String region, long position) {
+    WALEntryBatch batch = new WALEntryBatch(1, path);
+    batch.addEntry(new WAL.Entry(new WALKeyImpl(Bytes.toBytes(region),
+      TableName.valueOf("test"), System.currentTimeMillis()), new WALEdit()), 10);
+    batch.incrementNbRowKeys(1);
+    batch.setLastWalPosition(position);
+    batch.setReadTime(System.currentTimeMillis());
+    return batch;
+  }
+
+  /**
+   * Batches of distinct regions are shipped concurrently, batches of a same region one after the
+   * other, and log positions are recorded in read order.
+   */
+  @Test
+  public void testPipelinedShipping() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(ReplicationSourceShipper.MAX_INFLIGHT_BATCHES_KEY, 4);
+    Path path = new Path("/www/html/test");
+    WALEntryBatch batch1 = createBatch(path, "region-a", 100);
+    WALEntryBatch batch2 = createBatch(path, "region-b", 200);
+    WALEntryBatch batch3 = createBatch(path, "region-a", 300);
+
+    ReplicationSource source = Mockito.mock(ReplicationSource.class);
+    ReplicationPeer peer = Mockito.mock(ReplicationPeer.class);
+    Mockito.when(peer.getPeerConfig()).thenReturn(ReplicationPeerConfig.newBuilder().build());
+    Mockito.when(source.getPeer()).thenReturn(peer);
+    Mockito.when(source.getPeerId()).thenReturn("1");
+    Mockito.when(source.isPeerEnabled()).thenReturn(true);
+    Mockito.when(source.isSourceActive()).thenReturn(true);
+    Mockito.when(source.getSourceMetrics()).thenReturn(Mockito.mock(MetricsSource.class));
+    List<Long> recorded = Collections.synchronizedList(new ArrayList<>());
+    Mockito.doAnswer(invocation -> {
+      recorded.add(((WALEntryBatch) invocation.getArgument(0)).getLastWalPosition());
+      return null;
+    }).when(source).logPositionAndCleanOldLogs(Mockito.any());
+
+    CountDownLatch batch1Shipping = new CountDownLatch(1);
+    CountDownLatch releaseBatch1 = new CountDownLatch(1);
+    List<String> shipped = Collections.synchronizedList(new ArrayList<>());
+    ReplicationEndpoint endpoint = Mockito.mock(ReplicationEndpoint.class);
+    Mockito.when(endpoint.replicate(Mockito.any())).thenAnswer(invocation -> {
+      ReplicationEndpoint.ReplicateContext ctx = invocation.getArgument(0);
+      String region = Bytes.toString(ctx.getEntries().get(0).getKey().getEncodedRegionName());
+      if (region.equals("region-a") && batch1Shipping.getCount() > 0) {
+        batch1Shipping.countDown();
+        releaseBatch1.await();
+      }
+      shipped.add(region);
+      return true;
+    });
+    Mockito.when(source.getReplicationEndpoint()).thenReturn(endpoint);
+
+    ReplicationSourceWALReader reader = Mockito.mock(ReplicationSourceWALReader.class);
+    Mockito.when(reader.poll(Mockito.anyLong())).thenReturn(batch1, batch2, batch3, null);
+
+    ReplicationSourceShipper shipper =
+      new ReplicationSourceShipper(conf, "wal-group", new PriorityBlockingQueue<>(), source);
+    shipper.setWALReader(reader);
+    shipper.startup((t, e) -> LOG.error("Shipper failed", e));
+    try {
+      batch1Shipping.await();
+      // the batch of the other region does not wait for the first batch
+      Waiter.waitFor(conf, 10000, () -> shipped.contains("region-b"));
+      Thread.sleep(500);
+      // but its position is not recorded before the first batch is shipped, and the second batch
+      // of the first region waits
+      assertEquals(Collections.singletonList("region-b"), shipped);
+      assertTrue(recorded.isEmpty());
+      releaseBatch1.countDown();
+      Waiter.waitFor(conf, 10000, () -> recorded.size() == 3);
+      assertEquals(3, shipped.size());
+      assertEquals("region-a", shipped.get(1));
+      assertEquals(Arrays.asList(100L, 200L, 300L), recorded);
+      Mockito.verify(source.getSourceMetrics(), Mockito.times(3))
+        .updateLagBreakdown(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyLong());
+    } finally {
+      releaseBatch1.countDown();
+      shipper.stopWorker();
+      shipper.join(10000);
+    }
+  }
+
   private RegionServerServices setupForAbortTests(ReplicationSource rs, Configuration conf,
       String endpointName) throws IOException {
     conf.setInt("replication.source.maxretriesmultiplier", 1);
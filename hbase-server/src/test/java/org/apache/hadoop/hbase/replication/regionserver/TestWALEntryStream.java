@@ -22,11 +22,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -44,7 +46,9 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.ByteBufferKeyValue;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseClassTestRule;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HConstants;
@@ -65,6 +69,7 @@ import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
 import org.apache.hadoop.hbase.wal.WALEdit;
 import org.apache.hadoop.hbase.wal.WALFactory;
+import org.apache.hadoop.hbase.wal.WALKey;
 import org.apache.hadoop.hbase.wal.WALKeyImpl;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
 import org.junit.After;
@@ -652,4 +657,88 @@ public class TestWALEntryStream {
       assertFalse(entryStream.hasNext());
     }
   }
+
+  private WALTailBuffer registerTailBuffer(long size) {
+    WALTailBuffer tailBuffer = new WALTailBuffer(size);
+    log.registerWALActionsListener(new WALActionsListener() {
+      @Override
+      public void postWrite(Path path, long position, long length, WALKey logKey,
+          WALEdit logEdit) {
+        tailBuffer.append(path, position, length, (WALKeyImpl) logKey, logEdit);
+      }
+    });
+    return tailBuffer;
+  }
+
+  @Test
+  public void testReadFromTailBuffer() throws Exception {
+    WALTailBuffer tailBuffer = registerTailBuffer(1024 * 1024);
+    appendToLog("1");
+    appendToLog("2");
+    appendToLog("3");
+    MetricsSource metrics = Mockito.mock(MetricsSource.class);
+    try (WALEntryStream entryStream =
+        new WALEntryStream(walQueue, CONF, 0, log, null, metrics, tailBuffer)) {
+      // the first entry comes from the file, the stream does not know where it starts
+      assertEquals("1", getRow(entryStream.next()));
+      Entry entry = entryStream.next();
+      assertEquals("2", getRow(entry));
+      assertEquals(scopes, entry.getKey().getReplicationScopes());
+      assertEquals("3", getRow(entryStream.next()));
+      assertFalse(entryStream.hasNext());
+      Mockito.verify(metrics, Mockito.times(2)).incrLogEditsReadFromTailBuffer();
+      Mockito.verify(metrics, Mockito.times(3)).incrLogEditsRead();
+
+      // the entries of a rolled WAL come from the file
+      appendToLog("4");
+      log.rollWriter();
+      appendToLog("5");
+      appendToLog("6");
+      entryStream.reset();
+      assertEquals("4", getRow(entryStream.next()));
+      assertEquals("5", getRow(entryStream.next()));
+      assertEquals("6", getRow(entryStream.next()));
+      assertFalse(entryStream.hasNext());
+      Mockito.verify(metrics, Mockito.times(3)).incrLogEditsReadFromTailBuffer();
+    }
+  }
+
+  @Test
+  public void testTailBufferCopiesOffHeapCells() {
+    WALTailBuffer tailBuffer = new WALTailBuffer(1024 * 1024);
+    KeyValue onHeap = new KeyValue(Bytes.toBytes("1"), family, qualifier, Bytes.toBytes("v"));
+    ByteBuffer buf = ByteBuffer.allocateDirect(onHeap.getSerializedSize());
+    buf.put(onHeap.getBuffer(), onHeap.getOffset(), onHeap.getLength());
+    Cell offHeap = new ByteBufferKeyValue(buf, 0, onHeap.getSerializedSize());
+    WALEdit edit = new WALEdit();
+    edit.add(onHeap);
+    edit.add(offHeap);
+    Path path = new Path("wal");
+    tailBuffer.append(path, 0, 100, new WALKeyImpl(info.getEncodedNameAsBytes(), tableName,
+      System.currentTimeMillis(), mvcc, scopes), edit);
+    ArrayList<Cell> cells = tailBuffer.get(path, 0).toEntry().getEdit().getCells();
+    // the on heap cell is referenced, the off heap one, whose buffer may be reused, is copied
+    assertSame(onHeap, cells.get(0));
+    assertNotSame(offHeap, cells.get(1));
+    assertTrue(CellUtil.equals(offHeap, cells.get(1)));
+    assertTrue(CellUtil.matchingValue(offHeap, cells.get(1)));
+  }
+
+  @Test
+  public void testTailBufferOverflow() throws Exception {
+    WALTailBuffer tailBuffer = registerTailBuffer(1);
+    appendToLog("1");
+    appendToLog("2");
+    // nothing fits, every entry is read from the file
+    assertNull(tailBuffer.getFirstPosition());
+    assertEquals(0, tailBuffer.getHeapSize());
+    MetricsSource metrics = Mockito.mock(MetricsSource.class);
+    try (WALEntryStream entryStream =
+        new WALEntryStream(walQueue, CONF, 0, log, null, metrics, tailBuffer)) {
+      assertEquals("1", getRow(entryStream.next()));
+      assertEquals("2", getRow(entryStream.next()));
+      assertFalse(entryStream.hasNext());
+      Mockito.verify(metrics, Mockito.never()).incrLogEditsReadFromTailBuffer();
+    }
+  }
 }
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseClassTestRule;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.MiscTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import org.apache.hbase.thirdparty.io.netty.bootstrap.ServerBootstrap;
+import org.apache.hbase.thirdparty.io.netty.channel.ChannelOption;
+import org.apache.hbase.thirdparty.io.netty.channel.EventLoopGroup;
+import org.apache.hbase.thirdparty.io.netty.channel.epoll.Epoll;
+import org.apache.hbase.thirdparty.io.netty.channel.epoll.EpollChannelOption;
+
+@Category({ MiscTests.class, SmallTests.class })
+public class TestNettyEventLoopGroupConfig {
+
+  @ClassRule
+  public static final HBaseClassTestRule CLASS_RULE =
+    HBaseClassTestRule.forClass(TestNettyEventLoopGroupConfig.class);
+
+  private Configuration conf;
+
+  private NettyEventLoopGroupConfig config;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    conf.setInt(NettyEventLoopGroupConfig.WORKER_COUNT_KEY, 2);
+  }
+
+  @After
+  public void tearDown() {
+    if (config != null) {
+      config.group().shutdownGracefully();
+      config.walGroup().shutdownGracefully();
+    }
+  }
+
+  @Test
+  public void testSharedWALGroup() {
+    config = new NettyEventLoopGroupConfig(conf, "Test-EventLoopGroup");
+    assertSame(config.group(), config.walGroup());
+  }
+
+  @Test
+  public void testSeparateWALGroup() throws Exception {
+    conf.setBoolean("hbase.netty.nativetransport", false);
+    conf.setInt(NettyEventLoopGroupConfig.WAL_WORKER_COUNT_KEY, 1);
+    config = new NettyEventLoopGroupConfig(conf, "Test-EventLoopGroup");
+    assertNotSame(config.group(), config.walGroup());
+    // the event loops are only reported once they have been started
+    assertTrue(config.getPendingTasks().isEmpty());
+    startEventLoops(config.group(), 2);
+    startEventLoops(config.walGroup(), 1);
+
+    Map<String, Integer> pendingTasks = config.getPendingTasks();
+    assertEquals(3, pendingTasks.size());
+    assertEquals(2,
+      pendingTasks.keySet().stream().filter(n -> !n.startsWith("Test-EventLoopGroup-WAL")).count());
+    // the first sample only records the cpu time of the event loops so far
+    assertTrue(config.sampleUtilization().isEmpty());
+    Thread.sleep(10);
+    Map<String, Integer> utilization = config.sampleUtilization();
+    assertEquals(pendingTasks.keySet(), utilization.keySet());
+    for (int percent : utilization.values()) {
+      assertTrue(percent >= 0 && percent <= 100);
+    }
+  }
+
+  @Test
+  public void testLatencyProfile() {
+    assumeTrue(Epoll.isAvailable() && JVM.isLinux() && JVM.isAmd64());
+    conf.set(NettyEventLoopGroupConfig.TRANSPORT_PROFILE_KEY,
+      NettyEventLoopGroupConfig.TRANSPORT_PROFILE_LATENCY);
+    conf.setBoolean(NettyEventLoopGroupConfig.TCP_QUICKACK_KEY, false);
+    config = new NettyEventLoopGroupConfig(conf, "Test-EventLoopGroup");
+    Map<ChannelOption<?>, Object> options =
+      config.applyChildOptions(new ServerBootstrap()).config().childOptions();
+    assertEquals(Boolean.TRUE, options.get(ChannelOption.TCP_NODELAY));
+    assertEquals(NettyEventLoopGroupConfig.LATENCY_PROFILE_SO_BUSY_POLL,
+      options.get(EpollChannelOption.SO_BUSY_POLL));
+    assertFalse(options.containsKey(EpollChannelOption.TCP_QUICKACK));
+    // busy waiting must be asked for explicitly
+    assertFalse(config.isBusyWait());
+  }
+
+  @Test
+  public void testBusyWaitNeedsWorkerCount() {
+    assumeTrue(Epoll.isAvailable() && JVM.isLinux() && JVM.isAmd64());
+    conf.unset(NettyEventLoopGroupConfig.WORKER_COUNT_KEY);
+    conf.setBoolean(NettyEventLoopGroupConfig.EPOLL_BUSY_WAIT_KEY, true);
+    conf.setInt(NettyEventLoopGroupConfig.WAL_WORKER_COUNT_KEY, 1);
+    config = new NettyEventLoopGroupConfig(conf, "Test-EventLoopGroup");
+    assertFalse(config.isBusyWait());
+    assertTrue(config.isWALBusyWait());
+    config.group().shutdownGracefully();
+    config.walGroup().shutdownGracefully();
+
+    conf.setInt(NettyEventLoopGroupConfig.WORKER_COUNT_KEY, 1);
+    config = new NettyEventLoopGroupConfig(conf, "Test-EventLoopGroup");
+    assertTrue(config.isBusyWait());
+  }
+
+  private static void startEventLoops(EventLoopGroup group, int count) throws Exception {
+    for (int i = 0; i < count; i++) {
+      group.next().submit(() -> {
+      }).get();
+    }
+  }
+}
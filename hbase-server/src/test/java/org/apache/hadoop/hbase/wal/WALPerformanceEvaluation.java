@@ -26,6 +26,7 @@ import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -55,6 +56,7 @@ import org.apache.hadoop.hbase.io.crypto.KeyProviderForTesting;
 import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.LogRoller;
 import org.apache.hadoop.hbase.regionserver.MultiVersionConcurrencyControl;
+import org.apache.hadoop.hbase.regionserver.wal.AsyncFSWAL;
 import org.apache.hadoop.hbase.regionserver.wal.SecureProtobufLogReader;
 import org.apache.hadoop.hbase.regionserver.wal.SecureProtobufLogWriter;
 import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
@@ -203,6 +205,7 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
   public int run(String[] args) throws Exception {
     Path rootRegionDir = null;
     int numThreads = 1;
+    int[] threadCounts = null;
     long numIterations = 1000000;
     int numFamilies = 1;
     int syncInterval = 0;
@@ -218,12 +221,17 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
     String spanReceivers = getConf().get("hbase.trace.spanreceiver.classes");
     boolean trace = spanReceivers != null && !spanReceivers.isEmpty();
     double traceFreq = 1.0;
+    boolean preSerialize = false;
     // Process command line args
     for (int i = 0; i < args.length; i++) {
       String cmd = args[i];
       try {
         if (cmd.equals("-threads")) {
           numThreads = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-scaleThreads")) {
+          threadCounts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+        } else if (cmd.equals("-preserialize")) {
+          preSerialize = true;
         } else if (cmd.equals("-iterations")) {
           numIterations = Long.parseLong(args[++i]);
         } else if (cmd.equals("-path")) {
@@ -271,6 +279,16 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
       }
     }
 
+    if (threadCounts == null) {
+      threadCounts = new int[] { numThreads };
+    } else {
+      numThreads = Arrays.stream(threadCounts).max().getAsInt();
+    }
+
+    if (preSerialize) {
+      getConf().setBoolean(AsyncFSWAL.ASYNC_WAL_PRE_SERIALIZE_CELLS, true);
+    }
+
     if (compress) {
       Configuration conf = getConf();
       conf.setBoolean(HConstants.ENABLE_WAL_COMPRESSION, true);
@@ -336,9 +354,14 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
           outputTo(System.out).convertRatesTo(TimeUnit.SECONDS).filter(MetricFilter.ALL).build();
         reporter.start(30, TimeUnit.SECONDS);
 
-        long putTime = runBenchmark(benchmarks, numThreads);
-        logBenchmarkResult("Summary: threads=" + numThreads + ", iterations=" + numIterations +
-          ", syncInterval=" + syncInterval, numIterations * numThreads, putTime);
+        long totalPuts = 0;
+        for (int threads : threadCounts) {
+          long putTime = runBenchmark(benchmarks, threads);
+          logBenchmarkResult("Summary: threads=" + threads + ", iterations=" + numIterations +
+            ", syncInterval=" + syncInterval + ", preserialize=" + preSerialize,
+            numIterations * threads, putTime);
+          totalPuts += numIterations * threads;
+        }
 
         for (int i = 0; i < numRegions; i++) {
           if (regions[i] != null) {
@@ -358,7 +381,7 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
             if (!fs.exists(p)) throw new IllegalStateException(p.toString());
             editCount += verify(wals, p, verbose);
           }
-          long expected = numIterations * numThreads;
+          long expected = totalPuts;
           if (editCount != expected) {
             throw new IllegalStateException("Counted=" + editCount + ", expected=" + expected);
           }
@@ -455,6 +478,8 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
     System.err.println(" where [options] are:");
     System.err.println("  -h|-help         Show this help and exit.");
     System.err.println("  -threads <N>     Number of threads writing on the WAL.");
+    System.err.println("  -scaleThreads <N,M,...> Run once per number of threads writing on the " +
+      "WAL, one after the other, to show how throughput scales. Overrides -threads.");
     System.err.println("  -regions <N>     Number of regions to open in the WAL. Default: 1");
     System.err.println("  -iterations <N>  Number of iterations per thread.");
     System.err.println("  -path <PATH>     Path where region's root directory is created.");
@@ -472,6 +497,8 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
       "e.g. all edit seq ids when verifying");
     System.err.println("  -roll <N>        Roll the way every N appends");
     System.err.println("  -encryption <A>  Encrypt the WAL with algorithm A, e.g. AES");
+    System.err.println("  -preserialize    Encode cells in the writing threads instead of the " +
+      "WAL consumer thread, asyncfs WAL provider only");
     System.err.println("  -traceFreq <N>   Rate of trace sampling. Default: 1.0, " +
       "only respected when tracing is enabled, ie -Dhbase.trace.spanreceiver.classes=...");
     System.err.println("");
@@ -483,6 +510,12 @@ public final class WALPerformanceEvaluation extends Configured implements Tool {
       "WALPerformanceEvaluation \\");
     System.err.println("    -conf ./core-site.xml -path hdfs://example.org:7000/tmp " +
       "-threads 100 -roll 10000 -verify");
+    System.err.println("");
+    System.err.println(" To compare how the asyncfs WAL scales with the number of writing " +
+      "threads when cells are encoded by them:");
+    System.err.println(" $ hbase org.apache.hadoop.hbase.wal." +
+      "WALPerformanceEvaluation \\");
+    System.err.println("    -scaleThreads 1,8,32,128 -iterations 100000 -preserialize");
     System.exit(1);
   }
 
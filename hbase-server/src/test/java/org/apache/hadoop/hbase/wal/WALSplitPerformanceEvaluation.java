@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.ColumnFamilyDescriptorBuilder;
+import org.apache.hadoop.hbase.client.RegionInfo;
+import org.apache.hadoop.hbase.client.RegionInfoBuilder;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.apache.hadoop.hbase.regionserver.ChunkCreator;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.MemStoreLAB;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.CommonFSUtils;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.wal.WALProvider.Writer;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+import org.apache.yetus.audience.InterfaceAudience;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class benchmarks the split of the WALs of a crashed region server. It writes synthetic
+ * WALs for a number of regions, splits them with {@link WALSplitter} and then opens the regions,
+ * which replay recovered.edits or load recovered.hfiles. It reports the split throughput and the
+ * time to recovery, i.e. the time from the start of the split until all regions are open.
+ * See usage for this tool by running:
+ * <code>$ hbase org.apache.hadoop.hbase.wal.WALSplitPerformanceEvaluation -h</code>
+ */
+@InterfaceAudience.Private
+public final class WALSplitPerformanceEvaluation extends Configured implements Tool {
+  private static final Logger LOG = LoggerFactory.getLogger(WALSplitPerformanceEvaluation.class);
+
+  static final String TABLE_NAME = "WALSplitPerformanceEvaluation";
+  static final String FAMILY_PREFIX = "cf";
+  static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private int numWALs = 4;
+  private long numEdits = 100000;
+  private int numRegions = 16;
+  private int numFamilies = 1;
+  private int valueSize = 512;
+  private int openThreads = 8;
+  private boolean verify = false;
+
+  @Override
+  public int run(String[] args) throws Exception {
+    Path rootDir = null;
+    boolean cleanup = true;
+    // Process command line args
+    for (int i = 0; i < args.length; i++) {
+      String cmd = args[i];
+      try {
+        if (cmd.equals("-wals")) {
+          numWALs = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-edits")) {
+          numEdits = Long.parseLong(args[++i]);
+        } else if (cmd.equals("-regions")) {
+          numRegions = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-families")) {
+          numFamilies = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-valueSize")) {
+          valueSize = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-concurrency")) {
+          getConf().setInt(HConstants.HBASE_SPLIT_WAL_MAX_SPLITTER, Integer.parseInt(args[++i]));
+        } else if (cmd.equals("-writerThreads")) {
+          getConf().setInt(WALSplitter.SPLIT_WAL_WRITER_THREADS, Integer.parseInt(args[++i]));
+        } else if (cmd.equals("-openThreads")) {
+          openThreads = Integer.parseInt(args[++i]);
+        } else if (cmd.equals("-hfile")) {
+          getConf().setBoolean(WALSplitter.WAL_SPLIT_TO_HFILE, true);
+        } else if (cmd.equals("-compress")) {
+          getConf().setBoolean(HConstants.ENABLE_WAL_COMPRESSION, true);
+        } else if (cmd.equals("-path")) {
+          rootDir = new Path(args[++i]);
+        } else if (cmd.equals("-verify")) {
+          verify = true;
+        } else if (cmd.equals("-nocleanup")) {
+          cleanup = false;
+        } else if (cmd.equals("-h") || cmd.equals("-help") || cmd.equals("--help")) {
+          printUsageAndExit();
+        } else {
+          System.err.println("UNEXPECTED: " + cmd);
+          printUsageAndExit();
+        }
+      } catch (Exception e) {
+        printUsageAndExit();
+      }
+    }
+
+    if (rootDir == null) {
+      rootDir = new HBaseTestingUtility(getConf()).getDataTestDirOnTestFS("WALSplitPE");
+    }
+    Configuration conf = getConf();
+    FileSystem fs = rootDir.getFileSystem(conf);
+    rootDir = fs.makeQualified(rootDir);
+    CommonFSUtils.setRootDir(conf, rootDir);
+    CommonFSUtils.setWALRootDir(conf, rootDir);
+    // replaying recovered.edits goes through the memstores
+    ChunkCreator.initialize(MemStoreLAB.CHUNK_SIZE_DEFAULT, false, 0, 0, 0, null,
+      MemStoreLAB.INDEX_CHUNK_SIZE_PERCENTAGE_DEFAULT);
+    try {
+      TableDescriptor htd = createHTableDescriptor(numFamilies);
+      List<RegionInfo> regions = createRegions(conf, rootDir, htd);
+      Path walsDir = new Path(rootDir, "splitWALs");
+      long walBytes = writeWALs(fs, walsDir, htd, regions);
+
+      WALFactory wals = new WALFactory(conf, "WALSplitPerformanceEvaluation");
+      try {
+        long start = EnvironmentEdgeManager.currentTime();
+        List<Path> splits = WALSplitter.split(rootDir, walsDir,
+          new Path(rootDir, HConstants.HREGION_OLDLOGDIR_NAME), fs, conf, wals);
+        long splitTime = EnvironmentEdgeManager.currentTime() - start;
+        long openStart = EnvironmentEdgeManager.currentTime();
+        long cells = openRegions(conf, rootDir, htd, regions, wals);
+        long openTime = EnvironmentEdgeManager.currentTime() - openStart;
+
+        double mb = walBytes / (1024.0 * 1024.0);
+        System.out.printf("Split %d WALs, %.1f MB, into %d files in %d ms: %.1f MB/s%n", numWALs,
+          mb, splits.size(), splitTime, splitTime == 0 ? 0 : mb * 1000 / splitTime);
+        System.out.printf("Opened %d regions in %d ms; time to recovery (split + open): %d ms%n",
+          regions.size(), openTime, splitTime + openTime);
+        if (verify) {
+          long expected = numWALs * numEdits * numFamilies;
+          if (cells != expected) {
+            System.err.println("Recovered " + cells + " cells but wrote " + expected);
+            return 1;
+          }
+          System.out.println("Verified " + cells + " recovered cells");
+        }
+      } finally {
+        wals.close();
+      }
+    } finally {
+      if (cleanup) {
+        fs.delete(rootDir, true);
+      }
+    }
+    return 0;
+  }
+
+  private TableDescriptor createHTableDescriptor(final int numFamilies) {
+    TableDescriptorBuilder builder =
+      TableDescriptorBuilder.newBuilder(TableName.valueOf(TABLE_NAME));
+    for (int i = 0; i < numFamilies; ++i) {
+      builder.setColumnFamily(ColumnFamilyDescriptorBuilder.of(FAMILY_PREFIX + i));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates the region directories, the split skips edits of regions it can't find.
+   */
+  private List<RegionInfo> createRegions(Configuration conf, Path rootDir, TableDescriptor htd)
+      throws IOException {
+    List<RegionInfo> regions = new ArrayList<>(numRegions);
+    for (int i = 0; i < numRegions; i++) {
+      RegionInfo region = RegionInfoBuilder.newBuilder(htd.getTableName())
+        .setStartKey(i == 0 ? HConstants.EMPTY_START_ROW : regionPrefix(i))
+        .setEndKey(i == numRegions - 1 ? HConstants.EMPTY_END_ROW : regionPrefix(i + 1))
+        .build();
+      HRegion.createHRegion(region, rootDir, conf, htd, null).close();
+      regions.add(region);
+    }
+    return regions;
+  }
+
+  private static byte[] regionPrefix(int i) {
+    return Bytes.toBytes(String.format("%08d", i));
+  }
+
+  /**
+   * Writes the synthetic WALs, the edits of each WAL have higher sequence ids than those of the
+   * previous one, as for a region server rolling its WAL.
+   * @return the total size of the WALs
+   */
+  private long writeWALs(FileSystem fs, Path walsDir, TableDescriptor htd,
+      List<RegionInfo> regions) throws IOException {
+    Random rand = new Random();
+    byte[][] families = new byte[numFamilies][];
+    for (int i = 0; i < numFamilies; i++) {
+      families[i] = Bytes.toBytes(FAMILY_PREFIX + i);
+    }
+    byte[] value = new byte[valueSize];
+    long seqId = 0;
+    long bytes = 0;
+    fs.mkdirs(walsDir);
+    for (int w = 0; w < numWALs; w++) {
+      Path path = new Path(walsDir, "wal." + w);
+      try (Writer writer = WALFactory.createWALWriter(fs, path, getConf())) {
+        for (long e = 0; e < numEdits; e++) {
+          int r = rand.nextInt(regions.size());
+          byte[] row = Bytes.add(regionPrefix(r), Bytes.toBytes(rand.nextLong()));
+          long now = EnvironmentEdgeManager.currentTime();
+          rand.nextBytes(value);
+          WALEdit edit = new WALEdit();
+          for (byte[] family : families) {
+            edit.add(new KeyValue(row, family, QUALIFIER, now, value));
+          }
+          WALKeyImpl key = new WALKeyImpl(regions.get(r).getEncodedNameAsBytes(),
+            htd.getTableName(), ++seqId, now, HConstants.DEFAULT_CLUSTER_ID);
+          writer.append(new WAL.Entry(key, edit));
+        }
+      }
+      FileStatus status = fs.getFileStatus(path);
+      bytes += status.getLen();
+      LOG.info("Wrote {}, {} bytes", path, status.getLen());
+    }
+    return bytes;
+  }
+
+  /**
+   * Opens the regions, recovering what the split wrote for them.
+   * @return the number of cells in the regions
+   */
+  private long openRegions(Configuration conf, Path rootDir, TableDescriptor htd,
+      List<RegionInfo> regions, WALFactory wals) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(openThreads);
+    try {
+      List<Future<HRegion>> futures = new ArrayList<>(regions.size());
+      for (RegionInfo region : regions) {
+        futures.add(pool.submit(
+          () -> HRegion.openHRegion(rootDir, region, htd, wals.getWAL(region), conf)));
+      }
+      long cells = 0;
+      for (Future<HRegion> future : futures) {
+        HRegion region = future.get();
+        try {
+          if (verify) {
+            cells += countCells(region);
+          }
+        } finally {
+          region.close();
+        }
+      }
+      return cells;
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+  }
+
+  private static long countCells(HRegion region) throws IOException {
+    long count = 0;
+    try (RegionScanner scanner = region.getScanner(new Scan())) {
+      List<Cell> cells = new ArrayList<>();
+      boolean more;
+      do {
+        more = scanner.next(cells);
+        count += cells.size();
+        cells.clear();
+      } while (more);
+    }
+    return count;
+  }
+
+  private void printUsageAndExit() {
+    System.err.printf("Usage: hbase %s [options]\n", getClass().getName());
+    System.err.println(" where [options] are:");
+    System.err.println("  -h|-help           Show this help and exit.");
+    System.err.println("  -wals <N>          Number of WALs to split. Default: 4");
+    System.err.println("  -edits <N>         Number of edits per WAL. Default: 100000");
+    System.err.println("  -regions <N>       Number of regions the edits spread over. Default: 16");
+    System.err.println("  -families <N>      Number of column families. Default: 1");
+    System.err.println("  -valueSize <N>     Size of the values in bytes. Default: 512");
+    System.err.println("  -concurrency <N>   Number of WALs split at the same time. Default: 2");
+    System.err.println("  -writerThreads <N> Number of split writer threads per WAL. Default: 3");
+    System.err.println("  -openThreads <N>   Number of threads opening regions. Default: 8");
+    System.err.println("  -hfile             Split to recovered.hfiles instead of recovered.edits");
+    System.err.println("  -compress          Write compressed WALs");
+    System.err.println("  -path <PATH>       Root directory. Default: a test data dir");
+    System.err.println("  -verify            Verify the regions hold every edit once opened");
+    System.err.println("  -nocleanup         Do not delete the root directory when done");
+    System.err.println("");
+    System.err.println("Examples:");
+    System.err.println("");
+    System.err.println(" To compare splitting 8 WALs to recovered.edits and to recovered.hfiles:");
+    System.err.println(" $ hbase " + getClass().getName() + " -wals 8 -concurrency 4");
+    System.err.println(" $ hbase " + getClass().getName() + " -wals 8 -concurrency 4 -hfile");
+    System.exit(1);
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(ToolRunner.run(HBaseConfiguration.create(), new WALSplitPerformanceEvaluation(),
+      args));
+  }
+}